@@ -0,0 +1,52 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.benchmarks;
+
+import io.bisq.core.payment.AccountAgeWitness;
+import io.bisq.network.p2p.storage.P2PDataStorage;
+import io.bisq.network.p2p.storage.payload.PersistableNetworkPayload;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class BenchmarkUtils {
+    // Fixed seed so all runs and releases work on the same data
+    private static final long SEED = 42;
+
+    /**
+     * @return AccountAgeWitness items by their hash. AccountAgeWitness is the most common PersistableNetworkPayload.
+     */
+    public static Map<P2PDataStorage.ByteArray, PersistableNetworkPayload> createAccountAgeWitnesses(int numItems) {
+        Random random = new Random(SEED);
+        long now = 1_500_000_000_000L;
+        Map<P2PDataStorage.ByteArray, PersistableNetworkPayload> map = new LinkedHashMap<>();
+        for (int i = 0; i < numItems; i++) {
+            byte[] hash = new byte[20];
+            random.nextBytes(hash);
+            map.put(new P2PDataStorage.ByteArray(hash), new AccountAgeWitness(hash, now - random.nextInt(1_000_000_000)));
+        }
+        return map;
+    }
+
+    public static byte[] createRandomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(SEED).nextBytes(bytes);
+        return bytes;
+    }
+}
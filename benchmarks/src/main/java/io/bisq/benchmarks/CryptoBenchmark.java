@@ -0,0 +1,101 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.benchmarks;
+
+import com.google.common.base.Strings;
+import io.bisq.common.app.Version;
+import io.bisq.common.crypto.*;
+import io.bisq.core.alert.Alert;
+import io.bisq.core.proto.network.CoreNetworkProtoResolver;
+import io.bisq.network.crypto.DecryptedDataTuple;
+import io.bisq.network.crypto.EncryptionService;
+import io.bisq.network.p2p.CloseConnectionMessage;
+import io.bisq.network.p2p.storage.P2PDataStorage;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.openjdk.jmh.annotations.*;
+
+import java.security.KeyPair;
+import java.security.Security;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hashing of storage payloads, DSA sign/verify and the hybrid encryption used for direct and mailbox messages.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class CryptoBenchmark {
+    @Param({"100", "10000", "1000000"})
+    public int payloadSize;
+
+    private KeyPair signatureKeyPair;
+    private KeyPair encryptionKeyPair;
+    private EncryptionService encryptionService;
+    private byte[] data;
+    private byte[] signature;
+    private Alert alert;
+    private CloseConnectionMessage message;
+    private SealedAndSigned sealedAndSigned;
+
+    @Setup
+    public void setup() throws CryptoException {
+        Security.addProvider(new BouncyCastleProvider());
+        signatureKeyPair = Sig.generateKeyPair();
+        encryptionKeyPair = Encryption.generateKeyPair();
+        encryptionService = new EncryptionService(null, new CoreNetworkProtoResolver());
+
+        data = BenchmarkUtils.createRandomBytes(payloadSize);
+        signature = Sig.sign(signatureKeyPair.getPrivate(), data);
+
+        String content = Strings.repeat("x", payloadSize);
+        alert = new Alert(content, false, Version.VERSION);
+        alert.setSigAndPubKey(Sig.sign(signatureKeyPair.getPrivate(), content), signatureKeyPair.getPublic());
+
+        message = new CloseConnectionMessage(content);
+        sealedAndSigned = EncryptionService.encryptHybridWithSignature(message, signatureKeyPair,
+                encryptionKeyPair.getPublic());
+    }
+
+    @Benchmark
+    public byte[] getHash() {
+        return P2PDataStorage.getHash(alert);
+    }
+
+    @Benchmark
+    public byte[] sign() throws CryptoException {
+        return Sig.sign(signatureKeyPair.getPrivate(), data);
+    }
+
+    @Benchmark
+    public boolean verify() throws CryptoException {
+        return Sig.verify(signatureKeyPair.getPublic(), data, signature);
+    }
+
+    @Benchmark
+    public SealedAndSigned encryptAndSign() throws CryptoException {
+        return EncryptionService.encryptHybridWithSignature(message, signatureKeyPair, encryptionKeyPair.getPublic());
+    }
+
+    @Benchmark
+    public DecryptedDataTuple verifyAndDecrypt() throws CryptoException {
+        return encryptionService.decryptHybridWithSignature(sealedAndSigned, encryptionKeyPair.getPrivate());
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.benchmarks;
+
+import com.google.common.io.Files;
+import io.bisq.common.proto.persistable.PersistenceProtoResolver;
+import io.bisq.common.storage.FileManager;
+import io.bisq.common.storage.FileUtil;
+import io.bisq.core.proto.network.CoreNetworkProtoResolver;
+import io.bisq.core.proto.persistable.CorePersistenceProtoResolver;
+import io.bisq.network.p2p.storage.PersistableNetworkPayloadCollection;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing and reading a PersistableNetworkPayloadCollection. The collection gets persisted as a whole, so its size
+ * is the relevant parameter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class FileManagerBenchmark {
+    private static final String FILE_NAME = "PersistableNetworkPayloadMap";
+
+    @Param({"10000", "100000"})
+    public int numPayloads;
+
+    private File dir;
+    private File storageFile;
+    private FileManager<PersistableNetworkPayloadCollection> fileManager;
+    private PersistableNetworkPayloadCollection collection;
+
+    @Setup
+    public void setup() {
+        dir = Files.createTempDir();
+        storageFile = new File(dir, FILE_NAME);
+        PersistenceProtoResolver persistenceProtoResolver = new CorePersistenceProtoResolver(null,
+                new CoreNetworkProtoResolver(), dir);
+        fileManager = new FileManager<>(dir, storageFile, 100, persistenceProtoResolver);
+
+        collection = new PersistableNetworkPayloadCollection();
+        collection.getMap().putAll(BenchmarkUtils.createAccountAgeWitnesses(numPayloads));
+        // The read benchmark needs an existing file
+        fileManager.saveNow(collection);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        FileUtil.deleteDirectory(dir);
+    }
+
+    @Benchmark
+    public void saveNow() {
+        fileManager.saveNow(collection);
+    }
+
+    @Benchmark
+    public PersistableNetworkPayloadCollection read() {
+        return fileManager.read(storageFile);
+    }
+}
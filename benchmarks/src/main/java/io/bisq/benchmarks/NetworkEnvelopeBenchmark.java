@@ -0,0 +1,85 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.benchmarks;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import io.bisq.common.proto.network.NetworkEnvelope;
+import io.bisq.common.proto.network.NetworkProtoResolver;
+import io.bisq.core.proto.network.CoreNetworkProtoResolver;
+import io.bisq.generated.protobuffer.PB;
+import io.bisq.network.p2p.peers.getdata.messages.GetDataResponse;
+import io.bisq.network.p2p.peers.keepalive.messages.Ping;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding and decoding of a small (Ping) and a large (GetDataResponse) network message, the same way as
+ * Connection does it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class NetworkEnvelopeBenchmark {
+    @Param({"100", "10000"})
+    public int numPayloads;
+
+    private NetworkProtoResolver networkProtoResolver;
+    private Ping ping;
+    private byte[] pingBytes;
+    private GetDataResponse getDataResponse;
+    private byte[] getDataResponseBytes;
+
+    @Setup
+    public void setup() {
+        networkProtoResolver = new CoreNetworkProtoResolver();
+
+        ping = new Ping(1234, 567);
+        pingBytes = ping.toProtoNetworkEnvelope().toByteArray();
+
+        getDataResponse = new GetDataResponse(new HashSet<>(),
+                new HashSet<>(BenchmarkUtils.createAccountAgeWitnesses(numPayloads).values()),
+                1234,
+                false);
+        getDataResponseBytes = getDataResponse.toProtoNetworkEnvelope().toByteArray();
+    }
+
+    @Benchmark
+    public byte[] encodePing() {
+        return ping.toProtoNetworkEnvelope().toByteArray();
+    }
+
+    @Benchmark
+    public NetworkEnvelope decodePing() throws InvalidProtocolBufferException {
+        return networkProtoResolver.fromProto(PB.NetworkEnvelope.parseFrom(pingBytes));
+    }
+
+    @Benchmark
+    public byte[] encodeGetDataResponse() {
+        return getDataResponse.toProtoNetworkEnvelope().toByteArray();
+    }
+
+    @Benchmark
+    public NetworkEnvelope decodeGetDataResponse() throws InvalidProtocolBufferException {
+        return networkProtoResolver.fromProto(PB.NetworkEnvelope.parseFrom(getDataResponseBytes));
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.core.dao.blockchain.parse;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
+import io.bisq.common.storage.FileUtil;
+import io.bisq.core.dao.blockchain.vo.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Parsing of a synthetic block with the genesis tx and numChains chains of chainLength BSQ transfers, where each
+ * transfer spends the output of the previous one in the same block. Long chains of intra-block dependencies are the
+ * expensive case for the parser.
+ * <p/>
+ * It uses parseBsqBlock, which runs the same tx resolution as parseBlock but without the RPC requests, so we measure
+ * only the parser. Parsing changes the state of the txs and of the BsqBlockChain, so the block and the chain get
+ * created before each invocation.
+ * <p/>
+ * It is in the same package as BsqParser for accessing parseBsqBlock.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class BsqParserBenchmark {
+    private static final String GENESIS_TX_ID = "genesisTxId";
+    private static final int GENESIS_BLOCK_HEIGHT = 200;
+    private static final String BLOCK_HASH = "blockHash200";
+
+    @Param({"100", "1000"})
+    public int numChains;
+
+    @Param({"1", "10"})
+    public int chainLength;
+
+    private File dir;
+    private BsqParser bsqParser;
+    private BsqBlock bsqBlock;
+
+    @Setup(Level.Trial)
+    public void setupTrial() {
+        dir = Files.createTempDir();
+    }
+
+    @Setup(Level.Invocation)
+    public void setupInvocation() {
+        BsqBlockChain bsqBlockChain = new BsqBlockChain(null, dir, GENESIS_TX_ID, GENESIS_BLOCK_HEIGHT);
+        bsqParser = new BsqParser(mock(RpcService.class),
+                bsqBlockChain,
+                mock(OpReturnVerification.class),
+                mock(IssuanceVerification.class));
+        bsqBlock = createBlock();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        FileUtil.deleteDirectory(dir);
+    }
+
+    @Benchmark
+    public BsqBlock parseBsqBlock() {
+        bsqParser.parseBsqBlock(bsqBlock, GENESIS_BLOCK_HEIGHT, GENESIS_TX_ID);
+        return bsqBlock;
+    }
+
+    private BsqBlock createBlock() {
+        long time = 1_500_000_000L;
+        long value = 100_000;
+        List<Tx> txs = new ArrayList<>();
+        List<TxOutput> genesisOutputs = new ArrayList<>();
+        for (int i = 0; i < numChains; i++)
+            genesisOutputs.add(new TxOutput(i, value, GENESIS_TX_ID, null, null, null, GENESIS_BLOCK_HEIGHT));
+        txs.add(new Tx(new TxVo(GENESIS_TX_ID, GENESIS_BLOCK_HEIGHT, BLOCK_HASH, time),
+                ImmutableList.of(new TxInput("someOldTx", 0)),
+                genesisOutputs));
+
+        for (int i = 0; i < numChains; i++) {
+            String spentTxId = GENESIS_TX_ID;
+            int spentIndex = i;
+            for (int j = 0; j < chainLength; j++) {
+                String txId = "tx_" + i + "_" + j;
+                // Each transfer pays a small fee in BSQ
+                long outputValue = value - (j + 1) * 10;
+                txs.add(new Tx(new TxVo(txId, GENESIS_BLOCK_HEIGHT, BLOCK_HASH, time),
+                        ImmutableList.of(new TxInput(spentTxId, spentIndex)),
+                        ImmutableList.of(new TxOutput(0, outputValue, txId, null, null, null, GENESIS_BLOCK_HEIGHT))));
+                spentTxId = txId;
+                spentIndex = 0;
+            }
+        }
+        return new BsqBlock(GENESIS_BLOCK_HEIGHT, BLOCK_HASH, "blockHash199", ImmutableList.copyOf(txs));
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.network.p2p.peers.getdata;
+
+import com.google.common.io.Files;
+import io.bisq.benchmarks.BenchmarkUtils;
+import io.bisq.common.proto.network.NetworkEnvelope;
+import io.bisq.common.storage.FileUtil;
+import io.bisq.core.proto.network.CoreNetworkProtoResolver;
+import io.bisq.core.proto.persistable.CorePersistenceProtoResolver;
+import io.bisq.network.p2p.network.Connection;
+import io.bisq.network.p2p.network.NetworkNode;
+import io.bisq.network.p2p.peers.Broadcaster;
+import io.bisq.network.p2p.peers.getdata.messages.GetDataRequest;
+import io.bisq.network.p2p.peers.getdata.messages.GetDataResponse;
+import io.bisq.network.p2p.peers.getdata.messages.PreliminaryGetDataRequest;
+import io.bisq.network.p2p.storage.P2PDataStorage;
+import io.bisq.network.p2p.storage.payload.PersistableNetworkPayload;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Building the GetDataResponse for a GetDataRequest at a seed node. The requesting peer misses the last
+ * NUM_MISSING_AT_PEER of our items. It is in the same package as GetDataRequestHandler for accessing
+ * createGetDataResponse.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class GetDataResponseBenchmark {
+    private static final int NUM_MISSING_AT_PEER = 100;
+
+    public enum RequestType {
+        // Peer without any data
+        NEW_PEER,
+        // Peer sends the keys of all its items
+        EXCLUDED_KEYS,
+        // Peer sends the summary of its keys
+        SUMMARY
+    }
+
+    @Param({"10000", "100000"})
+    public int numPayloads;
+
+    @Param({"NEW_PEER", "EXCLUDED_KEYS", "SUMMARY"})
+    public RequestType requestType;
+
+    private File dir;
+    private P2PDataStorage dataStorage;
+    private GetDataRequestHandler handler;
+    private GetDataRequest getDataRequest;
+    private Connection connection;
+
+    @Setup
+    public void setup() {
+        dir = Files.createTempDir();
+        NetworkNode networkNode = mock(NetworkNode.class);
+        dataStorage = new P2PDataStorage(networkNode,
+                mock(Broadcaster.class),
+                dir,
+                new CorePersistenceProtoResolver(null, new CoreNetworkProtoResolver(), dir));
+        // There is no resource file in the benchmarks so we start with an empty collection
+        dataStorage.readFromResources("PersistableNetworkPayloadMap_BENCHMARK");
+
+        Map<P2PDataStorage.ByteArray, PersistableNetworkPayload> payloads = BenchmarkUtils.createAccountAgeWitnesses(numPayloads);
+        dataStorage.getPersistableNetworkPayloadCollection().getMap().putAll(payloads);
+
+        List<P2PDataStorage.ByteArray> keys = new ArrayList<>(payloads.keySet());
+        List<P2PDataStorage.ByteArray> keysAtPeer = keys.subList(0, Math.max(0, keys.size() - NUM_MISSING_AT_PEER));
+        int nonce = 1234;
+        switch (requestType) {
+            case NEW_PEER:
+                getDataRequest = new PreliminaryGetDataRequest(nonce, new HashSet<>(), null);
+                break;
+            case EXCLUDED_KEYS:
+                Set<byte[]> excludedKeys = keysAtPeer.stream().map(e -> e.bytes).collect(Collectors.toSet());
+                getDataRequest = new PreliminaryGetDataRequest(nonce, excludedKeys, null);
+                break;
+            case SUMMARY:
+                InvertibleBloomLookupTable summary = InvertibleBloomLookupTable.fromKeys(keysAtPeer,
+                        InvertibleBloomLookupTable.getNumCellsForDifference(NUM_MISSING_AT_PEER),
+                        nonce);
+                getDataRequest = new PreliminaryGetDataRequest(nonce, new HashSet<>(), summary);
+                break;
+        }
+
+        connection = mock(Connection.class);
+        when(connection.isCapabilitySupported(any(NetworkEnvelope.class))).thenReturn(true);
+        handler = new GetDataRequestHandler(networkNode, dataStorage, mock(GetDataRequestHandler.Listener.class));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        dataStorage.shutDown();
+        FileUtil.deleteDirectory(dir);
+    }
+
+    @Benchmark
+    public GetDataResponse createGetDataResponse() {
+        return handler.createGetDataResponse(getDataRequest, connection);
+    }
+}
@@ -2,4 +2,6 @@ package io.bisq.common;
 
 public class CommonOptionKeys {
     public static final String LOG_LEVEL_KEY = "logLevel";
+    public static final String LOG_MESSAGE_SAMPLE_RATES_KEY = "logMessageSampleRates";
+    public static final String LOG_MESSAGE_PAYLOADS_KEY = "logMessagePayloads";
 }
@@ -0,0 +1,220 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.common;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hashed timing wheel with a single ticker thread (similar to Netty's HashedWheelTimer).
+ * Scheduling and cancelling are O(1): callers only enqueue into lock free queues, the ticker thread moves new
+ * timeouts into their bucket and unlinks cancelled ones from the doubly linked bucket list.
+ * Timeouts with a delay longer than one revolution of the wheel carry the number of remaining rounds.
+ * Expired timeouts are handed over to the UserThread.
+ */
+class TimingWheel {
+    private static final Logger log = LoggerFactory.getLogger(TimingWheel.class);
+
+    static final long TICK_DURATION_MS = 10;
+    // Must be a power of 2. 512 ticks of 10 ms covers about 5 sec. per round.
+    static final int WHEEL_SIZE = 512;
+    // Limit the number of new timeouts moved into the wheel per tick to avoid stalling the ticker
+    private static final int MAX_TRANSFERS_PER_TICK = 100_000;
+
+    private static final TimingWheel INSTANCE = new TimingWheel();
+
+    static TimingWheel getInstance() {
+        return INSTANCE;
+    }
+
+    private final Bucket[] wheel = new Bucket[WHEEL_SIZE];
+    private final int mask = WHEEL_SIZE - 1;
+    private final Queue<Timeout> pendingTimeouts = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+    private final long startTime;
+    private long tick;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private TimingWheel() {
+        for (int i = 0; i < WHEEL_SIZE; i++)
+            wheel[i] = new Bucket();
+
+        startTime = System.nanoTime();
+        Thread ticker = new Thread(this::runTicker, "TimingWheel");
+        ticker.setDaemon(true);
+        ticker.start();
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    Timeout schedule(TimingWheelTimer timer, long delayMs) {
+        Timeout timeout = new Timeout(timer, System.nanoTime() - startTime + TimeUnit.MILLISECONDS.toNanos(Math.max(0, delayMs)));
+        pendingTimeouts.add(timeout);
+        return timeout;
+    }
+
+    void cancel(Timeout timeout) {
+        if (!timeout.cancelled) {
+            timeout.cancelled = true;
+            cancelledTimeouts.add(timeout);
+        }
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Ticker thread
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private void runTicker() {
+        while (true) {
+            try {
+                waitForNextTick();
+                removeCancelledTimeouts();
+                transferPendingTimeouts();
+                expireTimeouts(wheel[(int) (tick & mask)]);
+                tick++;
+            } catch (InterruptedException e) {
+                log.warn("TimingWheel ticker got interrupted");
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Throwable t) {
+                log.error("Unexpected error at TimingWheel ticker: " + t.getMessage());
+                t.printStackTrace();
+            }
+        }
+    }
+
+    private void waitForNextTick() throws InterruptedException {
+        long deadline = TimeUnit.MILLISECONDS.toNanos(TICK_DURATION_MS * (tick + 1));
+        long sleepTimeMs = TimeUnit.NANOSECONDS.toMillis(deadline - (System.nanoTime() - startTime) + 999_999);
+        if (sleepTimeMs > 0)
+            Thread.sleep(sleepTimeMs);
+    }
+
+    private void removeCancelledTimeouts() {
+        Timeout timeout;
+        while ((timeout = cancelledTimeouts.poll()) != null) {
+            if (timeout.bucket != null)
+                timeout.bucket.remove(timeout);
+        }
+    }
+
+    private void transferPendingTimeouts() {
+        for (int i = 0; i < MAX_TRANSFERS_PER_TICK; i++) {
+            Timeout timeout = pendingTimeouts.poll();
+            if (timeout == null)
+                break;
+
+            if (!timeout.cancelled)
+                addToBucket(timeout);
+        }
+    }
+
+    private void addToBucket(Timeout timeout) {
+        long calculatedTick = timeout.deadlineNanos / TimeUnit.MILLISECONDS.toNanos(TICK_DURATION_MS);
+        timeout.remainingRounds = (calculatedTick - tick) / WHEEL_SIZE;
+        // Don't schedule for the past, we use the current tick in that case
+        long ticks = Math.max(calculatedTick, tick);
+        wheel[(int) (ticks & mask)].add(timeout);
+    }
+
+    private void expireTimeouts(Bucket bucket) {
+        Timeout timeout = bucket.head;
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            if (timeout.remainingRounds <= 0) {
+                bucket.remove(timeout);
+                if (!timeout.cancelled)
+                    timeout.timer.onExpired(timeout);
+            } else {
+                timeout.remainingRounds--;
+            }
+            timeout = next;
+        }
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Inner classes
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    static final class Timeout {
+        private final TimingWheelTimer timer;
+        private final long deadlineNanos;
+        private volatile boolean cancelled;
+
+        // Only accessed by the ticker thread
+        private long remainingRounds;
+        private Bucket bucket;
+        private Timeout prev;
+        private Timeout next;
+
+        private Timeout(TimingWheelTimer timer, long deadlineNanos) {
+            this.timer = timer;
+            this.deadlineNanos = deadlineNanos;
+        }
+    }
+
+    // Doubly linked list so that cancelled timeouts can be unlinked in O(1)
+    private static final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        private void add(Timeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        private void remove(Timeout timeout) {
+            if (timeout.prev != null)
+                timeout.prev.next = timeout.next;
+            if (timeout.next != null)
+                timeout.next.prev = timeout.prev;
+
+            if (timeout == head) {
+                if (timeout == tail) {
+                    head = tail = null;
+                } else {
+                    head = timeout.next;
+                }
+            } else if (timeout == tail) {
+                tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+    }
+}
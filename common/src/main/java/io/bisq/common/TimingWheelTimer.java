@@ -0,0 +1,89 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.common;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+
+/**
+ * Timer backed by a shared hashed timing wheel. In contrast to the FrameRateTimer it does not get polled at each
+ * frame, so the costs of a tick depend only on the number of timers which expire, not on the number of live timers.
+ * Scheduling and stopping are O(1) and the precision is TimingWheel.TICK_DURATION_MS (10 ms).
+ * Used only in headless apps like the seed node (set by UserThread.setTimerClass).
+ */
+public class TimingWheelTimer implements Timer {
+    private final Logger log = LoggerFactory.getLogger(TimingWheelTimer.class);
+
+    private long interval;
+    private Runnable runnable;
+    private boolean isPeriodically;
+    private volatile boolean stopped;
+    private volatile TimingWheel.Timeout timeout;
+
+    public TimingWheelTimer() {
+    }
+
+    @Override
+    public Timer runLater(Duration delay, Runnable runnable) {
+        this.interval = delay.toMillis();
+        this.runnable = runnable;
+        timeout = TimingWheel.getInstance().schedule(this, interval);
+        return this;
+    }
+
+    @Override
+    public Timer runPeriodically(Duration interval, Runnable runnable) {
+        this.interval = interval.toMillis();
+        this.runnable = runnable;
+        isPeriodically = true;
+        timeout = TimingWheel.getInstance().schedule(this, this.interval);
+        return this;
+    }
+
+    @Override
+    public void stop() {
+        stopped = true;
+        TimingWheel.Timeout timeout = this.timeout;
+        if (timeout != null)
+            TimingWheel.getInstance().cancel(timeout);
+    }
+
+    // Called from the TimingWheel ticker thread
+    void onExpired(TimingWheel.Timeout expiredTimeout) {
+        if (stopped || expiredTimeout != timeout)
+            return;
+
+        if (isPeriodically)
+            timeout = TimingWheel.getInstance().schedule(this, interval);
+
+        UserThread.execute(() -> {
+            if (!stopped) {
+                try {
+                    runnable.run();
+                } catch (Throwable t) {
+                    log.error(t.getMessage());
+                    t.printStackTrace();
+                    stop();
+                    throw t;
+                }
+            }
+        });
+    }
+}
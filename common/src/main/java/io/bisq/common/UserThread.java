@@ -84,6 +84,12 @@ public class UserThread {
     }
 
     private static Timer getTimer() {
+        // Avoid reflection for the built-in headless timers as those get created at a high rate
+        if (timerClass == TimingWheelTimer.class)
+            return new TimingWheelTimer();
+        else if (timerClass == FrameRateTimer.class)
+            return new FrameRateTimer();
+
         try {
             return timerClass.getDeclaredConstructor().newInstance();
         } catch (InstantiationException | NoSuchMethodException | InvocationTargetException | IllegalAccessException e) {
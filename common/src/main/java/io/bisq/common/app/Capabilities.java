@@ -19,7 +19,10 @@ public class Capabilities {
         ACCOUNT_AGE_WITNESS,
         SEED_NODE,
         DAO_FULL_NODE,
-        COMP_REQUEST
+        COMP_REQUEST,
+        DELTA_SYNC, // GetDataRequest with InvertibleBloomLookupTable summary instead of excludedKeys
+        DAO_SNAPSHOT, // Full DAO node serving its BsqBlockChain snapshot with GetBsqSnapshotRequest
+        CHUNKED_GET_DATA // GetDataResponse gets sent in chunks
     }
 
     // Application need to set supported capabilities at startup
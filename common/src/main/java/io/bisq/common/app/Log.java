@@ -30,9 +30,20 @@ import org.slf4j.LoggerFactory;
 
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 public class Log {
+    // Max. length of a message payload dump
+    private static final int MAX_PAYLOAD_LENGTH = 10_000;
+
     private static Logger logbackLogger;
+    // Message type (simple class name) -> only every nth message gets logged
+    private static final Map<String, Integer> sampleRateByMessageType = new ConcurrentHashMap<>();
+    private static final Map<String, AtomicLong> counterByMessageType = new ConcurrentHashMap<>();
+    private static volatile boolean payloadLoggingEnabled;
 
     public static void setLevel(Level logLevel) {
         logbackLogger.setLevel(logLevel);
@@ -113,10 +124,100 @@ public class Log {
         }
     }
 
+    // The message only gets created if trace is enabled
+    public static void traceCall(Supplier<String> messageSupplier) {
+        if (LoggerFactory.getLogger(Log.class).isTraceEnabled()) {
+            StackTraceElement stackTraceElement = new Throwable().getStackTrace()[1];
+            String methodName = stackTraceElement.getMethodName();
+            if (methodName.equals("<init>"))
+                methodName = "Constructor ";
+            String className = stackTraceElement.getClassName();
+            LoggerFactory.getLogger(className).trace("Called: {} [{}]", methodName, messageSupplier.get());
+        }
+    }
+
+    /**
+     * Wraps the supplier into an object which evaluates it at toString, so it can be used as parameter of a log
+     * statement and only gets evaluated if the level is enabled.
+     */
+    public static Object lazy(Supplier<?> supplier) {
+        return new Object() {
+            @Override
+            public String toString() {
+                return String.valueOf(supplier.get());
+            }
+        };
+    }
+
+    /**
+     * Only every nth message of that type will be logged by logMessage. Use 1 to log all messages of that type and 0
+     * to log none.
+     */
+    public static void setMessageSampleRate(String messageType, int sampleRate) {
+        sampleRateByMessageType.put(messageType, sampleRate);
+    }
+
+    /**
+     * Sets the sample rates from a comma separated list of messageType:sampleRate entries, e.g. "Ping:10,Pong:0".
+     * Invalid entries get logged and ignored.
+     */
+    public static void setMessageSampleRates(String sampleRates) {
+        if (sampleRates == null || sampleRates.isEmpty())
+            return;
+
+        for (String entry : sampleRates.replaceAll("\\s", "").split(",")) {
+            String[] tokens = entry.split(":");
+            try {
+                if (tokens.length != 2)
+                    throw new IllegalArgumentException("Expected messageType:sampleRate");
+                setMessageSampleRate(tokens[0], Integer.parseInt(tokens[1]));
+            } catch (IllegalArgumentException e) {
+                LoggerFactory.getLogger(Log.class).warn("We ignore the invalid message sample rate {}. {}", entry, e.getMessage());
+            }
+        }
+    }
+
+    // Payloads can be large (e.g. a GetDataResponse), so we log them only if enabled
+    public static void setPayloadLoggingEnabled(boolean payloadLoggingEnabled) {
+        Log.payloadLoggingEnabled = payloadLoggingEnabled;
+    }
+
+    /**
+     * Logs a sent or received network message at debug level or at trace level if isFrequentMessage is set.
+     * Nothing gets evaluated if the level is disabled for the logger.
+     *
+     * @param direction       E.g. "Sending" or "Received"
+     * @param message         The message, its simple class name is used as message type
+     * @param peer            Used with toString, so it is only evaluated if we log
+     * @param size            Serialized size or -1 if not known
+     * @param payloadSupplier Only evaluated if payload logging is enabled
+     */
+    public static void logMessage(org.slf4j.Logger logger, boolean isFrequentMessage, String direction, Object message,
+                                  Object peer, int size, Supplier<String> payloadSupplier) {
+        if (isFrequentMessage ? !logger.isTraceEnabled() : !logger.isDebugEnabled())
+            return;
+
+        String messageType = message.getClass().getSimpleName();
+        Integer sampleRate = sampleRateByMessageType.get(messageType);
+        long count = counterByMessageType.computeIfAbsent(messageType, k -> new AtomicLong()).incrementAndGet();
+        if (sampleRate != null && (sampleRate <= 0 || count % sampleRate != 0))
+            return;
+
+        String payload = payloadLoggingEnabled ? "\n\tpayload=" + truncate(payloadSupplier.get()) : "";
+        if (isFrequentMessage)
+            logger.trace("{} {} (#{}) peer={} size={}{}", direction, messageType, count, peer, size, payload);
+        else
+            logger.debug("{} {} (#{}) peer={} size={}{}", direction, messageType, count, peer, size, payload);
+    }
+
     public static void logIfStressTests(String msg) {
         if (DevEnv.STRESS_TEST_MODE)
             System.err.println(new SimpleDateFormat("HH:mm:ss.SSS").format(new Date()) +
                     " - " + msg +
                     " / Memory(MB): " + Profiler.getUsedMemoryInMB());
     }
+
+    private static String truncate(String payload) {
+        return payload.length() > MAX_PAYLOAD_LENGTH ? payload.substring(0, MAX_PAYLOAD_LENGTH) + "..." : payload;
+    }
 }
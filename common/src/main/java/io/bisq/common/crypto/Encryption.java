@@ -18,16 +18,15 @@
 package io.bisq.common.crypto;
 
 import io.bisq.common.util.Utilities;
-import org.bouncycastle.util.encoders.Hex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.crypto.Cipher;
 import javax.crypto.KeyGenerator;
 import javax.crypto.Mac;
+import javax.crypto.NoSuchPaddingException;
 import javax.crypto.SecretKey;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.security.*;
 import java.security.spec.InvalidKeySpecException;
 import java.security.spec.X509EncodedKeySpec;
@@ -44,6 +43,13 @@ public class Encryption {
     private static final String SYM_CIPHER = "AES";
 
     private static final String HMAC = "HmacSHA256";
+    private static final int HMAC_LENGTH = 32;
+
+    // Cipher and Mac are not thread safe and the provider lookup at getInstance is expensive, so we cache one per
+    // thread. init resets the state of the instance.
+    private static final ThreadLocal<Cipher> symCipher = new ThreadLocal<>();
+    private static final ThreadLocal<Cipher> asymCipher = new ThreadLocal<>();
+    private static final ThreadLocal<Mac> hmacMac = new ThreadLocal<>();
 
     public static KeyPair generateKeyPair() {
         long ts = System.currentTimeMillis();
@@ -62,109 +68,82 @@ public class Encryption {
 
 
     ///////////////////////////////////////////////////////////////////////////////////////////
-    // Symmetric
+    // Symmetric with Hmac
     ///////////////////////////////////////////////////////////////////////////////////////////
 
-    private static byte[] encrypt(byte[] payload, SecretKey secretKey) throws CryptoException {
-        try {
-            Cipher cipher = Cipher.getInstance(SYM_CIPHER, "BC");
-            cipher.init(Cipher.ENCRYPT_MODE, secretKey);
-            return cipher.doFinal(payload);
-        } catch (Throwable e) {
-            e.printStackTrace();
-            throw new CryptoException(e);
-        }
+    public static byte[] encryptPayloadWithHmac(byte[] payload, SecretKey secretKey) throws CryptoException {
+        return encryptPayloadWithHmac(payload, 0, payload.length, secretKey);
     }
 
-    private static byte[] decrypt(byte[] encryptedPayload, SecretKey secretKey) throws CryptoException {
+    /**
+     * Encrypts the given region of payload with the hmac of the region appended. The hmac and the cipher are fed
+     * from the region directly so the only allocation is the returned ciphertext.
+     */
+    public static byte[] encryptPayloadWithHmac(byte[] payload, int offset, int length, SecretKey secretKey)
+            throws CryptoException {
         try {
-            Cipher cipher = Cipher.getInstance(SYM_CIPHER, "BC");
-            cipher.init(Cipher.DECRYPT_MODE, secretKey);
-            return cipher.doFinal(encryptedPayload);
+            Mac mac = getMac();
+            mac.init(secretKey);
+            mac.update(payload, offset, length);
+            byte[] hmac = mac.doFinal();
+
+            Cipher cipher = getCipher(symCipher, SYM_CIPHER);
+            cipher.init(Cipher.ENCRYPT_MODE, secretKey);
+            byte[] encrypted = new byte[cipher.getOutputSize(length + HMAC_LENGTH)];
+            int encryptedLength = cipher.update(payload, offset, length, encrypted, 0);
+            encryptedLength += cipher.doFinal(hmac, 0, hmac.length, encrypted, encryptedLength);
+            return encryptedLength == encrypted.length ? encrypted : Arrays.copyOf(encrypted, encryptedLength);
         } catch (Throwable e) {
+            log.error(e.toString());
             throw new CryptoException(e);
         }
     }
 
+    public static byte[] decryptPayloadWithHmac(byte[] encryptedPayloadWithHmac, SecretKey secretKey) throws CryptoException {
+        ByteBuffer payload = decryptPayloadWithHmac(ByteBuffer.wrap(encryptedPayloadWithHmac), secretKey);
+        return Arrays.copyOf(payload.array(), payload.remaining());
+    }
 
-    ///////////////////////////////////////////////////////////////////////////////////////////
-    // Hmac
-    ///////////////////////////////////////////////////////////////////////////////////////////
-
-    private static byte[] getPayloadWithHmac(byte[] payload, SecretKey secretKey) {
+    /**
+     * Decrypts the remaining bytes of encryptedPayloadWithHmac and verifies the appended hmac in constant time.
+     *
+     * @return A heap buffer backed by the decrypted array, positioned at 0 and limited to the payload (the hmac is
+     * excluded). Callers can parse from array() without copying.
+     * @throws CryptoException if decryption fails or the hmac does not match.
+     */
+    public static ByteBuffer decryptPayloadWithHmac(ByteBuffer encryptedPayloadWithHmac, SecretKey secretKey)
+            throws CryptoException {
         byte[] payloadWithHmac;
+        int payloadWithHmacLength;
         try {
-
-            ByteArrayOutputStream outputStream = null;
-            try {
-                byte[] hmac = getHmac(payload, secretKey);
-                outputStream = new ByteArrayOutputStream();
-                outputStream.write(payload);
-                outputStream.write(hmac);
-                outputStream.flush();
-                payloadWithHmac = outputStream.toByteArray().clone();
-            } catch (IOException | NoSuchProviderException e) {
-                log.error(e.toString());
-                e.printStackTrace();
-                throw new RuntimeException("Could not create hmac");
-            } finally {
-                if (outputStream != null) {
-                    try {
-                        outputStream.close();
-                    } catch (IOException ignored) {
-                    }
-                }
-            }
+            Cipher cipher = getCipher(symCipher, SYM_CIPHER);
+            cipher.init(Cipher.DECRYPT_MODE, secretKey);
+            payloadWithHmac = new byte[cipher.getOutputSize(encryptedPayloadWithHmac.remaining())];
+            payloadWithHmacLength = cipher.doFinal(encryptedPayloadWithHmac, ByteBuffer.wrap(payloadWithHmac));
         } catch (Throwable e) {
-            log.error(e.toString());
-            e.printStackTrace();
-            throw new RuntimeException("Could not create hmac");
+            throw new CryptoException(e);
         }
-        return payloadWithHmac;
-    }
 
+        // first part is raw message, last 32 bytes is hmac
+        int payloadLength = payloadWithHmacLength - HMAC_LENGTH;
+        if (payloadLength < 0)
+            throw new CryptoException("Decrypted payload is shorter than hmac.");
 
-    private static boolean verifyHmac(byte[] message, byte[] hmac, SecretKey secretKey) {
+        byte[] hmac;
         try {
-            byte[] hmacTest = getHmac(message, secretKey);
-            return Arrays.equals(hmacTest, hmac);
+            Mac mac = getMac();
+            mac.init(secretKey);
+            mac.update(payloadWithHmac, 0, payloadLength);
+            hmac = mac.doFinal();
         } catch (Throwable e) {
             log.error(e.toString());
-            e.printStackTrace();
-            throw new RuntimeException("Could not create cipher");
+            throw new CryptoException(e);
         }
-    }
-
-    private static byte[] getHmac(byte[] payload, SecretKey secretKey) throws NoSuchAlgorithmException, InvalidKeyException, NoSuchProviderException {
-        Mac mac = Mac.getInstance(HMAC, "BC");
-        mac.init(secretKey);
-        return mac.doFinal(payload);
-    }
-
-
-    ///////////////////////////////////////////////////////////////////////////////////////////
-    // Symmetric with Hmac
-    ///////////////////////////////////////////////////////////////////////////////////////////
-
-
-    public static byte[] encryptPayloadWithHmac(byte[] payload, SecretKey secretKey) throws CryptoException {
-        return encrypt(getPayloadWithHmac(payload, secretKey), secretKey);
-    }
 
-    public static byte[] decryptPayloadWithHmac(byte[] encryptedPayloadWithHmac, SecretKey secretKey) throws CryptoException {
-        byte[] payloadWithHmac = decrypt(encryptedPayloadWithHmac, secretKey);
-        String payloadWithHmacAsHex = Hex.toHexString(payloadWithHmac);
-        // first part is raw message
-        int length = payloadWithHmacAsHex.length();
-        int sep = length - 64;
-        String payloadAsHex = payloadWithHmacAsHex.substring(0, sep);
-        // last 64 bytes is hmac
-        String hmacAsHex = payloadWithHmacAsHex.substring(sep, length);
-        if (verifyHmac(Hex.decode(payloadAsHex), Hex.decode(hmacAsHex), secretKey)) {
-            return Hex.decode(payloadAsHex);
-        } else {
+        if (constantTimeEquals(hmac, payloadWithHmac, payloadLength, HMAC_LENGTH))
+            return ByteBuffer.wrap(payloadWithHmac, 0, payloadLength);
+        else
             throw new CryptoException("Hmac does not match.");
-        }
     }
 
 
@@ -174,7 +153,7 @@ public class Encryption {
 
     public static byte[] encryptSecretKey(SecretKey secretKey, PublicKey publicKey) throws CryptoException {
         try {
-            Cipher cipher = Cipher.getInstance(ASYM_CIPHER, "BC");
+            Cipher cipher = getCipher(asymCipher, ASYM_CIPHER);
             cipher.init(Cipher.WRAP_MODE, publicKey);
             return cipher.wrap(secretKey);
         } catch (Throwable e) {
@@ -185,7 +164,7 @@ public class Encryption {
 
     public static SecretKey decryptSecretKey(byte[] encryptedSecretKey, PrivateKey privateKey) throws CryptoException {
         try {
-            Cipher cipher = Cipher.getInstance(ASYM_CIPHER, "BC");
+            Cipher cipher = getCipher(asymCipher, ASYM_CIPHER);
             cipher.init(Cipher.UNWRAP_MODE, privateKey);
             return (SecretKey) cipher.unwrap(encryptedSecretKey, "AES", Cipher.SECRET_KEY);
         } catch (Throwable e) {
@@ -233,5 +212,33 @@ public class Encryption {
             throw new KeyConversionException(e);
         }
     }
-}
 
+    private static Cipher getCipher(ThreadLocal<Cipher> cache, String transformation)
+            throws NoSuchPaddingException, NoSuchAlgorithmException, NoSuchProviderException {
+        Cipher cipher = cache.get();
+        if (cipher == null) {
+            cipher = Cipher.getInstance(transformation, "BC");
+            cache.set(cipher);
+        }
+        return cipher;
+    }
+
+    private static Mac getMac() throws NoSuchAlgorithmException, NoSuchProviderException {
+        Mac mac = hmacMac.get();
+        if (mac == null) {
+            mac = Mac.getInstance(HMAC, "BC");
+            hmacMac.set(mac);
+        }
+        return mac;
+    }
+
+    // Compares all bytes regardless of where the first difference is to not leak the position of a mismatch
+    private static boolean constantTimeEquals(byte[] expected, byte[] data, int offset, int length) {
+        if (expected.length != length)
+            return false;
+        int result = 0;
+        for (int i = 0; i < length; i++)
+            result |= expected[i] ^ data[offset + i];
+        return result == 0;
+    }
+}
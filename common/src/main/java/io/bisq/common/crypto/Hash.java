@@ -28,6 +28,8 @@ import java.security.NoSuchProviderException;
 
 @Slf4j
 public class Hash {
+    // MessageDigest is not thread safe and the provider lookup at getInstance is expensive, so we cache one per thread
+    private static final ThreadLocal<MessageDigest> sha256Digest = new ThreadLocal<>();
 
     /**
      * @param data Data as byte array
@@ -35,7 +37,12 @@ public class Hash {
      */
     public static byte[] getSha256Hash(byte[] data) {
         try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256", "BC");
+            MessageDigest digest = sha256Digest.get();
+            if (digest == null) {
+                digest = MessageDigest.getInstance("SHA-256", "BC");
+                sha256Digest.set(digest);
+            }
+            // digest() resets the instance
             digest.update(data, 0, data.length);
             return digest.digest();
         } catch (NoSuchAlgorithmException | NoSuchProviderException e) {
@@ -41,6 +41,10 @@ public class Sig {
     public static final String KEY_ALGO = "DSA";
     private static final String ALGO = "SHA256withDSA";
 
+    // Signature is not thread safe and the provider lookup at getInstance is expensive, so we cache one per thread.
+    // initSign/initVerify resets the state of the instance.
+    private static final ThreadLocal<Signature> signature = new ThreadLocal<>();
+
 
     /**
      * @return keyPair
@@ -71,7 +75,7 @@ public class Sig {
      */
     public static byte[] sign(PrivateKey privateKey, byte[] data) throws CryptoException {
         try {
-            Signature sig = Signature.getInstance(ALGO, "BC");
+            Signature sig = getSignature();
             sig.initSign(privateKey);
             sig.update(data);
             return sig.sign();
@@ -104,7 +108,7 @@ public class Sig {
      */
     public static boolean verify(PublicKey publicKey, byte[] data, byte[] signature) throws CryptoException {
         try {
-            Signature sig = Signature.getInstance(ALGO, "BC");
+            Signature sig = getSignature();
             sig.initVerify(publicKey);
             sig.update(data);
             return sig.verify(signature);
@@ -143,5 +147,14 @@ public class Sig {
     public static byte[] getPublicKeyBytes(PublicKey sigPublicKey) {
         return new X509EncodedKeySpec(sigPublicKey.getEncoded()).getEncoded();
     }
+
+    private static Signature getSignature() throws NoSuchProviderException, NoSuchAlgorithmException {
+        Signature sig = signature.get();
+        if (sig == null) {
+            sig = Signature.getInstance(ALGO, "BC");
+            signature.set(sig);
+        }
+        return sig;
+    }
 }
 
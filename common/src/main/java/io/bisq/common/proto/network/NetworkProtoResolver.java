@@ -20,9 +20,18 @@ package io.bisq.common.proto.network;
 import io.bisq.common.proto.ProtoResolver;
 import io.bisq.generated.protobuffer.PB;
 
+import java.util.Collections;
+import java.util.Map;
+
 public interface NetworkProtoResolver extends ProtoResolver {
     NetworkEnvelope fromProto(PB.NetworkEnvelope proto);
 
+    // The classes of the envelopes we resolve by their message case. Used for the checks which are done before the
+    // message is parsed (e.g. the permitted message size).
+    default Map<PB.NetworkEnvelope.MessageCase, Class<? extends NetworkEnvelope>> getEnvelopeClassByMessageCase() {
+        return Collections.emptyMap();
+    }
+
     NetworkPayload fromProto(PB.StoragePayload proto);
 
     NetworkPayload fromProto(PB.StorageEntryWrapper proto);
@@ -0,0 +1,123 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.common.proto.persistable;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.bisq.common.storage.PersistenceService;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Calls readPersisted of the PersistedDataHosts at startup. Hosts which don't depend on each other are read
+ * concurrently, a host is only read after the hosts it depends on. readAll returns when all hosts are read, so the
+ * startup code after it can rely on the persisted data as before.
+ * <p/>
+ * A host which fails to read logs the error, the hosts depending on it still get read.
+ */
+@Slf4j
+public class PersistedDataHostLoader {
+    // Reading is mostly IO and proto parsing, so a few threads are enough
+    private static final int NUM_THREADS = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    // Insertion order, each host is added after its dependencies
+    private final Map<PersistedDataHost, List<PersistedDataHost>> dependenciesByHost = new LinkedHashMap<>();
+    private final Map<PersistedDataHost, Long> durationByHost = new LinkedHashMap<>();
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * @param host         The host to read
+     * @param dependencies Hosts which must be read before that host. They must have been added before.
+     */
+    public PersistedDataHostLoader add(PersistedDataHost host, PersistedDataHost... dependencies) {
+        checkArgument(!dependenciesByHost.containsKey(host), "host was added already");
+        for (PersistedDataHost dependency : dependencies)
+            checkArgument(dependenciesByHost.containsKey(dependency), "dependencies must be added before the host");
+
+        dependenciesByHost.put(host, Arrays.asList(dependencies));
+        return this;
+    }
+
+    public void readAll() {
+        long ts = System.currentTimeMillis();
+        ExecutorService executor = Executors.newFixedThreadPool(NUM_THREADS, new ThreadFactoryBuilder()
+                .setNameFormat("PersistedDataHostLoader-%d")
+                .setDaemon(true)
+                .build());
+        try {
+            Map<PersistedDataHost, CompletableFuture<Void>> futuresByHost = new HashMap<>();
+            dependenciesByHost.forEach((host, dependencies) -> {
+                CompletableFuture<Void> future;
+                if (dependencies.isEmpty()) {
+                    future = CompletableFuture.runAsync(() -> read(host), executor);
+                } else {
+                    CompletableFuture<?>[] dependencyFutures = dependencies.stream()
+                            .map(futuresByHost::get)
+                            .toArray(CompletableFuture<?>[]::new);
+                    future = CompletableFuture.allOf(dependencyFutures).thenRunAsync(() -> read(host), executor);
+                }
+                futuresByHost.put(host, future);
+            });
+            CompletableFuture.allOf(futuresByHost.values().toArray(new CompletableFuture<?>[0])).join();
+        } finally {
+            executor.shutdown();
+        }
+        log.info(getReport(System.currentTimeMillis() - ts));
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private void read(PersistedDataHost host) {
+        long ts = System.currentTimeMillis();
+        try {
+            log.debug("call readPersisted at " + host.getClass().getSimpleName());
+            host.readPersisted();
+        } catch (Throwable t) {
+            log.error("readPersisted error", t);
+        }
+        synchronized (durationByHost) {
+            durationByHost.put(host, System.currentTimeMillis() - ts);
+        }
+    }
+
+    private String getReport(long duration) {
+        StringBuilder sb = new StringBuilder("Reading persisted data took ").append(duration).append(" ms");
+        synchronized (durationByHost) {
+            durationByHost.forEach((host, hostDuration) -> sb.append("\n    ")
+                    .append(host.getClass().getSimpleName()).append(": ").append(hostDuration).append(" ms"));
+        }
+        PersistenceService.getInstance().getMetrics().forEach((fileName, metrics) -> {
+            if (metrics.getNumReads() > 0)
+                sb.append("\n    ").append(fileName).append(": ").append(metrics.getBytesRead()).append(" bytes in ")
+                        .append(metrics.getReadLatencyMs()).append(" ms");
+        });
+        return sb.toString();
+    }
+}
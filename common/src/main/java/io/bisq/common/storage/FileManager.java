@@ -17,67 +17,44 @@
 
 package io.bisq.common.storage;
 
-import com.google.common.util.concurrent.CycleDetectingLockFactory;
-import io.bisq.common.UserThread;
+import com.google.common.annotations.VisibleForTesting;
 import io.bisq.common.proto.persistable.PersistableEnvelope;
 import io.bisq.common.proto.persistable.PersistenceProtoResolver;
-import io.bisq.common.util.Utilities;
 import io.bisq.generated.protobuffer.PB;
 import lombok.extern.slf4j.Slf4j;
 
-import java.io.*;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
 import java.nio.file.Paths;
-import java.util.Random;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.locks.ReentrantLock;
 
 @Slf4j
 public class FileManager<T extends PersistableEnvelope> {
     private final File dir;
     private final File storageFile;
-    private final ScheduledThreadPoolExecutor executor;
-    private final AtomicBoolean savePending;
     private final long delay;
-    private final Callable<Void> saveFileTask;
-    private T persistable;
+    private final PersistenceService persistenceService;
+    // Written on the caller thread and read on the PersistenceService thread
+    private volatile T persistable;
     private final PersistenceProtoResolver persistenceProtoResolver;
-    private final ReentrantLock writeLock = CycleDetectingLockFactory.newInstance(CycleDetectingLockFactory.Policies.THROW).newReentrantLock("writeLock");
 
     ///////////////////////////////////////////////////////////////////////////////////////////
     // Constructor
     ///////////////////////////////////////////////////////////////////////////////////////////
 
     public FileManager(File dir, File storageFile, long delay, PersistenceProtoResolver persistenceProtoResolver) {
+        this(dir, storageFile, delay, persistenceProtoResolver, PersistenceService.getInstance());
+    }
+
+    @VisibleForTesting
+    FileManager(File dir, File storageFile, long delay, PersistenceProtoResolver persistenceProtoResolver,
+                PersistenceService persistenceService) {
         this.dir = dir;
         this.storageFile = storageFile;
         this.persistenceProtoResolver = persistenceProtoResolver;
-
-        executor = Utilities.getScheduledThreadPoolExecutor("FileManager", 1, 10, 5);
-
-        // File must only be accessed from the auto-save executor from now on, to avoid simultaneous access.
-        savePending = new AtomicBoolean();
         this.delay = delay;
-
-        saveFileTask = () -> {
-            try {
-                Thread.currentThread().setName("Save-file-task-" + new Random().nextInt(10000));
-                // Runs in an auto save thread.
-                if (!savePending.getAndSet(false)) {
-                    // Some other scheduled request already beat us to it.
-                    return null;
-                }
-                saveNowInternal(persistable);
-            } catch (Throwable e) {
-                log.error("Error during saveFileTask", e);
-            }
-            return null;
-        };
-        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
-            UserThread.execute(FileManager.this::shutDown);
-        }, "FileManager.ShutDownHook"));
+        // File must only be written by the persistenceService from now on, to avoid simultaneous access.
+        this.persistenceService = persistenceService;
     }
 
 
@@ -89,7 +66,8 @@ public class FileManager<T extends PersistableEnvelope> {
      * Actually write the wallet file to disk, using an atomic rename when possible. Runs on the current thread.
      */
     public void saveNow(T persistable) {
-        saveNowInternal(persistable);
+        this.persistable = persistable;
+        persistenceService.writeNow(this);
     }
 
     /**
@@ -101,20 +79,19 @@ public class FileManager<T extends PersistableEnvelope> {
 
     public void saveLater(T persistable, long delayInMilli) {
         this.persistable = persistable;
-
-        if (savePending.getAndSet(true))
-            return;   // Already pending.
-
-        executor.schedule(saveFileTask, delayInMilli, TimeUnit.MILLISECONDS);
+        persistenceService.scheduleWrite(this, delayInMilli);
     }
 
     @SuppressWarnings("unchecked")
     public synchronized T read(File file) {
         log.debug("Read from disc: {}", file.getName());
 
+        final long startTs = System.nanoTime();
         try (final FileInputStream fileInputStream = new FileInputStream(file)) {
             PB.PersistableEnvelope persistable = PB.PersistableEnvelope.parseDelimitedFrom(fileInputStream);
-            return (T) persistenceProtoResolver.fromProto(persistable);
+            T result = (T) persistenceProtoResolver.fromProto(persistable);
+            persistenceService.recordRead(file.getName(), file.length(), System.nanoTime() - startTs);
+            return result;
         } catch (Throwable t) {
             String errorMsg = "Exception at proto read: " + t.getMessage() + " file:" + file.getAbsolutePath();
             log.error(errorMsg, t);
@@ -141,19 +118,6 @@ public class FileManager<T extends PersistableEnvelope> {
         }
     }
 
-
-    /**
-     * Shut down auto-saving.
-     */
-    void shutDown() {
-        executor.shutdown();
-        try {
-            executor.awaitTermination(5, TimeUnit.SECONDS);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
-    }
-
     public synchronized void removeAndBackupFile(String fileName) throws IOException {
         File corruptedBackupDir = new File(Paths.get(dir.getAbsolutePath(), "backup_of_corrupted_data").toString());
         if (!corruptedBackupDir.exists())
@@ -168,77 +132,28 @@ public class FileManager<T extends PersistableEnvelope> {
         FileUtil.rollingBackup(dir, fileName, numMaxBackupFiles);
     }
 
-    ///////////////////////////////////////////////////////////////////////////////////////////
-    // Private
-    ///////////////////////////////////////////////////////////////////////////////////////////
-
-    private void saveNowInternal(T persistable) {
-        long now = System.currentTimeMillis();
-        saveToFile(persistable, dir, storageFile);
-        log.trace("Save {} completed in {} msec", storageFile, System.currentTimeMillis() - now);
+    /**
+     * Makes a rolling backup of our storage file in the background. The file does not get written before the backup
+     * is done.
+     */
+    public void backupLater(int numMaxBackupFiles) {
+        persistenceService.scheduleBackup(this, numMaxBackupFiles);
     }
 
-    private synchronized void saveToFile(T persistable, File dir, File storageFile) {
-        File tempFile = null;
-        FileOutputStream fileOutputStream = null;
-        PrintWriter printWriter = null;
-
-        try {
-            log.debug("Write to disc: {}", storageFile.getName());
-            PB.PersistableEnvelope protoPersistable;
-            try {
-                protoPersistable = (PB.PersistableEnvelope) persistable.toProtoMessage();
-                if (protoPersistable.toByteArray().length == 0)
-                    log.error("protoPersistable is empty. persistable=" + persistable.getClass().getSimpleName());
-            } catch (Throwable e) {
-                log.error("Error in saveToFile toProtoMessage: {}, {}", persistable.getClass().getSimpleName(), storageFile);
-                e.printStackTrace();
-                throw new RuntimeException(e);
-            }
-
-            if (!dir.exists() && !dir.mkdir())
-                log.warn("make dir failed");
-
-            tempFile = File.createTempFile("temp", null, dir);
-            tempFile.deleteOnExit();
-            fileOutputStream = new FileOutputStream(tempFile);
 
-            log.debug("Writing protobuffer class:{} to file:{}", persistable.getClass(), storageFile.getName());
-            writeLock.lock();
-            protoPersistable.writeDelimitedTo(fileOutputStream);
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Package scope, used by PersistenceService
+    ///////////////////////////////////////////////////////////////////////////////////////////
 
-            // Attempt to force the bits to hit the disk. In reality the OS or hard disk itself may still decide
-            // to not write through to physical media for at least a few seconds, but this is the best we can do.
-            fileOutputStream.flush();
-            fileOutputStream.getFD().sync();
-            writeLock.unlock();
+    File getDir() {
+        return dir;
+    }
 
-            // Close resources before replacing file with temp file because otherwise it causes problems on windows
-            // when rename temp file
-            fileOutputStream.close();
-            FileUtil.renameFile(tempFile, storageFile);
-        } catch (Throwable t) {
-            log.error("Error at saveToFile, storageFile=" + storageFile.toString(), t);
-        } finally {
-            if (writeLock.isLocked())
-                writeLock.unlock();
-            if (tempFile != null && tempFile.exists()) {
-                log.warn("Temp file still exists after failed save. We will delete it now. storageFile=" + storageFile);
-                if (!tempFile.delete())
-                    log.error("Cannot delete temp file.");
-            }
+    File getStorageFile() {
+        return storageFile;
+    }
 
-            try {
-                if (fileOutputStream != null)
-                    fileOutputStream.close();
-                //noinspection ConstantConditions,ConstantConditions
-                if (printWriter != null)
-                    printWriter.close();
-            } catch (IOException e) {
-                // We swallow that
-                e.printStackTrace();
-                log.error("Cannot close resources." + e.getMessage());
-            }
-        }
+    T getPersistable() {
+        return persistable;
     }
 }
@@ -17,6 +17,7 @@
 
 package io.bisq.common.storage;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import io.bisq.common.UserThread;
 import io.bisq.common.util.Utilities;
 import lombok.extern.slf4j.Slf4j;
@@ -27,13 +28,20 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 @Slf4j
 public class JsonFileManager {
     private final ThreadPoolExecutor executor = Utilities.getThreadPoolExecutor("saveToDiscExecutor", 5, 50, 60);
+    // JSON lines files are written by one thread, so the lines get appended in the order of the calls
+    private final ThreadPoolExecutor linesExecutor;
     private final File dir;
 
 
@@ -43,6 +51,9 @@ public class JsonFileManager {
 
     public JsonFileManager(File dir) {
         this.dir = dir;
+        linesExecutor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                new ThreadFactoryBuilder().setNameFormat("JsonFileManager.lines").setDaemon(true).build());
+        linesExecutor.allowCoreThreadTimeOut(true);
 
         if (!dir.exists())
             if (!dir.mkdir())
@@ -55,39 +66,72 @@ public class JsonFileManager {
 
     public void shutDown() {
         executor.shutdown();
+        linesExecutor.shutdown();
         try {
             executor.awaitTermination(5, TimeUnit.SECONDS);
+            linesExecutor.awaitTermination(5, TimeUnit.SECONDS);
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
         }
     }
 
     public void writeToDisc(String json, String fileName) {
-        executor.execute(() -> {
-            File jsonFile = new File(Paths.get(dir.getAbsolutePath(), fileName + ".json").toString());
-            File tempFile = null;
-            PrintWriter printWriter = null;
-            try {
-                tempFile = File.createTempFile("temp", null, dir);
-                if (!executor.isShutdown() && !executor.isTerminated() && !executor.isTerminating())
-                    tempFile.deleteOnExit();
+        executor.execute(() -> writeToDiscNow(json, fileName));
+    }
+
+    // Writes on the calling thread, so the caller knows the file is written when the method returns
+    public void writeToDiscNow(String json, String fileName) {
+        File jsonFile = new File(Paths.get(dir.getAbsolutePath(), fileName + ".json").toString());
+        File tempFile = null;
+        PrintWriter printWriter = null;
+        try {
+            tempFile = File.createTempFile("temp", null, dir);
+            if (!executor.isShutdown() && !executor.isTerminated() && !executor.isTerminating())
+                tempFile.deleteOnExit();
+
+            printWriter = new PrintWriter(tempFile);
+            printWriter.println(json);
 
-                printWriter = new PrintWriter(tempFile);
-                printWriter.println(json);
+            FileUtil.renameFile(tempFile, jsonFile);
+        } catch (Throwable t) {
+            log.error("storageFile " + jsonFile.toString());
+            t.printStackTrace();
+        } finally {
+            if (tempFile != null && tempFile.exists()) {
+                log.warn("Temp file still exists after failed save. We will delete it now. storageFile=" + fileName);
+                if (!tempFile.delete())
+                    log.error("Cannot delete temp file.");
+            }
 
-                FileUtil.renameFile(tempFile, jsonFile);
+            if (printWriter != null)
+                printWriter.close();
+        }
+    }
+
+    /**
+     * Writes the lines to fileName.jsonl (JSON lines format, one json item per line). The lines must not contain line
+     * breaks. If append is false the file gets replaced. Calls are processed in order.
+     */
+    public void writeLinesToDisc(List<String> lines, String fileName, boolean append) {
+        linesExecutor.execute(() -> {
+            File jsonLinesFile = new File(Paths.get(dir.getAbsolutePath(), fileName + ".jsonl").toString());
+            File tempFile = null;
+            try {
+                if (append) {
+                    Files.write(jsonLinesFile.toPath(), lines, StandardCharsets.UTF_8,
+                            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                } else {
+                    // We replace the file with a rename, so readers never see a partly written file
+                    tempFile = File.createTempFile("temp", null, dir);
+                    Files.write(tempFile.toPath(), lines, StandardCharsets.UTF_8);
+                    FileUtil.renameFile(tempFile, jsonLinesFile);
+                }
             } catch (Throwable t) {
-                log.error("storageFile " + jsonFile.toString());
+                log.error("storageFile " + jsonLinesFile.toString());
                 t.printStackTrace();
             } finally {
-                if (tempFile != null && tempFile.exists()) {
-                    log.warn("Temp file still exists after failed save. We will delete it now. storageFile=" + fileName);
-                    if (!tempFile.delete())
-                        log.error("Cannot delete temp file.");
-                }
-
-                if (printWriter != null)
-                    printWriter.close();
+                if (tempFile != null && tempFile.exists() && !tempFile.delete())
+                    log.error("Cannot delete temp file.");
             }
         });
     }
@@ -0,0 +1,394 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.common.storage;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.protobuf.CodedOutputStream;
+import io.bisq.common.proto.persistable.PersistableEnvelope;
+import io.bisq.common.util.Utilities;
+import io.bisq.generated.protobuffer.PB;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Writes the files of all FileManagers on one shared thread.
+ * Save requests are coalesced per file and files which are due at about the same time get written in one batch:
+ * all temp files get written first, then they are synced and renamed together and the directory is synced once.
+ * The protobuf data is streamed to the file channel without copying it to an intermediate byte array.
+ * <p>
+ * The rolling backups of the files which got read at startup are made on the same thread, so they are not on the
+ * critical path of the startup. A file does not get written before its pending backup is done.
+ * <p>
+ * Pending backups and writes are done at shutdown.
+ */
+@Slf4j
+public class PersistenceService {
+    // Writes which are due within that time get written in the same batch
+    @VisibleForTesting
+    static final long BATCH_WINDOW_MS = 500;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static PersistenceService instance;
+
+    public static synchronized PersistenceService getInstance() {
+        if (instance == null)
+            instance = new PersistenceService();
+        return instance;
+    }
+
+    public static class StoreMetrics {
+        private final LongAdder numWrites = new LongAdder();
+        private final LongAdder bytesWritten = new LongAdder();
+        private final LongAdder latencyNanos = new LongAdder();
+        private final LongAdder numReads = new LongAdder();
+        private final LongAdder bytesRead = new LongAdder();
+        private final LongAdder readLatencyNanos = new LongAdder();
+
+        private void add(long bytes, long latency) {
+            numWrites.increment();
+            bytesWritten.add(bytes);
+            latencyNanos.add(latency);
+        }
+
+        private void addRead(long bytes, long latency) {
+            numReads.increment();
+            bytesRead.add(bytes);
+            readLatencyNanos.add(latency);
+        }
+
+        public long getNumWrites() {
+            return numWrites.sum();
+        }
+
+        public long getBytesWritten() {
+            return bytesWritten.sum();
+        }
+
+        public long getAverageLatencyMs() {
+            long writes = numWrites.sum();
+            return writes > 0 ? TimeUnit.NANOSECONDS.toMillis(latencyNanos.sum() / writes) : 0;
+        }
+
+        public long getNumReads() {
+            return numReads.sum();
+        }
+
+        public long getBytesRead() {
+            return bytesRead.sum();
+        }
+
+        public long getReadLatencyMs() {
+            return TimeUnit.NANOSECONDS.toMillis(readLatencyNanos.sum());
+        }
+
+        @Override
+        public String toString() {
+            return "writes=" + getNumWrites() +
+                    ", bytes=" + getBytesWritten() +
+                    ", avgLatency=" + getAverageLatencyMs() + " ms" +
+                    ", reads=" + getNumReads() +
+                    ", bytesRead=" + getBytesRead() +
+                    ", readLatency=" + getReadLatencyMs() + " ms";
+        }
+    }
+
+    private static class TempFile {
+        private final FileManager<?> fileManager;
+        private final File file;
+        private final FileChannel channel;
+        private final long bytes;
+        private final long startTs;
+
+        TempFile(FileManager<?> fileManager, File file, FileChannel channel, long bytes, long startTs) {
+            this.fileManager = fileManager;
+            this.file = file;
+            this.channel = channel;
+            this.bytes = bytes;
+            this.startTs = startTs;
+        }
+    }
+
+    private final ScheduledThreadPoolExecutor executor;
+    // Guarded by this. Value is the time when the write is due.
+    private final Map<FileManager<?>, Long> pendingWrites = new LinkedHashMap<>();
+    // Guarded by this. Value is the max. number of backup files.
+    private final Map<FileManager<?>, Integer> pendingBackups = new LinkedHashMap<>();
+    private final Map<String, StoreMetrics> metricsByFileName = new ConcurrentHashMap<>();
+    private final LongAdder numBatches = new LongAdder();
+    private final Object writeLock = new Object();
+    private volatile boolean shutDownStarted;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    @VisibleForTesting
+    PersistenceService() {
+        executor = Utilities.getScheduledThreadPoolExecutor("PersistenceService", 1, 1, 60);
+        Runtime.getRuntime().addShutdownHook(new Thread(this::shutDown, "PersistenceService.ShutDownHook"));
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Writes the current persistable of the fileManager after the delay. If there is already a write pending for
+     * the fileManager we don't schedule another one.
+     */
+    void scheduleWrite(FileManager<?> fileManager, long delayInMilli) {
+        synchronized (this) {
+            if (!shutDownStarted) {
+                if (pendingWrites.containsKey(fileManager))
+                    return;   // Already pending.
+
+                pendingWrites.put(fileManager, System.currentTimeMillis() + delayInMilli);
+                executor.schedule(this::writeDueFiles, delayInMilli, TimeUnit.MILLISECONDS);
+                return;
+            }
+        }
+        // After shutdown we write on the calling thread
+        writeNow(fileManager);
+    }
+
+    /**
+     * Writes the file on the calling thread.
+     */
+    void writeNow(FileManager<?> fileManager) {
+        synchronized (this) {
+            pendingWrites.remove(fileManager);
+        }
+        writeBatch(Collections.singletonList(fileManager));
+    }
+
+    /**
+     * Makes a rolling backup of the file of the fileManager on the writer thread.
+     */
+    void scheduleBackup(FileManager<?> fileManager, int numMaxBackupFiles) {
+        synchronized (this) {
+            if (!shutDownStarted) {
+                pendingBackups.put(fileManager, numMaxBackupFiles);
+                executor.execute(() -> backupIfPending(fileManager));
+                return;
+            }
+        }
+        fileManager.backupFile(fileManager.getStorageFile().getName(), numMaxBackupFiles);
+    }
+
+    void recordRead(String fileName, long bytes, long latencyNanos) {
+        metricsByFileName.computeIfAbsent(fileName, k -> new StoreMetrics()).addRead(bytes, latencyNanos);
+    }
+
+    /**
+     * Writes all pending files on the calling thread.
+     */
+    public void flush() {
+        List<FileManager<?>> batch;
+        synchronized (this) {
+            batch = new ArrayList<>(pendingWrites.keySet());
+            pendingWrites.clear();
+        }
+        writeBatch(batch);
+    }
+
+    public void shutDown() {
+        List<FileManager<?>> backups;
+        synchronized (this) {
+            shutDownStarted = true;
+            backups = new ArrayList<>(pendingBackups.keySet());
+        }
+        backups.forEach(this::backupIfPending);
+        flush();
+        executor.shutdown();
+        log.info(getStatistics());
+    }
+
+    public Map<String, StoreMetrics> getMetrics() {
+        return Collections.unmodifiableMap(metricsByFileName);
+    }
+
+    public String getStatistics() {
+        StringBuilder sb = new StringBuilder("Persistence statistics: batches=").append(numBatches.sum());
+        metricsByFileName.forEach((fileName, metrics) -> sb.append("\n    ").append(fileName).append(": ").append(metrics));
+        return sb.toString();
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private void writeDueFiles() {
+        List<FileManager<?>> batch = new ArrayList<>();
+        synchronized (this) {
+            // We take the files which are due soon as well, so their writes share the batch
+            long limit = System.currentTimeMillis() + BATCH_WINDOW_MS;
+            Iterator<Map.Entry<FileManager<?>, Long>> iterator = pendingWrites.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<FileManager<?>, Long> entry = iterator.next();
+                if (entry.getValue() <= limit) {
+                    batch.add(entry.getKey());
+                    iterator.remove();
+                }
+            }
+        }
+        if (!batch.isEmpty())
+            writeBatch(batch);
+    }
+
+    private void backupIfPending(FileManager<?> fileManager) {
+        // We hold the writeLock while we take the backup from the pending ones, so a write of that file cannot run
+        // before the backup is done
+        synchronized (writeLock) {
+            Integer numMaxBackupFiles;
+            synchronized (this) {
+                numMaxBackupFiles = pendingBackups.remove(fileManager);
+            }
+            if (numMaxBackupFiles != null) {
+                long ts = System.currentTimeMillis();
+                fileManager.backupFile(fileManager.getStorageFile().getName(), numMaxBackupFiles);
+                log.trace("Backup {} completed in {} msec", fileManager.getStorageFile(), System.currentTimeMillis() - ts);
+            }
+        }
+    }
+
+    private void writeBatch(List<FileManager<?>> batch) {
+        if (batch.isEmpty())
+            return;
+
+        synchronized (writeLock) {
+            // The backup must contain the file as it was before our first write
+            batch.forEach(this::backupIfPending);
+
+            List<TempFile> tempFiles = new ArrayList<>();
+            for (FileManager<?> fileManager : batch) {
+                TempFile tempFile = writeTempFile(fileManager);
+                if (tempFile != null)
+                    tempFiles.add(tempFile);
+            }
+
+            Set<File> dirs = new HashSet<>();
+            for (TempFile tempFile : tempFiles) {
+                final File storageFile = tempFile.fileManager.getStorageFile();
+                try {
+                    // Attempt to force the bits to hit the disk. In reality the OS or hard disk itself may still decide
+                    // to not write through to physical media for at least a few seconds, but this is the best we can do.
+                    tempFile.channel.force(true);
+                    // Close resources before replacing file with temp file because otherwise it causes problems on
+                    // windows when rename temp file
+                    tempFile.channel.close();
+                    FileUtil.renameFile(tempFile.file, storageFile);
+                    dirs.add(tempFile.fileManager.getDir());
+
+                    long latency = System.nanoTime() - tempFile.startTs;
+                    metricsByFileName.computeIfAbsent(storageFile.getName(), k -> new StoreMetrics())
+                            .add(tempFile.bytes, latency);
+                    log.trace("Save {} completed in {} msec", storageFile, TimeUnit.NANOSECONDS.toMillis(latency));
+                } catch (Throwable t) {
+                    log.error("Error at saveToFile, storageFile=" + storageFile.toString(), t);
+                } finally {
+                    closeAndDelete(tempFile.channel, tempFile.file, storageFile);
+                }
+            }
+
+            // Persists the renames. Not supported on all platforms, so we ignore failures.
+            for (File dir : dirs) {
+                try (FileChannel dirChannel = FileChannel.open(dir.toPath(), StandardOpenOption.READ)) {
+                    dirChannel.force(true);
+                } catch (IOException ignore) {
+                }
+            }
+            numBatches.increment();
+            log.debug("Wrote batch of {} files", tempFiles.size());
+        }
+    }
+
+    private TempFile writeTempFile(FileManager<?> fileManager) {
+        final long startTs = System.nanoTime();
+        final PersistableEnvelope persistable = fileManager.getPersistable();
+        final File dir = fileManager.getDir();
+        final File storageFile = fileManager.getStorageFile();
+        if (persistable == null)
+            return null;
+
+        File tempFile = null;
+        FileChannel channel = null;
+        try {
+            log.debug("Write to disc: {}", storageFile.getName());
+            PB.PersistableEnvelope protoPersistable;
+            try {
+                protoPersistable = (PB.PersistableEnvelope) persistable.toProtoMessage();
+                if (protoPersistable.getSerializedSize() == 0)
+                    log.error("protoPersistable is empty. persistable=" + persistable.getClass().getSimpleName());
+            } catch (Throwable e) {
+                log.error("Error in saveToFile toProtoMessage: {}, {}", persistable.getClass().getSimpleName(), storageFile);
+                e.printStackTrace();
+                throw new RuntimeException(e);
+            }
+
+            if (!dir.exists() && !dir.mkdir())
+                log.warn("make dir failed");
+
+            tempFile = File.createTempFile("temp", null, dir);
+            tempFile.deleteOnExit();
+            channel = FileChannel.open(tempFile.toPath(), StandardOpenOption.WRITE);
+
+            log.debug("Writing protobuffer class:{} to file:{}", persistable.getClass(), storageFile.getName());
+            // Same format as writeDelimitedTo but with a larger buffer
+            final int size = protoPersistable.getSerializedSize();
+            CodedOutputStream outputStream = CodedOutputStream.newInstance(Channels.newOutputStream(channel), BUFFER_SIZE);
+            outputStream.writeUInt32NoTag(size);
+            protoPersistable.writeTo(outputStream);
+            outputStream.flush();
+
+            return new TempFile(fileManager, tempFile, channel, CodedOutputStream.computeUInt32SizeNoTag(size) + size, startTs);
+        } catch (Throwable t) {
+            log.error("Error at saveToFile, storageFile=" + storageFile.toString(), t);
+            closeAndDelete(channel, tempFile, storageFile);
+            return null;
+        }
+    }
+
+    private void closeAndDelete(FileChannel channel, File tempFile, File storageFile) {
+        try {
+            if (channel != null)
+                channel.close();
+        } catch (IOException e) {
+            // We swallow that
+            e.printStackTrace();
+            log.error("Cannot close resources." + e.getMessage());
+        }
+        if (tempFile != null && tempFile.exists()) {
+            log.warn("Temp file still exists after failed save. We will delete it now. storageFile=" + storageFile);
+            if (!tempFile.delete())
+                log.error("Cannot delete temp file.");
+        }
+    }
+}
@@ -0,0 +1,578 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.common.storage;
+
+import com.google.common.annotations.VisibleForTesting;
+import io.bisq.common.util.Utilities;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Append only store for records which are never removed (e.g. PersistableNetworkPayload items). If records get
+ * obsolete, the owner can replace all records with replaceAll.
+ * <p/>
+ * Instead of serializing the whole data set at each change like FileManager does, new records are appended to the
+ * active segment file. Appends are done on a background thread and several appends are coalesced to one write and
+ * fsync. Each record is stored as [length][crc32][bytes], so a torn write at a crash is detected at the next read and
+ * only the incomplete record is lost.
+ * <p/>
+ * At startup the segments get memory mapped and read without copying them to the heap. We never write to a segment
+ * which was created by a previous run; a new active segment is created at the first append. Small or damaged sealed
+ * segments get merged in the background to keep the number of files low.
+ * <p/>
+ * The mappings are released after each segment was read, so replaced or compacted segments can be deleted on Windows
+ * as well. If a delete still fails, the sequence number of the segment is stored in the obsolete file and the segment
+ * is skipped and deleted at the next start, so its records are not loaded twice.
+ */
+public class SegmentedLogStore {
+    private static final Logger log = LoggerFactory.getLogger(SegmentedLogStore.class);
+
+    private static final int MAGIC = 0x42534c53;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String OBSOLETE_FILE_NAME = "obsolete";
+
+    @VisibleForTesting
+    static int MAX_SEGMENT_SIZE = 8 * 1024 * 1024;
+    // Sealed segments below that size are merged once we have COMPACTION_THRESHOLD of them
+    @VisibleForTesting
+    static int COMPACTION_THRESHOLD = 4;
+    private static final long FLUSH_DELAY_MS = 100;
+    // Queued with the pending records at replaceAll, so records appended after the call are kept
+    private static final byte[] REPLACE_MARKER = new byte[0];
+
+    private static class Segment {
+        private final File file;
+        private final long sequenceNumber;
+        private boolean damaged;
+
+        Segment(File file, long sequenceNumber) {
+            this.file = file;
+            this.sequenceNumber = sequenceNumber;
+        }
+
+        boolean isSmall() {
+            return file.length() < MAX_SEGMENT_SIZE / 2;
+        }
+    }
+
+    private final File dir;
+    private final ScheduledThreadPoolExecutor executor;
+    private final Queue<byte[]> pendingRecords = new ConcurrentLinkedQueue<>();
+    // The records of each REPLACE_MARKER in pendingRecords
+    private final Queue<List<byte[]>> pendingReplacements = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushPending = new AtomicBoolean();
+
+    // Only accessed at the executor thread once opened
+    private final List<Segment> sealedSegments = new ArrayList<>();
+    // Sequence numbers of segments which are replaced or compacted but could not be deleted
+    private final Set<Long> obsoleteSequenceNumbers = new TreeSet<>();
+    private long nextSequenceNumber;
+    private FileChannel activeChannel;
+    private Segment activeSegment;
+    private volatile boolean isShutDown;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public SegmentedLogStore(File dir) {
+        this.dir = dir;
+        if (!dir.exists() && !dir.mkdirs())
+            log.warn("make dir failed. dir=" + dir.getAbsolutePath());
+
+        executor = Utilities.getScheduledThreadPoolExecutor("SegmentedLogStore-" + dir.getName(), 1, 1, 10);
+        deleteTempFiles();
+        readObsoleteSequenceNumbers();
+        Set<Long> undeletedSequenceNumbers = new HashSet<>();
+        File[] files = dir.listFiles((d, name) -> name.endsWith(SEGMENT_SUFFIX));
+        if (files != null) {
+            for (File file : files) {
+                try {
+                    long sequenceNumber = Long.parseLong(file.getName().substring(0, file.getName().length() - SEGMENT_SUFFIX.length()));
+                    nextSequenceNumber = Math.max(nextSequenceNumber, sequenceNumber + 1);
+                    if (!obsoleteSequenceNumbers.contains(sequenceNumber))
+                        sealedSegments.add(new Segment(file, sequenceNumber));
+                    else if (!file.delete())
+                        undeletedSequenceNumbers.add(sequenceNumber);
+                } catch (NumberFormatException e) {
+                    log.warn("Ignoring unexpected file in log store. file=" + file.getAbsolutePath());
+                }
+            }
+        }
+        sealedSegments.sort(Comparator.comparingLong(segment -> segment.sequenceNumber));
+        if (!obsoleteSequenceNumbers.isEmpty()) {
+            obsoleteSequenceNumbers.retainAll(undeletedSequenceNumbers);
+            writeObsoleteSequenceNumbers();
+        }
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public boolean hasSegments() {
+        return !sealedSegments.isEmpty();
+    }
+
+    /**
+     * Reads all records of the existing segments. Must be called before any append.
+     * The buffer passed to the consumer is a read only view to the memory mapped file and is only valid during the call.
+     *
+     * @return Number of records read
+     */
+    public int read(Consumer<ByteBuffer> recordConsumer) {
+        checkState(activeSegment == null, "read must be called before append");
+        long ts = System.currentTimeMillis();
+        int numRecords = 0;
+        for (Segment segment : sealedSegments)
+            numRecords += readSegment(segment, recordConsumer);
+
+        log.info("Reading {} records from {} segments of {} took {} ms",
+                numRecords, sealedSegments.size(), dir.getName(), System.currentTimeMillis() - ts);
+
+        executor.execute(this::compactIfRequired);
+        return numRecords;
+    }
+
+    /**
+     * Writes the records synchronously to a new sealed segment. The segment gets visible only after all data
+     * are written, so it is safe to delete the source of the data after that method returned.
+     */
+    public void appendAllNow(Collection<byte[]> records) throws IOException {
+        try {
+            executor.submit(() -> {
+                flush();
+                writeSealedSegments(records.iterator());
+                return null;
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException)
+                throw (IOException) e.getCause();
+            throw new IOException(e.getCause());
+        }
+    }
+
+    // Can be called from any thread. The record is written at the next flush in the background.
+    public void append(byte[] record) {
+        checkArgument(record.length > 0, "Empty records are not supported");
+        if (isShutDown) {
+            log.warn("append called after shutDown. We ignore the record.");
+            return;
+        }
+
+        pendingRecords.add(record);
+        if (!flushPending.getAndSet(true))
+            executor.schedule(this::flush, FLUSH_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Replaces all records appended before the call with the given records. Can be called from any thread. The
+     * records are written at the next flush in the background.
+     */
+    public synchronized void replaceAll(Collection<byte[]> records) {
+        if (isShutDown) {
+            log.warn("replaceAll called after shutDown. We ignore the call.");
+            return;
+        }
+
+        pendingReplacements.add(new ArrayList<>(records));
+        pendingRecords.add(REPLACE_MARKER);
+        if (!flushPending.getAndSet(true))
+            executor.schedule(this::flush, FLUSH_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    // Writes all pending records and closes the active segment
+    public void shutDown() {
+        if (isShutDown)
+            return;
+
+        isShutDown = true;
+        try {
+            executor.submit(() -> {
+                flush();
+                closeActiveSegment();
+            }).get(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            log.error("Writing pending records at shutDown failed. dir={}, error={}", dir, e.toString());
+        }
+        executor.shutdown();
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Executor thread
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private void flush() {
+        flushPending.set(false);
+        if (pendingRecords.isEmpty())
+            return;
+
+        try {
+            List<ByteBuffer> buffers = new ArrayList<>();
+            long batchSize = 0;
+            byte[] record;
+            while ((record = pendingRecords.poll()) != null) {
+                if (record == REPLACE_MARKER) {
+                    // The records before the marker get replaced, so we don't need to write them
+                    buffers.clear();
+                    batchSize = 0;
+                    replaceSegments(checkNotNull(pendingReplacements.poll(), "replacement must not be null"));
+                    continue;
+                }
+
+                if (activeSegment == null)
+                    openActiveSegment();
+
+                ByteBuffer buffer = toRecordBuffer(record);
+                long size = activeChannel.size() + batchSize;
+                if (size > HEADER_SIZE && size + buffer.remaining() > MAX_SEGMENT_SIZE) {
+                    write(buffers);
+                    buffers.clear();
+                    batchSize = 0;
+                    closeActiveSegment();
+                    openActiveSegment();
+                }
+                buffers.add(buffer);
+                batchSize += buffer.remaining();
+            }
+            write(buffers);
+        } catch (Throwable t) {
+            log.error("Appending records to " + dir.getName() + " failed.", t);
+        }
+    }
+
+    private void write(List<ByteBuffer> buffers) throws IOException {
+        if (buffers.isEmpty())
+            return;
+
+        ByteBuffer[] array = buffers.toArray(new ByteBuffer[buffers.size()]);
+        long remaining = buffers.stream().mapToLong(ByteBuffer::remaining).sum();
+        while (remaining > 0)
+            remaining -= activeChannel.write(array);
+        activeChannel.force(false);
+    }
+
+    private void openActiveSegment() throws IOException {
+        activeSegment = new Segment(getSegmentFile(nextSequenceNumber), nextSequenceNumber);
+        nextSequenceNumber++;
+        activeChannel = FileChannel.open(activeSegment.file.toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        ByteBuffer header = getHeader();
+        while (header.hasRemaining())
+            activeChannel.write(header);
+        activeChannel.force(true);
+    }
+
+    private void closeActiveSegment() {
+        if (activeSegment == null)
+            return;
+
+        try {
+            activeChannel.close();
+        } catch (IOException e) {
+            log.warn("Closing segment failed. " + e.getMessage());
+        }
+        sealedSegments.add(activeSegment);
+        activeSegment = null;
+        activeChannel = null;
+        compactIfRequired();
+    }
+
+    private void replaceSegments(List<byte[]> records) throws IOException {
+        long ts = System.currentTimeMillis();
+        closeActiveSegment();
+        List<Segment> replacedSegments = new ArrayList<>(sealedSegments);
+        writeSealedSegments(records.iterator());
+        sealedSegments.removeAll(replacedSegments);
+        deleteSegments(replacedSegments);
+        log.info("Replaced {} segments of {} with {} records in {} ms",
+                replacedSegments.size(), dir.getName(), records.size(), System.currentTimeMillis() - ts);
+    }
+
+    private void compactIfRequired() {
+        List<Segment> candidates = new ArrayList<>();
+        for (Segment segment : sealedSegments) {
+            if (segment.isSmall() || segment.damaged)
+                candidates.add(segment);
+        }
+        boolean hasDamagedSegment = candidates.stream().anyMatch(segment -> segment.damaged);
+        if (candidates.size() < COMPACTION_THRESHOLD && !hasDamagedSegment)
+            return;
+
+        long ts = System.currentTimeMillis();
+        try {
+            // Records are independent from each other so the order does not matter. Duplicates might exist if a
+            // previous compaction could not delete its source segments.
+            Set<ByteBuffer> records = new LinkedHashSet<>();
+            for (Segment segment : candidates) {
+                readSegment(segment, buffer -> {
+                    ByteBuffer copy = ByteBuffer.allocate(buffer.remaining());
+                    copy.put(buffer);
+                    copy.flip();
+                    records.add(copy);
+                });
+            }
+
+            Iterator<ByteBuffer> iterator = records.iterator();
+            writeSealedSegments(new Iterator<byte[]>() {
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public byte[] next() {
+                    return iterator.next().array();
+                }
+            });
+
+            sealedSegments.removeAll(candidates);
+            deleteSegments(candidates);
+            log.info("Compacted {} segments with {} records of {} in {} ms",
+                    candidates.size(), records.size(), dir.getName(), System.currentTimeMillis() - ts);
+        } catch (Throwable t) {
+            log.error("Compaction of " + dir.getName() + " failed.", t);
+        }
+    }
+
+    // Writes the records to new segments using a temp file and an atomic rename for each segment
+    private void writeSealedSegments(Iterator<byte[]> records) throws IOException {
+        while (records.hasNext()) {
+            long sequenceNumber = nextSequenceNumber++;
+            File tempFile = new File(dir, sequenceNumber + TEMP_SUFFIX);
+            try (FileChannel channel = FileChannel.open(tempFile.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer header = getHeader();
+                while (header.hasRemaining())
+                    channel.write(header);
+
+                long size = HEADER_SIZE;
+                while (records.hasNext() && size < MAX_SEGMENT_SIZE) {
+                    ByteBuffer buffer = toRecordBuffer(records.next());
+                    size += buffer.remaining();
+                    while (buffer.hasRemaining())
+                        channel.write(buffer);
+                }
+                channel.force(true);
+            }
+
+            File segmentFile = getSegmentFile(sequenceNumber);
+            FileUtil.renameFile(tempFile, segmentFile);
+            sealedSegments.add(new Segment(segmentFile, sequenceNumber));
+        }
+    }
+
+
+    // Segments we cannot delete are marked as obsolete, otherwise their records would be loaded again at the next start
+    private void deleteSegments(List<Segment> segments) {
+        boolean hasUndeletedSegments = false;
+        for (Segment segment : segments) {
+            if (!segment.file.delete() && segment.file.exists()) {
+                log.warn("Could not delete segment. We mark it as obsolete. file=" + segment.file.getAbsolutePath());
+                obsoleteSequenceNumbers.add(segment.sequenceNumber);
+                hasUndeletedSegments = true;
+            }
+        }
+        if (hasUndeletedSegments)
+            writeObsoleteSequenceNumbers();
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private int readSegment(Segment segment, Consumer<ByteBuffer> recordConsumer) {
+        int numRecords = 0;
+        MappedByteBuffer mappedByteBuffer = null;
+        try (FileChannel channel = FileChannel.open(segment.file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE)
+                throw new IOException("Segment too large. size=" + size);
+
+            mappedByteBuffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (size < HEADER_SIZE || mappedByteBuffer.getInt() != MAGIC || mappedByteBuffer.getInt() != VERSION) {
+                log.warn("Segment has an invalid header. file=" + segment.file.getAbsolutePath());
+                segment.damaged = true;
+                return 0;
+            }
+
+            CRC32 crc32 = new CRC32();
+            while (mappedByteBuffer.remaining() >= RECORD_HEADER_SIZE) {
+                int position = mappedByteBuffer.position();
+                int length = mappedByteBuffer.getInt();
+                int checksum = mappedByteBuffer.getInt();
+                if (length <= 0 || length > mappedByteBuffer.remaining()) {
+                    mappedByteBuffer.position(position);
+                    break;
+                }
+
+                ByteBuffer record = mappedByteBuffer.slice();
+                record.limit(length);
+                crc32.reset();
+                crc32.update(record.duplicate());
+                if ((int) crc32.getValue() != checksum) {
+                    mappedByteBuffer.position(position);
+                    break;
+                }
+
+                recordConsumer.accept(record.asReadOnlyBuffer());
+                mappedByteBuffer.position(position + RECORD_HEADER_SIZE + length);
+                numRecords++;
+            }
+
+            if (mappedByteBuffer.hasRemaining()) {
+                // Happens if the app was killed while writing. The following data are lost.
+                log.warn("Segment contains an incomplete or corrupted record at position {}. " +
+                                "We ignore the remaining {} bytes. file={}",
+                        mappedByteBuffer.position(), mappedByteBuffer.remaining(), segment.file.getAbsolutePath());
+                segment.damaged = true;
+            }
+        } catch (Throwable t) {
+            log.error("Reading segment failed. file=" + segment.file.getAbsolutePath(), t);
+            segment.damaged = true;
+        } finally {
+            if (mappedByteBuffer != null)
+                unmap(mappedByteBuffer);
+        }
+        return numRecords;
+    }
+
+    // Without that the mapping is only released when the buffer gets garbage collected, and until then the file
+    // cannot be deleted on Windows. The record buffers passed to the consumer must not be used after that.
+    private static void unmap(MappedByteBuffer buffer) {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner;
+            try {
+                invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            } catch (NoSuchMethodException e) {
+                invokeCleaner = null;
+            }
+
+            if (invokeCleaner != null) {
+                // Java 9+
+                Field field = unsafeClass.getDeclaredField("theUnsafe");
+                field.setAccessible(true);
+                invokeCleaner.invoke(field.get(null), buffer);
+            } else {
+                // Java 8
+                Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                Object cleaner = cleanerMethod.invoke(buffer);
+                if (cleaner != null)
+                    cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        } catch (Throwable t) {
+            log.debug("Unmapping segment failed. The mapping gets released at garbage collection. " + t.toString());
+        }
+    }
+
+    private void readObsoleteSequenceNumbers() {
+        File file = new File(dir, OBSOLETE_FILE_NAME);
+        if (!file.exists())
+            return;
+
+        try {
+            for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+                if (!line.trim().isEmpty())
+                    obsoleteSequenceNumbers.add(Long.parseLong(line.trim()));
+            }
+        } catch (IOException | NumberFormatException e) {
+            log.error("Reading obsolete segments failed. file=" + file.getAbsolutePath(), e);
+        }
+    }
+
+    // Written with a temp file and an atomic rename, so a crash leaves either the old or the new list
+    private void writeObsoleteSequenceNumbers() {
+        File file = new File(dir, OBSOLETE_FILE_NAME);
+        try {
+            if (obsoleteSequenceNumbers.isEmpty()) {
+                FileUtil.deleteFileIfExists(file, false);
+                return;
+            }
+
+            File tempFile = new File(dir, OBSOLETE_FILE_NAME + TEMP_SUFFIX);
+            List<String> lines = new ArrayList<>();
+            obsoleteSequenceNumbers.forEach(sequenceNumber -> lines.add(String.valueOf(sequenceNumber)));
+            Files.write(tempFile.toPath(), lines, StandardCharsets.UTF_8);
+            FileUtil.renameFile(tempFile, file);
+        } catch (IOException e) {
+            log.error("Writing obsolete segments failed. file=" + file.getAbsolutePath(), e);
+        }
+    }
+
+    private void deleteTempFiles() {
+        File[] tempFiles = dir.listFiles((d, name) -> name.endsWith(TEMP_SUFFIX));
+        if (tempFiles != null) {
+            for (File tempFile : tempFiles) {
+                if (!tempFile.delete())
+                    log.warn("Could not delete temp file. file=" + tempFile.getAbsolutePath());
+            }
+        }
+    }
+
+    private File getSegmentFile(long sequenceNumber) {
+        return new File(dir, String.format("%020d", sequenceNumber) + SEGMENT_SUFFIX);
+    }
+
+    private static ByteBuffer getHeader() {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).flip();
+        return header;
+    }
+
+    private static ByteBuffer toRecordBuffer(byte[] record) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(record);
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER_SIZE + record.length);
+        buffer.putInt(record.length).putInt((int) crc32.getValue()).put(record).flip();
+        return buffer;
+    }
+}
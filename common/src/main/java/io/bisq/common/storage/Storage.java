@@ -37,9 +37,10 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * In case of a corrupted file we backup the old file to a separate directory, so if it holds critical data it might be helpful for recovery.
  * <p/>
  * We also backup at first read the file, so we have a valid file form the latest version in case a write operation corrupted the file.
+ * The backup is made in the background before the first write of the file.
  * <p/>
- * The read operation is triggered just at object creation (startup) and is at the moment not executed on a background thread to avoid asynchronous behaviour.
- * As the data are small and it is just one read access the performance penalty is small and might be even worse to create and setup a thread for it.
+ * The read operation is triggered just at startup. The PersistedDataHostLoader reads independent stores concurrently, so
+ * a Storage instance must only be used by one PersistedDataHost.
  * <p/>
  * The write operation used a background thread and supports a delayed write to avoid too many repeated write operations.
  */
@@ -142,8 +143,7 @@ public class Storage<T extends PersistableEnvelope> {
     // Private
     ///////////////////////////////////////////////////////////////////////////////////////////
 
-    // We do the file read on the UI thread to avoid problems from multi threading.
-    // Data are small and read is done only at startup, so it is no performance issue.
+    // The file is read on the thread which calls readPersisted of the PersistedDataHost.
     @Nullable
     private T getPersisted() {
         if (storageFile.exists()) {
@@ -152,10 +152,9 @@ public class Storage<T extends PersistableEnvelope> {
                 T persistedObject = fileManager.read(storageFile);
                 log.trace("Read {} completed in {}msec", storageFile, System.currentTimeMillis() - now);
 
-                // If we did not get any exception we can be sure the data are consistent so we make a backup
-                now = System.currentTimeMillis();
-                fileManager.backupFile(fileName, numMaxBackupFiles);
-                log.trace("Backup {} completed in {}msec", storageFile, System.currentTimeMillis() - now);
+                // If we did not get any exception we can be sure the data are consistent so we make a backup.
+                // The copy is done in the background to not delay the startup.
+                fileManager.backupLater(numMaxBackupFiles);
 
                 return persistedObject;
             } catch (Throwable t) {
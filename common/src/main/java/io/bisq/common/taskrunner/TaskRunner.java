@@ -21,21 +21,42 @@ import io.bisq.common.handlers.ErrorMessageHandler;
 import io.bisq.common.handlers.ResultHandler;
 import lombok.extern.slf4j.Slf4j;
 
+import java.lang.reflect.Constructor;
 import java.util.Arrays;
+import java.util.Map;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.LinkedBlockingQueue;
 
+/**
+ * Runs the tasks one after the other. A task calls complete or failed when it is done, which can be later if it waits
+ * for an asynchronous result.
+ * <p/>
+ * We don't persist the model after each task but at the checkpoints of the pipeline: when a task waits for an
+ * asynchronous result, when all tasks are completed and when a task failed. State changes which need to be persisted
+ * immediately (e.g. the trade state) are persisted by the model itself.
+ */
 @Slf4j
 public class TaskRunner<T extends Model> {
+    // The constructors of the task classes by model class, shared by all task runners
+    private static final Map<Class<?>, Map<Class<? extends Task>, Constructor<? extends Task>>> constructorsByModelClass =
+            new ConcurrentHashMap<>();
+
     private final Queue<Class<? extends Task>> tasks = new LinkedBlockingQueue<>();
     private final T sharedModel;
     private final Class<T> sharedModelClass;
+    private final Map<Class<? extends Task>, Constructor<? extends Task>> constructors;
     private final ResultHandler resultHandler;
     private final ErrorMessageHandler errorMessageHandler;
     private boolean failed = false;
     private boolean isCanceled;
+    // Set if a task completed since the last persist call
+    private boolean persistRequired;
+    private int numCompletedTasks;
+    private long pipelineStartTs;
 
     private Class<? extends Task> currentTask;
+    private long currentTaskStartTs;
 
 
     public TaskRunner(T sharedModel, ResultHandler resultHandler, ErrorMessageHandler errorMessageHandler) {
@@ -48,6 +69,7 @@ public class TaskRunner<T extends Model> {
         this.resultHandler = resultHandler;
         this.errorMessageHandler = errorMessageHandler;
         this.sharedModelClass = sharedModelClass;
+        constructors = constructorsByModelClass.computeIfAbsent(sharedModelClass, k -> new ConcurrentHashMap<>());
     }
 
     @SafeVarargs
@@ -56,6 +78,7 @@ public class TaskRunner<T extends Model> {
     }
 
     public void run() {
+        pipelineStartTs = System.currentTimeMillis();
         next();
     }
 
@@ -64,13 +87,21 @@ public class TaskRunner<T extends Model> {
             if (tasks.size() > 0) {
                 try {
                     currentTask = tasks.poll();
-                    log.info("Run task: " + currentTask.getSimpleName());
-                    currentTask.getDeclaredConstructor(TaskRunner.class, sharedModelClass).newInstance(this, sharedModel).run();
+                    log.debug("Run task: " + currentTask.getSimpleName());
+                    Task task = getConstructor(currentTask).newInstance(this, sharedModel);
+                    currentTaskStartTs = System.nanoTime();
+                    task.run();
+                    // If the task has not completed it waits for an asynchronous result, so that is a checkpoint
+                    if (!task.completed && !failed)
+                        maybePersist();
                 } catch (Throwable throwable) {
                     throwable.printStackTrace();
                     handleErrorMessage("Error at taskRunner: " + throwable.getMessage());
                 }
             } else {
+                maybePersist();
+                log.info("Completed {} tasks of {} in {} ms", numCompletedTasks, sharedModelClass.getSimpleName(),
+                        System.currentTimeMillis() - pipelineStartTs);
                 resultHandler.handleResult();
             }
         }
@@ -78,17 +109,43 @@ public class TaskRunner<T extends Model> {
 
     public void cancel() {
         isCanceled = true;
+        maybePersist();
     }
 
     void handleComplete() {
         log.trace("Task completed: " + currentTask.getSimpleName());
-        sharedModel.persist();
+        TaskStatistics.record(currentTask, System.nanoTime() - currentTaskStartTs);
+        numCompletedTasks++;
+        persistRequired = true;
         next();
     }
 
     void handleErrorMessage(String errorMessage) {
         log.error("Task failed: " + currentTask.getSimpleName() + " / errorMessage: " + errorMessage);
         failed = true;
+        maybePersist();
         errorMessageHandler.handleErrorMessage(errorMessage);
     }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private Constructor<? extends Task> getConstructor(Class<? extends Task> taskClass) throws NoSuchMethodException {
+        Constructor<? extends Task> constructor = constructors.get(taskClass);
+        if (constructor == null) {
+            constructor = taskClass.getDeclaredConstructor(TaskRunner.class, sharedModelClass);
+            constructor.setAccessible(true);
+            constructors.put(taskClass, constructor);
+        }
+        return constructor;
+    }
+
+    private void maybePersist() {
+        if (persistRequired) {
+            persistRequired = false;
+            sharedModel.persist();
+        }
+    }
 }
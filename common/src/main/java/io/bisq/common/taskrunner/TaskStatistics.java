@@ -0,0 +1,108 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.common.taskrunner;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histograms of the tasks run by the TaskRunner, for finding slow steps of a protocol. The latency is the time
+ * from the start of the task until it completed, so it contains the time the task waited for asynchronous results.
+ */
+@Slf4j
+public class TaskStatistics {
+    // Upper bounds of the buckets in ms, the last bucket contains all larger values
+    private static final long[] BUCKET_BOUNDS_MS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000};
+
+    private static final Map<String, Histogram> histogramsByTaskName = new ConcurrentHashMap<>();
+
+    private static class Histogram {
+        private final LongAdder[] buckets = new LongAdder[BUCKET_BOUNDS_MS.length + 1];
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        private Histogram() {
+            for (int i = 0; i < buckets.length; i++)
+                buckets[i] = new LongAdder();
+        }
+
+        private void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+            long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+            int index = 0;
+            while (index < BUCKET_BOUNDS_MS.length && millis > BUCKET_BOUNDS_MS[index])
+                index++;
+            buckets[index].increment();
+        }
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public static void record(Class<? extends Task> taskClass, long nanos) {
+        histogramsByTaskName.computeIfAbsent(taskClass.getSimpleName(), k -> new Histogram()).record(nanos);
+    }
+
+    public static long getCount(Class<? extends Task> taskClass) {
+        Histogram histogram = histogramsByTaskName.get(taskClass.getSimpleName());
+        return histogram != null ? histogram.count.sum() : 0;
+    }
+
+    public static void reset() {
+        histogramsByTaskName.clear();
+    }
+
+    /**
+     * @return The histograms as CSV with one row per task, sorted by the total time spent in the task. The bucket
+     * columns contain the number of runs with a latency up to the bound of the column in ms.
+     */
+    public static String getReportAsCsv() {
+        StringBuilder sb = new StringBuilder("task,count,totalMs,avgMs,maxMs");
+        for (long bound : BUCKET_BOUNDS_MS)
+            sb.append(",le").append(bound);
+        sb.append(",gt").append(BUCKET_BOUNDS_MS[BUCKET_BOUNDS_MS.length - 1]).append("\n");
+
+        histogramsByTaskName.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<String, Histogram> e) -> e.getValue().totalNanos.sum()).reversed())
+                .forEach(e -> {
+                    Histogram histogram = e.getValue();
+                    long count = histogram.count.sum();
+                    long totalNanos = histogram.totalNanos.sum();
+                    sb.append(e.getKey())
+                            .append(",").append(count)
+                            .append(",").append(TimeUnit.NANOSECONDS.toMillis(totalNanos))
+                            .append(",").append(count > 0 ? TimeUnit.NANOSECONDS.toMillis(totalNanos / count) : 0)
+                            .append(",").append(TimeUnit.NANOSECONDS.toMillis(histogram.maxNanos.get()));
+                    for (LongAdder bucket : histogram.buckets)
+                        sb.append(",").append(bucket.sum());
+                    sb.append("\n");
+                });
+        return sb.toString();
+    }
+}
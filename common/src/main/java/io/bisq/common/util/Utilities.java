@@ -63,6 +63,14 @@ public class Utilities {
         return gson.toJson(object);
     }
 
+    // Without line breaks, used for JSON lines files
+    public static String objectToCompactJson(Object object) {
+        Gson gson = new GsonBuilder()
+                .setExclusionStrategies(new AnnotationExclusionStrategy())
+                .create();
+        return gson.toJson(object);
+    }
+
     public static ListeningExecutorService getListeningExecutorService(String name,
                                                                        int corePoolSize,
                                                                        int maximumPoolSize,
@@ -0,0 +1,65 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.common;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TimingWheelTimerTest {
+
+    @Test
+    public void testRunLater() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        new TimingWheelTimer().runLater(Duration.ofMillis(50), latch::countDown);
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testStop() throws InterruptedException {
+        AtomicInteger counter = new AtomicInteger();
+        Timer timer = new TimingWheelTimer().runLater(Duration.ofMillis(30), counter::incrementAndGet);
+        timer.stop();
+        Thread.sleep(200);
+        assertEquals(0, counter.get());
+    }
+
+    @Test
+    public void testRunPeriodically() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(5);
+        Timer timer = new TimingWheelTimer().runPeriodically(Duration.ofMillis(20), latch::countDown);
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        timer.stop();
+    }
+
+    @Test
+    public void testDelayLongerThanOneRound() throws InterruptedException {
+        long roundDuration = TimingWheel.TICK_DURATION_MS * TimingWheel.WHEEL_SIZE;
+        long ts = System.currentTimeMillis();
+        CountDownLatch latch = new CountDownLatch(1);
+        new TimingWheelTimer().runLater(Duration.ofMillis(roundDuration + 200), latch::countDown);
+        assertTrue(latch.await(roundDuration + 2000, TimeUnit.MILLISECONDS));
+        assertTrue(System.currentTimeMillis() - ts >= roundDuration + 200);
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.common.crypto;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.crypto.SecretKey;
+import java.nio.ByteBuffer;
+import java.security.Security;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class EncryptionTest {
+    private SecretKey secretKey;
+    private byte[] payload;
+
+    @Before
+    public void setup() {
+        Security.addProvider(new BouncyCastleProvider());
+        secretKey = Encryption.generateSecretKey();
+        payload = new byte[1000];
+        new Random(1).nextBytes(payload);
+    }
+
+    @Test
+    public void testRoundTrip() throws CryptoException {
+        byte[] encrypted = Encryption.encryptPayloadWithHmac(payload, secretKey);
+        assertArrayEquals(payload, Encryption.decryptPayloadWithHmac(encrypted, secretKey));
+    }
+
+    @Test
+    public void testEmptyPayload() throws CryptoException {
+        byte[] encrypted = Encryption.encryptPayloadWithHmac(new byte[0], secretKey);
+        assertEquals(0, Encryption.decryptPayloadWithHmac(encrypted, secretKey).length);
+    }
+
+    @Test
+    public void testRegionAndBuffer() throws CryptoException {
+        byte[] encrypted = Encryption.encryptPayloadWithHmac(payload, 100, 500, secretKey);
+
+        byte[] framed = new byte[encrypted.length + 20];
+        System.arraycopy(encrypted, 0, framed, 10, encrypted.length);
+        ByteBuffer decrypted = Encryption.decryptPayloadWithHmac(ByteBuffer.wrap(framed, 10, encrypted.length), secretKey);
+
+        assertEquals(500, decrypted.remaining());
+        assertArrayEquals(Arrays.copyOfRange(payload, 100, 600),
+                Arrays.copyOfRange(decrypted.array(), decrypted.arrayOffset() + decrypted.position(),
+                        decrypted.arrayOffset() + decrypted.limit()));
+    }
+
+    @Test
+    public void testTamperedPayloadFails() throws CryptoException {
+        byte[] encrypted = Encryption.encryptPayloadWithHmac(payload, secretKey);
+        encrypted[5] ^= 1;
+        try {
+            Encryption.decryptPayloadWithHmac(encrypted, secretKey);
+            fail("Expected CryptoException");
+        } catch (CryptoException ignore) {
+        }
+    }
+
+    @Test
+    public void testWrongKeyFails() throws CryptoException {
+        byte[] encrypted = Encryption.encryptPayloadWithHmac(payload, secretKey);
+        try {
+            Encryption.decryptPayloadWithHmac(encrypted, Encryption.generateSecretKey());
+            fail("Expected CryptoException");
+        } catch (CryptoException ignore) {
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.common.proto.persistable;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PersistedDataHostLoaderTest {
+
+    @Test
+    public void testDependenciesAreReadFirst() {
+        List<String> readHosts = new CopyOnWriteArrayList<>();
+        PersistedDataHost preferences = () -> {
+            sleep(100);
+            readHosts.add("preferences");
+        };
+        PersistedDataHost user = () -> readHosts.add("user");
+        PersistedDataHost trades = () -> readHosts.add("trades");
+
+        new PersistedDataHostLoader()
+                .add(preferences)
+                .add(user, preferences)
+                .add(trades, preferences, user)
+                .readAll();
+
+        assertEquals(3, readHosts.size());
+        assertEquals("preferences", readHosts.get(0));
+        assertEquals("user", readHosts.get(1));
+        assertEquals("trades", readHosts.get(2));
+    }
+
+    @Test
+    public void testFailingHostDoesNotBlockOthers() {
+        List<String> readHosts = new CopyOnWriteArrayList<>();
+        PersistedDataHost failing = () -> {
+            throw new RuntimeException("corrupted");
+        };
+        PersistedDataHost dependent = () -> readHosts.add("dependent");
+        PersistedDataHost independent = () -> readHosts.add("independent");
+
+        new PersistedDataHostLoader()
+                .add(failing)
+                .add(dependent, failing)
+                .add(independent)
+                .readAll();
+
+        assertEquals(2, readHosts.size());
+        assertTrue(readHosts.contains("dependent"));
+        assertTrue(readHosts.contains("independent"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDependencyMustBeAddedBefore() {
+        PersistedDataHost preferences = () -> {
+        };
+        new PersistedDataHostLoader().add(() -> {
+        }, preferences);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ignore) {
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.common.storage;
+
+import com.google.protobuf.Message;
+import io.bisq.common.proto.persistable.PersistableEnvelope;
+import io.bisq.generated.protobuffer.PB;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PersistenceServiceTest {
+    private File dir;
+    private PersistenceService persistenceService;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("PersistenceServiceTest").toFile();
+        persistenceService = new PersistenceService();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        persistenceService.shutDown();
+        FileUtil.deleteDirectory(dir);
+    }
+
+    @Test
+    public void testWritesAreCoalesced() throws Exception {
+        FileManager<NavigationPathEnvelope> fileManager = getFileManager("path");
+        for (int i = 0; i < 10; i++)
+            fileManager.saveLater(new NavigationPathEnvelope("item-" + i), 100);
+
+        File file = new File(dir, "path");
+        for (int i = 0; i < 100 && !file.exists(); i++)
+            Thread.sleep(50);
+
+        assertEquals(Arrays.asList("item-9"), read(file));
+        assertEquals(1, persistenceService.getMetrics().get("path").getNumWrites());
+        assertTrue(persistenceService.getMetrics().get("path").getBytesWritten() > 0);
+    }
+
+    @Test
+    public void testFlushWritesPendingFiles() throws Exception {
+        getFileManager("path1").saveLater(new NavigationPathEnvelope("item-1"), 60_000);
+        getFileManager("path2").saveLater(new NavigationPathEnvelope("item-2"), 60_000);
+
+        persistenceService.flush();
+
+        assertEquals(Arrays.asList("item-1"), read(new File(dir, "path1")));
+        assertEquals(Arrays.asList("item-2"), read(new File(dir, "path2")));
+    }
+
+    @Test
+    public void testSaveNow() throws Exception {
+        FileManager<NavigationPathEnvelope> fileManager = getFileManager("path");
+        fileManager.saveNow(new NavigationPathEnvelope("item-1"));
+        assertEquals(Arrays.asList("item-1"), read(new File(dir, "path")));
+
+        fileManager.saveNow(new NavigationPathEnvelope("item-2"));
+        assertEquals(Arrays.asList("item-2"), read(new File(dir, "path")));
+        assertEquals(2, persistenceService.getMetrics().get("path").getNumWrites());
+    }
+
+    @Test
+    public void testBackupIsMadeBeforeWrite() throws Exception {
+        FileManager<NavigationPathEnvelope> fileManager = getFileManager("path");
+        fileManager.saveNow(new NavigationPathEnvelope("item-1"));
+
+        fileManager.backupLater(5);
+        fileManager.saveNow(new NavigationPathEnvelope("item-2"));
+
+        File[] backups = new File(dir, "backup/backups_path").listFiles();
+        assertEquals(1, backups.length);
+        assertEquals(Arrays.asList("item-1"), read(backups[0]));
+        assertEquals(Arrays.asList("item-2"), read(new File(dir, "path")));
+    }
+
+    private FileManager<NavigationPathEnvelope> getFileManager(String fileName) {
+        return new FileManager<>(dir, new File(dir, fileName), 100, null, persistenceService);
+    }
+
+    private static List<String> read(File file) throws IOException {
+        try (FileInputStream fileInputStream = new FileInputStream(file)) {
+            return PB.PersistableEnvelope.parseDelimitedFrom(fileInputStream).getNavigationPath().getPathList();
+        }
+    }
+
+    private static class NavigationPathEnvelope implements PersistableEnvelope {
+        private final String path;
+
+        NavigationPathEnvelope(String path) {
+            this.path = path;
+        }
+
+        @Override
+        public Message toProtoMessage() {
+            return PB.PersistableEnvelope.newBuilder()
+                    .setNavigationPath(PB.NavigationPath.newBuilder().addPath(path))
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.common.storage;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SegmentedLogStoreTest {
+    private File dir;
+    private int maxSegmentSize;
+    private int compactionThreshold;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("SegmentedLogStoreTest").toFile();
+        maxSegmentSize = SegmentedLogStore.MAX_SEGMENT_SIZE;
+        compactionThreshold = SegmentedLogStore.COMPACTION_THRESHOLD;
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        SegmentedLogStore.MAX_SEGMENT_SIZE = maxSegmentSize;
+        SegmentedLogStore.COMPACTION_THRESHOLD = compactionThreshold;
+        FileUtil.deleteDirectory(dir);
+    }
+
+    @Test
+    public void testAppendAndRead() {
+        SegmentedLogStore store = new SegmentedLogStore(dir);
+        assertEquals(0, store.read(buffer -> {
+        }));
+        for (int i = 0; i < 100; i++)
+            store.append(toRecord(i));
+        store.shutDown();
+
+        assertEquals(getRecords(0, 100), readAll(new SegmentedLogStore(dir)));
+    }
+
+    @Test
+    public void testAppendAllNow() throws IOException {
+        SegmentedLogStore store = new SegmentedLogStore(dir);
+        List<byte[]> records = new ArrayList<>();
+        for (int i = 0; i < 50; i++)
+            records.add(toRecord(i));
+        store.appendAllNow(records);
+
+        assertTrue(new SegmentedLogStore(dir).hasSegments());
+        assertEquals(getRecords(0, 50), readAll(new SegmentedLogStore(dir)));
+        store.shutDown();
+    }
+
+    @Test
+    public void testReplaceAll() {
+        SegmentedLogStore store = new SegmentedLogStore(dir);
+        readAll(store);
+        for (int i = 0; i < 20; i++)
+            store.append(toRecord(i));
+        store.replaceAll(Arrays.asList(toRecord(5), toRecord(6)));
+        store.append(toRecord(30));
+        store.shutDown();
+
+        Set<String> expected = getRecords(5, 7);
+        expected.add("record-30");
+        assertEquals(expected, readAll(new SegmentedLogStore(dir)));
+    }
+
+    @Test
+    public void testSegmentRollOverAndCompaction() throws InterruptedException {
+        SegmentedLogStore.MAX_SEGMENT_SIZE = 256;
+        SegmentedLogStore.COMPACTION_THRESHOLD = 3;
+        for (int run = 0; run < 5; run++) {
+            SegmentedLogStore store = new SegmentedLogStore(dir);
+            readAll(store);
+            for (int i = run * 20; i < (run + 1) * 20; i++)
+                store.append(toRecord(i));
+            store.shutDown();
+        }
+
+        SegmentedLogStore store = new SegmentedLogStore(dir);
+        assertEquals(getRecords(0, 100), readAll(store));
+        store.shutDown();
+        assertEquals(getRecords(0, 100), readAll(new SegmentedLogStore(dir)));
+    }
+
+    @Test
+    public void testReloadAfterCompaction() {
+        SegmentedLogStore.MAX_SEGMENT_SIZE = 256;
+        SegmentedLogStore.COMPACTION_THRESHOLD = 4;
+        for (int run = 0; run < 4; run++) {
+            SegmentedLogStore store = new SegmentedLogStore(dir);
+            readAll(store);
+            for (int i = run * 3; i < (run + 1) * 3; i++)
+                store.append(toRecord(i));
+            store.shutDown();
+        }
+
+        // Each run created a small segment, the read triggers the compaction
+        SegmentedLogStore store = new SegmentedLogStore(dir);
+        readAll(store);
+        store.shutDown();
+        assertEquals(1, getSegmentFiles().length);
+
+        List<String> records = readAllAsList(new SegmentedLogStore(dir));
+        assertEquals(12, records.size());
+        assertEquals(getRecords(0, 12), new HashSet<>(records));
+    }
+
+    @Test
+    public void testObsoleteSegmentIsSkippedAndDeleted() throws IOException {
+        SegmentedLogStore store = new SegmentedLogStore(dir);
+        for (int i = 0; i < 10; i++)
+            store.append(toRecord(i));
+        store.shutDown();
+        File obsoleteSegment = getSegmentFiles()[0];
+
+        store = new SegmentedLogStore(dir);
+        readAll(store);
+        for (int i = 10; i < 20; i++)
+            store.append(toRecord(i));
+        store.shutDown();
+
+        // Same as if a previous compaction could not delete the segment
+        String name = obsoleteSegment.getName();
+        long sequenceNumber = Long.parseLong(name.substring(0, name.indexOf('.')));
+        File obsoleteFile = new File(dir, "obsolete");
+        Files.write(obsoleteFile.toPath(), Collections.singletonList(String.valueOf(sequenceNumber)), StandardCharsets.UTF_8);
+
+        List<String> records = readAllAsList(new SegmentedLogStore(dir));
+        assertEquals(10, records.size());
+        assertEquals(getRecords(10, 20), new HashSet<>(records));
+        assertFalse(obsoleteSegment.exists());
+        assertFalse(obsoleteFile.exists());
+    }
+
+    @Test
+    public void testTornWrite() throws IOException {
+        SegmentedLogStore store = new SegmentedLogStore(dir);
+        for (int i = 0; i < 10; i++)
+            store.append(toRecord(i));
+        store.shutDown();
+
+        File segment = Objects.requireNonNull(dir.listFiles())[0];
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            // Cuts the last record
+            file.setLength(file.length() - 3);
+        }
+
+        assertEquals(getRecords(0, 9), readAll(new SegmentedLogStore(dir)));
+    }
+
+    @Test
+    public void testCorruptedRecord() throws IOException {
+        SegmentedLogStore store = new SegmentedLogStore(dir);
+        for (int i = 0; i < 10; i++)
+            store.append(toRecord(i));
+        store.shutDown();
+
+        File segment = Objects.requireNonNull(dir.listFiles())[0];
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            file.seek(file.length() - 1);
+            file.write('x');
+        }
+
+        assertEquals(getRecords(0, 9), readAll(new SegmentedLogStore(dir)));
+    }
+
+    private static byte[] toRecord(int i) {
+        return ("record-" + i).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static Set<String> getRecords(int from, int to) {
+        Set<String> records = new HashSet<>();
+        for (int i = from; i < to; i++)
+            records.add("record-" + i);
+        return records;
+    }
+
+    private File[] getSegmentFiles() {
+        File[] files = Objects.requireNonNull(dir.listFiles((d, name) -> name.endsWith(".seg")));
+        Arrays.sort(files);
+        return files;
+    }
+
+    private static Set<String> readAll(SegmentedLogStore store) {
+        return new HashSet<>(readAllAsList(store));
+    }
+
+    private static List<String> readAllAsList(SegmentedLogStore store) {
+        List<String> records = new ArrayList<>();
+        store.read(buffer -> {
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            records.add(new String(bytes, StandardCharsets.UTF_8));
+        });
+        return records;
+    }
+}
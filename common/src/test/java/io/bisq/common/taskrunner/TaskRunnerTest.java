@@ -0,0 +1,164 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.common.taskrunner;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TaskRunnerTest {
+    private TestModel model;
+    private boolean completed;
+    private String errorMessage;
+
+    public static class TestModel implements Model {
+        private final List<String> runTasks = new ArrayList<>();
+        private int numPersistCalls;
+        private Task pendingTask;
+
+        @Override
+        public void persist() {
+            numPersistCalls++;
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+
+    public static class TaskA extends Task<TestModel> {
+        public TaskA(TaskRunner taskHandler, TestModel model) {
+            super(taskHandler, model);
+        }
+
+        @Override
+        protected void run() {
+            model.runTasks.add("A");
+            complete();
+        }
+    }
+
+    public static class TaskB extends Task<TestModel> {
+        public TaskB(TaskRunner taskHandler, TestModel model) {
+            super(taskHandler, model);
+        }
+
+        @Override
+        protected void run() {
+            model.runTasks.add("B");
+            complete();
+        }
+    }
+
+    // Completes later, like a task waiting for a network message
+    public static class AsyncTask extends Task<TestModel> {
+        public AsyncTask(TaskRunner taskHandler, TestModel model) {
+            super(taskHandler, model);
+        }
+
+        @Override
+        protected void run() {
+            model.runTasks.add("Async");
+            model.pendingTask = this;
+        }
+    }
+
+    public static class FailingTask extends Task<TestModel> {
+        public FailingTask(TaskRunner taskHandler, TestModel model) {
+            super(taskHandler, model);
+        }
+
+        @Override
+        protected void run() {
+            model.runTasks.add("Failing");
+            failed("Test failure");
+        }
+    }
+
+    @Before
+    public void setUp() {
+        model = new TestModel();
+        completed = false;
+        errorMessage = null;
+        TaskStatistics.reset();
+    }
+
+    @Test
+    public void testPersistOnceAtEndOfSynchronousPipeline() {
+        TaskRunner<TestModel> taskRunner = createTaskRunner();
+        taskRunner.addTasks(TaskA.class, TaskB.class, TaskA.class);
+        taskRunner.run();
+
+        assertTrue(completed);
+        assertEquals("[A, B, A]", model.runTasks.toString());
+        assertEquals(1, model.numPersistCalls);
+        assertEquals(2, TaskStatistics.getCount(TaskA.class));
+        assertEquals(1, TaskStatistics.getCount(TaskB.class));
+    }
+
+    @Test
+    public void testPersistWhenTaskWaitsForAsyncResult() {
+        TaskRunner<TestModel> taskRunner = createTaskRunner();
+        taskRunner.addTasks(TaskA.class, AsyncTask.class, TaskB.class);
+        taskRunner.run();
+
+        // TaskA is persisted before we wait
+        assertEquals("[A, Async]", model.runTasks.toString());
+        assertEquals(1, model.numPersistCalls);
+        assertFalse(completed);
+
+        model.pendingTask.complete();
+        assertTrue(completed);
+        assertEquals("[A, Async, B]", model.runTasks.toString());
+        assertEquals(2, model.numPersistCalls);
+    }
+
+    @Test
+    public void testPersistAtFailure() {
+        TaskRunner<TestModel> taskRunner = createTaskRunner();
+        taskRunner.addTasks(TaskA.class, FailingTask.class, TaskB.class);
+        taskRunner.run();
+
+        assertFalse(completed);
+        assertTrue(errorMessage.contains("Test failure"));
+        assertEquals("[A, Failing]", model.runTasks.toString());
+        assertEquals(1, model.numPersistCalls);
+    }
+
+    @Test
+    public void testReportContainsTasks() {
+        TaskRunner<TestModel> taskRunner = createTaskRunner();
+        taskRunner.addTasks(TaskA.class, TaskB.class);
+        taskRunner.run();
+
+        String report = TaskStatistics.getReportAsCsv();
+        assertTrue(report.startsWith("task,count,totalMs,avgMs,maxMs,le1,"));
+        assertTrue(report.contains("\nTaskA,1,"));
+        assertTrue(report.contains("\nTaskB,1,"));
+    }
+
+    private TaskRunner<TestModel> createTaskRunner() {
+        return new TaskRunner<>(model, () -> completed = true, message -> errorMessage = message);
+    }
+}
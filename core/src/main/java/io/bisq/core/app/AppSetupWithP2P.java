@@ -19,6 +19,7 @@ package io.bisq.core.app;
 
 import io.bisq.common.crypto.KeyRing;
 import io.bisq.common.proto.persistable.PersistedDataHost;
+import io.bisq.common.proto.persistable.PersistedDataHostLoader;
 import io.bisq.core.filter.FilterManager;
 import io.bisq.core.payment.AccountAgeWitnessService;
 import io.bisq.core.trade.statistics.TradeStatisticsManager;
@@ -64,14 +65,9 @@ public class AppSetupWithP2P extends AppSetup {
         persistedDataHosts.add(p2PService);
 
         // we apply at startup the reading of persisted data but don't want to get it triggered in the constructor
-        persistedDataHosts.stream().forEach(e -> {
-            try {
-                log.info("call readPersisted at " + e.getClass().getSimpleName());
-                e.readPersisted();
-            } catch (Throwable e1) {
-                log.error("readPersisted error", e1);
-            }
-        });
+        PersistedDataHostLoader loader = new PersistedDataHostLoader();
+        persistedDataHosts.forEach(loader::add);
+        loader.readAll();
     }
 
     @Override
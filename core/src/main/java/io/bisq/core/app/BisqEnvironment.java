@@ -178,7 +178,7 @@ public class BisqEnvironment extends StandardEnvironment {
     protected List<String> bannedSeedNodes, bannedBtcNodes, bannedPriceRelayNodes;
 
     protected final String btcNodes, seedNodes, ignoreDevMsg, useDevPrivilegeKeys, useDevMode, useTorForBtc, rpcUser, rpcPassword,
-            rpcPort, rpcBlockNotificationPort, dumpBlockchainData, fullDaoNode,
+            rpcPort, rpcBlockNotificationPort, dumpBlockchainData, dumpBlockchainDataIncremental, fullDaoNode,
             myAddress, banList, dumpStatistics, maxMemory, socks5ProxyBtcAddress,
             socks5ProxyHttpAddress, useAllProvidedNodes, numConnectionForBtc, genesisTxId, genesisBlockHeight;
 
@@ -262,6 +262,9 @@ public class BisqEnvironment extends StandardEnvironment {
         dumpBlockchainData = commandLineProperties.containsProperty(DaoOptionKeys.DUMP_BLOCKCHAIN_DATA) ?
                 (String) commandLineProperties.getProperty(DaoOptionKeys.DUMP_BLOCKCHAIN_DATA) :
                 "";
+        dumpBlockchainDataIncremental = commandLineProperties.containsProperty(DaoOptionKeys.DUMP_BLOCKCHAIN_DATA_INCREMENTAL) ?
+                (String) commandLineProperties.getProperty(DaoOptionKeys.DUMP_BLOCKCHAIN_DATA_INCREMENTAL) :
+                "";
         fullDaoNode = commandLineProperties.containsProperty(DaoOptionKeys.FULL_DAO_NODE) ?
                 (String) commandLineProperties.getProperty(DaoOptionKeys.FULL_DAO_NODE) :
                 "";
@@ -425,6 +428,7 @@ public class BisqEnvironment extends StandardEnvironment {
                 setProperty(DaoOptionKeys.RPC_PORT, rpcPort);
                 setProperty(DaoOptionKeys.RPC_BLOCK_NOTIFICATION_PORT, rpcBlockNotificationPort);
                 setProperty(DaoOptionKeys.DUMP_BLOCKCHAIN_DATA, dumpBlockchainData);
+                setProperty(DaoOptionKeys.DUMP_BLOCKCHAIN_DATA_INCREMENTAL, dumpBlockchainDataIncremental);
                 setProperty(DaoOptionKeys.FULL_DAO_NODE, fullDaoNode);
                 setProperty(DaoOptionKeys.GENESIS_TX_ID, genesisTxId);
                 setProperty(DaoOptionKeys.GENESIS_BLOCK_HEIGHT, genesisBlockHeight);
@@ -25,6 +25,7 @@ import io.bisq.core.exceptions.BisqException;
 import io.bisq.core.util.joptsimple.EnumValueConverter;
 import io.bisq.network.NetworkOptionKeys;
 import io.bisq.network.p2p.P2PService;
+import io.bisq.network.p2p.network.Connection;
 import joptsimple.OptionException;
 import joptsimple.OptionParser;
 import joptsimple.OptionSet;
@@ -75,6 +76,14 @@ public abstract class BisqExecutable {
         parser.accepts(CommonOptionKeys.LOG_LEVEL_KEY,
                 description("Log level [OFF, ALL, ERROR, WARN, INFO, DEBUG, TRACE]", BisqEnvironment.LOG_LEVEL_DEFAULT))
                 .withRequiredArg();
+        parser.accepts(CommonOptionKeys.LOG_MESSAGE_SAMPLE_RATES_KEY,
+                description("Only log every nth network message of a type at debug level as comma separated list " +
+                        "of messageType:n. Use 0 to not log the type at all. E.g. Ping:10,Pong:0", ""))
+                .withRequiredArg();
+        parser.accepts(CommonOptionKeys.LOG_MESSAGE_PAYLOADS_KEY,
+                description("Include the payload of network messages in the debug log", false))
+                .withRequiredArg()
+                .ofType(boolean.class);
 
         //NetworkOptionKeys
         parser.accepts(NetworkOptionKeys.SEED_NODES_KEY,
@@ -99,6 +108,14 @@ public abstract class BisqExecutable {
                 description("Max. connections a peer will try to keep", P2PService.MAX_CONNECTIONS_DEFAULT))
                 .withRequiredArg()
                 .ofType(int.class);
+        parser.accepts(NetworkOptionKeys.MAX_OUTBOUND_MSG_PER_SEC,
+                description("Max. messages per second we send to a peer", Connection.MAX_OUTBOUND_MSG_PER_SEC_DEFAULT))
+                .withRequiredArg()
+                .ofType(int.class);
+        parser.accepts(NetworkOptionKeys.MSG_RATE_LIMITS,
+                description("Rate limits for message classes in both directions as comma separated list of " +
+                        "messageClassName:msgPerSec:burst. E.g. AddDataMessage:20:40", ""))
+                .withRequiredArg();
         parser.accepts(NetworkOptionKeys.SOCKS_5_PROXY_BTC_ADDRESS,
                 description("A proxy address to be used for Bitcoin network. [host:port]", ""))
                 .withRequiredArg();
@@ -137,6 +154,11 @@ public abstract class BisqExecutable {
                 description("If set to true the trade statistics are stored as json file in the data dir.", false))
                 .withRequiredArg()
                 .ofType(boolean.class);
+        parser.accepts(AppOptionKeys.DUMP_STATISTICS_JSON_LINES,
+                description("If set to true the dumped trade statistics are appended to a json lines file " +
+                        "(trade_statistics.jsonl) instead of rewriting trade_statistics.json.", false))
+                .withRequiredArg()
+                .ofType(boolean.class);
         parser.accepts(AppOptionKeys.PROVIDERS,
                 description("Custom providers (comma separated)", false))
                 .withRequiredArg();
@@ -191,6 +213,11 @@ public abstract class BisqExecutable {
                         "as json file in the data dir.", false))
                 .withRequiredArg()
                 .ofType(boolean.class);
+        parser.accepts(DaoOptionKeys.DUMP_BLOCKCHAIN_DATA_INCREMENTAL,
+                description("If set to true the blockchain data json files are only written for the txs changed by " +
+                        "new blocks and the blocks are appended to a JSON lines file. Requires dumpBlockchainData.", false))
+                .withRequiredArg()
+                .ofType(boolean.class);
         parser.accepts(DaoOptionKeys.FULL_DAO_NODE,
                 description("If set to true the node requests the blockchain data via RPC requests from Bitcoin Core and " +
                         "provide the validated BSQ txs to the network. It requires that the other RPC properties are " +
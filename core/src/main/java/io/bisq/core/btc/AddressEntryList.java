@@ -29,21 +29,23 @@ import lombok.extern.slf4j.Slf4j;
 import org.bitcoinj.crypto.DeterministicKey;
 import org.bitcoinj.wallet.Wallet;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 /**
  * The List supporting our persistence solution.
  */
-@ToString
+@ToString(exclude = {"entriesByOfferIdAndContext", "entriesByContext"})
 @Slf4j
 public final class AddressEntryList implements PersistableEnvelope, PersistedDataHost {
     transient private Storage<AddressEntryList> storage;
     transient private Wallet wallet;
     @Getter
     private List<AddressEntry> list;
+    // Lookup indexes of the entries in list
+    transient private final Map<String, List<AddressEntry>> entriesByOfferIdAndContext = new HashMap<>();
+    transient private final Map<AddressEntry.Context, List<AddressEntry>> entriesByContext = new EnumMap<>(AddressEntry.Context.class);
 
     @Inject
     public AddressEntryList(Storage<AddressEntryList> storage) {
@@ -53,8 +55,10 @@ public final class AddressEntryList implements PersistableEnvelope, PersistedDat
     @Override
     public void readPersisted() {
         AddressEntryList persisted = storage.initAndGetPersisted(this, 50);
-        if (persisted != null)
+        if (persisted != null) {
             list = new ArrayList<>(persisted.getList());
+            rebuildIndexes();
+        }
     }
 
 
@@ -64,6 +68,7 @@ public final class AddressEntryList implements PersistableEnvelope, PersistedDat
 
     private AddressEntryList(List<AddressEntry> list) {
         this.list = list;
+        rebuildIndexes();
     }
 
     public static AddressEntryList fromProto(PB.AddressEntryList proto) {
@@ -99,6 +104,7 @@ public final class AddressEntryList implements PersistableEnvelope, PersistedDat
             });
         } else {
             list = new ArrayList<>();
+            rebuildIndexes();
             add(new AddressEntry(wallet.freshReceiveKey(), AddressEntry.Context.ARBITRATOR));
 
             // In case we restore from seed words and have balance we need to add the relevant addresses to our list:
@@ -114,11 +120,13 @@ public final class AddressEntryList implements PersistableEnvelope, PersistedDat
     }
 
     private boolean add(AddressEntry addressEntry) {
+        addToIndexes(addressEntry);
         return list.add(addressEntry);
     }
 
     private boolean remove(AddressEntry addressEntry) {
-        return list.remove(addressEntry);
+        removeFromIndexes(addressEntry);
+        return list.removeIf(e -> e == addressEntry);
     }
 
     public AddressEntry addAddressEntry(AddressEntry addressEntry) {
@@ -147,4 +155,52 @@ public final class AddressEntryList implements PersistableEnvelope, PersistedDat
     public Stream<AddressEntry> stream() {
         return list.stream();
     }
+
+    public Optional<AddressEntry> findAddressEntry(String offerId, AddressEntry.Context context) {
+        List<AddressEntry> entries = entriesByOfferIdAndContext.get(getOfferIdAndContextKey(offerId, context));
+        return entries != null ? entries.stream().findFirst() : Optional.empty();
+    }
+
+    public List<AddressEntry> getAddressEntries(AddressEntry.Context context) {
+        List<AddressEntry> entries = entriesByContext.get(context);
+        return entries != null ? new ArrayList<>(entries) : new ArrayList<>();
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private void rebuildIndexes() {
+        entriesByOfferIdAndContext.clear();
+        entriesByContext.clear();
+        list.forEach(this::addToIndexes);
+    }
+
+    private void addToIndexes(AddressEntry addressEntry) {
+        if (addressEntry.getOfferId() != null)
+            entriesByOfferIdAndContext.computeIfAbsent(getOfferIdAndContextKey(addressEntry.getOfferId(), addressEntry.getContext()),
+                    k -> new ArrayList<>()).add(addressEntry);
+        entriesByContext.computeIfAbsent(addressEntry.getContext(), k -> new ArrayList<>()).add(addressEntry);
+    }
+
+    // AddressEntry.equals includes mutable fields, so we remove by identity
+    private void removeFromIndexes(AddressEntry addressEntry) {
+        if (addressEntry.getOfferId() != null)
+            removeByIdentity(entriesByOfferIdAndContext, getOfferIdAndContextKey(addressEntry.getOfferId(), addressEntry.getContext()), addressEntry);
+        removeByIdentity(entriesByContext, addressEntry.getContext(), addressEntry);
+    }
+
+    private static <K> void removeByIdentity(Map<K, List<AddressEntry>> index, K key, AddressEntry addressEntry) {
+        List<AddressEntry> entries = index.get(key);
+        if (entries != null) {
+            entries.removeIf(e -> e == addressEntry);
+            if (entries.isEmpty())
+                index.remove(key);
+        }
+    }
+
+    private static String getOfferIdAndContextKey(String offerId, AddressEntry.Context context) {
+        return offerId + "_" + context.name();
+    }
 }
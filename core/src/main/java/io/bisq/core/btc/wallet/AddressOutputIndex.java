@@ -0,0 +1,272 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.core.btc.wallet;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bitcoinj.core.*;
+import org.bitcoinj.utils.Threading;
+import org.bitcoinj.wallet.Wallet;
+import org.bitcoinj.wallet.listeners.AbstractWalletEventListener;
+import org.bitcoinj.wallet.listeners.WalletEventListener;
+
+import javax.annotation.Nullable;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps the spend candidates (same as Wallet.calculateAllSpendCandidates), the balance and the number of outputs of
+ * a wallet by address.
+ * <p/>
+ * The index is updated from the wallet events on the thread which changes the wallet, so it is up to date when a
+ * wallet call like commitTx returns. An event only re-evaluates the outputs of the changed transaction and the
+ * outputs spent by its inputs. At a reorganisation the index is rebuilt from the wallet.
+ * <p/>
+ * When bitcoinj kills a double spent transaction it disconnects its inputs before the confidence changes to DEAD, so
+ * we remember the outputs spent by each transaction to make them available again when it turns DEAD.
+ * <p/>
+ * Lock order is wallet lock before the index lock. The getters never call into the wallet.
+ */
+@Slf4j
+class AddressOutputIndex {
+
+    private static class State {
+        // Spend candidates and their value by address
+        private final Map<Address, Map<TransactionOutPoint, Coin>> spendCandidatesByAddress = new HashMap<>();
+        private final Map<Address, Coin> balanceByAddress = new HashMap<>();
+        // All outputs of not dead transactions by address, spent or unspent
+        private final Map<Address, Set<TransactionOutPoint>> outputsByAddress = new HashMap<>();
+        // Outputs with an address spent by the inputs of a transaction
+        private final Map<Sha256Hash, Map<TransactionOutPoint, Address>> spentOutputsByTx = new HashMap<>();
+
+        private void putSpendCandidate(Address address, TransactionOutPoint outPoint, Coin value) {
+            spendCandidatesByAddress.computeIfAbsent(address, k -> new HashMap<>()).put(outPoint, value);
+            updateBalance(address);
+        }
+
+        private void removeSpendCandidate(Address address, TransactionOutPoint outPoint) {
+            Map<TransactionOutPoint, Coin> candidates = spendCandidatesByAddress.get(address);
+            if (candidates != null && candidates.remove(outPoint) != null) {
+                if (candidates.isEmpty())
+                    spendCandidatesByAddress.remove(address);
+                updateBalance(address);
+            }
+        }
+
+        private void updateBalance(Address address) {
+            Map<TransactionOutPoint, Coin> candidates = spendCandidatesByAddress.get(address);
+            if (candidates != null)
+                balanceByAddress.put(address, Coin.valueOf(candidates.values().stream().mapToLong(coin -> coin.value).sum()));
+            else
+                balanceByAddress.remove(address);
+        }
+
+        private void addOutput(Address address, TransactionOutPoint outPoint) {
+            outputsByAddress.computeIfAbsent(address, k -> new HashSet<>()).add(outPoint);
+        }
+
+        private void addSpentOutput(Transaction tx, Address address, TransactionOutPoint outPoint) {
+            spentOutputsByTx.computeIfAbsent(tx.getHash(), k -> new HashMap<>()).put(outPoint, address);
+        }
+
+        private void removeOutput(Address address, TransactionOutPoint outPoint) {
+            Set<TransactionOutPoint> outPoints = outputsByAddress.get(address);
+            if (outPoints != null && outPoints.remove(outPoint) && outPoints.isEmpty())
+                outputsByAddress.remove(address);
+        }
+    }
+
+    private State state = new State();
+    // Incremented at each update, so a rebuild running concurrently with an update can detect that it is outdated
+    private long numUpdates;
+
+    @SuppressWarnings("deprecation")
+    private final WalletEventListener walletEventListener = new AbstractWalletEventListener() {
+        @Override
+        public void onCoinsReceived(Wallet wallet, Transaction tx, Coin prevBalance, Coin newBalance) {
+            update(wallet, tx);
+        }
+
+        @Override
+        public void onCoinsSent(Wallet wallet, Transaction tx, Coin prevBalance, Coin newBalance) {
+            update(wallet, tx);
+        }
+
+        @Override
+        public void onTransactionConfidenceChanged(Wallet wallet, Transaction tx) {
+            update(wallet, tx);
+        }
+
+        @Override
+        public void onReorganize(Wallet wallet) {
+            rebuild(wallet);
+        }
+    };
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    @SuppressWarnings("deprecation")
+    void attach(Wallet wallet) {
+        // Same thread executor so we get updated inside the wallet lock before the wallet call returns
+        wallet.addEventListener(walletEventListener, Threading.SAME_THREAD);
+        rebuild(wallet);
+    }
+
+    @SuppressWarnings("deprecation")
+    void detach(Wallet wallet) {
+        wallet.removeEventListener(walletEventListener);
+    }
+
+    synchronized Coin getBalance(Address address) {
+        return state.balanceByAddress.getOrDefault(address, Coin.ZERO);
+    }
+
+    synchronized int getNumOutputs(Address address) {
+        Set<TransactionOutPoint> outPoints = state.outputsByAddress.get(address);
+        return outPoints != null ? outPoints.size() : 0;
+    }
+
+    // Addresses of the outputs of the tx and of the outputs spent by the tx. Includes the spent outputs we know from
+    // before the inputs got disconnected.
+    synchronized Set<Address> getAffectedAddresses(Transaction tx) {
+        Set<Address> addresses = new HashSet<>();
+        for (TransactionOutput output : tx.getOutputs()) {
+            Address address = WalletService.getAddressFromOutput(output);
+            if (address != null)
+                addresses.add(address);
+        }
+        for (TransactionInput input : tx.getInputs()) {
+            TransactionOutput connectedOutput = input.getConnectedOutput();
+            if (connectedOutput != null) {
+                Address address = WalletService.getAddressFromOutput(connectedOutput);
+                if (address != null)
+                    addresses.add(address);
+            }
+        }
+        Map<TransactionOutPoint, Address> spentOutputs = state.spentOutputsByTx.get(tx.getHash());
+        if (spentOutputs != null)
+            addresses.addAll(spentOutputs.values());
+        return addresses;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private void rebuild(Wallet wallet) {
+        long ts = System.currentTimeMillis();
+        while (true) {
+            long numUpdatesAtStart;
+            synchronized (this) {
+                numUpdatesAtStart = numUpdates;
+            }
+
+            // We read from the wallet outside of our lock to keep the lock order
+            State newState = new State();
+            for (TransactionOutput output : wallet.calculateAllSpendCandidates()) {
+                Address address = WalletService.getAddressFromOutput(output);
+                if (address != null && output.getParentTransaction() != null)
+                    newState.putSpendCandidate(address, output.getOutPointFor(), output.getValue());
+            }
+            for (Transaction tx : wallet.getTransactions(false)) {
+                for (TransactionOutput output : tx.getOutputs()) {
+                    Address address = WalletService.getAddressFromOutput(output);
+                    if (address != null)
+                        newState.addOutput(address, output.getOutPointFor());
+                }
+                for (TransactionInput input : tx.getInputs()) {
+                    TransactionOutput connectedOutput = input.getConnectedOutput();
+                    Address address = connectedOutput != null ? WalletService.getAddressFromOutput(connectedOutput) : null;
+                    if (address != null)
+                        newState.addSpentOutput(tx, address, connectedOutput.getOutPointFor());
+                }
+            }
+
+            synchronized (this) {
+                if (numUpdates == numUpdatesAtStart) {
+                    state = newState;
+                    log.info("Rebuilding address output index for {} addresses took {} ms",
+                            newState.outputsByAddress.size(), System.currentTimeMillis() - ts);
+                    return;
+                }
+            }
+            log.debug("Wallet got updated while we rebuilt the address output index. We try again.");
+        }
+    }
+
+    private synchronized void update(Wallet wallet, Transaction tx) {
+        numUpdates++;
+        for (TransactionOutput output : tx.getOutputs())
+            updateOutput(wallet, output);
+
+        for (TransactionInput input : tx.getInputs()) {
+            TransactionOutput connectedOutput = input.getConnectedOutput();
+            if (connectedOutput != null) {
+                Address address = WalletService.getAddressFromOutput(connectedOutput);
+                if (address != null)
+                    state.addSpentOutput(tx, address, connectedOutput.getOutPointFor());
+                updateOutput(wallet, connectedOutput);
+            }
+        }
+
+        // The inputs of a dead tx are already disconnected, so we look up the outputs it had spent. We keep the
+        // entry so the affected addresses of the tx are still known when the balance listeners get notified.
+        if (isDead(tx)) {
+            Map<TransactionOutPoint, Address> spentOutputs = state.spentOutputsByTx.get(tx.getHash());
+            if (spentOutputs != null) {
+                for (TransactionOutPoint outPoint : spentOutputs.keySet()) {
+                    Transaction spentTx = wallet.getTransaction(outPoint.getHash());
+                    if (spentTx != null && outPoint.getIndex() < spentTx.getOutputs().size())
+                        updateOutput(wallet, spentTx.getOutput(outPoint.getIndex()));
+                }
+            }
+        }
+    }
+
+    private void updateOutput(Wallet wallet, TransactionOutput output) {
+        Address address = WalletService.getAddressFromOutput(output);
+        Transaction parentTx = output.getParentTransaction();
+        if (address == null || parentTx == null)
+            return;
+
+        TransactionOutPoint outPoint = output.getOutPointFor();
+        boolean isDead = isDead(parentTx);
+        if (isDead)
+            state.removeOutput(address, outPoint);
+        else
+            state.addOutput(address, outPoint);
+
+        // Same conditions as in Wallet.calculateAllSpendCandidates
+        if (!isDead &&
+                output.isAvailableForSpending() &&
+                output.isMine(wallet) &&
+                (!parentTx.isCoinBase() || parentTx.isMature()))
+            state.putSpendCandidate(address, outPoint, output.getValue());
+        else
+            state.removeSpendCandidate(address, outPoint);
+    }
+
+    private static boolean isDead(@Nullable Transaction tx) {
+        return tx != null && tx.getConfidence().getConfidenceType() == TransactionConfidence.ConfidenceType.DEAD;
+    }
+}
@@ -81,6 +81,7 @@ public class BsqWalletService extends WalletService implements BsqBlockChainList
                 if (wallet != null) {
                     wallet.setCoinSelector(bsqCoinSelector);
                     wallet.addEventListener(walletEventListener);
+                    addressOutputIndex.attach(wallet);
 
                     //noinspection deprecation
                     wallet.addEventListener(new AbstractWalletEventListener() {
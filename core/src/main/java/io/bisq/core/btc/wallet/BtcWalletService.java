@@ -70,6 +70,7 @@ public class BtcWalletService extends WalletService {
         walletsSetup.addSetupCompletedHandler(() -> {
             wallet = walletsSetup.getBtcWallet();
             wallet.addEventListener(walletEventListener);
+            addressOutputIndex.attach(wallet);
 
             walletsSetup.getChain().addNewBestBlockListener(block -> chainHeightProperty.set(block.getHeight()));
             chainHeightProperty.set(walletsSetup.getChain().getBestChainHeight());
@@ -393,17 +394,11 @@ public class BtcWalletService extends WalletService {
     ///////////////////////////////////////////////////////////////////////////////////////////
 
     public Optional<AddressEntry> getAddressEntry(String offerId, @SuppressWarnings("SameParameterValue") AddressEntry.Context context) {
-        return getAddressEntryListAsImmutableList().stream()
-                .filter(e -> offerId.equals(e.getOfferId()))
-                .filter(e -> context == e.getContext())
-                .findAny();
+        return addressEntryList.findAddressEntry(offerId, context);
     }
 
     public AddressEntry getOrCreateAddressEntry(String offerId, AddressEntry.Context context) {
-        Optional<AddressEntry> addressEntry = getAddressEntryListAsImmutableList().stream()
-                .filter(e -> offerId.equals(e.getOfferId()))
-                .filter(e -> context == e.getContext())
-                .findAny();
+        Optional<AddressEntry> addressEntry = addressEntryList.findAddressEntry(offerId, context);
         if (addressEntry.isPresent()) {
             return addressEntry.get();
         } else {
@@ -415,15 +410,12 @@ public class BtcWalletService extends WalletService {
     }
 
     public AddressEntry getOrCreateAddressEntry(AddressEntry.Context context) {
-        Optional<AddressEntry> addressEntry = getAddressEntryListAsImmutableList().stream()
-                .filter(e -> context == e.getContext())
-                .findAny();
+        Optional<AddressEntry> addressEntry = addressEntryList.getAddressEntries(context).stream().findAny();
         return getOrCreateAddressEntry(context, addressEntry);
     }
 
     public AddressEntry getOrCreateUnusedAddressEntry(AddressEntry.Context context) {
-        Optional<AddressEntry> addressEntry = getAddressEntryListAsImmutableList().stream()
-                .filter(e -> context == e.getContext())
+        Optional<AddressEntry> addressEntry = addressEntryList.getAddressEntries(context).stream()
                 .filter(e -> getNumTxOutputsForAddress(e.getAddress()) == 0)
                 .findAny();
         return getOrCreateAddressEntry(context, addressEntry);
@@ -440,36 +432,29 @@ public class BtcWalletService extends WalletService {
     }
 
     private Optional<AddressEntry> findAddressEntry(String address, AddressEntry.Context context) {
-        return getAddressEntryListAsImmutableList().stream()
+        return addressEntryList.getAddressEntries(context).stream()
                 .filter(e -> address.equals(e.getAddressString()))
-                .filter(e -> context == e.getContext())
                 .findAny();
     }
 
     public List<AddressEntry> getAvailableAddressEntries() {
-        return getAddressEntryListAsImmutableList().stream()
-                .filter(addressEntry -> AddressEntry.Context.AVAILABLE == addressEntry.getContext())
-                .collect(Collectors.toList());
+        return addressEntryList.getAddressEntries(AddressEntry.Context.AVAILABLE);
     }
 
     public List<AddressEntry> getAddressEntriesForOpenOffer() {
-        return getAddressEntryListAsImmutableList().stream()
-                .filter(addressEntry -> AddressEntry.Context.OFFER_FUNDING == addressEntry.getContext() ||
-                        AddressEntry.Context.RESERVED_FOR_TRADE == addressEntry.getContext())
-                .collect(Collectors.toList());
+        List<AddressEntry> list = addressEntryList.getAddressEntries(AddressEntry.Context.OFFER_FUNDING);
+        list.addAll(addressEntryList.getAddressEntries(AddressEntry.Context.RESERVED_FOR_TRADE));
+        return list;
     }
 
     public List<AddressEntry> getAddressEntriesForTrade() {
-        return getAddressEntryListAsImmutableList().stream()
-                .filter(addressEntry -> AddressEntry.Context.MULTI_SIG == addressEntry.getContext() ||
-                        AddressEntry.Context.TRADE_PAYOUT == addressEntry.getContext())
-                .collect(Collectors.toList());
+        List<AddressEntry> list = addressEntryList.getAddressEntries(AddressEntry.Context.MULTI_SIG);
+        list.addAll(addressEntryList.getAddressEntries(AddressEntry.Context.TRADE_PAYOUT));
+        return list;
     }
 
     public List<AddressEntry> getAddressEntries(AddressEntry.Context context) {
-        return getAddressEntryListAsImmutableList().stream()
-                .filter(addressEntry -> context == addressEntry.getContext())
-                .collect(Collectors.toList());
+        return addressEntryList.getAddressEntries(context);
     }
 
     public List<AddressEntry> getFundedAvailableAddressEntries() {
@@ -483,10 +468,7 @@ public class BtcWalletService extends WalletService {
     }
 
     public void swapTradeEntryToAvailableEntry(String offerId, AddressEntry.Context context) {
-        Optional<AddressEntry> addressEntryOptional = getAddressEntryListAsImmutableList().stream()
-                .filter(e -> offerId.equals(e.getOfferId()))
-                .filter(e -> context == e.getContext())
-                .findAny();
+        Optional<AddressEntry> addressEntryOptional = addressEntryList.findAddressEntry(offerId, context);
         addressEntryOptional.ifPresent(e -> {
             log.info("swap addressEntry with address {} and offerId {} from context {} to available",
                     e.getAddressString(), e.getOfferId(), context);
@@ -74,6 +74,7 @@ public abstract class WalletService {
     protected final CopyOnWriteArraySet<AddressConfidenceListener> addressConfidenceListeners = new CopyOnWriteArraySet<>();
     protected final CopyOnWriteArraySet<TxConfidenceListener> txConfidenceListeners = new CopyOnWriteArraySet<>();
     protected final CopyOnWriteArraySet<BalanceListener> balanceListeners = new CopyOnWriteArraySet<>();
+    protected final AddressOutputIndex addressOutputIndex = new AddressOutputIndex();
     protected Wallet wallet;
     protected KeyParameter aesKey;
     @Getter
@@ -101,9 +102,11 @@ public abstract class WalletService {
     ///////////////////////////////////////////////////////////////////////////////////////////
 
     public void shutDown() {
-        if (wallet != null)
+        if (wallet != null) {
             //noinspection deprecation
             wallet.removeEventListener(walletEventListener);
+            addressOutputIndex.detach(wallet);
+        }
     }
 
 
@@ -396,7 +399,7 @@ public abstract class WalletService {
     }
 
     public Coin getBalanceForAddress(Address address) {
-        return wallet != null ? getBalance(wallet.calculateAllSpendCandidates(), address) : Coin.ZERO;
+        return wallet != null && address != null ? addressOutputIndex.getBalance(address) : Coin.ZERO;
     }
 
     protected Coin getBalance(List<TransactionOutput> transactionOutputs, Address address) {
@@ -415,16 +418,7 @@ public abstract class WalletService {
     }
 
     public int getNumTxOutputsForAddress(Address address) {
-        List<TransactionOutput> transactionOutputs = new ArrayList<>();
-        wallet.getTransactions(false).stream().forEach(t -> transactionOutputs.addAll(t.getOutputs()));
-        int outputs = 0;
-        for (TransactionOutput output : transactionOutputs) {
-            if (isOutputScriptConvertibleToAddress(output) &&
-                    address != null &&
-                    address.equals(getAddressFromOutput(output)))
-                outputs++;
-        }
-        return outputs;
+        return address != null ? addressOutputIndex.getNumOutputs(address) : 0;
     }
 
     public Coin getTxFeeForWithdrawalPerByte() {
@@ -671,12 +665,18 @@ public abstract class WalletService {
         }
 
         void notifyBalanceListeners(Transaction tx) {
+            // Listeners for an address are only notified if the tx pays to or spends from that address
+            Set<Address> affectedAddresses = addressOutputIndex.getAffectedAddresses(tx);
             for (BalanceListener balanceListener : balanceListeners) {
                 Coin balance;
-                if (balanceListener.getAddress() != null)
+                if (balanceListener.getAddress() != null) {
+                    if (!affectedAddresses.contains(balanceListener.getAddress()))
+                        continue;
+
                     balance = getBalanceForAddress(balanceListener.getAddress());
-                else
+                } else {
                     balance = getAvailableBalance();
+                }
 
                 balanceListener.onBalanceChanged(balance, tx);
             }
@@ -10,6 +10,7 @@ public class DaoOptionKeys {
     public static final String RPC_BLOCK_NOTIFICATION_PORT = "rpcBlockNotificationPort";
 
     public static final String DUMP_BLOCKCHAIN_DATA = "dumpBlockchainData";
+    public static final String DUMP_BLOCKCHAIN_DATA_INCREMENTAL = "dumpBlockchainDataIncremental";
     public static final String FULL_DAO_NODE = "fullDaoNode";
     public static final String GENESIS_TX_ID = "genesisTxId";
     public static final String GENESIS_BLOCK_HEIGHT = "genesisBlockHeight";
@@ -76,6 +76,8 @@ public class BsqFullNode extends BsqNode {
 
     @Override
     public void onAllServicesInitialized(ErrorMessageHandler errorMessageHandler) {
+        // We serve our persisted snapshots to lite nodes
+        bsqBlockChain.setServeSnapshots();
         bsqFullNodeExecutor.setup(() -> {
                     super.onInitialized();
                     startParseBlocks();
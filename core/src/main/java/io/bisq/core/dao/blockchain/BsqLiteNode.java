@@ -27,6 +27,7 @@ import io.bisq.core.dao.blockchain.p2p.messages.NewBsqBlockBroadcastMessage;
 import io.bisq.core.dao.blockchain.parse.BsqBlockChain;
 import io.bisq.core.dao.blockchain.parse.BsqLiteNodeExecutor;
 import io.bisq.core.dao.blockchain.parse.BsqParser;
+import io.bisq.core.dao.blockchain.parse.BsqSnapshot;
 import io.bisq.core.dao.blockchain.vo.BsqBlock;
 import io.bisq.core.provider.fee.FeeService;
 import io.bisq.network.p2p.P2PService;
@@ -105,10 +106,28 @@ public class BsqLiteNode extends BsqNode {
         UserThread.runAfter(this::startParseBlocks, 2);
     }
 
-    // First we request the blocks from a full node
+    // First we request the snapshot of a full node if it would save us blocks, then the blocks after it
     @Override
     protected void startParseBlocks() {
-        requestManager.requestBlocks(getStartBlockHeight());
+        final int startBlockHeight = getStartBlockHeight();
+        requestManager.requestSnapshot(startBlockHeight,
+                this::onSnapshotReceived,
+                () -> requestManager.requestBlocks(startBlockHeight));
+    }
+
+    private void onSnapshotReceived(BsqSnapshot bsqSnapshot) {
+        log.info("onSnapshotReceived: {}", bsqSnapshot);
+        bsqLiteNodeExecutor.applySnapshot(bsqSnapshot,
+                genesisBlockHeight,
+                genesisTxId,
+                () -> {
+                    bsqBlockChainListeners.forEach(BsqBlockChainListener::onBsqBlockChainChanged);
+                    requestManager.requestBlocks(getStartBlockHeight());
+                },
+                throwable -> {
+                    log.warn("Applying the snapshot failed. We request the blocks instead. " + throwable.toString());
+                    requestManager.requestBlocks(getStartBlockHeight());
+                });
     }
 
     // We received the missing blocks
@@ -0,0 +1,33 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.core.dao.blockchain.json;
+
+import lombok.Value;
+
+import java.util.List;
+
+// One line of the blocks stream of the incremental export
+@Value
+public class JsonBlock {
+    private final int height;
+    private final String hash;
+    private final String previousBlockHash;
+    private final List<JsonTx> txs;
+    // Outputs of earlier txs which got spent by the txs of that block
+    private final List<JsonTxOutput> spentTxOutputs;
+}
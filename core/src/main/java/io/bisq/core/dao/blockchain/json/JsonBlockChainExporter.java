@@ -21,6 +21,7 @@ import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.gson.Gson;
 import com.google.inject.Inject;
 import io.bisq.common.storage.FileUtil;
 import io.bisq.common.storage.JsonFileManager;
@@ -28,36 +29,58 @@ import io.bisq.common.storage.Storage;
 import io.bisq.common.util.Utilities;
 import io.bisq.core.dao.DaoOptionKeys;
 import io.bisq.core.dao.blockchain.parse.BsqBlockChain;
+import io.bisq.core.dao.blockchain.vo.BsqBlock;
 import io.bisq.core.dao.blockchain.vo.Tx;
+import io.bisq.core.dao.blockchain.vo.TxInput;
 import io.bisq.core.dao.blockchain.vo.TxOutput;
 import io.bisq.core.dao.blockchain.vo.TxType;
 import lombok.extern.slf4j.Slf4j;
 import org.bitcoinj.core.Utils;
 import org.jetbrains.annotations.NotNull;
 
+import javax.annotation.Nullable;
 import javax.inject.Named;
-import java.io.File;
-import java.io.IOException;
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
 import java.util.stream.Collectors;
 
+/**
+ * Writes the BSQ blockchain data as json files: one file per tx, one file per tx output and the whole BsqBlockChain.
+ * <p/>
+ * In the incremental mode we don't rewrite all files at each new block. We only write the files of the txs of the new
+ * blocks and of the txs whose outputs got spent by them. Instead of the whole BsqBlockChain we append one line per
+ * block to a JSON lines file. A checkpoint with the last exported block lets us continue after a restart. If the block
+ * at the checkpoint height has changed (reorg) we export all blocks again.
+ */
 @Slf4j
 public class JsonBlockChainExporter {
+    private static final String BLOCKS_STREAM_FILE_NAME = "blocks.jsonl";
+    private static final String CHECKPOINT_FILE_NAME = "ExportCheckpoint";
+
     private final boolean dumpBlockchainData;
+    private final boolean incremental;
     private final BsqBlockChain bsqBlockChain;
 
     private final ListeningExecutorService executor = Utilities.getListeningExecutorService("JsonExporter", 1, 1, 1200);
     private File txDir, txOutputDir, bsqBlockChainDir;
     private JsonFileManager txFileManager, txOutputFileManager, bsqBlockChainFileManager;
 
+    // Incremental mode, only accessed from the executor after init
+    @Nullable
+    private JsonExportCheckpoint checkpoint;
+
     @Inject
     public JsonBlockChainExporter(BsqBlockChain bsqBlockChain,
                                   @Named(Storage.STORAGE_DIR) File storageDir,
-                                  @Named(DaoOptionKeys.DUMP_BLOCKCHAIN_DATA) boolean dumpBlockchainData) {
+                                  @Named(DaoOptionKeys.DUMP_BLOCKCHAIN_DATA) boolean dumpBlockchainData,
+                                  @Named(DaoOptionKeys.DUMP_BLOCKCHAIN_DATA_INCREMENTAL) boolean incremental) {
         this.bsqBlockChain = bsqBlockChain;
         this.dumpBlockchainData = dumpBlockchainData;
+        this.incremental = incremental;
 
         init(storageDir, dumpBlockchainData);
     }
@@ -67,25 +90,15 @@ public class JsonBlockChainExporter {
             txDir = new File(Paths.get(storageDir.getAbsolutePath(), "tx").toString());
             txOutputDir = new File(Paths.get(storageDir.getAbsolutePath(), "txo").toString());
             bsqBlockChainDir = new File(Paths.get(storageDir.getAbsolutePath(), "all").toString());
-            try {
-                if (txDir.exists())
-                    FileUtil.deleteDirectory(txDir);
-                if (txOutputDir.exists())
-                    FileUtil.deleteDirectory(txOutputDir);
-                if (bsqBlockChainDir.exists())
-                    FileUtil.deleteDirectory(bsqBlockChainDir);
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
 
-            if (!txDir.mkdir())
-                log.warn("make txDir failed.\ntxDir=" + txDir.getAbsolutePath());
+            if (incremental)
+                checkpoint = readCheckpoint();
 
-            if (!txOutputDir.mkdir())
-                log.warn("make txOutputDir failed.\ntxOutputDir=" + txOutputDir.getAbsolutePath());
+            // If we continue an incremental export we keep the files
+            if (checkpoint == null)
+                deleteDirs();
 
-            if (!bsqBlockChainDir.mkdir())
-                log.warn("make bsqBsqBlockChainDir failed.\nbsqBsqBlockChainDir=" + bsqBlockChainDir.getAbsolutePath());
+            makeDirs();
 
             txFileManager = new JsonFileManager(txDir);
             txOutputFileManager = new JsonFileManager(txOutputDir);
@@ -101,62 +114,23 @@ public class JsonBlockChainExporter {
         }
     }
 
-    public void maybeExport() {
+    // The returned future completes when the data are written
+    public ListenableFuture<Void> maybeExport() {
         if (dumpBlockchainData) {
             ListenableFuture<Void> future = executor.submit(() -> {
                 final BsqBlockChain bsqBlockChainClone = bsqBlockChain.getClone();
-                for (Tx tx : bsqBlockChainClone.getTxMap().values()) {
-                    String txId = tx.getId();
-                    JsonTxType txType = tx.getTxType() != TxType.UNDEFINED_TX_TYPE ? JsonTxType.valueOf(tx.getTxType().name()) : null;
-                    List<JsonTxOutput> outputs = new ArrayList<>();
-                    tx.getOutputs().stream().forEach(txOutput -> {
-                        final JsonTxOutput outputForJson = new JsonTxOutput(txId,
-                                txOutput.getIndex(),
-                                txOutput.isVerified() ? txOutput.getValue() : 0,
-                                !txOutput.isVerified() ? txOutput.getValue() : 0,
-                                txOutput.getBlockHeight(),
-                                txOutput.isVerified(),
-                                tx.getBurntFee(),
-                                txOutput.getAddress(),
-                                new JsonScriptPubKey(txOutput.getPubKeyScript()),
-                                txOutput.getSpentInfo() != null ?
-                                        new JsonSpentInfo(txOutput.getSpentInfo()) : null,
-                                tx.getTime(),
-                                txType,
-                                txType != null ? txType.getDisplayString() : "",
-                                txOutput.getOpReturnData() != null ? Utils.HEX.encode(txOutput.getOpReturnData()) : null
-                        );
-                        outputs.add(outputForJson);
-                        txOutputFileManager.writeToDisc(Utilities.objectToJson(outputForJson), outputForJson.getId());
-                    });
-
-
-                    List<JsonTxInput> inputs = tx.getInputs().stream()
-                            .map(txInput -> {
-                                final TxOutput connectedTxOutput = txInput.getConnectedTxOutput();
-                                return new JsonTxInput(txInput.getTxOutputIndex(),
-                                        txInput.getTxId(),
-                                        connectedTxOutput != null ? connectedTxOutput.getValue() : 0,
-                                        connectedTxOutput != null && connectedTxOutput.isVerified(),
-                                        connectedTxOutput != null ? connectedTxOutput.getAddress() : null,
-                                        tx.getTime());
-                            })
-                            .collect(Collectors.toList());
-
-                    final JsonTx jsonTx = new JsonTx(txId,
-                            tx.getBlockHeight(),
-                            tx.getBlockHash(),
-                            tx.getTime(),
-                            inputs,
-                            outputs,
-                            txType,
-                            txType != null ? txType.getDisplayString() : "",
-                            tx.getBurntFee());
-
-                    txFileManager.writeToDisc(Utilities.objectToJson(jsonTx), txId);
-                }
+                if (incremental) {
+                    exportNewBlocks(bsqBlockChainClone);
+                } else {
+                    for (Tx tx : bsqBlockChainClone.getTxMap().values()) {
+                        final JsonTx jsonTx = toJsonTx(tx);
+                        jsonTx.getOutputs().forEach(outputForJson ->
+                                txOutputFileManager.writeToDisc(Utilities.objectToJson(outputForJson), outputForJson.getId()));
+                        txFileManager.writeToDisc(Utilities.objectToJson(jsonTx), jsonTx.getId());
+                    }
 
-                bsqBlockChainFileManager.writeToDisc(Utilities.objectToJson(bsqBlockChainClone), "BsqBlockChain");
+                    bsqBlockChainFileManager.writeToDisc(Utilities.objectToJson(bsqBlockChainClone), "BsqBlockChain");
+                }
                 return null;
             });
 
@@ -170,6 +144,191 @@ public class JsonBlockChainExporter {
                     throwable.printStackTrace();
                 }
             });
+            return future;
+        }
+        return Futures.immediateFuture(null);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Incremental export
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private void exportNewBlocks(BsqBlockChain bsqBlockChainClone) throws IOException {
+        if (checkpoint != null) {
+            final String exportedHash = checkpoint.getHash();
+            boolean isExportedBlockInChain = bsqBlockChainClone.findBlock(checkpoint.getHeight())
+                    .filter(block -> block.getHash().equals(exportedHash))
+                    .isPresent();
+            if (!isExportedBlockInChain) {
+                log.warn("The last exported block at height {} is not in our chain anymore. We export all blocks again.",
+                        checkpoint.getHeight());
+                checkpoint = null;
+                deleteDirs();
+                makeDirs();
+            }
+        }
+
+        final List<BsqBlock> blocks = bsqBlockChainClone.getBlocksFrom(checkpoint != null ? checkpoint.getHeight() + 1 : 0);
+        if (blocks.isEmpty())
+            return;
+
+        long ts = System.currentTimeMillis();
+        final File blocksStreamFile = new File(bsqBlockChainDir, BLOCKS_STREAM_FILE_NAME);
+        try (FileOutputStream outputStream = new FileOutputStream(blocksStreamFile, true);
+             Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8))) {
+            for (BsqBlock block : blocks) {
+                List<JsonTx> jsonTxs = new ArrayList<>();
+                for (Tx tx : block.getTxs()) {
+                    final JsonTx jsonTx = toJsonTx(tx);
+                    writeNow(jsonTx);
+                    jsonTxs.add(jsonTx);
+                }
+
+                // The spent info of the outputs spent in that block has changed, so we write those txs again
+                final Map<String, Tx> spentTxsById = new LinkedHashMap<>();
+                final Set<String> spentTxOutputIds = new HashSet<>();
+                block.getTxs().stream()
+                        .flatMap(tx -> tx.getInputs().stream())
+                        .forEach(txInput -> bsqBlockChainClone.findTx(txInput.getTxId())
+                                .filter(spentTx -> spentTx.getBlockHeight() != block.getHeight())
+                                .ifPresent(spentTx -> {
+                                    spentTxsById.put(spentTx.getId(), spentTx);
+                                    spentTxOutputIds.add(getTxOutputId(txInput));
+                                }));
+                List<JsonTxOutput> spentTxOutputs = new ArrayList<>();
+                for (Tx spentTx : spentTxsById.values()) {
+                    final JsonTx jsonTx = toJsonTx(spentTx);
+                    writeNow(jsonTx);
+                    jsonTx.getOutputs().stream()
+                            .filter(outputForJson -> spentTxOutputIds.contains(outputForJson.getId()))
+                            .forEach(spentTxOutputs::add);
+                }
+
+                writer.write(Utilities.objectToCompactJson(new JsonBlock(block.getHeight(),
+                        block.getHash(),
+                        block.getPreviousBlockHash(),
+                        jsonTxs,
+                        spentTxOutputs)));
+                writer.write('\n');
+            }
+            writer.flush();
+            outputStream.getFD().sync();
+
+            final BsqBlock lastBlock = blocks.get(blocks.size() - 1);
+            checkpoint = new JsonExportCheckpoint(lastBlock.getHeight(), lastBlock.getHash(), blocksStreamFile.length());
+        }
+        bsqBlockChainFileManager.writeToDiscNow(Utilities.objectToJson(checkpoint), CHECKPOINT_FILE_NAME);
+        log.info("Exported {} blocks up to height {} in {} ms",
+                blocks.size(), checkpoint.getHeight(), System.currentTimeMillis() - ts);
+    }
+
+    @Nullable
+    private JsonExportCheckpoint readCheckpoint() {
+        final File checkpointFile = new File(bsqBlockChainDir, CHECKPOINT_FILE_NAME + ".json");
+        final File blocksStreamFile = new File(bsqBlockChainDir, BLOCKS_STREAM_FILE_NAME);
+        if (!checkpointFile.exists() || !blocksStreamFile.exists())
+            return null;
+
+        try (Reader reader = new InputStreamReader(new FileInputStream(checkpointFile), StandardCharsets.UTF_8)) {
+            final JsonExportCheckpoint persisted = new Gson().fromJson(reader, JsonExportCheckpoint.class);
+            // Blocks appended after the last checkpoint get exported again
+            try (FileChannel channel = FileChannel.open(blocksStreamFile.toPath(), StandardOpenOption.WRITE)) {
+                if (channel.size() < persisted.getBlocksStreamLength()) {
+                    log.warn("Blocks stream is shorter than expected. We export all blocks again.");
+                    return null;
+                }
+                channel.truncate(persisted.getBlocksStreamLength());
+            }
+            log.info("We continue the export after block height {}", persisted.getHeight());
+            return persisted;
+        } catch (Throwable t) {
+            log.warn("Could not read export checkpoint. We export all blocks again. " + t.toString());
+            return null;
+        }
+    }
+
+    private void writeNow(JsonTx jsonTx) {
+        jsonTx.getOutputs().forEach(outputForJson ->
+                txOutputFileManager.writeToDiscNow(Utilities.objectToJson(outputForJson), outputForJson.getId()));
+        txFileManager.writeToDiscNow(Utilities.objectToJson(jsonTx), jsonTx.getId());
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private void deleteDirs() {
+        try {
+            if (txDir.exists())
+                FileUtil.deleteDirectory(txDir);
+            if (txOutputDir.exists())
+                FileUtil.deleteDirectory(txOutputDir);
+            if (bsqBlockChainDir.exists())
+                FileUtil.deleteDirectory(bsqBlockChainDir);
+        } catch (IOException e) {
+            e.printStackTrace();
         }
     }
+
+    private void makeDirs() {
+        if (!txDir.exists() && !txDir.mkdir())
+            log.warn("make txDir failed.\ntxDir=" + txDir.getAbsolutePath());
+
+        if (!txOutputDir.exists() && !txOutputDir.mkdir())
+            log.warn("make txOutputDir failed.\ntxOutputDir=" + txOutputDir.getAbsolutePath());
+
+        if (!bsqBlockChainDir.exists() && !bsqBlockChainDir.mkdir())
+            log.warn("make bsqBsqBlockChainDir failed.\nbsqBsqBlockChainDir=" + bsqBlockChainDir.getAbsolutePath());
+    }
+
+    private static String getTxOutputId(TxInput txInput) {
+        return txInput.getTxId() + ":" + txInput.getTxOutputIndex();
+    }
+
+    private static JsonTx toJsonTx(Tx tx) {
+        String txId = tx.getId();
+        JsonTxType txType = tx.getTxType() != TxType.UNDEFINED_TX_TYPE ? JsonTxType.valueOf(tx.getTxType().name()) : null;
+        List<JsonTxOutput> outputs = tx.getOutputs().stream()
+                .map(txOutput -> new JsonTxOutput(txId,
+                        txOutput.getIndex(),
+                        txOutput.isVerified() ? txOutput.getValue() : 0,
+                        !txOutput.isVerified() ? txOutput.getValue() : 0,
+                        txOutput.getBlockHeight(),
+                        txOutput.isVerified(),
+                        tx.getBurntFee(),
+                        txOutput.getAddress(),
+                        new JsonScriptPubKey(txOutput.getPubKeyScript()),
+                        txOutput.getSpentInfo() != null ?
+                                new JsonSpentInfo(txOutput.getSpentInfo()) : null,
+                        tx.getTime(),
+                        txType,
+                        txType != null ? txType.getDisplayString() : "",
+                        txOutput.getOpReturnData() != null ? Utils.HEX.encode(txOutput.getOpReturnData()) : null
+                ))
+                .collect(Collectors.toList());
+
+        List<JsonTxInput> inputs = tx.getInputs().stream()
+                .map(txInput -> {
+                    final TxOutput connectedTxOutput = txInput.getConnectedTxOutput();
+                    return new JsonTxInput(txInput.getTxOutputIndex(),
+                            txInput.getTxId(),
+                            connectedTxOutput != null ? connectedTxOutput.getValue() : 0,
+                            connectedTxOutput != null && connectedTxOutput.isVerified(),
+                            connectedTxOutput != null ? connectedTxOutput.getAddress() : null,
+                            tx.getTime());
+                })
+                .collect(Collectors.toList());
+
+        return new JsonTx(txId,
+                tx.getBlockHeight(),
+                tx.getBlockHash(),
+                tx.getTime(),
+                inputs,
+                outputs,
+                txType,
+                txType != null ? txType.getDisplayString() : "",
+                tx.getBurntFee());
+    }
 }
@@ -0,0 +1,29 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.core.dao.blockchain.json;
+
+import lombok.Value;
+
+// Last block written by the incremental export. The blocks stream might be longer than blocksStreamLength if we
+// got interrupted before we wrote the checkpoint, so we truncate it at a restart.
+@Value
+public class JsonExportCheckpoint {
+    private final int height;
+    private final String hash;
+    private final long blocksStreamLength;
+}
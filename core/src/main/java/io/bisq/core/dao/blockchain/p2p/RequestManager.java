@@ -1,15 +1,21 @@
 package io.bisq.core.dao.blockchain.p2p;
 
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
 import io.bisq.common.Timer;
 import io.bisq.common.UserThread;
+import io.bisq.common.app.Capabilities;
 import io.bisq.common.app.DevEnv;
 import io.bisq.common.app.Log;
 import io.bisq.common.proto.network.NetworkEnvelope;
 import io.bisq.common.util.Tuple2;
 import io.bisq.core.dao.blockchain.p2p.messages.GetBsqBlocksRequest;
 import io.bisq.core.dao.blockchain.p2p.messages.GetBsqBlocksResponse;
+import io.bisq.core.dao.blockchain.p2p.messages.GetBsqSnapshotRequest;
+import io.bisq.core.dao.blockchain.p2p.messages.GetBsqSnapshotResponse;
 import io.bisq.core.dao.blockchain.p2p.messages.NewBsqBlockBroadcastMessage;
 import io.bisq.core.dao.blockchain.parse.BsqBlockChain;
+import io.bisq.core.dao.blockchain.parse.BsqSnapshot;
 import io.bisq.core.dao.blockchain.vo.BsqBlock;
 import io.bisq.network.p2p.NodeAddress;
 import io.bisq.network.p2p.network.*;
@@ -17,10 +23,12 @@ import io.bisq.network.p2p.peers.Broadcaster;
 import io.bisq.network.p2p.peers.PeerManager;
 import io.bisq.network.p2p.seed.SeedNodesRepository;
 import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import javax.inject.Inject;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -66,6 +74,8 @@ public class RequestManager implements MessageListener, ConnectionListener, Peer
     private final Map<String, GetBlocksRequestHandler> getBlocksRequestHandlers = new HashMap<>();
     private Timer retryTimer;
     private boolean stopped;
+    @Nullable
+    private RequestSnapshotHandler requestSnapshotHandler;
 
 
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -123,6 +133,60 @@ public class RequestManager implements MessageListener, ConnectionListener, Peer
         }
     }
 
+    /**
+     * Requests the BsqSnapshot of a full node. If no full node supporting snapshots is connected, it has no snapshot
+     * which would save us blocks or the request fails we call the fallbackHandler, so the caller can request the
+     * blocks instead.
+     */
+    public void requestSnapshot(int fromBlockHeight, Consumer<BsqSnapshot> snapshotHandler, Runnable fallbackHandler) {
+        Log.traceCall();
+        Optional<NodeAddress> nodeAddressOptional = networkNode.getConfirmedConnections().stream()
+                .filter(peerManager::isSeedNode)
+                .filter(connection -> connection.getSupportedCapabilities() != null &&
+                        connection.getSupportedCapabilities().contains(Capabilities.Capability.DAO_SNAPSHOT.ordinal()))
+                .map(Connection::getPeersNodeAddressOptional)
+                .filter(Optional::isPresent)
+                .map(Optional::get)
+                .findAny();
+        // If the connections get lost while we request the snapshot we request the blocks from that height
+        lastRequestedBlockHeight = fromBlockHeight;
+        if (requestSnapshotHandler != null) {
+            log.info("We cancel the pending snapshot request.");
+            requestSnapshotHandler.cancel();
+            requestSnapshotHandler = null;
+        }
+        if (stopped || !nodeAddressOptional.isPresent()) {
+            log.info("We don't request a snapshot as no full node supporting it is connected.");
+            fallbackHandler.run();
+            return;
+        }
+
+        NodeAddress nodeAddress = nodeAddressOptional.get();
+        log.info("We request a snapshot from {}", nodeAddress);
+        requestSnapshotHandler = new RequestSnapshotHandler(networkNode, nodeAddress, fromBlockHeight,
+                new RequestSnapshotHandler.Listener() {
+                    @Override
+                    public void onComplete(BsqSnapshot bsqSnapshot) {
+                        requestSnapshotHandler = null;
+                        snapshotHandler.accept(bsqSnapshot);
+                    }
+
+                    @Override
+                    public void onNotAvailable() {
+                        log.info("{} has no snapshot which would save us blocks.", nodeAddress);
+                        requestSnapshotHandler = null;
+                        fallbackHandler.run();
+                    }
+
+                    @Override
+                    public void onFault(String errorMessage) {
+                        requestSnapshotHandler = null;
+                        fallbackHandler.run();
+                    }
+                });
+        requestSnapshotHandler.requestSnapshot();
+    }
+
     public void publishNewBlock(BsqBlock bsqBlock) {
         log.info("Publish new block at height={} and block hash={}", bsqBlock.getHeight(), bsqBlock.getHash());
         final NewBsqBlockBroadcastMessage newBsqBlockBroadcastMessage = new NewBsqBlockBroadcastMessage(bsqBlock);
@@ -241,11 +305,55 @@ public class RequestManager implements MessageListener, ConnectionListener, Peer
             } else {
                 log.warn("We have stopped already. We ignore that onMessage call.");
             }
+        } else if (networkEnvelop instanceof GetBsqSnapshotRequest) {
+            if (!stopped)
+                handleGetBsqSnapshotRequest((GetBsqSnapshotRequest) networkEnvelop, connection);
         } else if (networkEnvelop instanceof NewBsqBlockBroadcastMessage) {
             listeners.forEach(listener -> listener.onNewBlockReceived((NewBsqBlockBroadcastMessage) networkEnvelop));
         }
     }
 
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Snapshot
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // The chunk requests of a lite node are sequential and each one has its own timeout at the requester, so we don't
+    // keep a handler per connection as for the blocks.
+    private void handleGetBsqSnapshotRequest(GetBsqSnapshotRequest request, Connection connection) {
+        Log.traceCall(() -> request + "\n\tconnection=" + connection);
+        BsqSnapshot bsqSnapshot = bsqBlockChain.getServedSnapshot();
+        final GetBsqSnapshotResponse response;
+        if (bsqSnapshot != null &&
+                bsqSnapshot.getHeight() >= request.getFromBlockHeight() + BsqSnapshot.MIN_BLOCKS_SAVED &&
+                request.getChunkIndex() >= 0 &&
+                request.getChunkIndex() < bsqSnapshot.getNumChunks()) {
+            response = new GetBsqSnapshotResponse(bsqSnapshot.getVersion(),
+                    bsqSnapshot.getHeight(),
+                    bsqSnapshot.getBlockHash(),
+                    bsqSnapshot.getHash(),
+                    bsqSnapshot.getNumChunks(),
+                    request.getChunkIndex(),
+                    bsqSnapshot.getChunk(request.getChunkIndex()),
+                    request.getNonce());
+        } else {
+            response = GetBsqSnapshotResponse.notAvailable(request.getNonce());
+        }
+
+        Futures.addCallback(networkNode.sendMessage(connection, response), new FutureCallback<Connection>() {
+            @Override
+            public void onSuccess(Connection connection) {
+                log.trace("Send {} succeeded.", response);
+            }
+
+            @Override
+            public void onFailure(@NotNull Throwable throwable) {
+                log.debug("Sending {} to {} failed. That is expected if the peer is offline. Exception: {}",
+                        response, connection, throwable.getMessage());
+            }
+        });
+    }
+
+
     ///////////////////////////////////////////////////////////////////////////////////////////
     // RequestData
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -394,5 +502,9 @@ public class RequestManager implements MessageListener, ConnectionListener, Peer
     private void closeAllHandlers() {
         requestBlocksHandlerMap.values().forEach(RequestBlocksHandler::cancel);
         requestBlocksHandlerMap.clear();
+        if (requestSnapshotHandler != null) {
+            requestSnapshotHandler.cancel();
+            requestSnapshotHandler = null;
+        }
     }
 }
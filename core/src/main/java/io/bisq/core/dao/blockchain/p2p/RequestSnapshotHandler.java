@@ -0,0 +1,198 @@
+package io.bisq.core.dao.blockchain.p2p;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.SettableFuture;
+import io.bisq.common.Timer;
+import io.bisq.common.UserThread;
+import io.bisq.common.app.Log;
+import io.bisq.common.proto.network.NetworkEnvelope;
+import io.bisq.core.dao.blockchain.p2p.messages.GetBsqSnapshotRequest;
+import io.bisq.core.dao.blockchain.p2p.messages.GetBsqSnapshotResponse;
+import io.bisq.core.dao.blockchain.parse.BsqSnapshot;
+import io.bisq.network.p2p.NodeAddress;
+import io.bisq.network.p2p.network.Connection;
+import io.bisq.network.p2p.network.MessageListener;
+import io.bisq.network.p2p.network.NetworkNode;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Requests the chunks of the BsqSnapshot of a full node one after the other. The snapshot is only passed to the
+ * listener if all chunks belong to the same snapshot, it gets verified when it is applied.
+ */
+@Slf4j
+public class RequestSnapshotHandler implements MessageListener {
+    private static final long TIMEOUT = 120;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Listener
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public interface Listener {
+        void onComplete(BsqSnapshot bsqSnapshot);
+
+        // The full node has no snapshot which would save us blocks
+        void onNotAvailable();
+
+        void onFault(String errorMessage);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Class fields
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private final NetworkNode networkNode;
+    private final NodeAddress nodeAddress;
+    private final int fromBlockHeight;
+    private final Listener listener;
+    private final int nonce = new Random().nextInt();
+    private final List<byte[]> chunks = new ArrayList<>();
+    // Header of the first chunk
+    private GetBsqSnapshotResponse firstResponse;
+    private Timer timeoutTimer;
+    private boolean stopped;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public RequestSnapshotHandler(NetworkNode networkNode,
+                                  NodeAddress nodeAddress,
+                                  int fromBlockHeight,
+                                  Listener listener) {
+        this.networkNode = networkNode;
+        this.nodeAddress = nodeAddress;
+        this.fromBlockHeight = fromBlockHeight;
+        this.listener = listener;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public void requestSnapshot() {
+        networkNode.addMessageListener(this);
+        requestChunk(0);
+    }
+
+    public void cancel() {
+        cleanup();
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // MessageListener implementation
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    @Override
+    public void onMessage(NetworkEnvelope networkEnvelop, Connection connection) {
+        if (networkEnvelop instanceof GetBsqSnapshotResponse && !stopped &&
+                connection.getPeersNodeAddressOptional().isPresent() &&
+                connection.getPeersNodeAddressOptional().get().equals(nodeAddress)) {
+            GetBsqSnapshotResponse response = (GetBsqSnapshotResponse) networkEnvelop;
+            if (response.getRequestNonce() != nonce) {
+                log.warn("Nonce not matching. We drop that message. nonce={} / requestNonce={}",
+                        nonce, response.getRequestNonce());
+                return;
+            }
+
+            stopTimeoutTimer();
+            if (response.getNumChunks() == 0) {
+                cleanup();
+                listener.onNotAvailable();
+                return;
+            }
+
+            if (firstResponse == null)
+                firstResponse = response;
+
+            if (!isSameSnapshot(firstResponse, response) || response.getChunkIndex() != chunks.size()) {
+                // The full node has made a new snapshot while we downloaded
+                handleFault("Received chunk does not match the requested snapshot. response=" + response);
+                return;
+            }
+
+            chunks.add(response.getChunk());
+            log.debug("Received snapshot chunk {} of {}", chunks.size(), response.getNumChunks());
+            if (chunks.size() < response.getNumChunks()) {
+                requestChunk(chunks.size());
+            } else {
+                cleanup();
+                listener.onComplete(BsqSnapshot.fromChunks(firstResponse.getSnapshotVersion(),
+                        firstResponse.getSnapshotHeight(),
+                        firstResponse.getBlockHash(),
+                        firstResponse.getSnapshotHash(),
+                        chunks));
+            }
+        }
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private void requestChunk(int chunkIndex) {
+        if (stopped) {
+            log.warn("We have stopped already. We ignore that requestChunk call.");
+            return;
+        }
+
+        GetBsqSnapshotRequest request = new GetBsqSnapshotRequest(fromBlockHeight, chunkIndex, nonce);
+        timeoutTimer = UserThread.runAfter(() -> {  // setup before sending to avoid race conditions
+            if (!stopped)
+                handleFault("A timeout occurred at sending " + request + " to peer " + nodeAddress);
+        }, TIMEOUT);
+
+        SettableFuture<Connection> future = networkNode.sendMessage(nodeAddress, request);
+        Futures.addCallback(future, new FutureCallback<Connection>() {
+            @Override
+            public void onSuccess(Connection connection) {
+                log.trace("Send " + request + " to " + nodeAddress + " succeeded.");
+            }
+
+            @Override
+            public void onFailure(@NotNull Throwable throwable) {
+                if (!stopped)
+                    handleFault("Sending " + request + " to " + nodeAddress + " failed. Exception=" + throwable.getMessage());
+            }
+        });
+    }
+
+    private static boolean isSameSnapshot(GetBsqSnapshotResponse first, GetBsqSnapshotResponse response) {
+        return first.getSnapshotVersion() == response.getSnapshotVersion() &&
+                first.getSnapshotHeight() == response.getSnapshotHeight() &&
+                first.getNumChunks() == response.getNumChunks() &&
+                Arrays.equals(first.getSnapshotHash(), response.getSnapshotHash());
+    }
+
+    private void handleFault(String errorMessage) {
+        log.warn(errorMessage);
+        cleanup();
+        listener.onFault(errorMessage);
+    }
+
+    private void cleanup() {
+        Log.traceCall();
+        stopped = true;
+        networkNode.removeMessageListener(this);
+        stopTimeoutTimer();
+    }
+
+    private void stopTimeoutTimer() {
+        if (timeoutTimer != null) {
+            timeoutTimer.stop();
+            timeoutTimer = null;
+        }
+    }
+}
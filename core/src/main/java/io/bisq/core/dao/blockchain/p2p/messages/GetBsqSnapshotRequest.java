@@ -0,0 +1,65 @@
+package io.bisq.core.dao.blockchain.p2p.messages;
+
+import io.bisq.common.app.Capabilities;
+import io.bisq.common.app.Version;
+import io.bisq.common.proto.network.NetworkEnvelope;
+import io.bisq.generated.protobuffer.PB;
+import io.bisq.network.p2p.DirectMessage;
+import io.bisq.network.p2p.storage.payload.CapabilityRequiringPayload;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+@EqualsAndHashCode(callSuper = true)
+@Getter
+@ToString
+public final class GetBsqSnapshotRequest extends NetworkEnvelope implements DirectMessage, CapabilityRequiringPayload {
+    // The block height the requester would start with, so the full node can tell if its snapshot is worth sending
+    private final int fromBlockHeight;
+    private final int chunkIndex;
+    private final int nonce;
+
+    public GetBsqSnapshotRequest(int fromBlockHeight, int chunkIndex, int nonce) {
+        this(fromBlockHeight, chunkIndex, nonce, Version.getP2PMessageVersion());
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // PROTO BUFFER
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private GetBsqSnapshotRequest(int fromBlockHeight, int chunkIndex, int nonce, int messageVersion) {
+        super(messageVersion);
+        this.fromBlockHeight = fromBlockHeight;
+        this.chunkIndex = chunkIndex;
+        this.nonce = nonce;
+    }
+
+    @Override
+    public PB.NetworkEnvelope toProtoNetworkEnvelope() {
+        return getNetworkEnvelopeBuilder()
+                .setGetBsqSnapshotRequest(PB.GetBsqSnapshotRequest.newBuilder()
+                        .setFromBlockHeight(fromBlockHeight)
+                        .setChunkIndex(chunkIndex)
+                        .setNonce(nonce))
+                .build();
+    }
+
+    public static NetworkEnvelope fromProto(PB.GetBsqSnapshotRequest proto, int messageVersion) {
+        return new GetBsqSnapshotRequest(proto.getFromBlockHeight(),
+                proto.getChunkIndex(),
+                proto.getNonce(),
+                messageVersion);
+    }
+
+    @Override
+    public List<Integer> getRequiredCapabilities() {
+        return new ArrayList<>(Collections.singletonList(
+                Capabilities.Capability.DAO_SNAPSHOT.ordinal()
+        ));
+    }
+}
@@ -0,0 +1,116 @@
+package io.bisq.core.dao.blockchain.p2p.messages;
+
+import com.google.protobuf.ByteString;
+import io.bisq.common.app.Version;
+import io.bisq.common.proto.network.NetworkEnvelope;
+import io.bisq.generated.protobuffer.PB;
+import io.bisq.network.p2p.DirectMessage;
+import io.bisq.network.p2p.ExtendedDataSizePermission;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+/**
+ * One chunk of a BsqSnapshot. Each chunk carries the header of the snapshot, so the requester can detect if the full
+ * node has switched to a newer snapshot while we downloaded. numChunks is 0 if the full node has no snapshot which
+ * would save the requester any blocks.
+ */
+@EqualsAndHashCode(callSuper = true)
+@Getter
+public final class GetBsqSnapshotResponse extends NetworkEnvelope implements DirectMessage, ExtendedDataSizePermission {
+    private final int snapshotVersion;
+    private final int snapshotHeight;
+    private final String blockHash;
+    private final byte[] snapshotHash;
+    private final int numChunks;
+    private final int chunkIndex;
+    private final byte[] chunk;
+    private final int requestNonce;
+
+    public GetBsqSnapshotResponse(int snapshotVersion,
+                                  int snapshotHeight,
+                                  String blockHash,
+                                  byte[] snapshotHash,
+                                  int numChunks,
+                                  int chunkIndex,
+                                  byte[] chunk,
+                                  int requestNonce) {
+        this(snapshotVersion,
+                snapshotHeight,
+                blockHash,
+                snapshotHash,
+                numChunks,
+                chunkIndex,
+                chunk,
+                requestNonce,
+                Version.getP2PMessageVersion());
+    }
+
+    public static GetBsqSnapshotResponse notAvailable(int requestNonce) {
+        return new GetBsqSnapshotResponse(0, 0, "", new byte[0], 0, 0, new byte[0], requestNonce);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // PROTO BUFFER
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private GetBsqSnapshotResponse(int snapshotVersion,
+                                   int snapshotHeight,
+                                   String blockHash,
+                                   byte[] snapshotHash,
+                                   int numChunks,
+                                   int chunkIndex,
+                                   byte[] chunk,
+                                   int requestNonce,
+                                   int messageVersion) {
+        super(messageVersion);
+        this.snapshotVersion = snapshotVersion;
+        this.snapshotHeight = snapshotHeight;
+        this.blockHash = blockHash;
+        this.snapshotHash = snapshotHash;
+        this.numChunks = numChunks;
+        this.chunkIndex = chunkIndex;
+        this.chunk = chunk;
+        this.requestNonce = requestNonce;
+    }
+
+    @Override
+    public PB.NetworkEnvelope toProtoNetworkEnvelope() {
+        return getNetworkEnvelopeBuilder()
+                .setGetBsqSnapshotResponse(PB.GetBsqSnapshotResponse.newBuilder()
+                        .setSnapshotVersion(snapshotVersion)
+                        .setSnapshotHeight(snapshotHeight)
+                        .setBlockHash(blockHash)
+                        .setSnapshotHash(ByteString.copyFrom(snapshotHash))
+                        .setNumChunks(numChunks)
+                        .setChunkIndex(chunkIndex)
+                        .setChunk(ByteString.copyFrom(chunk))
+                        .setRequestNonce(requestNonce))
+                .build();
+    }
+
+    public static NetworkEnvelope fromProto(PB.GetBsqSnapshotResponse proto, int messageVersion) {
+        return new GetBsqSnapshotResponse(proto.getSnapshotVersion(),
+                proto.getSnapshotHeight(),
+                proto.getBlockHash(),
+                proto.getSnapshotHash().toByteArray(),
+                proto.getNumChunks(),
+                proto.getChunkIndex(),
+                proto.getChunk().toByteArray(),
+                proto.getRequestNonce(),
+                messageVersion);
+    }
+
+    @Override
+    public String toString() {
+        return "GetBsqSnapshotResponse{" +
+                "snapshotVersion=" + snapshotVersion +
+                ", snapshotHeight=" + snapshotHeight +
+                ", blockHash='" + blockHash + '\'' +
+                ", numChunks=" + numChunks +
+                ", chunkIndex=" + chunkIndex +
+                ", chunk.length=" + chunk.length +
+                ", requestNonce=" + requestNonce +
+                "} " + super.toString();
+    }
+}
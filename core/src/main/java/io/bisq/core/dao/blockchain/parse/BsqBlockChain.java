@@ -18,7 +18,9 @@
 package io.bisq.core.dao.blockchain.parse;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.protobuf.Message;
+import io.bisq.common.UserThread;
 import io.bisq.common.proto.persistable.PersistableEnvelope;
 import io.bisq.common.proto.persistable.PersistenceProtoResolver;
 import io.bisq.common.storage.Storage;
@@ -37,6 +39,9 @@ import javax.inject.Inject;
 import javax.inject.Named;
 import java.io.File;
 import java.util.*;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
@@ -83,9 +88,10 @@ public class BsqBlockChain implements PersistableEnvelope {
     ///////////////////////////////////////////////////////////////////////////////////////////
 
     // Persisted data
-    private final LinkedList<BsqBlock> bsqBlocks;
-    private final Map<String, Tx> txMap;
-    private final Map<TxIdIndexTuple, TxOutput> unspentTxOutputsMap;
+    // The containers are shared with clones and get copied at the first write after a clone (see getClone).
+    private List<BsqBlock> bsqBlocks;
+    private Map<String, Tx> txMap;
+    private Map<TxIdIndexTuple, TxOutput> unspentTxOutputsMap;
     private final String genesisTxId;
     private final int genesisBlockHeight;
     private int chainHeadHeight = 0;
@@ -102,8 +108,32 @@ public class BsqBlockChain implements PersistableEnvelope {
     transient private Storage<BsqBlockChain> storage;
     @Nullable
     transient private BsqBlockChain snapshotCandidate;
+    // The last snapshot we have persisted. It is a clone which never gets changed, full nodes serve it to lite nodes.
+    @Nullable
+    transient private BsqBlockChain persistedSnapshot;
+    // Full nodes serve the persisted snapshot in serialized form. Serializing and hashing the whole chain is
+    // expensive, so it is built at servedSnapshotExecutor when a snapshot got persisted and handed to the UserThread.
+    transient private boolean serveSnapshots;
+    @Nullable
+    transient private ThreadPoolExecutor servedSnapshotExecutor;
+    // Only accessed from the UserThread
+    @Nullable
+    transient private BsqSnapshot servedSnapshot;
     transient private final FunctionalReadWriteLock lock;
 
+    // Copy on write state. Txs which are not owned might be shared with a clone, so they must not be mutated but
+    // get copied if one of their outputs gets spent.
+    transient private boolean containersShared;
+    transient private Set<String> ownedTxIds = new HashSet<>();
+
+    // Indexes derived from the persisted data. Clones build them lazily at the first query.
+    transient private boolean indexesBuilt;
+    transient private Map<TxIdIndexTuple, TxOutput> spentTxOutputsMap;
+    transient private Map<String, Map<TxIdIndexTuple, TxOutput>> txOutputsByAddress;
+    transient private Map<TxOutputType, Map<TxIdIndexTuple, TxOutput>> txOutputsByType;
+    transient private Map<String, Tx> feeTxMap;
+    transient private long totalBurntFee;
+
 
     ///////////////////////////////////////////////////////////////////////////////////////////
     // Constructor
@@ -120,13 +150,15 @@ public class BsqBlockChain implements PersistableEnvelope {
 
         storage = new Storage<>(storageDir, persistenceProtoResolver);
 
-        bsqBlocks = new LinkedList<>();
+        bsqBlocks = new ArrayList<>();
         txMap = new HashMap<>();
         unspentTxOutputsMap = new HashMap<>();
         compensationRequestFees = new HashSet<>();
         votingFees = new HashSet<>();
 
         lock = new FunctionalReadWriteLock(true);
+
+        buildIndexes();
     }
 
 
@@ -134,13 +166,14 @@ public class BsqBlockChain implements PersistableEnvelope {
     // PROTO BUFFER
     ///////////////////////////////////////////////////////////////////////////////////////////
 
-    private BsqBlockChain(LinkedList<BsqBlock> bsqBlocks,
+    private BsqBlockChain(List<BsqBlock> bsqBlocks,
                           Map<String, Tx> txMap,
                           Map<TxIdIndexTuple, TxOutput> unspentTxOutputsMap,
                           String genesisTxId,
                           int genesisBlockHeight,
                           int chainHeadHeight,
-                          @Nullable Tx genesisTx) {
+                          @Nullable Tx genesisTx,
+                          boolean containersShared) {
         this.bsqBlocks = bsqBlocks;
         this.txMap = txMap;
         this.unspentTxOutputsMap = unspentTxOutputsMap;
@@ -148,6 +181,7 @@ public class BsqBlockChain implements PersistableEnvelope {
         this.genesisBlockHeight = genesisBlockHeight;
         this.chainHeadHeight = chainHeadHeight;
         this.genesisTx = genesisTx;
+        this.containersShared = containersShared;
 
         lock = new FunctionalReadWriteLock(true);
 
@@ -182,7 +216,7 @@ public class BsqBlockChain implements PersistableEnvelope {
     }
 
     public static PersistableEnvelope fromProto(PB.BsqBlockChain proto) {
-        return new BsqBlockChain(new LinkedList<>(proto.getBsqBlocksList().stream()
+        return new BsqBlockChain(new ArrayList<>(proto.getBsqBlocksList().stream()
                 .map(BsqBlock::fromProto)
                 .collect(Collectors.toList())),
                 new HashMap<>(proto.getTxMapMap().entrySet().stream()
@@ -192,7 +226,8 @@ public class BsqBlockChain implements PersistableEnvelope {
                 proto.getGenesisTxId(),
                 proto.getGenesisBlockHeight(),
                 proto.getChainHeadHeight(),
-                proto.hasGenesisTx() ? Tx.fromProto(proto.getGenesisTx()) : null);
+                proto.hasGenesisTx() ? Tx.fromProto(proto.getGenesisTx()) : null,
+                false);
     }
 
 
@@ -213,24 +248,45 @@ public class BsqBlockChain implements PersistableEnvelope {
         lock.write(() -> {
             checkNotNull(storage, "storage must not be null");
             BsqBlockChain snapshot = storage.initAndGetPersistedWithFileName("BsqBlockChain", 100);
-            bsqBlocks.clear();
-            txMap.clear();
-            unspentTxOutputsMap.clear();
-            chainHeadHeight = 0;
-            genesisTx = null;
-
             if (snapshot != null) {
                 log.info("applySnapshot snapshot.chainHeadHeight=" + snapshot.chainHeadHeight);
-                bsqBlocks.addAll(snapshot.bsqBlocks);
-                txMap.putAll(snapshot.txMap);
-                unspentTxOutputsMap.putAll(snapshot.unspentTxOutputsMap);
-                chainHeadHeight = snapshot.chainHeadHeight;
-                genesisTx = snapshot.genesisTx;
+                resetToSnapshot(snapshot);
+                // We have not changed our state since, so a clone is the state of the persisted snapshot
+                persistedSnapshot = getClone();
             } else {
                 log.info("Try to apply snapshot but no stored snapshot available");
+                resetToSnapshot(null);
+                persistedSnapshot = null;
             }
+            buildServedSnapshot();
+        });
+    }
+
+    // Used by lite nodes for a snapshot received from a full node. The snapshot must have been verified, see
+    // BsqSnapshot.toBsqBlockChain.
+    void applyReceivedSnapshot(BsqBlockChain snapshot) {
+        lock.write(() -> {
+            log.info("applyReceivedSnapshot snapshot.chainHeadHeight=" + snapshot.chainHeadHeight);
+            resetToSnapshot(snapshot);
+            // We persist it so we don't need to request it again after a restart
+            persistedSnapshot = getClone();
+            snapshotCandidate = null;
+            checkNotNull(storage, "storage must not be null");
+            storage.queueUpForSave(persistedSnapshot);
+            buildServedSnapshot();
+        });
+    }
 
-            printDetails();
+    // Called by full nodes before the snapshot gets applied
+    public void setServeSnapshots() {
+        lock.write(() -> {
+            if (!serveSnapshots) {
+                serveSnapshots = true;
+                servedSnapshotExecutor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                        new ThreadFactoryBuilder().setNameFormat("BsqBlockChain.servedSnapshot").setDaemon(true).build());
+                servedSnapshotExecutor.allowCoreThreadTimeOut(true);
+                buildServedSnapshot();
+            }
         });
     }
 
@@ -250,18 +306,21 @@ public class BsqBlockChain implements PersistableEnvelope {
     void addBlock(BsqBlock block) throws BlockNotConnectingException {
         try {
             lock.write2(() -> {
-                if (!bsqBlocks.contains(block)) {
-                    if (bsqBlocks.isEmpty() || (bsqBlocks.getLast().getHash().equals(block.getPreviousBlockHash()) &&
-                            bsqBlocks.getLast().getHeight() + 1 == block.getHeight())) {
+                if (!containsBlock(block)) {
+                    BsqBlock head = bsqBlocks.isEmpty() ? null : bsqBlocks.get(bsqBlocks.size() - 1);
+                    if (head == null || (head.getHash().equals(block.getPreviousBlockHash()) &&
+                            head.getHeight() + 1 == block.getHeight())) {
+                        copyContainersIfShared();
                         bsqBlocks.add(block);
                         block.getTxs().stream().forEach(BsqBlockChain.this::addTxToMap);
+                        block.getTxs().stream().forEach(BsqBlockChain.this::addTxToBlockIndexes);
                         chainHeadHeight = block.getHeight();
                         maybeMakeSnapshot();
                         printDetails();
                     } else {
                         log.warn("addBlock called with a not connecting block:\n" +
                                         "height()={}, hash()={}, head.height()={}, head.hash()={}",
-                                block.getHeight(), block.getHash(), bsqBlocks.getLast().getHeight(), bsqBlocks.getLast().getHash());
+                                block.getHeight(), block.getHash(), head.getHeight(), head.getHash());
                         throw new BlockNotConnectingException(block);
                     }
                 } else {
@@ -279,18 +338,40 @@ public class BsqBlockChain implements PersistableEnvelope {
     }
 
     void addTxToMap(Tx tx) {
-        lock.write(() -> txMap.put(tx.getId(), tx));
+        lock.write(() -> {
+            copyContainersIfShared();
+            txMap.put(tx.getId(), tx);
+            ownedTxIds.add(tx.getId());
+            maybeBuildIndexes();
+            tx.getOutputs().stream().forEach(this::addTxOutputToAddressIndex);
+        });
     }
 
     void addUnspentTxOutput(TxOutput txOutput) {
         lock.write(() -> {
             checkArgument(txOutput.isVerified(), "txOutput must be verified at addUnspentTxOutput");
+            copyContainersIfShared();
             unspentTxOutputsMap.put(txOutput.getTxIdIndexTuple(), txOutput);
         });
     }
 
-    void removeUnspentTxOutput(TxOutput txOutput) {
-        lock.write(() -> unspentTxOutputsMap.remove(txOutput.getTxIdIndexTuple()));
+    // Marks the output as spent and returns the instance which got updated. If the tx of the output might be shared
+    // with a clone we update a copy of the tx instead, so the clone stays unchanged.
+    TxOutput spendTxOutput(TxOutput txOutput, SpentInfo spentInfo) {
+        return lock.write(() -> {
+            copyContainersIfShared();
+            maybeBuildIndexes();
+            TxOutput spentTxOutput = txOutput;
+            final String txId = txOutput.getTxId();
+            if (!ownedTxIds.contains(txId) && txMap.containsKey(txId))
+                spentTxOutput = copyTx(txMap.get(txId)).getOutputs().get(txOutput.getIndex());
+
+            spentTxOutput.setUnspent(false);
+            spentTxOutput.setSpentInfo(spentInfo);
+            unspentTxOutputsMap.remove(spentTxOutput.getTxIdIndexTuple());
+            spentTxOutputsMap.put(spentTxOutput.getTxIdIndexTuple(), spentTxOutput);
+            return spentTxOutput;
+        });
     }
 
     void setGenesisTx(Tx tx) {
@@ -310,22 +391,45 @@ public class BsqBlockChain implements PersistableEnvelope {
         return lock.read(() -> genesisBlockHeight);
     }
 
+    // The clone shares the containers and tx objects with us. We copy the containers at our next write and the txs
+    // before they get mutated, so the clone is not affected by later changes. If the clone is taken while a block is
+    // parsed it contains the txs of that block parsed so far.
+    // Don't access the clone with methods from different threads as locks are transient!
     public BsqBlockChain getClone() {
-        return getClone(this);
+        return lock.write(() -> {
+            containersShared = true;
+            ownedTxIds = new HashSet<>();
+            return new BsqBlockChain(bsqBlocks,
+                    txMap,
+                    unspentTxOutputsMap,
+                    genesisTxId,
+                    genesisBlockHeight,
+                    chainHeadHeight,
+                    genesisTx,
+                    true);
+        });
     }
 
-    public BsqBlockChain getClone(BsqBlockChain bsqBlockChain) {
-        return lock.read(() -> (BsqBlockChain) BsqBlockChain.fromProto(bsqBlockChain.getBsqBlockChainBuilder().build()));
+    // Must not be changed, it might be used by other threads
+    @Nullable
+    public BsqBlockChain getPersistedSnapshot() {
+        return lock.read(() -> persistedSnapshot);
+    }
+
+    // Must be called on the UserThread. Returns null until the serialized form of the persisted snapshot is built.
+    @Nullable
+    public BsqSnapshot getServedSnapshot() {
+        return servedSnapshot;
     }
 
     public boolean containsBlock(BsqBlock bsqBlock) {
-        return lock.read(() -> bsqBlocks.contains(bsqBlock));
+        return lock.read(() -> getBlockAtHeight(bsqBlock.getHeight())
+                .filter(block -> block.getHash().equals(bsqBlock.getHash()))
+                .isPresent());
     }
 
     Optional<TxOutput> getUnspentTxOutput(TxIdIndexTuple txIdIndexTuple) {
-        return lock.read(() -> unspentTxOutputsMap.entrySet().stream()
-                .filter(e -> e.getKey().equals(txIdIndexTuple))
-                .map(Map.Entry::getValue).findAny());
+        return lock.read(() -> Optional.ofNullable(unspentTxOutputsMap.get(txIdIndexTuple)));
     }
 
     public boolean isTxOutputSpendable(String txId, int index) {
@@ -360,23 +464,50 @@ public class BsqBlockChain implements PersistableEnvelope {
         return lock.read(() -> txMap);
     }
 
+    public Optional<BsqBlock> findBlock(int height) {
+        return lock.read(() -> getBlockAtHeight(height));
+    }
+
+    // The blocks are not copied, so they must not be mutated
+    public List<BsqBlock> getBlocksFrom(int fromBlockHeight) {
+        return lock.read(() -> {
+            if (bsqBlocks.isEmpty())
+                return new ArrayList<BsqBlock>();
+
+            int fromIndex = Math.max(0, fromBlockHeight - bsqBlocks.get(0).getHeight());
+            return new ArrayList<>(bsqBlocks.subList(Math.min(fromIndex, bsqBlocks.size()), bsqBlocks.size()));
+        });
+    }
+
     public List<BsqBlock> getResettedBlocksFrom(int fromBlockHeight) {
         return lock.read(() -> {
-            BsqBlockChain clone = getClone();
-            List<BsqBlock> filtered = clone.bsqBlocks.stream()
-                    .filter(block -> block.getHeight() >= fromBlockHeight)
+            if (bsqBlocks.isEmpty())
+                return new ArrayList<BsqBlock>();
+
+            // We only copy the requested blocks as reset would mutate the blocks in our chain
+            int fromIndex = Math.max(0, fromBlockHeight - bsqBlocks.get(0).getHeight());
+            return bsqBlocks.subList(Math.min(fromIndex, bsqBlocks.size()), bsqBlocks.size()).stream()
+                    .map(block -> {
+                        BsqBlock copy = BsqBlock.fromProto(block.toProtoMessage());
+                        copy.reset();
+                        return copy;
+                    })
                     .collect(Collectors.toList());
-            filtered.stream().forEach(BsqBlock::reset);
-            return filtered;
         });
     }
 
     public Coin getTotalBurntFee() {
-        return lock.read(() -> Coin.valueOf(getTxMap().entrySet().stream().mapToLong(e -> e.getValue().getBurntFee()).sum()));
+        return lock.read(() -> {
+            maybeBuildIndexes();
+            return Coin.valueOf(totalBurntFee);
+        });
     }
 
     public Set<Tx> getFeeTransactions() {
-        return lock.read(() -> getTxMap().entrySet().stream().filter(e -> e.getValue().getBurntFee() > 0).map(Map.Entry::getValue).collect(Collectors.toSet()));
+        return lock.read(() -> {
+            maybeBuildIndexes();
+            return new HashSet<>(feeTxMap.values());
+        });
     }
 
     public Coin getIssuedAmount() {
@@ -384,15 +515,25 @@ public class BsqBlockChain implements PersistableEnvelope {
     }
 
     public Set<TxOutput> getUnspentTxOutputs() {
-        return lock.read(() -> getAllTxOutputs().stream().filter(e -> e.isVerified() && e.isUnspent()).collect(Collectors.toSet()));
+        return lock.read(() -> new HashSet<>(unspentTxOutputsMap.values()));
     }
 
     public Set<TxOutput> getSpentTxOutputs() {
-        return lock.read(() -> getAllTxOutputs().stream().filter(e -> e.isVerified() && !e.isUnspent()).collect(Collectors.toSet()));
+        return lock.read(() -> {
+            maybeBuildIndexes();
+            return new HashSet<>(spentTxOutputsMap.values());
+        });
+    }
+
+    public Set<TxOutput> getTxOutputsByType(TxOutputType txOutputType) {
+        return lock.read(() -> {
+            maybeBuildIndexes();
+            return new HashSet<>(txOutputsByType.getOrDefault(txOutputType, Collections.emptyMap()).values());
+        });
     }
 
     public Set<Tx> getTransactions() {
-        return lock.read(() -> getTxMap().entrySet().stream().map(Map.Entry::getValue).collect(Collectors.toSet()));
+        return lock.read(() -> new HashSet<>(txMap.values()));
     }
 
 
@@ -409,6 +550,10 @@ public class BsqBlockChain implements PersistableEnvelope {
                 .filter(this::isTxOutputMature));
     }
 
+    boolean containsUnspentTxOutput(TxIdIndexTuple txIdIndexTuple) {
+        return lock.read(() -> unspentTxOutputsMap.containsKey(txIdIndexTuple));
+    }
+
     long getCreateCompensationRequestFee(int blockHeight) {
         return lock.read(() -> {
             long fee = -1;
@@ -444,18 +589,17 @@ public class BsqBlockChain implements PersistableEnvelope {
         return lock.read(() -> true);
     }
 
+    // The output type gets set while the tx is parsed, so we filter by type at query time
     boolean existsCompensationRequestBtcAddress(String btcAddress) {
-        return lock.read(() -> getAllTxOutputs().stream()
-                .filter(txOutput -> txOutput.isCompensationRequestBtcOutput() &&
-                        txOutput.getAddress().equals(btcAddress))
+        return lock.read(() -> getTxOutputsByAddress(btcAddress).stream()
+                .filter(TxOutput::isCompensationRequestBtcOutput)
                 .findAny()
                 .isPresent());
     }
 
     Set<TxOutput> findSponsoringBtcOutputsWithSameBtcAddress(String btcAddress) {
-        return lock.read(() -> getAllTxOutputs().stream()
-                .filter(txOutput -> txOutput.isSponsoringBtcOutput() &&
-                        txOutput.getAddress().equals(btcAddress))
+        return lock.read(() -> getTxOutputsByAddress(btcAddress).stream()
+                .filter(TxOutput::isSponsoringBtcOutput)
                 .collect(Collectors.toSet()));
     }
 
@@ -471,7 +615,26 @@ public class BsqBlockChain implements PersistableEnvelope {
     ///////////////////////////////////////////////////////////////////////////////////////////
 
     private Optional<Tx> getTx(String txId) {
-        return lock.read(() -> txMap.get(txId) != null ? Optional.of(txMap.get(txId)) : Optional.<Tx>empty());
+        return lock.read(() -> Optional.ofNullable(txMap.get(txId)));
+    }
+
+    private Optional<BsqBlock> getBlockAtHeight(int height) {
+        int index = getBlockIndex(height);
+        return index > -1 ? Optional.of(bsqBlocks.get(index)) : Optional.<BsqBlock>empty();
+    }
+
+    // Blocks are connected so the index is given by the height
+    private int getBlockIndex(int height) {
+        if (bsqBlocks.isEmpty())
+            return -1;
+
+        int index = height - bsqBlocks.get(0).getHeight();
+        return index >= 0 && index < bsqBlocks.size() ? index : -1;
+    }
+
+    private List<TxOutput> getTxOutputsByAddress(String address) {
+        maybeBuildIndexes();
+        return new ArrayList<>(txOutputsByAddress.getOrDefault(address, Collections.emptyMap()).values());
     }
 
     private boolean isSnapshotHeight(int height) {
@@ -479,31 +642,154 @@ public class BsqBlockChain implements PersistableEnvelope {
     }
 
     private void maybeMakeSnapshot() {
-        lock.read(() -> {
+        lock.write(() -> {
             if (isSnapshotHeight(getChainHeadHeight()) &&
                     (snapshotCandidate == null ||
                             snapshotCandidate.chainHeadHeight != getChainHeadHeight())) {
                 // At trigger event we store the latest snapshotCandidate to disc
                 if (snapshotCandidate != null) {
-                    // We clone because storage is in a threaded context
-                    final BsqBlockChain cloned = getClone(snapshotCandidate);
+                    // The candidate is a clone which never gets changed, so we can pass it to the threaded storage
                     checkNotNull(storage, "storage must not be null");
-                    storage.queueUpForSave(cloned);
-                    // dont access cloned anymore with methods as locks are transient!
-                    log.info("Saved snapshotCandidate to Disc at height " + cloned.chainHeadHeight);
+                    storage.queueUpForSave(snapshotCandidate);
+                    persistedSnapshot = snapshotCandidate;
+                    log.info("Saved snapshotCandidate to Disc at height " + snapshotCandidate.chainHeadHeight);
+                    buildServedSnapshot();
                 }
                 // Now we clone and keep it in memory for the next trigger
-                snapshotCandidate = getClone(this);
+                snapshotCandidate = getClone();
                 // dont access cloned anymore with methods as locks are transient!
                 log.debug("Cloned new snapshotCandidate at height " + snapshotCandidate.chainHeadHeight);
             }
         });
     }
 
-    private Set<TxOutput> getAllTxOutputs() {
-        return txMap.values().stream()
-                .flatMap(tx -> tx.getOutputs().stream())
-                .collect(Collectors.toSet());
+    // Called with the write lock held
+    private void buildServedSnapshot() {
+        if (!serveSnapshots)
+            return;
+
+        BsqBlockChain snapshot = persistedSnapshot;
+        if (snapshot == null) {
+            UserThread.execute(() -> servedSnapshot = null);
+            return;
+        }
+
+        checkNotNull(servedSnapshotExecutor, "servedSnapshotExecutor must not be null").execute(() -> {
+            // The persisted snapshot is a clone which never gets changed, so we can read it without the lock
+            BsqSnapshot bsqSnapshot = BsqSnapshot.fromBsqBlockChain(snapshot);
+            UserThread.execute(() -> {
+                // A newer snapshot might have been persisted in the meantime
+                if (getPersistedSnapshot() == snapshot)
+                    servedSnapshot = bsqSnapshot;
+            });
+        });
+    }
+
+    private void resetToSnapshot(@Nullable BsqBlockChain snapshot) {
+        bsqBlocks = new ArrayList<>();
+        txMap = new HashMap<>();
+        unspentTxOutputsMap = new HashMap<>();
+        containersShared = false;
+        chainHeadHeight = 0;
+        genesisTx = null;
+
+        if (snapshot != null) {
+            bsqBlocks.addAll(snapshot.bsqBlocks);
+            txMap.putAll(snapshot.txMap);
+            unspentTxOutputsMap.putAll(snapshot.unspentTxOutputsMap);
+            chainHeadHeight = snapshot.chainHeadHeight;
+            genesisTx = snapshot.genesisTx;
+        }
+
+        // The snapshot got created from disk or from the network, so we are the only owner of its objects
+        ownedTxIds = new HashSet<>(txMap.keySet());
+        buildIndexes();
+
+        printDetails();
+    }
+
+    private void copyContainersIfShared() {
+        if (containersShared) {
+            // Only references get copied, not the txs
+            bsqBlocks = new ArrayList<>(bsqBlocks);
+            txMap = new HashMap<>(txMap);
+            unspentTxOutputsMap = new HashMap<>(unspentTxOutputsMap);
+            containersShared = false;
+        }
+    }
+
+    // Replaces a tx which might be shared with a clone with a copy we own
+    private Tx copyTx(Tx tx) {
+        final Tx copy = Tx.fromProto(tx.toProtoMessage());
+        final String txId = copy.getId();
+        txMap.put(txId, copy);
+        ownedTxIds.add(txId);
+        if (genesisTx != null && genesisTx.getId().equals(txId))
+            genesisTx = copy;
+
+        final int blockIndex = getBlockIndex(copy.getBlockHeight());
+        if (blockIndex > -1) {
+            final BsqBlock block = bsqBlocks.get(blockIndex);
+            List<Tx> txs = new ArrayList<>(block.getTxs());
+            for (int i = 0; i < txs.size(); i++) {
+                if (txs.get(i).getId().equals(txId))
+                    txs.set(i, copy);
+            }
+            bsqBlocks.set(blockIndex, new BsqBlock(block.getHeight(),
+                    block.getHash(),
+                    block.getPreviousBlockHash(),
+                    txs));
+        }
+
+        copy.getOutputs().stream().forEach(txOutput -> {
+            final TxIdIndexTuple key = txOutput.getTxIdIndexTuple();
+            unspentTxOutputsMap.replace(key, txOutput);
+            spentTxOutputsMap.replace(key, txOutput);
+            Optional.ofNullable(txOutputsByType.get(txOutput.getTxOutputType())).ifPresent(map -> map.replace(key, txOutput));
+            addTxOutputToAddressIndex(txOutput);
+        });
+        if (feeTxMap.containsKey(txId))
+            feeTxMap.put(txId, copy);
+
+        return copy;
+    }
+
+    private void maybeBuildIndexes() {
+        if (!indexesBuilt)
+            buildIndexes();
+    }
+
+    private void buildIndexes() {
+        spentTxOutputsMap = new HashMap<>();
+        txOutputsByAddress = new HashMap<>();
+        txOutputsByType = new EnumMap<>(TxOutputType.class);
+        feeTxMap = new HashMap<>();
+        totalBurntFee = 0;
+        indexesBuilt = true;
+
+        txMap.values().stream().forEach(tx -> {
+            tx.getOutputs().stream().forEach(this::addTxOutputToAddressIndex);
+            addTxToBlockIndexes(tx);
+            tx.getOutputs().stream()
+                    .filter(txOutput -> txOutput.isVerified() && !txOutput.isUnspent())
+                    .forEach(txOutput -> spentTxOutputsMap.put(txOutput.getTxIdIndexTuple(), txOutput));
+        });
+    }
+
+    private void addTxOutputToAddressIndex(TxOutput txOutput) {
+        if (txOutput.getAddress() != null)
+            txOutputsByAddress.computeIfAbsent(txOutput.getAddress(), k -> new HashMap<>())
+                    .put(txOutput.getTxIdIndexTuple(), txOutput);
+    }
+
+    // Output types and burnt fee are final once the block is parsed
+    private void addTxToBlockIndexes(Tx tx) {
+        maybeBuildIndexes();
+        tx.getOutputs().stream().forEach(txOutput -> txOutputsByType
+                .computeIfAbsent(txOutput.getTxOutputType(), k -> new HashMap<>())
+                .put(txOutput.getTxIdIndexTuple(), txOutput));
+        if (tx.getBurntFee() > 0 && feeTxMap.put(tx.getId(), tx) == null)
+            totalBurntFee += tx.getBurntFee();
     }
 
     private void printDetails() {
@@ -521,4 +807,3 @@ public class BsqBlockChain implements PersistableEnvelope {
                 votingFees.size());
     }
 }
-
@@ -82,6 +82,33 @@ public class BsqLiteNodeExecutor {
         });
     }
 
+    // Verifying and deserializing a snapshot of the whole chain is too heavy for the UserThread
+    public void applySnapshot(BsqSnapshot bsqSnapshot,
+                              int genesisBlockHeight,
+                              String genesisTxId,
+                              ResultHandler resultHandler,
+                              Consumer<Throwable> errorHandler) {
+        ListenableFuture<Void> future = parseBlocksExecutor.submit(() -> {
+            long startTs = System.currentTimeMillis();
+            BsqBlockChain snapshot = bsqSnapshot.toBsqBlockChain(genesisTxId, genesisBlockHeight);
+            bsqBlockChain.applyReceivedSnapshot(snapshot);
+            log.info("applySnapshot took {} ms for {}", System.currentTimeMillis() - startTs, bsqSnapshot);
+            return null;
+        });
+
+        Futures.addCallback(future, new FutureCallback<Void>() {
+            @Override
+            public void onSuccess(Void ignore) {
+                UserThread.execute(resultHandler::handleResult);
+            }
+
+            @Override
+            public void onFailure(@NotNull Throwable throwable) {
+                UserThread.execute(() -> errorHandler.accept(throwable));
+            }
+        });
+    }
+
     // TODO check why it's not handled in the parser
     public void parseBlock(BsqBlock bsqBlock,
                            int genesisBlockHeight,
@@ -29,10 +29,8 @@ import lombok.extern.slf4j.Slf4j;
 import javax.annotation.concurrent.Immutable;
 import javax.inject.Inject;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
-import java.util.stream.Collectors;
-
-import static com.google.common.base.Preconditions.checkArgument;
 
 
 /**
@@ -50,7 +48,7 @@ public class BsqParser {
 
     // Maybe we want to request fee at some point, leave it for now and disable it
     private boolean requestFee = false;
-    private final Map<Integer, Long> feesByBlock = new HashMap<>();
+    private final Map<Integer, Long> feesByBlock = new ConcurrentHashMap<>();
 
 
     @SuppressWarnings("WeakerAccess")
@@ -90,11 +88,7 @@ public class BsqParser {
                        String genesisTxId) {
         int blockHeight = bsqBlock.getHeight();
         log.info("Parse block at height={} ", blockHeight);
-        List<Tx> txList = new ArrayList<>(bsqBlock.getTxs());
-        List<Tx> bsqTxsInBlock = new ArrayList<>();
-        bsqBlock.getTxs().stream()
-                .forEach(tx -> checkForGenesisTx(genesisBlockHeight, genesisTxId, blockHeight, bsqTxsInBlock, tx));
-        recursiveFindBsqTxs(bsqTxsInBlock, txList, blockHeight, 0, 5300);
+        findBsqTxs(bsqBlock.getTxs(), blockHeight, genesisBlockHeight, genesisTxId);
     }
 
 
@@ -109,12 +103,16 @@ public class BsqParser {
                      String genesisTxId,
                      Consumer<BsqBlock> newBlockHandler)
             throws BsqBlockchainException, BlockNotConnectingException {
+        // The blocks get fetched ahead while we parse them in sequence
+        RpcBlockFetcher blockFetcher = getBlockFetcher();
         try {
             for (int blockHeight = startBlockHeight; blockHeight <= chainHeadHeight; blockHeight++) {
                 long startTs = System.currentTimeMillis();
-                Block btcdBlock = rpcService.requestBlock(blockHeight);
+                RpcBlockFetcher.FetchedBlock fetchedBlock = blockFetcher.getBlock(blockHeight, chainHeadHeight);
+                Block btcdBlock = fetchedBlock.getBlock();
 
                 List<Tx> bsqTxsInBlock = findBsqTxsInBlock(btcdBlock,
+                        fetchedBlock.getTxs(),
                         genesisBlockHeight,
                         genesisTxId);
                 final BsqBlock bsqBlock = new BsqBlock(btcdBlock.getHeight(),
@@ -133,42 +131,19 @@ public class BsqParser {
             log.error(t.toString());
             t.printStackTrace();
             throw new BsqBlockchainException(t);
+        } finally {
+            blockFetcher.shutDown();
         }
     }
 
     private List<Tx> findBsqTxsInBlock(Block btcdBlock,
+                                       List<Tx> txs,
                                        int genesisBlockHeight,
-                                       String genesisTxId)
-            throws BsqBlockchainException {
+                                       String genesisTxId) {
 
         int blockHeight = btcdBlock.getHeight();
         log.debug("Parse block at height={} ", blockHeight);
-
-        // check if the new block is the same chain we have built on.
-        List<Tx> txList = new ArrayList<>();
-        // We use a list as we want to maintain sorting of tx intra-block dependency
-        List<Tx> bsqTxsInBlock = new ArrayList<>();
-        // We add all transactions to the block
-        long startTs = System.currentTimeMillis();
-        for (String txId : btcdBlock.getTx()) {
-            if (requestFee)
-                rpcService.requestFees(txId, blockHeight, feesByBlock);
-
-            final Tx tx = rpcService.requestTx(txId, blockHeight);
-            txList.add(tx);
-            checkForGenesisTx(genesisBlockHeight, genesisTxId, blockHeight, bsqTxsInBlock, tx);
-        }
-        log.info("Requesting {} transactions took {} ms",
-                btcdBlock.getTx().size(), System.currentTimeMillis() - startTs);
-        // Worst case is that all txs in a block are depending on another, so only one get resolved at each iteration.
-        // Min tx size is 189 bytes (normally about 240 bytes), 1 MB can contain max. about 5300 txs (usually 2000).
-        // Realistically we don't expect more then a few recursive calls.
-        // There are some blocks with testing such dependency chains like block 130768 where at each iteration only
-        // one get resolved.
-        // Lately there is a patter with 24 iterations observed
-        recursiveFindBsqTxs(bsqTxsInBlock, txList, blockHeight, 0, 5300);
-
-        return bsqTxsInBlock;
+        return findBsqTxs(txs, blockHeight, genesisBlockHeight, genesisTxId);
     }
 
 
@@ -178,7 +153,17 @@ public class BsqParser {
 
     BsqBlock parseBlock(Block btcdBlock, int genesisBlockHeight, String genesisTxId)
             throws BsqBlockchainException, BlockNotConnectingException {
+        RpcBlockFetcher blockFetcher = getBlockFetcher();
+        List<Tx> txs;
+        try {
+            long startTs = System.currentTimeMillis();
+            txs = blockFetcher.getBlock(btcdBlock).getTxs();
+            log.info("Requesting {} transactions took {} ms", txs.size(), System.currentTimeMillis() - startTs);
+        } finally {
+            blockFetcher.shutDown();
+        }
         List<Tx> bsqTxsInBlock = findBsqTxsInBlock(btcdBlock,
+                txs,
                 genesisBlockHeight,
                 genesisTxId);
         final BsqBlock bsqBlock = new BsqBlock(btcdBlock.getHeight(),
@@ -194,6 +179,14 @@ public class BsqParser {
     // Generic
     ///////////////////////////////////////////////////////////////////////////////////////////
 
+    private RpcBlockFetcher getBlockFetcher() {
+        return new RpcBlockFetcher(rpcService,
+                RpcBlockFetcher.MAX_BLOCKS_IN_FLIGHT,
+                RpcBlockFetcher.NUM_THREADS,
+                requestFee,
+                feesByBlock);
+    }
+
     private void checkForGenesisTx(int genesisBlockHeight,
                                    String genesisTxId,
                                    int blockHeight,
@@ -213,75 +206,83 @@ public class BsqParser {
         }
     }
 
-    // Performance-wise the recursion does not hurt (e.g. 5-20 ms).
-    // The RPC requestTransaction is the bottleneck.
-    private void recursiveFindBsqTxs(List<Tx> bsqTxsInBlock,
-                                     List<Tx> transactions,
-                                     int blockHeight,
-                                     int recursionCounter,
-                                     int maxRecursions) {
-        // The set of txIds of txs which are used for inputs of another tx in same block
-        Set<String> intraBlockSpendingTxIdSet = getIntraBlockSpendingTxIdSet(transactions);
-
-        List<Tx> txsWithoutInputsFromSameBlock = new ArrayList<>();
-        List<Tx> txsWithInputsFromSameBlock = new ArrayList<>();
-
-        // First we find the txs which have no intra-block inputs
-        outerLoop:
-        for (Tx tx : transactions) {
-            for (TxInput input : tx.getInputs()) {
-                if (intraBlockSpendingTxIdSet.contains(input.getTxId())) {
-                    // We have an input from one of the intra-block-transactions, so we cannot process that tx now.
-                    // We add the tx for later parsing to the txsWithInputsFromSameBlock and move to the next tx.
-                    txsWithInputsFromSameBlock.add(tx);
-                    continue outerLoop;
+    // All changes of the block are applied under one write lock, so we don't lock and unlock for each tx and
+    // readers don't see a partly parsed block.
+    private List<Tx> findBsqTxs(List<Tx> txs, int blockHeight, int genesisBlockHeight, String genesisTxId) {
+        return bsqBlockChain.<List<Tx>>callFunctionWithWriteLock(() -> {
+            // We use a list as we want to maintain sorting of tx intra-block dependency
+            List<Tx> bsqTxsInBlock = new ArrayList<>();
+            txs.forEach(tx -> checkForGenesisTx(genesisBlockHeight, genesisTxId, blockHeight, bsqTxsInBlock, tx));
+            getTxsInDependencyOrder(txs, blockHeight).forEach(tx -> {
+                if (doIsBsqTx(blockHeight, tx))
+                    bsqTxsInBlock.add(tx);
+            });
+            return bsqTxsInBlock;
+        });
+    }
+
+    // Whether a tx is a BSQ tx depends on the outputs it spends, so a tx spending an output of another tx of the
+    // same block must be parsed after that tx. We build the dependency graph of the block once and sort the txs in
+    // layers: first all txs without inputs from the same block, then the txs which only spend from the first layer,
+    // and so on. Inside a layer the txs keep the block order.
+    // Worst case is that all txs in a block are depending on another, so each layer has only one tx. There are some
+    // blocks with such dependency chains like block 130768.
+    @VisibleForTesting
+    static List<Tx> getTxsInDependencyOrder(List<Tx> txs, int blockHeight) {
+        Map<String, Integer> indexByTxId = new HashMap<>();
+        for (int i = 0; i < txs.size(); i++)
+            indexByTxId.put(txs.get(i).getId(), i);
+
+        // For each tx the txs of the same block which spend from it and the number of txs it spends from
+        List<List<Integer>> spendingTxIndices = new ArrayList<>(txs.size());
+        int[] numUnresolvedParents = new int[txs.size()];
+        for (int i = 0; i < txs.size(); i++)
+            spendingTxIndices.add(new ArrayList<>());
+        for (int i = 0; i < txs.size(); i++) {
+            Set<Integer> parentIndices = new HashSet<>();
+            for (TxInput input : txs.get(i).getInputs()) {
+                Integer parentIndex = indexByTxId.get(input.getTxId());
+                if (parentIndex != null && parentIndices.add(parentIndex)) {
+                    spendingTxIndices.get(parentIndex).add(i);
+                    numUnresolvedParents[i]++;
                 }
             }
-            // If we have not found any tx input pointing to anther tx in the same block we add it to our
-            // txsWithoutInputsFromSameBlock.
-            txsWithoutInputsFromSameBlock.add(tx);
-        }
-        checkArgument(txsWithInputsFromSameBlock.size() + txsWithoutInputsFromSameBlock.size() == transactions.size(),
-                "txsWithInputsFromSameBlock.size + txsWithoutInputsFromSameBlock.size != transactions.size");
-
-        // Usual values is up to 25
-        // There are some blocks where it seems devs have tested graphs of many depending txs, but even
-        // those dont exceed 200 recursions and are mostly old blocks from 2012 when fees have been low ;-).
-        // TODO check strategy btc core uses (sorting the dependency graph would be an optimisation)
-        // Seems btc core delivers tx list sorted by dependency graph. -> TODO verify and test
-        if (recursionCounter > 1000) {
-            log.warn("Unusual high recursive calls at resolveConnectedTxs. recursionCounter=" + recursionCounter);
-            log.warn("blockHeight=" + blockHeight);
-            log.warn("txsWithoutInputsFromSameBlock.size " + txsWithoutInputsFromSameBlock.size());
-            log.warn("txsWithInputsFromSameBlock.size " + txsWithInputsFromSameBlock.size());
-            //  log.warn("txsWithInputsFromSameBlock " + txsWithInputsFromSameBlock.stream().map(e->e.getId()).collect(Collectors.toList()));
         }
 
-        // we check if we have any valid BSQ from that tx set
-        bsqTxsInBlock.addAll(txsWithoutInputsFromSameBlock.stream()
-                .filter(tx -> isBsqTx(blockHeight, tx))
-                .collect(Collectors.toList()));
-
-        log.debug("Parsing of all txsWithoutInputsFromSameBlock is done.");
-
-        // we check if we have any valid BSQ utxo from that tx set
-        // We might have InputsFromSameBlock which are BTC only but not BSQ, so we cannot
-        // optimize here and need to iterate further.
-        if (!txsWithInputsFromSameBlock.isEmpty()) {
-            if (recursionCounter < maxRecursions) {
-                recursiveFindBsqTxs(bsqTxsInBlock, txsWithInputsFromSameBlock, blockHeight,
-                        ++recursionCounter, maxRecursions);
-            } else {
-                final String msg = "We exceeded our max. recursions for resolveConnectedTxs.\n" +
-                        "txsWithInputsFromSameBlock=" + txsWithInputsFromSameBlock.toString() + "\n" +
-                        "txsWithoutInputsFromSameBlock=" + txsWithoutInputsFromSameBlock;
-                log.warn(msg);
-                if (DevEnv.isDevMode())
-                    throw new RuntimeException(msg);
+        List<Tx> sortedTxs = new ArrayList<>(txs.size());
+        List<Integer> layer = new ArrayList<>();
+        for (int i = 0; i < txs.size(); i++) {
+            if (numUnresolvedParents[i] == 0)
+                layer.add(i);
+        }
+        int numLayers = 0;
+        while (!layer.isEmpty()) {
+            numLayers++;
+            List<Integer> nextLayer = new ArrayList<>();
+            for (int index : layer) {
+                sortedTxs.add(txs.get(index));
+                for (int spendingTxIndex : spendingTxIndices.get(index)) {
+                    if (--numUnresolvedParents[spendingTxIndex] == 0)
+                        nextLayer.add(spendingTxIndex);
+                }
             }
-        } else {
-            log.debug("We have no more txsWithInputsFromSameBlock.");
+            Collections.sort(nextLayer);
+            layer = nextLayer;
         }
+
+        if (numLayers > 1000)
+            log.warn("Unusual high number of intra-block dependency layers. numLayers={}, blockHeight={}",
+                    numLayers, blockHeight);
+
+        // Can only happen with invalid data as txs cannot spend from each other in a cycle
+        if (sortedTxs.size() != txs.size()) {
+            final String msg = "We could not resolve the intra-block dependencies of " +
+                    (txs.size() - sortedTxs.size()) + " txs at blockHeight " + blockHeight + ". We ignore those txs.";
+            log.warn(msg);
+            if (DevEnv.isDevMode())
+                throw new RuntimeException(msg);
+        }
+        return sortedTxs;
     }
 
     @VisibleForTesting
@@ -294,9 +295,13 @@ public class BsqParser {
     private boolean doIsBsqTx(int blockHeight, Tx tx) {
         boolean isBsqTx = false;
         long availableBsqFromInputs = 0;
-        // For each input in tx
-        for (int inputIndex = 0; inputIndex < tx.getInputs().size(); inputIndex++) {
-            availableBsqFromInputs += getBsqFromInput(blockHeight, tx, inputIndex);
+        // Most txs don't spend BSQ, so we check first if any input is in the unspent BSQ outputs before we look up
+        // and spend the inputs
+        if (hasUnspentBsqInput(tx)) {
+            // For each input in tx
+            for (int inputIndex = 0; inputIndex < tx.getInputs().size(); inputIndex++) {
+                availableBsqFromInputs += getBsqFromInput(blockHeight, tx, inputIndex);
+            }
         }
 
         // If we have an input with BSQ we iterate the outputs
@@ -366,10 +371,8 @@ public class BsqParser {
         Optional<TxOutput> spendableTxOutput = bsqBlockChain.getSpendableTxOutput(input.getTxIdIndexTuple());
         if (spendableTxOutput.isPresent()) {
             // The output is BSQ, set it as spent, update bsqBlockChain and add to available BSQ for this tx
-            final TxOutput spentTxOutput = spendableTxOutput.get();
-            spentTxOutput.setUnspent(false);
-            bsqBlockChain.removeUnspentTxOutput(spentTxOutput);
-            spentTxOutput.setSpentInfo(new SpentInfo(blockHeight, tx.getId(), inputIndex));
+            final TxOutput spentTxOutput = bsqBlockChain.spendTxOutput(spendableTxOutput.get(),
+                    new SpentInfo(blockHeight, tx.getId(), inputIndex));
             input.setConnectedTxOutput(spentTxOutput);
             bsqFromInput = spentTxOutput.getValue();
         }
@@ -386,13 +389,12 @@ public class BsqParser {
         bsqBlockChain.addUnspentTxOutput(txOutput);
     }
 
-    private Set<String> getIntraBlockSpendingTxIdSet(List<Tx> txs) {
-        Set<String> txIdSet = txs.stream().map(Tx::getId).collect(Collectors.toSet());
-        Set<String> intraBlockSpendingTxIdSet = new HashSet<>();
-        txs.stream()
-                .forEach(tx -> tx.getInputs().stream()
-                        .filter(input -> txIdSet.contains(input.getTxId()))
-                        .forEach(input -> intraBlockSpendingTxIdSet.add(input.getTxId())));
-        return intraBlockSpendingTxIdSet;
+    // Not thread safe wrt bsqBlockChain
+    private boolean hasUnspentBsqInput(Tx tx) {
+        for (TxInput input : tx.getInputs()) {
+            if (bsqBlockChain.containsUnspentTxOutput(input.getTxIdIndexTuple()))
+                return true;
+        }
+        return false;
     }
 }
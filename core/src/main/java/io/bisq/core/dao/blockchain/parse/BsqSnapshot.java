@@ -0,0 +1,142 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.core.dao.blockchain.parse;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import io.bisq.common.crypto.Hash;
+import io.bisq.core.dao.blockchain.vo.BsqBlock;
+import io.bisq.generated.protobuffer.PB;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Serialized state of a BsqBlockChain at a snapshot height, as served by full nodes to lite nodes.
+ * <p/>
+ * The snapshot is committed to by the SHA256 hash of the serialized chain. It gets transferred in chunks and the
+ * receiver verifies the hash, the version and that the blocks are connected before it applies the snapshot. Only the
+ * blocks after the snapshot height need to be requested and parsed.
+ */
+@Slf4j
+@Getter
+public final class BsqSnapshot {
+    // Increase at incompatible changes of the serialized BsqBlockChain
+    public static final int VERSION = 1;
+    public static final int CHUNK_SIZE = 1024 * 1024;
+    // We don't send a snapshot if it would save the requester less blocks than that
+    public static final int MIN_BLOCKS_SAVED = 144;
+
+    private final int version;
+    private final int height;
+    private final String blockHash;
+    private final byte[] hash;
+    private final byte[] bytes;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private BsqSnapshot(int version, int height, String blockHash, byte[] hash, byte[] bytes) {
+        this.version = version;
+        this.height = height;
+        this.blockHash = blockHash;
+        this.hash = hash;
+        this.bytes = bytes;
+    }
+
+    // The snapshot must be a clone which does not get changed anymore (see BsqBlockChain.getPersistedSnapshot)
+    public static BsqSnapshot fromBsqBlockChain(BsqBlockChain snapshot) {
+        long ts = System.currentTimeMillis();
+        byte[] bytes = snapshot.toProtoMessage().toByteArray();
+        int height = snapshot.getChainHeadHeight();
+        String blockHash = snapshot.findBlock(height).map(BsqBlock::getHash).orElse("");
+        BsqSnapshot bsqSnapshot = new BsqSnapshot(VERSION, height, blockHash, Hash.getSha256Hash(bytes), bytes);
+        log.info("Serializing BsqBlockChain snapshot at height {} with {} bytes took {} ms",
+                height, bytes.length, System.currentTimeMillis() - ts);
+        return bsqSnapshot;
+    }
+
+    // The hash gets checked at toBsqBlockChain
+    public static BsqSnapshot fromChunks(int version, int height, String blockHash, byte[] hash, List<byte[]> chunks) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(chunks.size() * CHUNK_SIZE);
+        chunks.forEach(chunk -> outputStream.write(chunk, 0, chunk.length));
+        return new BsqSnapshot(version, height, blockHash, hash, outputStream.toByteArray());
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public int getNumChunks() {
+        return (bytes.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+    }
+
+    public byte[] getChunk(int index) {
+        checkArgument(index >= 0 && index < getNumChunks(), "Invalid chunk index " + index);
+        return Arrays.copyOfRange(bytes, index * CHUNK_SIZE, Math.min(bytes.length, (index + 1) * CHUNK_SIZE));
+    }
+
+    /**
+     * Verifies the snapshot and deserializes it.
+     *
+     * @throws IllegalArgumentException if the snapshot is not valid for our genesis tx or got corrupted
+     */
+    BsqBlockChain toBsqBlockChain(String genesisTxId, int genesisBlockHeight) {
+        checkArgument(version == VERSION, "Unsupported snapshot version " + version);
+        checkArgument(Arrays.equals(hash, Hash.getSha256Hash(bytes)), "Snapshot hash does not match");
+
+        final BsqBlockChain snapshot;
+        try {
+            snapshot = (BsqBlockChain) BsqBlockChain.fromProto(PB.PersistableEnvelope.parseFrom(bytes).getBsqBlockChain());
+        } catch (InvalidProtocolBufferException e) {
+            throw new IllegalArgumentException("Snapshot could not be parsed", e);
+        }
+        checkArgument(snapshot.getGenesisTxId().equals(genesisTxId), "Snapshot has a different genesis tx");
+        checkArgument(snapshot.getGenesisBlockHeight() == genesisBlockHeight, "Snapshot has a different genesis height");
+        checkArgument(snapshot.getChainHeadHeight() == height, "Snapshot height does not match");
+
+        List<BsqBlock> blocks = snapshot.getBlocksFrom(0);
+        checkArgument(!blocks.isEmpty(), "Snapshot has no blocks");
+        for (int i = 1; i < blocks.size(); i++) {
+            BsqBlock previous = blocks.get(i - 1);
+            BsqBlock block = blocks.get(i);
+            checkArgument(block.getHeight() == previous.getHeight() + 1 &&
+                    block.getPreviousBlockHash().equals(previous.getHash()), "Snapshot blocks are not connected");
+        }
+        BsqBlock head = blocks.get(blocks.size() - 1);
+        checkArgument(head.getHeight() == height && head.getHash().equals(blockHash), "Snapshot head does not match");
+        return snapshot;
+    }
+
+    @Override
+    public String toString() {
+        return "BsqSnapshot{" +
+                "version=" + version +
+                ", height=" + height +
+                ", blockHash='" + blockHash + '\'' +
+                ", bytes.length=" + bytes.length +
+                '}';
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.core.dao.blockchain.parse;
+
+import com.google.common.util.concurrent.*;
+import com.neemre.btcdcli4j.core.domain.Block;
+import io.bisq.core.dao.blockchain.exceptions.BsqBlockchainException;
+import io.bisq.core.dao.blockchain.vo.Tx;
+import lombok.Value;
+
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+
+/**
+ * Fetches blocks with all their transactions from Bitcoin Core ahead of the parser.
+ * The transactions of a block are requested concurrently on a bounded pool and we keep up to maxBlocksInFlight
+ * blocks ahead of the block the parser is working on. The parser takes the blocks in height order, so the
+ * sequential parsing and validation is not affected.
+ * <p>
+ * Not thread safe. Should be used from the parser thread only.
+ */
+class RpcBlockFetcher {
+    static final int MAX_BLOCKS_IN_FLIGHT = 10;
+    // Bitcoin Core handles 4 RPC requests in parallel by default (rpcthreads)
+    static final int NUM_THREADS = 4;
+
+    @Value
+    static class FetchedBlock {
+        private final Block block;
+        // Same order as the tx ids in block
+        private final List<Tx> txs;
+    }
+
+    private final RpcService rpcService;
+    private final int maxBlocksInFlight;
+    private final boolean requestFee;
+    private final Map<Integer, Long> feesByBlock;
+    private final ListeningExecutorService executor;
+    private final Map<Integer, ListenableFuture<FetchedBlock>> blocksInFlight = new HashMap<>();
+    private int nextHeightToFetch = -1;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    RpcBlockFetcher(RpcService rpcService, int maxBlocksInFlight, int numThreads, boolean requestFee,
+                    Map<Integer, Long> feesByBlock) {
+        this.rpcService = rpcService;
+        this.maxBlocksInFlight = maxBlocksInFlight;
+        this.requestFee = requestFee;
+        this.feesByBlock = feesByBlock;
+
+        executor = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(numThreads,
+                new ThreadFactoryBuilder()
+                        .setNameFormat("RpcBlockFetcher-%d")
+                        .setDaemon(true)
+                        .build()));
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Blocks until the block at blockHeight is fetched and requests the following blocks up to chainHeadHeight.
+     */
+    FetchedBlock getBlock(int blockHeight, int chainHeadHeight) throws BsqBlockchainException {
+        if (!blocksInFlight.containsKey(blockHeight)) {
+            // Not the height we expected, so the prefetched blocks are useless
+            cancelBlocksInFlight();
+            nextHeightToFetch = blockHeight;
+        }
+        while (nextHeightToFetch <= chainHeadHeight && nextHeightToFetch < blockHeight + maxBlocksInFlight) {
+            final int height = nextHeightToFetch++;
+            blocksInFlight.put(height, Futures.transformAsync(executor.submit(() -> rpcService.requestBlock(height)),
+                    this::fetchTxs,
+                    MoreExecutors.directExecutor()));
+        }
+        return get(blocksInFlight.remove(blockHeight));
+    }
+
+    /**
+     * Blocks until all transactions of the block are fetched.
+     */
+    FetchedBlock getBlock(Block block) throws BsqBlockchainException {
+        return get(fetchTxs(block));
+    }
+
+    void shutDown() {
+        cancelBlocksInFlight();
+        executor.shutdownNow();
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private ListenableFuture<FetchedBlock> fetchTxs(Block block) {
+        final int blockHeight = block.getHeight();
+        List<ListenableFuture<Tx>> txFutures = new ArrayList<>();
+        for (String txId : block.getTx()) {
+            txFutures.add(executor.submit(() -> {
+                if (requestFee)
+                    rpcService.requestFees(txId, blockHeight, feesByBlock);
+
+                return rpcService.requestTx(txId, blockHeight);
+            }));
+        }
+        return Futures.transform(Futures.allAsList(txFutures),
+                txs -> new FetchedBlock(block, txs),
+                MoreExecutors.directExecutor());
+    }
+
+    private FetchedBlock get(ListenableFuture<FetchedBlock> future) throws BsqBlockchainException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BsqBlockchainException(e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof BsqBlockchainException)
+                throw (BsqBlockchainException) cause;
+            throw new BsqBlockchainException(cause.getMessage(), cause);
+        }
+    }
+
+    private void cancelBlocksInFlight() {
+        blocksInFlight.values().forEach(future -> future.cancel(true));
+        blocksInFlight.clear();
+    }
+}
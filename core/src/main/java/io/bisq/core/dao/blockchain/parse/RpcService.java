@@ -90,6 +90,8 @@ public class RpcService {
         try {
             long startTs = System.currentTimeMillis();
             PoolingHttpClientConnectionManager cm = new PoolingHttpClientConnectionManager();
+            // The RpcBlockFetcher sends requests in parallel, the default of 2 connections per route would limit it
+            cm.setDefaultMaxPerRoute(RpcBlockFetcher.NUM_THREADS + 1);
             CloseableHttpClient httpProvider = HttpClients.custom().setConnectionManager(cm).build();
             Properties nodeConfig = new Properties();
             nodeConfig.setProperty("node.bitcoind.rpc.protocol", "http");
@@ -57,6 +57,7 @@ public class OfferBookService {
     private final PriceFeedService priceFeedService;
     private final List<OfferBookChangedListener> offerBookChangedListeners = new LinkedList<>();
     private final JsonFileManager jsonFileManager;
+    private final OrderBook orderBook;
 
 
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -72,29 +73,37 @@ public class OfferBookService {
         this.priceFeedService = priceFeedService;
         jsonFileManager = new JsonFileManager(storageDir);
 
+        orderBook = new OrderBook(priceFeedService);
+        p2PService.getDataMap().values().stream()
+                .filter(data -> data.getProtectedStoragePayload() instanceof OfferPayload)
+                .forEach(data -> orderBook.add((OfferPayload) data.getProtectedStoragePayload(), priceFeedService));
+
         p2PService.addHashSetChangedListener(new HashMapChangedListener() {
             @Override
             public void onAdded(ProtectedStorageEntry data) {
-                offerBookChangedListeners.stream().forEach(listener -> {
-                    if (data.getProtectedStoragePayload() instanceof OfferPayload) {
-                        OfferPayload offerPayload = (OfferPayload) data.getProtectedStoragePayload();
-                        Offer offer = new Offer(offerPayload);
-                        offer.setPriceFeedService(priceFeedService);
-                        listener.onAdded(offer);
-                    }
-                });
+                if (data.getProtectedStoragePayload() instanceof OfferPayload) {
+                    OfferPayload offerPayload = (OfferPayload) data.getProtectedStoragePayload();
+                    // The order book returns the existing instance if we have that offer already, so all listeners
+                    // share one Offer object per payload
+                    Offer offer = orderBook.add(offerPayload, priceFeedService);
+                    offerBookChangedListeners.stream().forEach(listener -> listener.onAdded(offer));
+                }
             }
 
             @Override
             public void onRemoved(ProtectedStorageEntry data) {
-                offerBookChangedListeners.stream().forEach(listener -> {
-                    if (data.getProtectedStoragePayload() instanceof OfferPayload) {
-                        OfferPayload offerPayload = (OfferPayload) data.getProtectedStoragePayload();
-                        Offer offer = new Offer(offerPayload);
+                if (data.getProtectedStoragePayload() instanceof OfferPayload) {
+                    OfferPayload offerPayload = (OfferPayload) data.getProtectedStoragePayload();
+                    Offer removedOffer = orderBook.remove(offerPayload);
+                    final Offer offer;
+                    if (removedOffer != null) {
+                        offer = removedOffer;
+                    } else {
+                        offer = new Offer(offerPayload);
                         offer.setPriceFeedService(priceFeedService);
-                        listener.onRemoved(offer);
                     }
-                });
+                    offerBookChangedListeners.stream().forEach(listener -> listener.onRemoved(offer));
+                }
             }
         });
 
@@ -164,15 +173,11 @@ public class OfferBookService {
     }
 
     public List<Offer> getOffers() {
-        return p2PService.getDataMap().values().stream()
-                .filter(data -> data.getProtectedStoragePayload() instanceof OfferPayload)
-                .map(data -> {
-                    OfferPayload offerPayload = (OfferPayload) data.getProtectedStoragePayload();
-                    Offer offer = new Offer(offerPayload);
-                    offer.setPriceFeedService(priceFeedService);
-                    return offer;
-                })
-                .collect(Collectors.toList());
+        return orderBook.getOffers();
+    }
+
+    public OrderBook getOrderBook() {
+        return orderBook;
     }
 
     public void removeOfferAtShutDown(OfferPayload offerPayload) {
@@ -0,0 +1,310 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.core.offer;
+
+import io.bisq.common.locale.CurrencyUtil;
+import io.bisq.common.monetary.Price;
+import io.bisq.core.provider.price.PriceFeedService;
+import lombok.extern.slf4j.Slf4j;
+import org.bitcoinj.core.Coin;
+
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+/**
+ * Offers of the P2P network by market (currency code) and direction, sorted by price.
+ * <p/>
+ * We keep one Offer instance per OfferPayload, so callers don't need to scan the P2P data map and create new Offer
+ * objects at each query. Prices of market based offers depend on the price feed. When the price feed gets updated we
+ * only mark the affected markets and recalculate their prices at the next query of that market.
+ * <p/>
+ * The best offer for a taker is the highest price for BUY offers and the lowest price for SELL offers. For altcoins
+ * the price is quoted in BTC, so it is the other way round.
+ * <p/>
+ * Must only be accessed from the UserThread.
+ */
+@Slf4j
+public class OrderBook {
+    public interface Listener {
+        void onOfferAdded(Offer offer);
+
+        void onOfferRemoved(Offer offer);
+
+        // Prices of market based offers in those markets have changed
+        void onPricesChanged(Set<String> currencyCodes);
+    }
+
+    private static final class Entry {
+        private final Offer offer;
+        // Cached price, 0 if no price is available (market based offer without market price)
+        private long price;
+
+        private Entry(Offer offer) {
+            this.offer = offer;
+            updatePrice();
+        }
+
+        private void updatePrice() {
+            Price offerPrice = offer.getPrice();
+            price = offerPrice != null ? offerPrice.getValue() : 0;
+        }
+    }
+
+    private static final Comparator<Entry> PRICE_COMPARATOR = Comparator.<Entry>comparingLong(e -> e.price)
+            .thenComparing(e -> e.offer.getId());
+
+    private static final class Market {
+        private final String currencyCode;
+        private final Map<String, Entry> entriesByOfferId = new HashMap<>();
+        // Entries with a price, sorted by price ascending
+        private final Map<OfferPayload.Direction, TreeSet<Entry>> pricedEntries = new EnumMap<>(OfferPayload.Direction.class);
+        private int numMarketBasedOffers;
+        private boolean repriceRequired;
+
+        private Market(String currencyCode) {
+            this.currencyCode = currencyCode;
+            for (OfferPayload.Direction direction : OfferPayload.Direction.values())
+                pricedEntries.put(direction, new TreeSet<>(PRICE_COMPARATOR));
+        }
+
+        private void add(Entry entry) {
+            entriesByOfferId.put(entry.offer.getId(), entry);
+            if (entry.price > 0)
+                pricedEntries.get(entry.offer.getDirection()).add(entry);
+            if (entry.offer.isUseMarketBasedPrice())
+                numMarketBasedOffers++;
+        }
+
+        @Nullable
+        private Entry remove(String offerId) {
+            Entry entry = entriesByOfferId.remove(offerId);
+            if (entry != null) {
+                pricedEntries.get(entry.offer.getDirection()).remove(entry);
+                if (entry.offer.isUseMarketBasedPrice())
+                    numMarketBasedOffers--;
+            }
+            return entry;
+        }
+
+        private void repriceIfRequired() {
+            if (!repriceRequired)
+                return;
+
+            repriceRequired = false;
+            // The price is part of the sort key, so we need to take the entries out before we update the price
+            pricedEntries.values().forEach(TreeSet::clear);
+            entriesByOfferId.values().forEach(entry -> {
+                if (entry.offer.isUseMarketBasedPrice())
+                    entry.updatePrice();
+                if (entry.price > 0)
+                    pricedEntries.get(entry.offer.getDirection()).add(entry);
+            });
+        }
+
+        // Best offer first
+        private Iterator<Entry> iterator(OfferPayload.Direction direction) {
+            TreeSet<Entry> entries = pricedEntries.get(direction);
+            return isHighestPriceBest(currencyCode, direction) ? entries.descendingIterator() : entries.iterator();
+        }
+    }
+
+    private final Map<String, Market> marketsByCurrencyCode = new HashMap<>();
+    private final Map<String, Market> marketsByOfferId = new HashMap<>();
+    private final Set<Listener> listeners = new CopyOnWriteArraySet<>();
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public OrderBook(PriceFeedService priceFeedService) {
+        priceFeedService.updateCounterProperty().addListener((observable, oldValue, newValue) -> onPriceFeedUpdated());
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Package scope, called by OfferBookService
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * @return The Offer instance for that payload. If we have the same payload already we return the existing
+     * instance, so state changes applied by other components are visible to all users of the order book.
+     */
+    Offer add(OfferPayload offerPayload, PriceFeedService priceFeedService) {
+        Market existingMarket = marketsByOfferId.get(offerPayload.getId());
+        if (existingMarket != null) {
+            Entry existingEntry = existingMarket.entriesByOfferId.get(offerPayload.getId());
+            if (existingEntry.offer.getOfferPayload().equals(offerPayload))
+                return existingEntry.offer;
+
+            existingMarket.remove(offerPayload.getId());
+        }
+
+        Offer offer = new Offer(offerPayload);
+        offer.setPriceFeedService(priceFeedService);
+        Market market = marketsByCurrencyCode.computeIfAbsent(offer.getCurrencyCode(), Market::new);
+        market.repriceIfRequired();
+        market.add(new Entry(offer));
+        marketsByOfferId.put(offer.getId(), market);
+        listeners.forEach(listener -> listener.onOfferAdded(offer));
+        return offer;
+    }
+
+    @Nullable
+    Offer remove(OfferPayload offerPayload) {
+        Market market = marketsByOfferId.remove(offerPayload.getId());
+        if (market == null)
+            return null;
+
+        Entry entry = market.remove(offerPayload.getId());
+        if (market.entriesByOfferId.isEmpty())
+            marketsByCurrencyCode.remove(market.currencyCode);
+
+        if (entry != null) {
+            listeners.forEach(listener -> listener.onOfferRemoved(entry.offer));
+            return entry.offer;
+        }
+        return null;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public Optional<Offer> getOffer(String offerId) {
+        Market market = marketsByOfferId.get(offerId);
+        return market != null ? Optional.of(market.entriesByOfferId.get(offerId).offer) : Optional.empty();
+    }
+
+    public List<Offer> getOffers() {
+        List<Offer> offers = new ArrayList<>(marketsByOfferId.size());
+        marketsByCurrencyCode.values().forEach(market ->
+                market.entriesByOfferId.values().forEach(entry -> offers.add(entry.offer)));
+        return offers;
+    }
+
+    public List<Offer> getOffers(String currencyCode) {
+        Market market = marketsByCurrencyCode.get(currencyCode);
+        List<Offer> offers = new ArrayList<>();
+        if (market != null)
+            market.entriesByOfferId.values().forEach(entry -> offers.add(entry.offer));
+        return offers;
+    }
+
+    /**
+     * @return Offers of that market and direction, best price first. Market based offers without an available market
+     * price are not included.
+     */
+    public List<Offer> getOffers(String currencyCode, OfferPayload.Direction direction) {
+        List<Offer> offers = new ArrayList<>();
+        Market market = getRepricedMarket(currencyCode);
+        if (market != null)
+            market.iterator(direction).forEachRemaining(entry -> offers.add(entry.offer));
+        return offers;
+    }
+
+    public Optional<Offer> getBestOffer(String currencyCode, OfferPayload.Direction direction) {
+        Market market = getRepricedMarket(currencyCode);
+        if (market != null) {
+            Iterator<Entry> iterator = market.iterator(direction);
+            if (iterator.hasNext())
+                return Optional.of(iterator.next().offer);
+        }
+        return Optional.empty();
+    }
+
+    @Nullable
+    public Price getBestPrice(String currencyCode, OfferPayload.Direction direction) {
+        return getBestOffer(currencyCode, direction).map(Offer::getPrice).orElse(null);
+    }
+
+    /**
+     * @return The sum of the amounts of the offers of that market and direction with the given price or a better one
+     */
+    public Coin getDepth(String currencyCode, OfferPayload.Direction direction, Price limitPrice) {
+        long depth = 0;
+        Market market = getRepricedMarket(currencyCode);
+        if (market != null) {
+            boolean highestIsBest = isHighestPriceBest(currencyCode, direction);
+            Iterator<Entry> iterator = market.iterator(direction);
+            while (iterator.hasNext()) {
+                Entry entry = iterator.next();
+                if (highestIsBest ? entry.price < limitPrice.getValue() : entry.price > limitPrice.getValue())
+                    break;
+                depth += entry.offer.getAmount().value;
+            }
+        }
+        return Coin.valueOf(depth);
+    }
+
+    public int getNumOffers(String currencyCode, OfferPayload.Direction direction) {
+        Market market = marketsByCurrencyCode.get(currencyCode);
+        return market != null ?
+                (int) market.entriesByOfferId.values().stream().filter(e -> e.offer.getDirection() == direction).count() :
+                0;
+    }
+
+    public Set<String> getCurrencyCodes() {
+        return new HashSet<>(marketsByCurrencyCode.keySet());
+    }
+
+    public int size() {
+        return marketsByOfferId.size();
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    static boolean isHighestPriceBest(String currencyCode, OfferPayload.Direction direction) {
+        return CurrencyUtil.isCryptoCurrency(currencyCode) ?
+                direction == OfferPayload.Direction.SELL :
+                direction == OfferPayload.Direction.BUY;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    @Nullable
+    private Market getRepricedMarket(String currencyCode) {
+        Market market = marketsByCurrencyCode.get(currencyCode);
+        if (market != null)
+            market.repriceIfRequired();
+        return market;
+    }
+
+    private void onPriceFeedUpdated() {
+        Set<String> currencyCodes = new HashSet<>();
+        marketsByCurrencyCode.values().stream()
+                .filter(market -> market.numMarketBasedOffers > 0)
+                .forEach(market -> {
+                    market.repriceRequired = true;
+                    currencyCodes.add(market.currencyCode);
+                });
+        if (!currencyCodes.isEmpty())
+            listeners.forEach(listener -> listener.onPricesChanged(currencyCodes));
+    }
+}
@@ -11,6 +11,8 @@ import io.bisq.core.arbitration.Mediator;
 import io.bisq.core.arbitration.messages.*;
 import io.bisq.core.dao.blockchain.p2p.messages.GetBsqBlocksRequest;
 import io.bisq.core.dao.blockchain.p2p.messages.GetBsqBlocksResponse;
+import io.bisq.core.dao.blockchain.p2p.messages.GetBsqSnapshotRequest;
+import io.bisq.core.dao.blockchain.p2p.messages.GetBsqSnapshotResponse;
 import io.bisq.core.dao.blockchain.p2p.messages.NewBsqBlockBroadcastMessage;
 import io.bisq.core.dao.request.compensation.CompensationRequestPayload;
 import io.bisq.core.filter.Filter;
@@ -37,14 +39,61 @@ import io.bisq.network.p2p.storage.payload.ProtectedStorageEntry;
 import lombok.extern.slf4j.Slf4j;
 
 import javax.inject.Inject;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
 
 @Slf4j
 public class CoreNetworkProtoResolver extends CoreProtoResolver implements NetworkProtoResolver {
 
+    private static final Map<PB.NetworkEnvelope.MessageCase, Class<? extends NetworkEnvelope>> ENVELOPE_CLASS_BY_MESSAGE_CASE;
+
+    static {
+        Map<PB.NetworkEnvelope.MessageCase, Class<? extends NetworkEnvelope>> map = new EnumMap<>(PB.NetworkEnvelope.MessageCase.class);
+        map.put(PB.NetworkEnvelope.MessageCase.PRELIMINARY_GET_DATA_REQUEST, PreliminaryGetDataRequest.class);
+        map.put(PB.NetworkEnvelope.MessageCase.GET_DATA_RESPONSE, GetDataResponse.class);
+        map.put(PB.NetworkEnvelope.MessageCase.GET_UPDATED_DATA_REQUEST, GetUpdatedDataRequest.class);
+        map.put(PB.NetworkEnvelope.MessageCase.GET_PEERS_REQUEST, GetPeersRequest.class);
+        map.put(PB.NetworkEnvelope.MessageCase.GET_PEERS_RESPONSE, GetPeersResponse.class);
+        map.put(PB.NetworkEnvelope.MessageCase.PING, Ping.class);
+        map.put(PB.NetworkEnvelope.MessageCase.PONG, Pong.class);
+        map.put(PB.NetworkEnvelope.MessageCase.OFFER_AVAILABILITY_REQUEST, OfferAvailabilityRequest.class);
+        map.put(PB.NetworkEnvelope.MessageCase.OFFER_AVAILABILITY_RESPONSE, OfferAvailabilityResponse.class);
+        map.put(PB.NetworkEnvelope.MessageCase.REFRESH_OFFER_MESSAGE, RefreshOfferMessage.class);
+        map.put(PB.NetworkEnvelope.MessageCase.ADD_DATA_MESSAGE, AddDataMessage.class);
+        map.put(PB.NetworkEnvelope.MessageCase.REMOVE_DATA_MESSAGE, RemoveDataMessage.class);
+        map.put(PB.NetworkEnvelope.MessageCase.REMOVE_MAILBOX_DATA_MESSAGE, RemoveMailboxDataMessage.class);
+        map.put(PB.NetworkEnvelope.MessageCase.CLOSE_CONNECTION_MESSAGE, CloseConnectionMessage.class);
+        map.put(PB.NetworkEnvelope.MessageCase.PREFIXED_SEALED_AND_SIGNED_MESSAGE, PrefixedSealedAndSignedMessage.class);
+        map.put(PB.NetworkEnvelope.MessageCase.PAY_DEPOSIT_REQUEST, PayDepositRequest.class);
+        map.put(PB.NetworkEnvelope.MessageCase.DEPOSIT_TX_PUBLISHED_MESSAGE, DepositTxPublishedMessage.class);
+        map.put(PB.NetworkEnvelope.MessageCase.PUBLISH_DEPOSIT_TX_REQUEST, PublishDepositTxRequest.class);
+        map.put(PB.NetworkEnvelope.MessageCase.COUNTER_CURRENCY_TRANSFER_STARTED_MESSAGE, CounterCurrencyTransferStartedMessage.class);
+        map.put(PB.NetworkEnvelope.MessageCase.PAYOUT_TX_PUBLISHED_MESSAGE, PayoutTxPublishedMessage.class);
+        map.put(PB.NetworkEnvelope.MessageCase.OPEN_NEW_DISPUTE_MESSAGE, OpenNewDisputeMessage.class);
+        map.put(PB.NetworkEnvelope.MessageCase.PEER_OPENED_DISPUTE_MESSAGE, PeerOpenedDisputeMessage.class);
+        map.put(PB.NetworkEnvelope.MessageCase.DISPUTE_COMMUNICATION_MESSAGE, DisputeCommunicationMessage.class);
+        map.put(PB.NetworkEnvelope.MessageCase.DISPUTE_RESULT_MESSAGE, DisputeResultMessage.class);
+        map.put(PB.NetworkEnvelope.MessageCase.PEER_PUBLISHED_DISPUTE_PAYOUT_TX_MESSAGE, PeerPublishedDisputePayoutTxMessage.class);
+        map.put(PB.NetworkEnvelope.MessageCase.PRIVATE_NOTIFICATION_MESSAGE, PrivateNotificationMessage.class);
+        map.put(PB.NetworkEnvelope.MessageCase.GET_BSQ_BLOCKS_REQUEST, GetBsqBlocksRequest.class);
+        map.put(PB.NetworkEnvelope.MessageCase.GET_BSQ_BLOCKS_RESPONSE, GetBsqBlocksResponse.class);
+        map.put(PB.NetworkEnvelope.MessageCase.NEW_BSQ_BLOCK_BROADCAST_MESSAGE, NewBsqBlockBroadcastMessage.class);
+        map.put(PB.NetworkEnvelope.MessageCase.GET_BSQ_SNAPSHOT_REQUEST, GetBsqSnapshotRequest.class);
+        map.put(PB.NetworkEnvelope.MessageCase.GET_BSQ_SNAPSHOT_RESPONSE, GetBsqSnapshotResponse.class);
+        map.put(PB.NetworkEnvelope.MessageCase.ADD_PERSISTABLE_NETWORK_PAYLOAD_MESSAGE, AddPersistableNetworkPayloadMessage.class);
+        ENVELOPE_CLASS_BY_MESSAGE_CASE = Collections.unmodifiableMap(map);
+    }
+
     @Inject
     public CoreNetworkProtoResolver() {
     }
 
+    @Override
+    public Map<PB.NetworkEnvelope.MessageCase, Class<? extends NetworkEnvelope>> getEnvelopeClassByMessageCase() {
+        return ENVELOPE_CLASS_BY_MESSAGE_CASE;
+    }
+
     @Override
     public NetworkEnvelope fromProto(PB.NetworkEnvelope proto) {
         if (proto != null) {
@@ -116,6 +165,10 @@ public class CoreNetworkProtoResolver extends CoreProtoResolver implements Netwo
                     return GetBsqBlocksResponse.fromProto(proto.getGetBsqBlocksResponse(), messageVersion);
                 case NEW_BSQ_BLOCK_BROADCAST_MESSAGE:
                     return NewBsqBlockBroadcastMessage.fromProto(proto.getNewBsqBlockBroadcastMessage(), messageVersion);
+                case GET_BSQ_SNAPSHOT_REQUEST:
+                    return GetBsqSnapshotRequest.fromProto(proto.getGetBsqSnapshotRequest(), messageVersion);
+                case GET_BSQ_SNAPSHOT_RESPONSE:
+                    return GetBsqSnapshotResponse.fromProto(proto.getGetBsqSnapshotResponse(), messageVersion);
 
                 case ADD_PERSISTABLE_NETWORK_PAYLOAD_MESSAGE:
                     return AddPersistableNetworkPayloadMessage.fromProto(proto.getAddPersistableNetworkPayloadMessage(), this, messageVersion);
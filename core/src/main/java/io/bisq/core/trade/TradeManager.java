@@ -28,6 +28,7 @@ import io.bisq.common.proto.network.NetworkEnvelope;
 import io.bisq.common.proto.persistable.PersistedDataHost;
 import io.bisq.common.proto.persistable.PersistenceProtoResolver;
 import io.bisq.common.storage.Storage;
+import io.bisq.common.taskrunner.TaskStatistics;
 import io.bisq.core.btc.AddressEntry;
 import io.bisq.core.btc.AddressEntryException;
 import io.bisq.core.btc.wallet.BsqWalletService;
@@ -202,6 +203,7 @@ public class TradeManager implements PersistedDataHost {
     }
 
     public void shutDown() {
+        log.info("Task latencies of this session:\n" + TaskStatistics.getReportAsCsv());
     }
 
     private void initPendingTrades() {
@@ -42,5 +42,7 @@ public class TradeModule extends AppModule {
         bind(FailedTradesManager.class).in(Singleton.class);
         bind(AccountAgeWitnessService.class).in(Singleton.class);
         bindConstant().annotatedWith(named(AppOptionKeys.DUMP_STATISTICS)).to(environment.getRequiredProperty(AppOptionKeys.DUMP_STATISTICS));
+        Boolean dumpStatisticsJsonLines = environment.getProperty(AppOptionKeys.DUMP_STATISTICS_JSON_LINES, Boolean.class, false);
+        bind(boolean.class).annotatedWith(named(AppOptionKeys.DUMP_STATISTICS_JSON_LINES)).toInstance(dumpStatisticsJsonLines);
     }
 }
@@ -209,6 +209,11 @@ public final class TradeStatistics2 implements LazyProcessedPayload, Persistable
         return new Date(tradeDate);
     }
 
+    @Override
+    public long getDate() {
+        return tradeDate;
+    }
+
     public Price getTradePrice() {
         return Price.valueOf(getCurrencyCode(), tradePrice);
     }
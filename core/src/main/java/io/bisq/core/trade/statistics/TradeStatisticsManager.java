@@ -1,5 +1,6 @@
 package io.bisq.core.trade.statistics;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.inject.Inject;
 import com.google.inject.name.Named;
 import io.bisq.common.UserThread;
@@ -27,6 +28,9 @@ import java.util.stream.Collectors;
 
 @Slf4j
 public class TradeStatisticsManager {
+    // Writing the dump is coalesced, so a burst of new trades causes only one write
+    private static final long DUMP_DELAY_SEC = 10;
+    private static final String DUMP_FILE_NAME = "trade_statistics";
 
     static TradeStatistics2 ConvertToTradeStatistics2(TradeStatistics tradeStatistics) {
         return new TradeStatistics2(tradeStatistics.getDirection(),
@@ -51,17 +55,32 @@ public class TradeStatisticsManager {
     private final P2PService p2PService;
     private final PriceFeedService priceFeedService;
     private final boolean dumpStatistics;
+    private final boolean dumpStatisticsJsonLines;
     private final ObservableSet<TradeStatistics2> observableTradeStatisticsSet = FXCollections.observableSet();
     private final HashSet<TradeStatistics2> tradeStatisticsSet = new HashSet<>();
+    private final Set<String> offerIds = new HashSet<>();
+    private final Map<String, TradeStatistics2> latestTradeStatisticsByCurrency = new HashMap<>();
+    // Only used if dumpStatistics is set and dumpStatisticsJsonLines is not set. Sorted by trade date, newest first.
+    // Values are the items serialized to json.
+    private final TreeMap<TradeStatisticsForJson, String> jsonByTradeStatistics = new TreeMap<>(
+            Comparator.<TradeStatisticsForJson>comparingLong(e -> e.tradeDate).reversed()
+                    .thenComparing(e -> e.offerId));
+    // Only used if dumpStatisticsJsonLines is set. Items added after the initial dump, serialized to json, which
+    // still need to be appended to the file.
+    private List<String> pendingJsonLines = new ArrayList<>();
+    private boolean initialDumpWritten;
+    private boolean dumpScheduled;
 
     @Inject
     public TradeStatisticsManager(P2PService p2PService,
                                   PriceFeedService priceFeedService,
                                   @Named(Storage.STORAGE_DIR) File storageDir,
-                                  @Named(AppOptionKeys.DUMP_STATISTICS) boolean dumpStatistics) {
+                                  @Named(AppOptionKeys.DUMP_STATISTICS) boolean dumpStatistics,
+                                  @Named(AppOptionKeys.DUMP_STATISTICS_JSON_LINES) boolean dumpStatisticsJsonLines) {
         this.p2PService = p2PService;
         this.priceFeedService = priceFeedService;
         this.dumpStatistics = dumpStatistics;
+        this.dumpStatisticsJsonLines = dumpStatisticsJsonLines;
         jsonFileManager = new JsonFileManager(storageDir);
     }
 
@@ -106,8 +125,8 @@ public class TradeStatisticsManager {
             }
         });
 
-        priceFeedService.applyLatestBisqMarketPrice(tradeStatisticsSet);
-        dump();
+        priceFeedService.applyLatestBisqMarketPrice(latestTradeStatisticsByCurrency.values());
+        writeInitialDump();
 
         // print all currencies sorted by nr. of trades
         // printAllCurrencyStats();
@@ -137,15 +156,22 @@ public class TradeStatisticsManager {
 
     public void addToMap(TradeStatistics2 tradeStatistics, boolean storeLocally) {
         if (!tradeStatisticsSet.contains(tradeStatistics)) {
-            boolean itemAlreadyAdded = tradeStatisticsSet.stream().filter(e -> (e.getOfferId().equals(tradeStatistics.getOfferId()))).findAny().isPresent();
-            if (!itemAlreadyAdded) {
+            if (offerIds.add(tradeStatistics.getOfferId())) {
                 tradeStatisticsSet.add(tradeStatistics);
                 observableTradeStatisticsSet.add(tradeStatistics);
 
-                tradeStatistics.getTradePrice().getValue();
+                boolean isLatest = updateLatestTradeStatistics(tradeStatistics);
+                if (dumpStatistics) {
+                    final TradeStatisticsForJson tradeStatisticsForJson = new TradeStatisticsForJson(tradeStatistics);
+                    if (!dumpStatisticsJsonLines)
+                        jsonByTradeStatistics.put(tradeStatisticsForJson, Utilities.objectToJson(tradeStatisticsForJson));
+                    else if (initialDumpWritten)
+                        pendingJsonLines.add(Utilities.objectToCompactJson(tradeStatisticsForJson));
+                }
 
                 if (storeLocally) {
-                    priceFeedService.applyLatestBisqMarketPrice(tradeStatisticsSet);
+                    if (isLatest)
+                        priceFeedService.applyLatestBisqMarketPrice(Collections.singleton(tradeStatistics));
                     dump();
                 }
             } else {
@@ -154,23 +180,77 @@ public class TradeStatisticsManager {
         }
     }
 
+    @VisibleForTesting
+    Map<String, TradeStatistics2> getLatestTradeStatisticsByCurrency() {
+        return latestTradeStatisticsByCurrency;
+    }
+
     public ObservableSet<TradeStatistics2> getObservableTradeStatisticsSet() {
         return observableTradeStatisticsSet;
     }
 
+    // Returns true if the tradeStatistics is the latest trade of its currency
+    private boolean updateLatestTradeStatistics(TradeStatistics2 tradeStatistics) {
+        final TradeStatistics2 latest = latestTradeStatisticsByCurrency.get(tradeStatistics.getCurrencyCode());
+        if (latest == null || latest.getTradeDate().compareTo(tradeStatistics.getTradeDate()) <= 0) {
+            latestTradeStatisticsByCurrency.put(tradeStatistics.getCurrencyCode(), tradeStatistics);
+            return true;
+        }
+        return false;
+    }
+
     private void dump() {
+        if (dumpStatistics && !dumpScheduled) {
+            dumpScheduled = true;
+            UserThread.runAfter(() -> {
+                dumpScheduled = false;
+                writeDump();
+            }, DUMP_DELAY_SEC);
+        }
+    }
+
+    // We store the statistics as json so it is easy for further processing (e.g. for web based services).
+    // By default all trades get written to trade_statistics.json. With dumpStatisticsJsonLines the JSON lines format
+    // (one trade per line) is written to trade_statistics.jsonl instead, so new trades only get appended instead of
+    // rewriting all trades. At startup we write all trades sorted by trade date, later ones are appended in the order
+    // we receive them.
+    private void writeInitialDump() {
         if (dumpStatistics) {
-            // We store the statistics as json so it is easy for further processing (e.g. for web based services)
-            // TODO This is just a quick solution for storing to one file.
+            if (dumpStatisticsJsonLines) {
+                List<String> lines = tradeStatisticsSet.stream()
+                        .sorted(Comparator.comparing(TradeStatistics2::getTradeDate)
+                                .thenComparing(TradeStatistics2::getOfferId))
+                        .map(e -> Utilities.objectToCompactJson(new TradeStatisticsForJson(e)))
+                        .collect(Collectors.toList());
+                jsonFileManager.writeLinesToDisc(lines, DUMP_FILE_NAME, false);
+                initialDumpWritten = true;
+            } else {
+                writeDump();
+            }
+        }
+    }
+
+    private void writeDump() {
+        if (!dumpStatistics)
+            return;
+
+        if (dumpStatisticsJsonLines) {
+            if (!pendingJsonLines.isEmpty()) {
+                jsonFileManager.writeLinesToDisc(pendingJsonLines, DUMP_FILE_NAME, true);
+                pendingJsonLines = new ArrayList<>();
+            }
+        } else {
             // 1 statistic entry has 500 bytes as json.
-            // Need a more scalable solution later when we get more volume.
-            // The flag will only be activated by dedicated nodes, so it should not be too critical for the moment, but needs to
-            // get improved. Maybe a LevelDB like DB...? Could be impl. in a headless version only.
-            List<TradeStatisticsForJson> list = tradeStatisticsSet.stream().map(TradeStatisticsForJson::new).collect(Collectors.toList());
-            list.sort((o1, o2) -> (o1.tradeDate < o2.tradeDate ? 1 : (o1.tradeDate == o2.tradeDate ? 0 : -1)));
-            TradeStatisticsForJson[] array = new TradeStatisticsForJson[list.size()];
-            list.toArray(array);
-            jsonFileManager.writeToDisc(Utilities.objectToJson(array), "trade_statistics");
+            // The items are kept sorted and get serialized only once when they are added, so we only need to
+            // concatenate them here.
+            StringBuilder sb = new StringBuilder("[");
+            String separator = "\n";
+            for (String json : jsonByTradeStatistics.values()) {
+                sb.append(separator).append(json);
+                separator = ",\n";
+            }
+            sb.append("\n]");
+            jsonFileManager.writeToDisc(sb.toString(), DUMP_FILE_NAME);
         }
     }
 
@@ -0,0 +1,104 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.core.btc;
+
+import io.bisq.common.storage.Storage;
+import io.bisq.core.app.BisqEnvironment;
+import io.bisq.generated.protobuffer.PB;
+import org.bitcoinj.core.Context;
+import org.bitcoinj.wallet.Wallet;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+
+public class AddressEntryListTest {
+    private Wallet wallet;
+    private AddressEntryList addressEntryList;
+
+    @SuppressWarnings("unchecked")
+    @Before
+    public void setUp() {
+        Context.propagate(new Context(BisqEnvironment.getParameters()));
+        wallet = new Wallet(BisqEnvironment.getParameters());
+        addressEntryList = new AddressEntryList(mock(Storage.class));
+        addressEntryList.onWalletReady(wallet);
+    }
+
+    @Test
+    public void testLookupsAfterAdd() {
+        assertEquals(1, addressEntryList.getAddressEntries(AddressEntry.Context.ARBITRATOR).size());
+
+        AddressEntry offerFunding = addressEntryList.addAddressEntry(
+                new AddressEntry(wallet.freshReceiveKey(), AddressEntry.Context.OFFER_FUNDING, "offer1"));
+        AddressEntry reserved = addressEntryList.addAddressEntry(
+                new AddressEntry(wallet.freshReceiveKey(), AddressEntry.Context.RESERVED_FOR_TRADE, "offer1"));
+
+        assertSame(offerFunding, addressEntryList.findAddressEntry("offer1", AddressEntry.Context.OFFER_FUNDING).get());
+        assertSame(reserved, addressEntryList.findAddressEntry("offer1", AddressEntry.Context.RESERVED_FOR_TRADE).get());
+        assertFalse(addressEntryList.findAddressEntry("offer1", AddressEntry.Context.MULTI_SIG).isPresent());
+        assertFalse(addressEntryList.findAddressEntry("offer2", AddressEntry.Context.OFFER_FUNDING).isPresent());
+
+        List<AddressEntry> entries = addressEntryList.getAddressEntries(AddressEntry.Context.OFFER_FUNDING);
+        assertEquals(1, entries.size());
+        // We get a copy of the index
+        entries.clear();
+        assertEquals(1, addressEntryList.getAddressEntries(AddressEntry.Context.OFFER_FUNDING).size());
+    }
+
+    @Test
+    public void testLookupsAfterSwapToAvailable() {
+        AddressEntry offerFunding = addressEntryList.addAddressEntry(
+                new AddressEntry(wallet.freshReceiveKey(), AddressEntry.Context.OFFER_FUNDING, "offer1"));
+
+        addressEntryList.swapToAvailable(offerFunding);
+
+        assertFalse(addressEntryList.findAddressEntry("offer1", AddressEntry.Context.OFFER_FUNDING).isPresent());
+        assertTrue(addressEntryList.getAddressEntries(AddressEntry.Context.OFFER_FUNDING).isEmpty());
+        List<AddressEntry> available = addressEntryList.getAddressEntries(AddressEntry.Context.AVAILABLE);
+        assertEquals(1, available.size());
+        assertEquals(offerFunding.getAddressString(), available.get(0).getAddressString());
+        assertEquals(2, addressEntryList.getList().size());
+    }
+
+    @Test
+    public void testLookupsAfterSwapTradeToSavings() {
+        addressEntryList.addAddressEntry(
+                new AddressEntry(wallet.freshReceiveKey(), AddressEntry.Context.MULTI_SIG, "offer1"));
+
+        addressEntryList.swapTradeToSavings("offer1");
+
+        assertFalse(addressEntryList.findAddressEntry("offer1", AddressEntry.Context.MULTI_SIG).isPresent());
+        assertEquals(1, addressEntryList.getAddressEntries(AddressEntry.Context.AVAILABLE).size());
+    }
+
+    @Test
+    public void testLookupsAfterFromProto() {
+        addressEntryList.addAddressEntry(
+                new AddressEntry(wallet.freshReceiveKey(), AddressEntry.Context.OFFER_FUNDING, "offer1"));
+
+        AddressEntryList restored = AddressEntryList.fromProto(
+                ((PB.PersistableEnvelope) addressEntryList.toProtoMessage()).getAddressEntryList());
+
+        assertTrue(restored.findAddressEntry("offer1", AddressEntry.Context.OFFER_FUNDING).isPresent());
+        assertEquals(1, restored.getAddressEntries(AddressEntry.Context.ARBITRATOR).size());
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.core.btc.wallet;
+
+import io.bisq.core.app.BisqEnvironment;
+import org.bitcoinj.core.*;
+import org.bitcoinj.store.BlockStore;
+import org.bitcoinj.store.MemoryBlockStore;
+import org.bitcoinj.testing.FakeTxBuilder;
+import org.bitcoinj.wallet.Wallet;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AddressOutputIndexTest {
+    private NetworkParameters params;
+    private Wallet wallet;
+    private AddressOutputIndex index;
+    private Address foreignAddress;
+
+    @Before
+    public void setUp() {
+        params = BisqEnvironment.getParameters();
+        Context.propagate(new Context(params));
+        wallet = new Wallet(params);
+        index = new AddressOutputIndex();
+        index.attach(wallet);
+        foreignAddress = new ECKey().toAddress(params);
+    }
+
+    @Test
+    public void testReceiveAndSpend() {
+        Address address = wallet.freshReceiveAddress();
+        Transaction receiveTx = receive(Coin.COIN, address);
+        assertEquals(Coin.COIN, index.getBalance(address));
+        assertEquals(1, index.getNumOutputs(address));
+
+        Transaction spendTx = spend(receiveTx.getOutput(0));
+        assertEquals(Coin.ZERO, index.getBalance(address));
+        // Spent outputs are still counted
+        assertEquals(1, index.getNumOutputs(address));
+        assertTrue(index.getAffectedAddresses(spendTx).contains(address));
+    }
+
+    @Test
+    public void testOutputOfDeadTxGetsSpendableAgain() throws Exception {
+        Address address1 = wallet.freshReceiveAddress();
+        Address address2 = wallet.freshReceiveAddress();
+        Transaction receiveTx1 = receive(Coin.COIN, address1);
+        Transaction receiveTx2 = receive(Coin.CENT, address2);
+
+        Transaction spendTx = spend(receiveTx1.getOutput(0), receiveTx2.getOutput(0));
+        assertEquals(Coin.ZERO, index.getBalance(address1));
+        assertEquals(Coin.ZERO, index.getBalance(address2));
+
+        // A confirmed tx double spends the output of receiveTx2, so bitcoinj kills spendTx and its inputs get
+        // disconnected before it turns DEAD.
+        Transaction doubleSpendTx = new Transaction(params);
+        doubleSpendTx.addInput(receiveTx2.getOutput(0));
+        doubleSpendTx.addOutput(Coin.CENT, foreignAddress);
+        BlockStore blockStore = new MemoryBlockStore(params);
+        FakeTxBuilder.BlockPair blockPair = FakeTxBuilder.createFakeBlock(blockStore, 1, doubleSpendTx);
+        wallet.receiveFromBlock(doubleSpendTx, blockPair.storedBlock, AbstractBlockChain.NewBlockType.BEST_CHAIN, 0);
+
+        assertEquals(TransactionConfidence.ConfidenceType.DEAD, spendTx.getConfidence().getConfidenceType());
+        assertEquals(Coin.COIN, index.getBalance(address1));
+        assertEquals(Coin.ZERO, index.getBalance(address2));
+        assertTrue(index.getAffectedAddresses(spendTx).contains(address1));
+    }
+
+    @Test
+    public void testAttachRebuildsFromWallet() {
+        Address address = wallet.freshReceiveAddress();
+        Transaction receiveTx = receive(Coin.COIN, address);
+        spend(receiveTx.getOutput(0));
+        receive(Coin.CENT, address);
+
+        AddressOutputIndex newIndex = new AddressOutputIndex();
+        newIndex.attach(wallet);
+        assertEquals(index.getBalance(address), newIndex.getBalance(address));
+        assertEquals(2, newIndex.getNumOutputs(address));
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private Transaction receive(Coin value, Address address) {
+        Transaction tx = FakeTxBuilder.createFakeTx(params, value, address);
+        wallet.receivePending(tx, null);
+        return tx;
+    }
+
+    private Transaction spend(TransactionOutput... outputs) {
+        Transaction tx = new Transaction(params);
+        Coin value = Coin.ZERO;
+        for (TransactionOutput output : outputs) {
+            tx.addInput(output);
+            value = value.add(output.getValue());
+        }
+        tx.addOutput(value, foreignAddress);
+        wallet.commitTx(tx);
+        return tx;
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.core.dao.blockchain.json;
+
+import com.google.common.collect.ImmutableList;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import io.bisq.common.storage.FileUtil;
+import io.bisq.core.dao.blockchain.btcd.PubKeyScript;
+import io.bisq.core.dao.blockchain.btcd.ScriptType;
+import io.bisq.core.dao.blockchain.parse.BsqBlockChain;
+import io.bisq.core.dao.blockchain.vo.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class JsonBlockChainExporterTest {
+    private final List<BsqBlock> blocks = new ArrayList<>();
+    private File storageDir;
+    private BsqBlockChain bsqBlockChain;
+
+    @Before
+    public void setUp() throws IOException {
+        storageDir = Files.createTempDirectory("JsonBlockChainExporterTest").toFile();
+        bsqBlockChain = mock(BsqBlockChain.class);
+        when(bsqBlockChain.getClone()).thenReturn(bsqBlockChain);
+        when(bsqBlockChain.getBlocksFrom(anyInt())).thenAnswer(invocation -> {
+            int fromHeight = invocation.getArgument(0);
+            return blocks.stream().filter(block -> block.getHeight() >= fromHeight).collect(Collectors.toList());
+        });
+        when(bsqBlockChain.findBlock(anyInt())).thenAnswer(invocation -> {
+            int height = invocation.getArgument(0);
+            return blocks.stream().filter(block -> block.getHeight() == height).findAny();
+        });
+        when(bsqBlockChain.findTx(anyString())).thenReturn(Optional.empty());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtil.deleteDirectory(storageDir);
+    }
+
+    @Test
+    public void testResumeAfterRestart() throws Exception {
+        addBlocks(0, 5, "a");
+        export(createExporter());
+        assertEquals(asList(0, 1, 2, 3, 4), getExportedHeights());
+
+        // Restart with new blocks, only those get appended
+        addBlocks(5, 8, "a");
+        JsonBlockChainExporter exporter = createExporter();
+        assertTrue(new File(storageDir, "tx/tx-2-a.json").exists());
+        export(exporter);
+        assertEquals(asList(0, 1, 2, 3, 4, 5, 6, 7), getExportedHeights());
+        assertTrue(new File(storageDir, "tx/tx-7-a.json").exists());
+        assertTrue(new File(storageDir, "txo/tx-7-a:0.json").exists());
+
+        // Nothing new, nothing gets appended
+        export(exporter);
+        assertEquals(asList(0, 1, 2, 3, 4, 5, 6, 7), getExportedHeights());
+    }
+
+    @Test
+    public void testPartialBatchIsTruncatedAfterCrash() throws Exception {
+        addBlocks(0, 3, "a");
+        export(createExporter());
+
+        // Same as if we got killed after appending a block but before writing the checkpoint
+        File blocksStreamFile = getBlocksStreamFile();
+        long length = blocksStreamFile.length();
+        Files.write(blocksStreamFile.toPath(), "{\"height\":3,\"hash\":\"hash-3-a\"".getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.APPEND);
+        assertTrue(blocksStreamFile.length() > length);
+
+        addBlocks(3, 5, "a");
+        JsonBlockChainExporter exporter = createExporter();
+        assertEquals(length, blocksStreamFile.length());
+        export(exporter);
+        assertEquals(asList(0, 1, 2, 3, 4), getExportedHeights());
+    }
+
+    @Test
+    public void testShortBlocksStreamLeadsToFullExport() throws Exception {
+        addBlocks(0, 3, "a");
+        export(createExporter());
+
+        try (RandomAccessFile file = new RandomAccessFile(getBlocksStreamFile(), "rw")) {
+            file.setLength(file.length() - 10);
+        }
+
+        export(createExporter());
+        assertEquals(asList(0, 1, 2), getExportedHeights());
+    }
+
+    @Test
+    public void testReorgBelowCheckpointLeadsToFullExport() throws Exception {
+        addBlocks(0, 5, "a");
+        export(createExporter());
+
+        // Blocks from height 3 got replaced, so the checkpoint at height 4 is not in our chain anymore
+        blocks.removeIf(block -> block.getHeight() >= 3);
+        addBlocks(3, 6, "b");
+        export(createExporter());
+
+        assertEquals(asList(0, 1, 2, 3, 4, 5), getExportedHeights());
+        assertEquals("hash-4-b", readBlockLines().get(4).get("hash").getAsString());
+        // The files of the orphaned txs got deleted with the full export
+        assertFalse(new File(storageDir, "tx/tx-4-a.json").exists());
+        assertTrue(new File(storageDir, "tx/tx-4-b.json").exists());
+    }
+
+    @Test
+    public void testReorgAtRuntime() throws Exception {
+        addBlocks(0, 3, "a");
+        JsonBlockChainExporter exporter = createExporter();
+        export(exporter);
+
+        blocks.removeIf(block -> block.getHeight() >= 2);
+        addBlocks(2, 4, "b");
+        export(exporter);
+
+        assertEquals(asList(0, 1, 2, 3), getExportedHeights());
+        assertEquals("hash-2-b", readBlockLines().get(2).get("hash").getAsString());
+    }
+
+    @Test
+    public void testWithoutIncrementalModeFilesAreDeletedAtStart() throws Exception {
+        addBlocks(0, 3, "a");
+        export(createExporter());
+
+        new JsonBlockChainExporter(bsqBlockChain, storageDir, true, false);
+        assertFalse(getBlocksStreamFile().exists());
+    }
+
+    private JsonBlockChainExporter createExporter() {
+        return new JsonBlockChainExporter(bsqBlockChain, storageDir, true, true);
+    }
+
+    private static void export(JsonBlockChainExporter exporter) throws Exception {
+        exporter.maybeExport().get(10, TimeUnit.SECONDS);
+    }
+
+    private void addBlocks(int fromHeight, int toHeight, String branch) {
+        for (int height = fromHeight; height < toHeight; height++) {
+            String hash = "hash-" + height + "-" + branch;
+            String previousHash = height > 0 ? blocks.get(height - 1).getHash() : "";
+            String txId = "tx-" + height + "-" + branch;
+            TxOutput txOutput = new TxOutput(0, 1000, txId,
+                    new PubKeyScript(1, ScriptType.PUB_KEY_HASH, ImmutableList.of("address"), "asm", "hex"),
+                    "address", null, height);
+            Tx tx = new Tx(new TxVo(txId, height, hash, height * 600L), new ArrayList<>(), asList(txOutput));
+            tx.setTxType(TxType.UNDEFINED_TX_TYPE);
+            blocks.add(new BsqBlock(height, hash, previousHash, asList(tx)));
+        }
+    }
+
+    private File getBlocksStreamFile() {
+        return new File(storageDir, "all/blocks.jsonl");
+    }
+
+    private List<JsonObject> readBlockLines() throws IOException {
+        JsonParser parser = new JsonParser();
+        return Files.readAllLines(getBlocksStreamFile().toPath(), StandardCharsets.UTF_8).stream()
+                .map(line -> parser.parse(line).getAsJsonObject())
+                .collect(Collectors.toList());
+    }
+
+    private List<Integer> getExportedHeights() throws IOException {
+        return readBlockLines().stream()
+                .map(block -> block.get("height").getAsInt())
+                .collect(Collectors.toList());
+    }
+}
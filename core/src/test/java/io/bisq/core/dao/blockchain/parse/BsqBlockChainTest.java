@@ -17,8 +17,14 @@
 
 package io.bisq.core.dao.blockchain.parse;
 
+import io.bisq.core.dao.blockchain.exceptions.BlockNotConnectingException;
+import io.bisq.core.dao.blockchain.vo.*;
 import org.junit.Test;
 
+import java.io.File;
+import java.util.ArrayList;
+
+import static java.util.Arrays.asList;
 import static org.junit.Assert.*;
 
 public class BsqBlockChainTest {
@@ -52,4 +58,64 @@ public class BsqBlockChainTest {
         assertFalse(BsqBlockChain.isSnapshotHeight(102, 201, 10));
         assertFalse(BsqBlockChain.isSnapshotHeight(102, 199, 10));
     }
+
+    @Test
+    public void testCloneIsNotAffectedBySpending() throws BlockNotConnectingException {
+        BsqBlockChain bsqBlockChain = new BsqBlockChain(null, new File("."), "genesis", 10);
+        Tx genesisTx = new Tx(new TxVo("genesis", 10, "hash10", 0),
+                new ArrayList<>(),
+                asList(new TxOutput(0, 100, "genesis", null, "address1", null, 10)));
+        TxOutput genesisOutput = genesisTx.getOutputs().get(0);
+        genesisOutput.setVerified(true);
+        genesisOutput.setUnspent(true);
+        bsqBlockChain.addUnspentTxOutput(genesisOutput);
+        bsqBlockChain.setGenesisTx(genesisTx);
+        bsqBlockChain.addTxToMap(genesisTx);
+        bsqBlockChain.addBlock(new BsqBlock(10, "hash10", "hash9", asList(genesisTx)));
+
+        BsqBlockChain clone = bsqBlockChain.getClone();
+
+        TxOutput spentTxOutput = bsqBlockChain.spendTxOutput(bsqBlockChain.getSpendableTxOutput("genesis", 0).get(),
+                new SpentInfo(11, "tx11", 0));
+        Tx tx11 = new Tx(new TxVo("tx11", 11, "hash11", 0),
+                asList(new TxInput("genesis", 0)),
+                asList(new TxOutput(0, 90, "tx11", null, "address2", null, 11)));
+        TxOutput tx11Output = tx11.getOutputs().get(0);
+        tx11Output.setVerified(true);
+        tx11Output.setUnspent(true);
+        tx11Output.setTxOutputType(TxOutputType.BSQ_OUTPUT);
+        bsqBlockChain.addUnspentTxOutput(tx11Output);
+        tx11.setBurntFee(10);
+        bsqBlockChain.addTxToMap(tx11);
+        BsqBlock block11 = new BsqBlock(11, "hash11", "hash10", asList(tx11));
+        bsqBlockChain.addBlock(block11);
+
+        // The shared genesis tx got copied before it was changed
+        assertNotSame(genesisOutput, spentTxOutput);
+        assertTrue(genesisOutput.isUnspent());
+        assertNull(genesisOutput.getSpentInfo());
+        assertFalse(spentTxOutput.isUnspent());
+        assertSame(bsqBlockChain.getGenesisTx(), bsqBlockChain.getTxMap().get("genesis"));
+        assertSame(genesisTx, clone.getGenesisTx());
+
+        assertFalse(bsqBlockChain.isTxOutputSpendable("genesis", 0));
+        assertTrue(clone.isTxOutputSpendable("genesis", 0));
+        assertEquals(2, bsqBlockChain.getTxMap().size());
+        assertEquals(1, clone.getTxMap().size());
+        assertTrue(bsqBlockChain.containsBlock(block11));
+        assertFalse(clone.containsBlock(block11));
+
+        assertEquals(1, bsqBlockChain.getSpentTxOutputs().size());
+        assertTrue(clone.getSpentTxOutputs().isEmpty());
+        assertEquals(1, bsqBlockChain.getUnspentTxOutputs().size());
+        assertEquals(1, bsqBlockChain.getTxOutputsByType(TxOutputType.BSQ_OUTPUT).size());
+        assertEquals(10, bsqBlockChain.getTotalBurntFee().value);
+        assertEquals(1, bsqBlockChain.getFeeTransactions().size());
+        assertEquals(0, clone.getTotalBurntFee().value);
+
+        // Resetted blocks are copies
+        BsqBlock resettedBlock = bsqBlockChain.getResettedBlocksFrom(11).get(0);
+        assertFalse(resettedBlock.getTxs().get(0).getOutputs().get(0).isVerified());
+        assertTrue(tx11Output.isVerified());
+    }
 }
@@ -19,9 +19,11 @@ import java.io.File;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.Optional;
 
 import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -64,6 +66,10 @@ public class BsqParserTest {
         // 2) - 100, null   -> BSQ transaction
         // 3) - 0, 100      -> BSQ transaction
         new Expectations(bsqBlockChain) {{
+            // Let the parser look up the inputs
+            bsqBlockChain.containsUnspentTxOutput((TxIdIndexTuple) any);
+            result = true;
+
             bsqBlockChain.getSpendableTxOutput(new TxIdIndexTuple("tx1", 0));
             result = Optional.empty();
             result = Optional.of(new TxOutput(0, 100, "txout1", null, null, null, height));
@@ -177,4 +183,23 @@ public class BsqParserTest {
         assertTrue(bsqBlockChain.isTxOutputSpendable(bsqTx1Id, 0));
         assertTrue(bsqBlockChain.isTxOutputSpendable(bsqTx1Id, 1));
     }
+
+    @Test
+    public void testGetTxsInDependencyOrder() {
+        // tx1 spends tx3 and tx2, tx3 spends tx2, tx4 and tx2 have no inputs from the same block
+        Tx tx1 = createTx("tx1", asList(new TxInput("tx3", 0), new TxInput("tx2", 1)));
+        Tx tx2 = createTx("tx2", asList(new TxInput("oldTx", 0)));
+        Tx tx3 = createTx("tx3", asList(new TxInput("tx2", 0)));
+        Tx tx4 = createTx("tx4", asList(new TxInput("oldTx", 1)));
+
+        assertEquals(asList(tx2, tx4, tx3, tx1), BsqParser.getTxsInDependencyOrder(asList(tx1, tx2, tx3, tx4), 201));
+        // Already sorted txs keep their order
+        assertEquals(asList(tx2, tx4, tx3, tx1), BsqParser.getTxsInDependencyOrder(asList(tx2, tx4, tx3, tx1), 201));
+    }
+
+    private static Tx createTx(String txId, List<TxInput> inputs) {
+        return new Tx(new TxVo(txId, 201, "blockhash201", new Date().getTime()),
+                inputs,
+                asList(new TxOutput(0, 100, txId, null, null, null, 201)));
+    }
 }
@@ -0,0 +1,101 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.core.dao.blockchain.parse;
+
+import io.bisq.core.dao.blockchain.exceptions.BlockNotConnectingException;
+import io.bisq.core.dao.blockchain.vo.*;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BsqSnapshotTest {
+    private BsqBlockChain bsqBlockChain;
+
+    @Before
+    public void setUp() throws BlockNotConnectingException {
+        bsqBlockChain = new BsqBlockChain(null, new File("."), "genesis", 10);
+        Tx genesisTx = new Tx(new TxVo("genesis", 10, "hash10", 0),
+                new ArrayList<>(),
+                asList(new TxOutput(0, 100, "genesis", null, "address1", null, 10)));
+        TxOutput genesisOutput = genesisTx.getOutputs().get(0);
+        genesisOutput.setVerified(true);
+        genesisOutput.setUnspent(true);
+        bsqBlockChain.addUnspentTxOutput(genesisOutput);
+        bsqBlockChain.setGenesisTx(genesisTx);
+        bsqBlockChain.addTxToMap(genesisTx);
+        bsqBlockChain.addBlock(new BsqBlock(10, "hash10", "hash9", asList(genesisTx)));
+        bsqBlockChain.addBlock(new BsqBlock(11, "hash11", "hash10", new ArrayList<>()));
+    }
+
+    @Test
+    public void testTransferInChunks() {
+        BsqSnapshot bsqSnapshot = BsqSnapshot.fromBsqBlockChain(bsqBlockChain.getClone());
+        assertEquals(11, bsqSnapshot.getHeight());
+        assertEquals("hash11", bsqSnapshot.getBlockHash());
+        assertEquals(1, bsqSnapshot.getNumChunks());
+
+        byte[] bytes = bsqSnapshot.getChunk(0);
+        int half = bytes.length / 2;
+        BsqSnapshot received = BsqSnapshot.fromChunks(bsqSnapshot.getVersion(),
+                bsqSnapshot.getHeight(),
+                bsqSnapshot.getBlockHash(),
+                bsqSnapshot.getHash(),
+                asList(Arrays.copyOfRange(bytes, 0, half), Arrays.copyOfRange(bytes, half, bytes.length)));
+
+        BsqBlockChain snapshot = received.toBsqBlockChain("genesis", 10);
+        assertEquals(11, snapshot.getChainHeadHeight());
+        assertEquals(2, snapshot.getBlocksFrom(0).size());
+        assertTrue(snapshot.isTxOutputSpendable("genesis", 0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCorruptedSnapshotIsRejected() {
+        BsqSnapshot bsqSnapshot = BsqSnapshot.fromBsqBlockChain(bsqBlockChain.getClone());
+        byte[] bytes = bsqSnapshot.getChunk(0);
+        bytes[bytes.length / 2] ^= 1;
+        BsqSnapshot.fromChunks(bsqSnapshot.getVersion(),
+                bsqSnapshot.getHeight(),
+                bsqSnapshot.getBlockHash(),
+                bsqSnapshot.getHash(),
+                asList(bytes))
+                .toBsqBlockChain("genesis", 10);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSnapshotOfOtherGenesisIsRejected() {
+        BsqSnapshot.fromBsqBlockChain(bsqBlockChain.getClone()).toBsqBlockChain("otherGenesis", 10);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWrongHeadIsRejected() {
+        BsqSnapshot bsqSnapshot = BsqSnapshot.fromBsqBlockChain(bsqBlockChain.getClone());
+        BsqSnapshot.fromChunks(bsqSnapshot.getVersion(),
+                bsqSnapshot.getHeight(),
+                "otherHash",
+                bsqSnapshot.getHash(),
+                asList(bsqSnapshot.getChunk(0)))
+                .toBsqBlockChain("genesis", 10);
+    }
+}
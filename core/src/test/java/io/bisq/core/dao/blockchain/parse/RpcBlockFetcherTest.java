@@ -0,0 +1,121 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.core.dao.blockchain.parse;
+
+import com.neemre.btcdcli4j.core.domain.Block;
+import io.bisq.core.dao.blockchain.exceptions.BsqBlockchainException;
+import io.bisq.core.dao.blockchain.vo.Tx;
+import io.bisq.core.dao.blockchain.vo.TxVo;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.*;
+
+public class RpcBlockFetcherTest {
+    private FakeRpcService rpcService;
+    private RpcBlockFetcher blockFetcher;
+
+    @Before
+    public void setup() {
+        rpcService = new FakeRpcService();
+        blockFetcher = new RpcBlockFetcher(rpcService, 3, 4, false, new HashMap<>());
+    }
+
+    @After
+    public void tearDown() {
+        blockFetcher.shutDown();
+    }
+
+    @Test
+    public void testBlocksAreDeliveredInOrder() throws BsqBlockchainException {
+        for (int height = 0; height < 20; height++) {
+            RpcBlockFetcher.FetchedBlock fetchedBlock = blockFetcher.getBlock(height, 19);
+            assertEquals(height, fetchedBlock.getBlock().getHeight().intValue());
+            // The txs are requested concurrently with random delays but must keep the order of the block
+            assertEquals(fetchedBlock.getBlock().getTx(),
+                    fetchedBlock.getTxs().stream().map(Tx::getId).collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    public void testFetchAheadIsLimited() throws BsqBlockchainException {
+        blockFetcher.getBlock(10, 100);
+        assertTrue(rpcService.requestedBlocks.stream().allMatch(height -> height >= 10 && height < 13));
+
+        blockFetcher.getBlock(11, 100);
+        assertTrue(rpcService.requestedBlocks.stream().allMatch(height -> height >= 10 && height < 14));
+    }
+
+    @Test
+    public void testFetchAheadStopsAtChainHead() throws BsqBlockchainException {
+        blockFetcher.getBlock(10, 10);
+        assertEquals(Collections.singleton(10), rpcService.requestedBlocks);
+    }
+
+    @Test(expected = BsqBlockchainException.class)
+    public void testFailedTxRequest() throws BsqBlockchainException {
+        rpcService.failingTxId = "tx-2-1";
+        blockFetcher.getBlock(1, 10);
+        blockFetcher.getBlock(2, 10);
+    }
+
+    // Simulates bitcoind with some latency
+    private static class FakeRpcService extends RpcService {
+        private final Set<Integer> requestedBlocks = ConcurrentHashMap.newKeySet();
+        private final Random random = new Random();
+        private volatile String failingTxId;
+
+        FakeRpcService() {
+            super("user", "password", "8332", "5159", false);
+        }
+
+        @Override
+        Block requestBlock(int blockHeight) {
+            requestedBlocks.add(blockHeight);
+            sleep(5);
+            List<String> txIds = IntStream.range(0, 10)
+                    .mapToObj(index -> "tx-" + blockHeight + "-" + index)
+                    .collect(Collectors.toList());
+            return new Block("hash" + blockHeight, 10, 10, blockHeight, 2, "root", txIds, 0L, 1234L, "bits",
+                    BigDecimal.ONE, "chainwork", "hash" + (blockHeight - 1), "hash" + (blockHeight + 1));
+        }
+
+        @Override
+        Tx requestTx(String txId, int blockHeight) throws BsqBlockchainException {
+            sleep(random.nextInt(5));
+            if (txId.equals(failingTxId))
+                throw new BsqBlockchainException("Request failed");
+            return new Tx(new TxVo(txId, blockHeight, "hash" + blockHeight, 0), new ArrayList<>(), new ArrayList<>());
+        }
+
+        private static void sleep(long ms) {
+            try {
+                Thread.sleep(ms);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
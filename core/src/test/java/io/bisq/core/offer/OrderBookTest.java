@@ -0,0 +1,121 @@
+package io.bisq.core.offer;
+
+import io.bisq.common.monetary.Price;
+import io.bisq.core.provider.price.MarketPrice;
+import io.bisq.core.provider.price.PriceFeedService;
+import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.SimpleIntegerProperty;
+import org.bitcoinj.core.Coin;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static io.bisq.core.offer.OfferPayload.Direction.BUY;
+import static io.bisq.core.offer.OfferPayload.Direction.SELL;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest(OfferPayload.class)
+public class OrderBookTest {
+    private PriceFeedService priceFeedService;
+    private IntegerProperty updateCounter;
+    private OrderBook orderBook;
+
+    @Before
+    public void setUp() {
+        priceFeedService = mock(PriceFeedService.class);
+        updateCounter = new SimpleIntegerProperty(0);
+        when(priceFeedService.updateCounterProperty()).thenReturn(updateCounter);
+        orderBook = new OrderBook(priceFeedService);
+    }
+
+    @Test
+    public void testBestOfferBySide() {
+        orderBook.add(createPayload("buy1", BUY, 30000000, 1000), priceFeedService);
+        orderBook.add(createPayload("buy2", BUY, 31000000, 2000), priceFeedService);
+        orderBook.add(createPayload("sell1", SELL, 32000000, 3000), priceFeedService);
+        orderBook.add(createPayload("sell2", SELL, 33000000, 4000), priceFeedService);
+
+        // Highest BUY and lowest SELL price is best
+        assertEquals("buy2", orderBook.getBestOffer("EUR", BUY).get().getId());
+        assertEquals("sell1", orderBook.getBestOffer("EUR", SELL).get().getId());
+        assertEquals("buy2,buy1", toIds(orderBook.getOffers("EUR", BUY)));
+        assertEquals("sell1,sell2", toIds(orderBook.getOffers("EUR", SELL)));
+        assertFalse(orderBook.getBestOffer("USD", BUY).isPresent());
+    }
+
+    @Test
+    public void testDepth() {
+        orderBook.add(createPayload("sell1", SELL, 32000000, 3000), priceFeedService);
+        orderBook.add(createPayload("sell2", SELL, 33000000, 4000), priceFeedService);
+        orderBook.add(createPayload("sell3", SELL, 34000000, 5000), priceFeedService);
+
+        assertEquals(Coin.valueOf(7000), orderBook.getDepth("EUR", SELL, Price.valueOf("EUR", 33000000)));
+        assertEquals(Coin.ZERO, orderBook.getDepth("EUR", SELL, Price.valueOf("EUR", 31000000)));
+    }
+
+    @Test
+    public void testAddSamePayloadReturnsSameOffer() {
+        OfferPayload payload = createPayload("buy1", BUY, 30000000, 1000);
+        Offer offer = orderBook.add(payload, priceFeedService);
+        assertSame(offer, orderBook.add(payload, priceFeedService));
+        assertEquals(1, orderBook.size());
+
+        assertSame(offer, orderBook.remove(payload));
+        assertEquals(0, orderBook.size());
+        assertNull(orderBook.remove(payload));
+        assertTrue(orderBook.getCurrencyCodes().isEmpty());
+    }
+
+    @Test
+    public void testMarketBasedOffersGetRepricedAtPriceUpdate() {
+        OfferPayload fixed = createPayload("fixed", BUY, 30000000, 1000);
+        OfferPayload marketBased = createPayload("market", BUY, 0, 1000);
+        when(marketBased.isUseMarketBasedPrice()).thenReturn(true);
+        when(marketBased.getMarketPriceMargin()).thenReturn(0.01);
+
+        orderBook.add(fixed, priceFeedService);
+        orderBook.add(marketBased, priceFeedService);
+
+        // No market price yet, so the market based offer is not in the sorted offers
+        assertEquals("fixed", toIds(orderBook.getOffers("EUR", BUY)));
+        assertEquals(2, orderBook.getOffers("EUR").size());
+
+        // 3100 EUR with a margin of 1% is 3069 EUR
+        setMarketPrice(3100);
+        assertEquals("market,fixed", toIds(orderBook.getOffers("EUR", BUY)));
+
+        // 2900 EUR with a margin of 1% is 2871 EUR
+        setMarketPrice(2900);
+        assertEquals("fixed,market", toIds(orderBook.getOffers("EUR", BUY)));
+    }
+
+    private void setMarketPrice(double price) {
+        when(priceFeedService.getMarketPrice("EUR"))
+                .thenReturn(new MarketPrice("EUR", price, Instant.now().getEpochSecond(), true));
+        updateCounter.set(updateCounter.get() + 1);
+    }
+
+    private static OfferPayload createPayload(String id, OfferPayload.Direction direction, long price, long amount) {
+        OfferPayload payload = mock(OfferPayload.class);
+        when(payload.getId()).thenReturn(id);
+        when(payload.getDirection()).thenReturn(direction);
+        when(payload.getBaseCurrencyCode()).thenReturn("BTC");
+        when(payload.getCounterCurrencyCode()).thenReturn("EUR");
+        when(payload.getPrice()).thenReturn(price);
+        when(payload.getAmount()).thenReturn(amount);
+        return payload;
+    }
+
+    private static String toIds(List<Offer> offers) {
+        return offers.stream().map(Offer::getId).collect(Collectors.joining(","));
+    }
+}
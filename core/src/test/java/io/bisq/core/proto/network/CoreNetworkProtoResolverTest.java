@@ -0,0 +1,57 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.core.proto.network;
+
+import io.bisq.common.proto.network.NetworkEnvelope;
+import io.bisq.generated.protobuffer.PB;
+import io.bisq.network.p2p.ExtendedDataSizePermission;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+
+public class CoreNetworkProtoResolverTest {
+    @Test
+    public void testAllMessageCasesHaveAnEnvelopeClass() {
+        Set<PB.NetworkEnvelope.MessageCase> expected = EnumSet.allOf(PB.NetworkEnvelope.MessageCase.class);
+        expected.remove(PB.NetworkEnvelope.MessageCase.MESSAGE_NOT_SET);
+
+        assertEquals(expected, new CoreNetworkProtoResolver().getEnvelopeClassByMessageCase().keySet());
+    }
+
+    @Test
+    public void testExtendedDataSizeMessageCases() {
+        Map<PB.NetworkEnvelope.MessageCase, Class<? extends NetworkEnvelope>> map =
+                new CoreNetworkProtoResolver().getEnvelopeClassByMessageCase();
+        Set<PB.NetworkEnvelope.MessageCase> extended = map.entrySet().stream()
+                .filter(e -> ExtendedDataSizePermission.class.isAssignableFrom(e.getValue()))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toSet());
+
+        assertEquals(EnumSet.copyOf(Arrays.asList(PB.NetworkEnvelope.MessageCase.PRELIMINARY_GET_DATA_REQUEST,
+                PB.NetworkEnvelope.MessageCase.GET_UPDATED_DATA_REQUEST,
+                PB.NetworkEnvelope.MessageCase.GET_DATA_RESPONSE,
+                PB.NetworkEnvelope.MessageCase.GET_BSQ_BLOCKS_RESPONSE,
+                PB.NetworkEnvelope.MessageCase.GET_BSQ_SNAPSHOT_RESPONSE)), extended);
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.core.trade.statistics;
+
+import io.bisq.core.offer.OfferPayload;
+import io.bisq.core.provider.price.PriceFeedService;
+import io.bisq.network.p2p.P2PService;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class TradeStatisticsManagerTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private PriceFeedService priceFeedService;
+    private TradeStatisticsManager manager;
+
+    @Before
+    public void setUp() throws IOException {
+        priceFeedService = mock(PriceFeedService.class);
+        manager = new TradeStatisticsManager(mock(P2PService.class), priceFeedService, temporaryFolder.newFolder(), false, false);
+    }
+
+    @Test
+    public void testDedupeByOfferId() {
+        // Maker and taker both publish the statistics of a trade, with a different deposit tx id if one of them
+        // did not have it yet
+        manager.addToMap(createTradeStatistics("LTC", "offer1", 1000, "tx1"), false);
+        manager.addToMap(createTradeStatistics("LTC", "offer1", 1000, ""), false);
+        manager.addToMap(createTradeStatistics("LTC", "offer1", 1000, "tx1"), false);
+        assertEquals(1, manager.getObservableTradeStatisticsSet().size());
+
+        manager.addToMap(createTradeStatistics("LTC", "offer2", 1000, "tx2"), false);
+        assertEquals(2, manager.getObservableTradeStatisticsSet().size());
+    }
+
+    @Test
+    public void testLatestPerCurrency() {
+        TradeStatistics2 ltc1 = createTradeStatistics("LTC", "offer1", 2000, "tx1");
+        TradeStatistics2 ltc2 = createTradeStatistics("LTC", "offer2", 1000, "tx2");
+        TradeStatistics2 eth1 = createTradeStatistics("ETH", "offer3", 1500, "tx3");
+        manager.addToMap(ltc1, false);
+        manager.addToMap(ltc2, false);
+        manager.addToMap(eth1, false);
+
+        // An older trade does not replace the latest one
+        assertSame(ltc1, manager.getLatestTradeStatisticsByCurrency().get("LTC"));
+        assertSame(eth1, manager.getLatestTradeStatisticsByCurrency().get("ETH"));
+        assertEquals(2, manager.getLatestTradeStatisticsByCurrency().size());
+        verify(priceFeedService, never()).applyLatestBisqMarketPrice(any());
+
+        // Only a new latest trade of a locally added item gets applied to the price feed
+        TradeStatistics2 ltc3 = createTradeStatistics("LTC", "offer4", 500, "tx4");
+        manager.addToMap(ltc3, true);
+        verify(priceFeedService, never()).applyLatestBisqMarketPrice(any());
+
+        TradeStatistics2 ltc4 = createTradeStatistics("LTC", "offer5", 3000, "tx5");
+        manager.addToMap(ltc4, true);
+        assertSame(ltc4, manager.getLatestTradeStatisticsByCurrency().get("LTC"));
+        verify(priceFeedService).applyLatestBisqMarketPrice(Collections.singleton(ltc4));
+    }
+
+    private static TradeStatistics2 createTradeStatistics(String currencyCode, String offerId, long tradeDate,
+                                                          String depositTxId) {
+        return new TradeStatistics2(OfferPayload.Direction.BUY,
+                currencyCode,
+                "BTC",
+                "BLOCK_CHAINS",
+                tradeDate - 100,
+                false,
+                0,
+                100_000,
+                100_000,
+                offerId,
+                1_000_000,
+                100_000,
+                tradeDate,
+                depositTxId,
+                null,
+                null);
+    }
+}
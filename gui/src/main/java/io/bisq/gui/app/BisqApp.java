@@ -34,6 +34,7 @@ import io.bisq.common.handlers.ResultHandler;
 import io.bisq.common.locale.CurrencyUtil;
 import io.bisq.common.locale.Res;
 import io.bisq.common.proto.persistable.PersistedDataHost;
+import io.bisq.common.proto.persistable.PersistedDataHostLoader;
 import io.bisq.common.storage.Storage;
 import io.bisq.common.util.Profiler;
 import io.bisq.common.util.Utilities;
@@ -96,6 +97,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 import static io.bisq.gui.util.Layout.INITIAL_SCENE_HEIGHT;
 import static io.bisq.gui.util.Layout.INITIAL_SCENE_WIDTH;
@@ -129,6 +131,8 @@ public class BisqApp extends Application {
         log.info("Log files under: " + logPath);
         Utilities.printSysInfo();
         Log.setLevel(Level.toLevel(bisqEnvironment.getRequiredProperty(CommonOptionKeys.LOG_LEVEL_KEY)));
+        Log.setMessageSampleRates(bisqEnvironment.getProperty(CommonOptionKeys.LOG_MESSAGE_SAMPLE_RATES_KEY, ""));
+        Log.setPayloadLoggingEnabled(bisqEnvironment.getProperty(CommonOptionKeys.LOG_MESSAGE_PAYLOADS_KEY, Boolean.class, false));
 
         UserThread.setExecutor(Platform::runLater);
         UserThread.setTimerClass(UITimer.class);
@@ -175,7 +179,9 @@ public class BisqApp extends Application {
                 Capabilities.Capability.TRADE_STATISTICS.ordinal(),
                 Capabilities.Capability.TRADE_STATISTICS_2.ordinal(),
                 Capabilities.Capability.ACCOUNT_AGE_WITNESS.ordinal(),
-                Capabilities.Capability.COMP_REQUEST.ordinal()
+                Capabilities.Capability.COMP_REQUEST.ordinal(),
+                Capabilities.Capability.DELTA_SYNC.ordinal(),
+                Capabilities.Capability.CHUNKED_GET_DATA.ordinal()
         )));
     }
 
@@ -190,32 +196,26 @@ public class BisqApp extends Application {
             injector = Guice.createInjector(bisqAppModule);
             injector.getInstance(InjectorViewFactory.class).setInjector(injector);
 
-            // All classes which are persisting objects need to be added here
-            // Maintain order!
-            ArrayList<PersistedDataHost> persistedDataHosts = new ArrayList<>();
+            // All classes which are persisting objects need to be added here.
+            // The other hosts might use the locale and currency settings applied when reading the preferences, so
+            // they depend on the preferences. Apart from that they are independent and get read concurrently.
             final Preferences preferences = injector.getInstance(Preferences.class);
-            persistedDataHosts.add(preferences);
-            persistedDataHosts.add(injector.getInstance(User.class));
-            persistedDataHosts.add(injector.getInstance(Navigation.class));
-            persistedDataHosts.add(injector.getInstance(AddressEntryList.class));
-            persistedDataHosts.add(injector.getInstance(OpenOfferManager.class));
-            persistedDataHosts.add(injector.getInstance(TradeManager.class));
-            persistedDataHosts.add(injector.getInstance(ClosedTradableManager.class));
-            persistedDataHosts.add(injector.getInstance(FailedTradesManager.class));
-            persistedDataHosts.add(injector.getInstance(DisputeManager.class));
-            persistedDataHosts.add(injector.getInstance(P2PService.class));
-            persistedDataHosts.add(injector.getInstance(VotingManager.class));
-            persistedDataHosts.add(injector.getInstance(CompensationRequestManager.class));
+            PersistedDataHostLoader loader = new PersistedDataHostLoader().add(preferences);
+            Stream.<PersistedDataHost>of(injector.getInstance(User.class),
+                    injector.getInstance(Navigation.class),
+                    injector.getInstance(AddressEntryList.class),
+                    injector.getInstance(OpenOfferManager.class),
+                    injector.getInstance(TradeManager.class),
+                    injector.getInstance(ClosedTradableManager.class),
+                    injector.getInstance(FailedTradesManager.class),
+                    injector.getInstance(DisputeManager.class),
+                    injector.getInstance(P2PService.class),
+                    injector.getInstance(VotingManager.class),
+                    injector.getInstance(CompensationRequestManager.class))
+                    .forEach(host -> loader.add(host, preferences));
 
             // we apply at startup the reading of persisted data but don't want to get it triggered in the constructor
-            persistedDataHosts.forEach(e -> {
-                try {
-                    log.debug("call readPersisted at " + e.getClass().getSimpleName());
-                    e.readPersisted();
-                } catch (Throwable e1) {
-                    log.error("readPersisted error", e1);
-                }
-            });
+            loader.readAll();
 
             boolean useDevMode = injector.getInstance(Key.get(Boolean.class, Names.named(AppOptionKeys.USE_DEV_MODE)));
             DevEnv.setDevMode(useDevMode);
@@ -426,6 +426,12 @@ public class MainViewModel implements ViewModel {
                 bootstrapState.set(Res.get("mainView.bootstrapState.hiddenServicePublished"));
             }
 
+            @Override
+            public void onDataChunkReceived(int numReceivedDataItems) {
+                if (!initialP2PNetworkDataReceived.get())
+                    bootstrapState.set(Res.get("mainView.bootstrapState.receivingData", numReceivedDataItems));
+            }
+
             @Override
             public void onDataReceived() {
                 log.debug("onRequestingDataCompleted");
@@ -51,6 +51,8 @@ public class Monitor {
         String logPath = Paths.get(environment.getProperty(AppOptionKeys.APP_DATA_DIR_KEY), "bisq").toString();
         Log.setup(logPath);
         Log.setLevel(Level.toLevel(environment.getRequiredProperty(CommonOptionKeys.LOG_LEVEL_KEY)));
+        Log.setMessageSampleRates(environment.getProperty(CommonOptionKeys.LOG_MESSAGE_SAMPLE_RATES_KEY, ""));
+        Log.setPayloadLoggingEnabled(environment.getProperty(CommonOptionKeys.LOG_MESSAGE_PAYLOADS_KEY, Boolean.class, false));
 
         log.info("Log files under: " + logPath);
         log.info("SeedNodeMonitor.VERSION: " + Monitor.VERSION);
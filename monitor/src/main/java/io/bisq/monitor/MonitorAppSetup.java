@@ -20,6 +20,7 @@ package io.bisq.monitor;
 import io.bisq.common.app.Version;
 import io.bisq.common.crypto.KeyRing;
 import io.bisq.common.proto.persistable.PersistedDataHost;
+import io.bisq.common.proto.persistable.PersistedDataHostLoader;
 import io.bisq.core.app.BisqEnvironment;
 import io.bisq.core.app.SetupUtils;
 import io.bisq.core.btc.wallet.WalletsSetup;
@@ -72,14 +73,9 @@ public class MonitorAppSetup {
         persistedDataHosts.add(peerManager);
 
         // we apply at startup the reading of persisted data but don't want to get it triggered in the constructor
-        persistedDataHosts.forEach(e -> {
-            try {
-                log.info("call readPersisted at " + e.getClass().getSimpleName());
-                e.readPersisted();
-            } catch (Throwable e1) {
-                log.error("readPersisted error", e1);
-            }
-        });
+        PersistedDataHostLoader loader = new PersistedDataHostLoader();
+        persistedDataHosts.forEach(loader::add);
+        loader.readAll();
     }
 
     protected void initBasicServices() {
@@ -24,6 +24,7 @@ import io.bisq.network.NetworkOptionKeys;
 import io.bisq.network.Socks5ProxyProvider;
 import io.bisq.network.p2p.NetworkNodeProvider;
 import io.bisq.network.p2p.P2PService;
+import io.bisq.network.p2p.network.Connection;
 import io.bisq.network.p2p.network.NetworkNode;
 import io.bisq.network.p2p.peers.BanList;
 import io.bisq.network.p2p.peers.Broadcaster;
@@ -75,6 +76,10 @@ public class MonitorP2PModule extends AppModule {
         Integer maxConnections = environment.getProperty(NetworkOptionKeys.MAX_CONNECTIONS, int.class, P2PService.MAX_CONNECTIONS_DEFAULT);
         bind(int.class).annotatedWith(Names.named(NetworkOptionKeys.MAX_CONNECTIONS)).toInstance(maxConnections);
 
+        Integer maxOutboundMsgPerSec = environment.getProperty(NetworkOptionKeys.MAX_OUTBOUND_MSG_PER_SEC, int.class, Connection.MAX_OUTBOUND_MSG_PER_SEC_DEFAULT);
+        bind(int.class).annotatedWith(Names.named(NetworkOptionKeys.MAX_OUTBOUND_MSG_PER_SEC)).toInstance(maxOutboundMsgPerSec);
+        bindConstant().annotatedWith(named(NetworkOptionKeys.MSG_RATE_LIMITS)).to(environment.getProperty(NetworkOptionKeys.MSG_RATE_LIMITS, ""));
+
         Integer networkId = environment.getProperty(NetworkOptionKeys.NETWORK_ID, int.class, 1);
         bind(int.class).annotatedWith(Names.named(NetworkOptionKeys.NETWORK_ID)).toInstance(networkId);
         bindConstant().annotatedWith(named(NetworkOptionKeys.SEED_NODES_KEY)).to(environment.getRequiredProperty(NetworkOptionKeys.SEED_NODES_KEY));
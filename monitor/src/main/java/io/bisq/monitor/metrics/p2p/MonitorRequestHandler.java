@@ -89,7 +89,7 @@ class MonitorRequestHandler implements MessageListener {
                     .map(e -> e.getKey().bytes)
                     .collect(Collectors.toSet());
 
-            GetDataRequest getDataRequest = new PreliminaryGetDataRequest(nonce, excludedKeys);
+            GetDataRequest getDataRequest = new PreliminaryGetDataRequest(nonce, excludedKeys, null);
             metrics.setLastDataRequestTs(System.currentTimeMillis());
 
             if (timeoutTimer != null) {
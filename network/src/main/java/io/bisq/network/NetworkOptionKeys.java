@@ -12,6 +12,8 @@ public class NetworkOptionKeys {
     //SOCKS_5_PROXY_BTC_ADDRESS used in network module so dont move it to BtcOptionKeys
     public static final String SOCKS_5_PROXY_BTC_ADDRESS = "socks5ProxyBtcAddress";
     public static final String SOCKS_5_PROXY_HTTP_ADDRESS = "socks5ProxyHttpAddress";
+    public static final String MAX_OUTBOUND_MSG_PER_SEC = "maxOutboundMsgPerSec";
+    public static final String MSG_RATE_LIMITS = "msgRateLimits";
 
 
 }
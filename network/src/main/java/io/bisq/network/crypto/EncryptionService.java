@@ -27,6 +27,7 @@ import lombok.extern.slf4j.Slf4j;
 
 import javax.crypto.SecretKey;
 import javax.inject.Inject;
+import java.nio.ByteBuffer;
 import java.security.KeyPair;
 import java.security.PrivateKey;
 import java.security.PublicKey;
@@ -63,8 +64,11 @@ public class EncryptionService {
             throw new CryptoException("Signature verification failed.");
 
         try {
-            final byte[] bytes = Encryption.decryptPayloadWithHmac(sealedAndSigned.getEncryptedPayloadWithHmac(), secretKey);
-            final PB.NetworkEnvelope envelope = PB.NetworkEnvelope.parseFrom(bytes);
+            // We parse straight from the decrypted array to avoid copying the payload
+            final ByteBuffer payload = Encryption.decryptPayloadWithHmac(
+                    ByteBuffer.wrap(sealedAndSigned.getEncryptedPayloadWithHmac()), secretKey);
+            final PB.NetworkEnvelope envelope = PB.NetworkEnvelope.parser().parseFrom(payload.array(),
+                    payload.arrayOffset() + payload.position(), payload.remaining());
             NetworkEnvelope decryptedPayload = networkProtoResolver.fromProto(envelope);
             return new DecryptedDataTuple(decryptedPayload, sealedAndSigned.getSigPublicKey());
         } catch (InvalidProtocolBufferException e) {
@@ -1,5 +1,7 @@
 package io.bisq.network.p2p;
 
 // Market interface for messages with higher allowed data size
+// The size is checked before the message is parsed. Connection derives the message cases with the higher limit from
+// the envelope classes of the NetworkProtoResolver.
 public interface ExtendedDataSizePermission {
 }
@@ -0,0 +1,221 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.network.p2p;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.*;
+import com.google.inject.name.Named;
+import io.bisq.common.UserThread;
+import io.bisq.common.crypto.CryptoException;
+import io.bisq.common.storage.SegmentedLogStore;
+import io.bisq.common.storage.Storage;
+import io.bisq.network.crypto.EncryptionService;
+import io.bisq.network.p2p.storage.P2PDataStorage.ByteArray;
+import io.bisq.network.p2p.storage.payload.ProtectedMailboxStorageEntry;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import java.io.File;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * Tries to decrypt the mailbox entries which carry our addressPrefixHash. As the addressPrefixHash is derived from
+ * only the first 2 characters of the onion address, most of those entries are addressed to other nodes, and each try
+ * costs an RSA unwrap and a DSA verify. The tries run on a small worker pool, so the UserThread and the startup are
+ * not blocked.
+ * <p/>
+ * The hashes of entries which failed to decrypt are appended to a SegmentedLogStore, so we don't try them again
+ * after a restart. Hashes of entries which got removed or expired from the storage map are pruned. Once the pruned
+ * records make up half of the store, the store gets rewritten with the remaining hashes.
+ */
+@Slf4j
+public class MailboxMessageDecryptor {
+    private static final String FAILED_ENTRIES_STORE_NAME = "FailedMailboxEntriesLog";
+    // RSA operations are CPU heavy, we leave the remaining cores to the UserThread and the network threads
+    private static final int NUM_THREADS = Math.max(1, Math.min(2, Runtime.getRuntime().availableProcessors() / 2));
+
+    private final EncryptionService encryptionService;
+    private final File storageDir;
+    private final ListeningExecutorService executor;
+
+    // Written at readPersisted and from the UserThread
+    private final Set<ByteArray> failedEntries = ConcurrentHashMap.newKeySet();
+    // Only accessed from the UserThread
+    private final Set<ByteArray> pendingEntries = new HashSet<>();
+    @Nullable
+    private SegmentedLogStore failedEntriesStore;
+    // Records in the store whose hashes got pruned. Only accessed from the UserThread
+    private int numStaleRecords;
+
+    private final LongAdder numDecrypted = new LongAdder();
+    private final LongAdder numFailed = new LongAdder();
+    private final LongAdder numSkipped = new LongAdder();
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    @Inject
+    public MailboxMessageDecryptor(EncryptionService encryptionService, @Named(Storage.STORAGE_DIR) File storageDir) {
+        this(encryptionService, storageDir, MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(NUM_THREADS,
+                new ThreadFactoryBuilder()
+                        .setNameFormat("MailboxMessageDecryptor-%d")
+                        .setDaemon(true)
+                        .setPriority(Thread.MIN_PRIORITY)
+                        .build())));
+    }
+
+    @VisibleForTesting
+    MailboxMessageDecryptor(EncryptionService encryptionService, File storageDir, ListeningExecutorService executor) {
+        this.encryptionService = encryptionService;
+        this.storageDir = storageDir;
+        this.executor = executor;
+    }
+
+    public void readPersisted() {
+        File dir = new File(storageDir, FAILED_ENTRIES_STORE_NAME);
+        failedEntriesStore = new SegmentedLogStore(dir);
+        failedEntriesStore.read(buffer -> {
+            byte[] hash = new byte[buffer.remaining()];
+            buffer.get(hash);
+            failedEntries.add(new ByteArray(hash));
+        });
+        log.info("Read {} failed mailbox entries", failedEntries.size());
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Must be called from the UserThread. Entries which failed before or which are in progress are skipped.
+     *
+     * @param entries       The mailbox entries by the hash of their payload
+     * @param resultHandler Called at the UserThread for each entry which we could decrypt
+     */
+    public void decrypt(Map<ByteArray, ProtectedMailboxStorageEntry> entries,
+                        BiConsumer<ProtectedMailboxStorageEntry, DecryptedMessageWithPubKey> resultHandler) {
+        entries.forEach((hashOfPayload, entry) -> {
+            if (failedEntries.contains(hashOfPayload) || pendingEntries.contains(hashOfPayload)) {
+                numSkipped.increment();
+                return;
+            }
+
+            pendingEntries.add(hashOfPayload);
+            ListenableFuture<DecryptedMessageWithPubKey> future = executor.submit(() ->
+                    encryptionService.decryptAndVerify(entry.getMailboxStoragePayload()
+                            .getPrefixedSealedAndSignedMessage().getSealedAndSigned()));
+            Futures.addCallback(future, new FutureCallback<DecryptedMessageWithPubKey>() {
+                @Override
+                public void onSuccess(DecryptedMessageWithPubKey decryptedMessageWithPubKey) {
+                    UserThread.execute(() -> {
+                        pendingEntries.remove(hashOfPayload);
+                        numDecrypted.increment();
+                        resultHandler.accept(entry, decryptedMessageWithPubKey);
+                    });
+                }
+
+                @Override
+                public void onFailure(@NotNull Throwable throwable) {
+                    UserThread.execute(() -> {
+                        pendingEntries.remove(hashOfPayload);
+                        if (throwable instanceof CryptoException) {
+                            log.debug("Decryption of mailbox entry failed. " +
+                                    "That is expected if the message is not intended for us. " + throwable.toString());
+                            numFailed.increment();
+                            if (failedEntries.add(hashOfPayload) && failedEntriesStore != null)
+                                failedEntriesStore.append(hashOfPayload.bytes);
+                        } else {
+                            // Might be caused by the resolver. We don't persist that so we try again at the next start.
+                            log.error("Unexpected exception at decryption of mailbox entry. " + throwable.toString());
+                        }
+                    });
+                }
+            });
+        });
+    }
+
+    /**
+     * Must be called from the UserThread. Prunes the failed entries which are not in the storage map anymore.
+     *
+     * @param storedHashes The hashes of all stored mailbox entries with our addressPrefixHash
+     */
+    public void retainFailedEntries(Set<ByteArray> storedHashes) {
+        int sizeBefore = failedEntries.size();
+        failedEntries.retainAll(storedHashes);
+        int numPruned = sizeBefore - failedEntries.size();
+        if (numPruned > 0) {
+            log.info("Pruned {} failed mailbox entries which are not stored anymore", numPruned);
+            numStaleRecords += numPruned;
+            maybeRewriteStore();
+        }
+    }
+
+    /**
+     * Must be called from the UserThread when a mailbox entry got removed or expired from the storage map.
+     */
+    public void onEntryRemoved(ByteArray hashOfPayload) {
+        if (failedEntries.remove(hashOfPayload)) {
+            numStaleRecords++;
+            maybeRewriteStore();
+        }
+    }
+
+    public String getStatistics() {
+        return "Mailbox decryption statistics: decrypted=" + numDecrypted.sum() +
+                ", failed=" + numFailed.sum() +
+                ", skipped=" + numSkipped.sum() +
+                ", pending=" + pendingEntries.size();
+    }
+
+    public void shutDown() {
+        executor.shutdownNow();
+        if (failedEntriesStore != null)
+            failedEntriesStore.shutDown();
+    }
+
+    @VisibleForTesting
+    boolean isFailedEntry(ByteArray hashOfPayload) {
+        return failedEntries.contains(hashOfPayload);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private void maybeRewriteStore() {
+        if (failedEntriesStore != null && numStaleRecords >= failedEntries.size()) {
+            failedEntriesStore.replaceAll(failedEntries.stream()
+                    .map(hash -> hash.bytes)
+                    .collect(Collectors.toList()));
+            numStaleRecords = 0;
+        }
+    }
+}
@@ -21,10 +21,7 @@ import com.google.inject.Provider;
 import com.google.inject.name.Named;
 import io.bisq.common.proto.network.NetworkProtoResolver;
 import io.bisq.network.NetworkOptionKeys;
-import io.bisq.network.p2p.network.BridgeAddressProvider;
-import io.bisq.network.p2p.network.LocalhostNetworkNode;
-import io.bisq.network.p2p.network.NetworkNode;
-import io.bisq.network.p2p.network.TorNetworkNode;
+import io.bisq.network.p2p.network.*;
 
 import javax.inject.Inject;
 import java.io.File;
@@ -39,7 +36,12 @@ public class NetworkNodeProvider implements Provider<NetworkNode> {
                                @Named(NetworkOptionKeys.USE_LOCALHOST_FOR_P2P) boolean useLocalhostForP2P,
                                @Named(NetworkOptionKeys.MY_ADDRESS) String address,
                                @Named(NetworkOptionKeys.PORT_KEY) int port,
-                               @Named(NetworkOptionKeys.TOR_DIR) File torDir) {
+                               @Named(NetworkOptionKeys.TOR_DIR) File torDir,
+                               @Named(NetworkOptionKeys.MAX_OUTBOUND_MSG_PER_SEC) int maxOutboundMsgPerSec,
+                               @Named(NetworkOptionKeys.MSG_RATE_LIMITS) String msgRateLimits) {
+        Connection.setMaxOutboundMsgPerSec(maxOutboundMsgPerSec);
+        MessageRateLimiter.setRates(msgRateLimits);
+
         networkNode = useLocalhostForP2P ?
                 new LocalhostNetworkNode(address, port, networkProtoResolver) :
                 new TorNetworkNode(port, torDir, networkProtoResolver, bridgeAddressProvider);
@@ -22,6 +22,7 @@ import com.google.inject.name.Names;
 import io.bisq.common.app.AppModule;
 import io.bisq.network.NetworkOptionKeys;
 import io.bisq.network.Socks5ProxyProvider;
+import io.bisq.network.p2p.network.Connection;
 import io.bisq.network.p2p.network.NetworkNode;
 import io.bisq.network.p2p.peers.BanList;
 import io.bisq.network.p2p.peers.Broadcaster;
@@ -48,6 +49,7 @@ public class P2PModule extends AppModule {
         bind(P2PService.class).in(Singleton.class);
         bind(PeerManager.class).in(Singleton.class);
         bind(P2PDataStorage.class).in(Singleton.class);
+        bind(MailboxMessageDecryptor.class).in(Singleton.class);
         bind(RequestDataManager.class).in(Singleton.class);
         bind(PeerExchangeManager.class).in(Singleton.class);
         bind(KeepAliveManager.class).in(Singleton.class);
@@ -70,6 +72,10 @@ public class P2PModule extends AppModule {
         Integer maxConnections = environment.getProperty(NetworkOptionKeys.MAX_CONNECTIONS, int.class, P2PService.MAX_CONNECTIONS_DEFAULT);
         bind(int.class).annotatedWith(Names.named(NetworkOptionKeys.MAX_CONNECTIONS)).toInstance(maxConnections);
 
+        Integer maxOutboundMsgPerSec = environment.getProperty(NetworkOptionKeys.MAX_OUTBOUND_MSG_PER_SEC, int.class, Connection.MAX_OUTBOUND_MSG_PER_SEC_DEFAULT);
+        bind(int.class).annotatedWith(Names.named(NetworkOptionKeys.MAX_OUTBOUND_MSG_PER_SEC)).toInstance(maxOutboundMsgPerSec);
+        bindConstant().annotatedWith(named(NetworkOptionKeys.MSG_RATE_LIMITS)).to(environment.getProperty(NetworkOptionKeys.MSG_RATE_LIMITS, ""));
+
         Integer networkId = environment.getProperty(NetworkOptionKeys.NETWORK_ID, int.class, 1);
         bind(int.class).annotatedWith(Names.named(NetworkOptionKeys.NETWORK_ID)).toInstance(networkId);
         bindConstant().annotatedWith(named(NetworkOptionKeys.SEED_NODES_KEY)).to(environment.getRequiredProperty(NetworkOptionKeys.SEED_NODES_KEY));
@@ -17,7 +17,6 @@ import io.bisq.network.Socks5ProxyProvider;
 import io.bisq.network.crypto.EncryptionService;
 import io.bisq.network.p2p.messaging.DecryptedMailboxListener;
 import io.bisq.network.p2p.network.*;
-import io.bisq.network.p2p.peers.BroadcastHandler;
 import io.bisq.network.p2p.peers.Broadcaster;
 import io.bisq.network.p2p.peers.PeerManager;
 import io.bisq.network.p2p.peers.getdata.RequestDataManager;
@@ -55,6 +54,7 @@ public class P2PService implements SetupListener, MessageListener, ConnectionLis
 
     private final SeedNodesRepository seedNodesRepository;
     private final EncryptionService encryptionService;
+    private final MailboxMessageDecryptor mailboxMessageDecryptor;
     private final KeyRing keyRing;
 
     private final NetworkNode networkNode;
@@ -75,6 +75,8 @@ public class P2PService implements SetupListener, MessageListener, ConnectionLis
     private final BooleanProperty hiddenServicePublished = new SimpleBooleanProperty();
     private final BooleanProperty preliminaryDataReceived = new SimpleBooleanProperty();
     private final IntegerProperty numConnectedPeers = new SimpleIntegerProperty(0);
+    // Number of data items we have received and applied from our data requests, updated with each chunk
+    private final IntegerProperty numReceivedDataItems = new SimpleIntegerProperty(0);
 
     private volatile boolean shutDownInProgress;
     private boolean shutDownComplete;
@@ -100,6 +102,7 @@ public class P2PService implements SetupListener, MessageListener, ConnectionLis
                       SeedNodesRepository seedNodesRepository,
                       Socks5ProxyProvider socks5ProxyProvider,
                       EncryptionService encryptionService,
+                      MailboxMessageDecryptor mailboxMessageDecryptor,
                       KeyRing keyRing) {
         this.networkNode = networkNode;
         this.peerManager = peerManager;
@@ -111,6 +114,7 @@ public class P2PService implements SetupListener, MessageListener, ConnectionLis
         this.seedNodesRepository = seedNodesRepository;
         this.socks5ProxyProvider = socks5ProxyProvider;
         this.encryptionService = encryptionService;
+        this.mailboxMessageDecryptor = mailboxMessageDecryptor;
         this.keyRing = keyRing;
 
         this.networkNode.addConnectionListener(this);
@@ -132,6 +136,7 @@ public class P2PService implements SetupListener, MessageListener, ConnectionLis
     public void readPersisted() {
         p2PDataStorage.readPersisted();
         peerManager.readPersisted();
+        mailboxMessageDecryptor.readPersisted();
     }
 
 
@@ -150,19 +155,12 @@ public class P2PService implements SetupListener, MessageListener, ConnectionLis
     public void onAllServicesInitialized() {
         Log.traceCall();
         if (networkNode.getNodeAddress() != null) {
-            p2PDataStorage.getMap().values().stream().forEach(protectedStorageEntry -> {
-                if (protectedStorageEntry instanceof ProtectedMailboxStorageEntry)
-                    processProtectedMailboxStorageEntry((ProtectedMailboxStorageEntry) protectedStorageEntry);
-            });
+            processMailboxEntries();
         } else {
             // If our HS is still not published
             networkNode.nodeAddressProperty().addListener((observable, oldValue, newValue) -> {
-                if (newValue != null) {
-                    p2PDataStorage.getMap().values().stream().forEach(protectedStorageEntry -> {
-                        if (protectedStorageEntry instanceof ProtectedMailboxStorageEntry)
-                            processProtectedMailboxStorageEntry((ProtectedMailboxStorageEntry) protectedStorageEntry);
-                    });
-                }
+                if (newValue != null)
+                    processMailboxEntries();
             });
         }
     }
@@ -177,6 +175,9 @@ public class P2PService implements SetupListener, MessageListener, ConnectionLis
             if (p2PDataStorage != null)
                 p2PDataStorage.shutDown();
 
+            if (mailboxMessageDecryptor != null)
+                mailboxMessageDecryptor.shutDown();
+
             if (peerManager != null)
                 peerManager.shutDown();
 
@@ -296,6 +297,12 @@ public class P2PService implements SetupListener, MessageListener, ConnectionLis
     // RequestDataManager.Listener implementation
     ///////////////////////////////////////////////////////////////////////////////////////////
 
+    @Override
+    public void onDataChunkApplied(int numItems) {
+        numReceivedDataItems.set(numReceivedDataItems.get() + numItems);
+        p2pServiceListeners.stream().forEach(e -> e.onDataChunkReceived(numReceivedDataItems.get()));
+    }
+
     @Override
     public void onPreliminaryDataReceived() {
         checkArgument(!preliminaryDataReceived.get(), "preliminaryDataReceived was already set before.");
@@ -359,7 +366,7 @@ public class P2PService implements SetupListener, MessageListener, ConnectionLis
     @Override
     public void onMessage(NetworkEnvelope networkEnvelop, Connection connection) {
         if (networkEnvelop instanceof PrefixedSealedAndSignedMessage) {
-            Log.traceCall("\n\t" + networkEnvelop.toString() + "\n\tconnection=" + connection);
+            Log.traceCall(() -> "\n\t" + networkEnvelop.toString() + "\n\tconnection=" + connection);
             // Seed nodes don't have set the encryptionService
             try {
                 PrefixedSealedAndSignedMessage prefixedSealedAndSignedMessage = (PrefixedSealedAndSignedMessage) networkEnvelop;
@@ -405,6 +412,11 @@ public class P2PService implements SetupListener, MessageListener, ConnectionLis
 
     @Override
     public void onRemoved(ProtectedStorageEntry data) {
+        // Called for removed and for expired entries
+        if (data instanceof ProtectedMailboxStorageEntry) {
+            MailboxStoragePayload mailboxStoragePayload = ((ProtectedMailboxStorageEntry) data).getMailboxStoragePayload();
+            mailboxMessageDecryptor.onEntryRemoved(new P2PDataStorage.ByteArray(P2PDataStorage.getHash(mailboxStoragePayload)));
+        }
     }
 
 
@@ -464,47 +476,70 @@ public class P2PService implements SetupListener, MessageListener, ConnectionLis
     // MailboxMessages
     ///////////////////////////////////////////////////////////////////////////////////////////
 
+    // Decrypts all mailbox entries which carry our addressPrefixHash
+    private void processMailboxEntries() {
+        final NodeAddress nodeAddress = networkNode.getNodeAddress();
+        // Seed nodes don't receive mailbox network_messages
+        if (nodeAddress != null && !seedNodesRepository.isSeedNode(nodeAddress)) {
+            Map<P2PDataStorage.ByteArray, ProtectedMailboxStorageEntry> entries =
+                    p2PDataStorage.getMailboxEntries(nodeAddress.getAddressPrefixHash());
+            // The storage map is not persisted, so only after we received the data from the seed nodes we know
+            // which of the failed entries are not stored anymore
+            if (isBootstrapped)
+                mailboxMessageDecryptor.retainFailedEntries(entries.keySet());
+
+            log.info("We try to decrypt {} mailbox entries with our addressPrefixHash", entries.size());
+            mailboxMessageDecryptor.decrypt(entries, this::onMailboxEntryDecrypted);
+        }
+    }
+
     private void processProtectedMailboxStorageEntry(ProtectedMailboxStorageEntry protectedMailboxStorageEntry) {
         Log.traceCall();
         final NodeAddress nodeAddress = networkNode.getNodeAddress();
         // Seed nodes don't receive mailbox network_messages
         if (nodeAddress != null && !seedNodesRepository.isSeedNode(nodeAddress)) {
-            Log.traceCall();
             MailboxStoragePayload mailboxStoragePayload = protectedMailboxStorageEntry.getMailboxStoragePayload();
             PrefixedSealedAndSignedMessage prefixedSealedAndSignedMessage = mailboxStoragePayload.getPrefixedSealedAndSignedMessage();
             if (verifyAddressPrefixHash(prefixedSealedAndSignedMessage)) {
-                try {
-                    DecryptedMessageWithPubKey decryptedMessageWithPubKey = encryptionService.decryptAndVerify(
-                            prefixedSealedAndSignedMessage.getSealedAndSigned());
-                    if (decryptedMessageWithPubKey.getNetworkEnvelope() instanceof MailboxMessage) {
-                        MailboxMessage mailboxMessage = (MailboxMessage) decryptedMessageWithPubKey.getNetworkEnvelope();
-                        NodeAddress senderNodeAddress = mailboxMessage.getSenderNodeAddress();
-                        checkNotNull(senderNodeAddress, "senderAddress must not be null for mailbox network_messages");
-
-                        mailboxMap.put(mailboxMessage.getUid(), protectedMailboxStorageEntry);
-                        log.trace("Decryption of SealedAndSignedMessage succeeded. senderAddress="
-                                + senderNodeAddress + " / my address=" + getAddress());
-                        decryptedMailboxListeners.stream().forEach(
-                                e -> e.onMailboxMessageAdded(decryptedMessageWithPubKey, senderNodeAddress));
-                    } else {
-                        log.warn("tryDecryptMailboxData: Expected MailboxMessage but got other type. " +
-                                "decryptedMsgWithPubKey.message=", decryptedMessageWithPubKey.getNetworkEnvelope());
-                    }
-                } catch (CryptoException e) {
-                    log.debug(e.toString());
-                    log.debug("Decryption of prefixedSealedAndSignedMessage.sealedAndSigned failed. " +
-                            "That is expected if the message is not intended for us.");
-                }
+                P2PDataStorage.ByteArray hashOfPayload = new P2PDataStorage.ByteArray(P2PDataStorage.getHash(mailboxStoragePayload));
+                mailboxMessageDecryptor.decrypt(Collections.singletonMap(hashOfPayload, protectedMailboxStorageEntry),
+                        this::onMailboxEntryDecrypted);
             } else {
                 log.debug("Wrong blurredAddressHash. The message is not intended for us.");
             }
         }
     }
 
+    private void onMailboxEntryDecrypted(ProtectedMailboxStorageEntry protectedMailboxStorageEntry,
+                                         DecryptedMessageWithPubKey decryptedMessageWithPubKey) {
+        // The entry might have been removed while we decrypted it
+        P2PDataStorage.ByteArray hashOfPayload = new P2PDataStorage.ByteArray(
+                P2PDataStorage.getHash(protectedMailboxStorageEntry.getMailboxStoragePayload()));
+        if (!p2PDataStorage.getMap().containsKey(hashOfPayload)) {
+            log.debug("Mailbox entry was removed before decryption completed.");
+            return;
+        }
+
+        if (decryptedMessageWithPubKey.getNetworkEnvelope() instanceof MailboxMessage) {
+            MailboxMessage mailboxMessage = (MailboxMessage) decryptedMessageWithPubKey.getNetworkEnvelope();
+            NodeAddress senderNodeAddress = mailboxMessage.getSenderNodeAddress();
+            checkNotNull(senderNodeAddress, "senderAddress must not be null for mailbox network_messages");
+
+            mailboxMap.put(mailboxMessage.getUid(), protectedMailboxStorageEntry);
+            log.trace("Decryption of SealedAndSignedMessage succeeded. senderAddress={} / my address={}",
+                    senderNodeAddress, getAddress());
+            decryptedMailboxListeners.stream().forEach(
+                    e -> e.onMailboxMessageAdded(decryptedMessageWithPubKey, senderNodeAddress));
+        } else {
+            log.warn("tryDecryptMailboxData: Expected MailboxMessage but got other type. " +
+                    "decryptedMsgWithPubKey.message={}", decryptedMessageWithPubKey.getNetworkEnvelope());
+        }
+    }
+
     public void sendEncryptedMailboxMessage(NodeAddress peersNodeAddress, PubKeyRing peersPubKeyRing,
                                             NetworkEnvelope message,
                                             SendMailboxMessageListener sendMailboxMessageListener) {
-        Log.traceCall("message " + message);
+        Log.traceCall(() -> "message " + message);
         checkNotNull(peersNodeAddress,
                 "PeerAddress must not be null (sendEncryptedMailboxMessage)");
         checkNotNull(networkNode.getNodeAddress(),
@@ -570,7 +605,7 @@ public class P2PService implements SetupListener, MessageListener, ConnectionLis
                             keyRing.getSignatureKeyPair(),
                             receiversPublicKey);
 
-                    BroadcastHandler.Listener listener = new BroadcastHandler.Listener() {
+                    Broadcaster.Listener listener = new Broadcaster.Listener() {
                         @Override
                         public void onBroadcasted(BroadcastMessage message, int numOfCompletedBroadcasts) {
                         }
@@ -606,7 +641,7 @@ public class P2PService implements SetupListener, MessageListener, ConnectionLis
                         @Override
                         public void onBroadcastFailed(String errorMessage) {
                             // TODO investigate why not sending sendMailboxMessageListener.onFault. Related probably
-                            // to the logic from BroadcastHandler.sendToPeer
+                            // to the logic from Broadcaster.sendToPeer
                         }
                     };
                     boolean result = p2PDataStorage.addProtectedStorageEntry(protectedMailboxStorageEntry, networkNode.getNodeAddress(), listener, true);
@@ -783,6 +818,10 @@ public class P2PService implements SetupListener, MessageListener, ConnectionLis
         return numConnectedPeers;
     }
 
+    public ReadOnlyIntegerProperty getNumReceivedDataItems() {
+        return numReceivedDataItems;
+    }
+
     public Map<P2PDataStorage.ByteArray, ProtectedStorageEntry> getDataMap() {
         return p2PDataStorage.getMap();
     }
@@ -12,4 +12,8 @@ public interface P2PServiceListener extends SetupListener {
     void onNoPeersAvailable();
 
     void onUpdatedDataReceived();
+
+    // Called for each chunk of a chunked GetDataResponse we have applied while requesting the initial data
+    default void onDataChunkReceived(int numReceivedDataItems) {
+    }
 }
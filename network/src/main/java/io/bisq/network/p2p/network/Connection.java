@@ -1,6 +1,8 @@
 package io.bisq.network.p2p.network;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.common.util.concurrent.Uninterruptibles;
 import io.bisq.common.UserThread;
 import io.bisq.common.app.Capabilities;
@@ -8,7 +10,6 @@ import io.bisq.common.app.Log;
 import io.bisq.common.app.Version;
 import io.bisq.common.proto.network.NetworkEnvelope;
 import io.bisq.common.proto.network.NetworkProtoResolver;
-import io.bisq.common.util.Tuple2;
 import io.bisq.common.util.Utilities;
 import io.bisq.generated.protobuffer.PB;
 import io.bisq.network.p2p.*;
@@ -36,12 +37,9 @@ import java.io.*;
 import java.net.Socket;
 import java.net.SocketException;
 import java.net.SocketTimeoutException;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
-import java.util.UUID;
+import java.nio.channels.SocketChannel;
+import java.util.*;
 import java.util.concurrent.*;
-import java.util.stream.Collectors;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -75,12 +73,66 @@ public class Connection implements MessageListener {
     //TODO decrease limits again after testing
     static final int MSG_THROTTLE_PER_SEC = 200;              // With MAX_MSG_SIZE of 200kb results in bandwidth of 40MB/sec or 5 mbit/sec
     static final int MSG_THROTTLE_PER_10_SEC = 1000;          // With MAX_MSG_SIZE of 200kb results in bandwidth of 20MB/sec or 2.5 mbit/sec
+    // Default outbound rate per connection. Stays below the MSG_THROTTLE limits of the peer: 100 + 80 msg within
+    // 1 sec and 100 + 800 msg within 10 sec.
+    public static final int MAX_OUTBOUND_MSG_PER_SEC_DEFAULT = 80;
+    static final int OUTBOUND_MSG_BURST = 100;
+    // If a peer does not keep up with our messages we close the connection instead of buffering without limit
+    static final int MAX_OUTBOUND_QUEUE_SIZE = 5000;
     private static final int SOCKET_TIMEOUT = (int) TimeUnit.SECONDS.toMillis(120);
 
+    private static volatile int maxOutboundMsgPerSec = MAX_OUTBOUND_MSG_PER_SEC_DEFAULT;
+
+    private static final int NUM_OUTBOUND_WRITE_THREADS = 4;
+
+    // Message cases of the envelopes which implement ExtendedDataSizePermission
+    private static final Set<PB.NetworkEnvelope.MessageCase> extendedDataSizeMessageCases = ConcurrentHashMap.newKeySet();
+    @Nullable
+    private static volatile NetworkProtoResolver registeredNetworkProtoResolver;
+
+    // Only schedules the writes of queued messages. The writes run at the outboundWriteExecutor.
+    private static final ScheduledThreadPoolExecutor outboundScheduler = Utilities.getScheduledThreadPoolExecutor(
+            "Connection.outboundScheduler", 1, 1, 60);
+    // Shared by all connections for the writes of queued messages. A connection has at most one write scheduled at a
+    // time, so the order of its messages is kept. The queue is unbounded, as a rejected write would stall the
+    // connection. The threads time out when there are no queued messages.
+    private static final ThreadPoolExecutor outboundWriteExecutor = new ThreadPoolExecutor(NUM_OUTBOUND_WRITE_THREADS,
+            NUM_OUTBOUND_WRITE_THREADS, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+            new ThreadFactoryBuilder().setNameFormat("Connection.outboundWriter-%d").setDaemon(true).build());
+
+    static {
+        outboundWriteExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    // Applies to connections created after the call
+    public static void setMaxOutboundMsgPerSec(int maxOutboundMsgPerSec) {
+        checkArgument(maxOutboundMsgPerSec > 0, "maxOutboundMsgPerSec must be > 0");
+        Connection.maxOutboundMsgPerSec = maxOutboundMsgPerSec;
+    }
+
     public static int getPermittedMessageSize() {
         return PERMITTED_MESSAGE_SIZE;
     }
 
+    // The messages which implement ExtendedDataSizePermission have the higher limit. We check the size at the frame
+    // level before we parse the message, so we use the message case.
+    static int getPermittedMessageSize(PB.NetworkEnvelope.MessageCase messageCase) {
+        return extendedDataSizeMessageCases.contains(messageCase) ? MAX_PERMITTED_MESSAGE_SIZE : PERMITTED_MESSAGE_SIZE;
+    }
+
+    // Derives the message cases with the higher limit from the envelope classes of the resolver
+    @VisibleForTesting
+    static void registerEnvelopeClasses(NetworkProtoResolver networkProtoResolver) {
+        if (networkProtoResolver == registeredNetworkProtoResolver)
+            return;
+
+        networkProtoResolver.getEnvelopeClassByMessageCase().forEach((messageCase, envelopeClass) -> {
+            if (ExtendedDataSizePermission.class.isAssignableFrom(envelopeClass))
+                extendedDataSizeMessageCases.add(messageCase);
+        });
+        registeredNetworkProtoResolver = networkProtoResolver;
+    }
+
     ///////////////////////////////////////////////////////////////////////////////////////////
     // Class fields
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -97,16 +149,32 @@ public class Connection implements MessageListener {
 
     // set in init
     private InputHandler inputHandler;
+    // Either protoOutputStream (blocking socket) or nioTransport (channel backed socket) is set
+    @Nullable
     private SynchronizedProtoOutputStream protoOutputStream;
+    @Nullable
+    private NioTransport nioTransport;
 
     // mutable data, set from other threads but not changed internally.
     private Optional<NodeAddress> peersNodeAddressOptional = Optional.<NodeAddress>empty();
     private volatile boolean stopped;
     private PeerType peerType;
     private final ObjectProperty<NodeAddress> peersNodeAddressProperty = new SimpleObjectProperty<>();
-    private final List<Tuple2<Long, NetworkEnvelope>> messageTimeStamps = new ArrayList<>();
+    private final MessageRateWindow inboundRateWindow = new MessageRateWindow(MSG_THROTTLE_PER_10_SEC);
+    // Only the configured message class rates apply to inbound messages
+    private final MessageRateLimiter inboundRateLimiter = new MessageRateLimiter();
+    private final MessageRateLimiter outboundRateLimiter = new MessageRateLimiter(maxOutboundMsgPerSec, OUTBOUND_MSG_BURST);
+    private final Object outboundLock = new Object();
+    // Guarded by outboundLock
+    private final Queue<NetworkEnvelope> outboundQueue = new ArrayDeque<>();
+    // Number of messages ever added to and removed from the outboundQueue. Guarded by outboundLock
+    private long numOutboundEnqueued;
+    private long numOutboundDequeued;
+    private boolean outboundWriteScheduled;
+    // Only one thread writes at a time, so the order is kept
+    private boolean writing;
+    private boolean flushOutboundQueue;
     private final CopyOnWriteArraySet<MessageListener> messageListeners = new CopyOnWriteArraySet<>();
-    private volatile long lastSendTimeStamp = 0;
 
 
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -119,6 +187,7 @@ public class Connection implements MessageListener {
         this.connectionListener = connectionListener;
         uid = UUID.randomUUID().toString();
         statistic = new Statistic();
+        registerEnvelopeClasses(networkProtoResolver);
 
         addMessageListener(messageListener);
 
@@ -135,16 +204,25 @@ public class Connection implements MessageListener {
     private void init(@Nullable NodeAddress peersNodeAddress, NetworkProtoResolver networkProtoResolver) {
         try {
             socket.setSoTimeout(SOCKET_TIMEOUT);
-            // Need to access first the ObjectOutputStream otherwise the ObjectInputStream would block
-            // See: https://stackoverflow.com/questions/5658089/java-creating-a-new-objectinputstream-blocks/5658109#5658109
-            // When you construct an ObjectInputStream, in the constructor the class attempts to read a header that
-            // the associated ObjectOutputStream on the other end of the connection has written.
-            // It will not return until that header has been read.
-            protoOutputStream = new SynchronizedProtoOutputStream(socket.getOutputStream(), statistic);
-            InputStream protoInputStream = socket.getInputStream();
-            // We create a thread for handling inputStream data
-            inputHandler = new InputHandler(sharedModel, protoInputStream, portInfo, this, networkProtoResolver);
-            singleThreadExecutor.submit(inputHandler);
+            SocketChannel socketChannel = socket.getChannel();
+            if (socketChannel != null) {
+                // Channel backed sockets are handled by the shared NIO event loops, so we don't need a thread
+                // per connection.
+                inputHandler = new InputHandler(sharedModel, null, portInfo, this, networkProtoResolver);
+                nioTransport = new NioTransport(socketChannel, inputHandler, statistic, SOCKET_TIMEOUT, MAX_PERMITTED_MESSAGE_SIZE);
+                nioTransport.start();
+            } else {
+                // Need to access first the ObjectOutputStream otherwise the ObjectInputStream would block
+                // See: https://stackoverflow.com/questions/5658089/java-creating-a-new-objectinputstream-blocks/5658109#5658109
+                // When you construct an ObjectInputStream, in the constructor the class attempts to read a header that
+                // the associated ObjectOutputStream on the other end of the connection has written.
+                // It will not return until that header has been read.
+                protoOutputStream = new SynchronizedProtoOutputStream(socket.getOutputStream(), statistic);
+                InputStream protoInputStream = socket.getInputStream();
+                // We create a thread for handling inputStream data
+                inputHandler = new InputHandler(sharedModel, protoInputStream, portInfo, this, networkProtoResolver);
+                singleThreadExecutor.submit(inputHandler);
+            }
 
             // Use Peer as default, in case of other types they will set it as soon as possible.
             peerType = PeerType.PEER;
@@ -173,56 +251,14 @@ public class Connection implements MessageListener {
 
     // Called from various threads
     public void sendMessage(NetworkEnvelope networkEnvelope) {
-        log.debug(">> Send networkEnvelope of type: " + networkEnvelope.getClass().getSimpleName());
 
         if (!stopped) {
             if (!isCapabilityRequired(networkEnvelope) || isCapabilitySupported(networkEnvelope)) {
                 try {
                     Log.traceCall();
 
-                    // Throttle outbound network_messages
-                    long now = System.currentTimeMillis();
-                    long elapsed = now - lastSendTimeStamp;
-                    if (elapsed < 20) {
-                        log.debug("We got 2 sendMessage requests in less than 20 ms. We set the thread to sleep " +
-                                        "for 50 ms to avoid flooding our peer. lastSendTimeStamp={}, now={}, elapsed={}",
-                                lastSendTimeStamp, now, elapsed);
-                        Thread.sleep(50);
-                    }
-
-                    lastSendTimeStamp = now;
-                    String peersNodeAddress = peersNodeAddressOptional.isPresent() ? peersNodeAddressOptional.get().toString() : "null";
-
-                    PB.NetworkEnvelope proto = networkEnvelope.toProtoNetworkEnvelope();
-                    log.debug("Sending message: {}", Utilities.toTruncatedString(proto.toString(), 10000));
-
-                    if (networkEnvelope instanceof Ping | networkEnvelope instanceof RefreshOfferMessage) {
-                        // pings and offer refresh msg we dont want to log in production
-                        log.trace("\n\n>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>\n" +
-                                        "Sending direct message to peer" +
-                                        "Write object to outputStream to peer: {} (uid={})\ntruncated message={} / size={}" +
-                                        "\n>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>\n",
-                                peersNodeAddress, uid, proto.toString(), proto.getSerializedSize());
-                    } else if (networkEnvelope instanceof PrefixedSealedAndSignedMessage && peersNodeAddressOptional.isPresent()) {
-                        setPeerType(Connection.PeerType.DIRECT_MSG_PEER);
-
-                        log.debug("\n\n>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>\n" +
-                                        "Sending direct message to peer" +
-                                        "Write object to outputStream to peer: {} (uid={})\ntruncated message={} / size={}" +
-                                        "\n>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>\n",
-                                peersNodeAddress, uid, Utilities.toTruncatedString(networkEnvelope), -1);
-                    } else if (networkEnvelope instanceof GetDataResponse && ((GetDataResponse) networkEnvelope).isGetUpdatedDataResponse()) {
-                        setPeerType(Connection.PeerType.PEER);
-                    } else {
-                        log.debug("\n\n>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>\n" +
-                                        "Write object to outputStream to peer: {} (uid={})\ntruncated message={} / size={}" +
-                                        "\n>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>\n",
-                                peersNodeAddress, uid, Utilities.toTruncatedString(networkEnvelope), proto.getSerializedSize());
-                    }
-
-                    if (!stopped) {
-                        protoOutputStream.writeEnvelope(networkEnvelope);
-                    }
+                    logOutboundMessage(networkEnvelope);
+                    writeOrQueue(Collections.singletonList(networkEnvelope));
                 } catch (Throwable t) {
                     handleException(t);
                 }
@@ -234,6 +270,156 @@ public class Connection implements MessageListener {
         }
     }
 
+    // Called from various threads. Writes the messages with one flush. Messages the peer does not support are skipped.
+    public void sendMessages(List<? extends NetworkEnvelope> networkEnvelopes) {
+
+        if (!stopped) {
+            List<NetworkEnvelope> supportedEnvelopes = new ArrayList<>(networkEnvelopes.size());
+            for (NetworkEnvelope networkEnvelope : networkEnvelopes) {
+                if (!isCapabilityRequired(networkEnvelope) || isCapabilitySupported(networkEnvelope))
+                    supportedEnvelopes.add(networkEnvelope);
+                else
+                    log.debug("We did not send the message because the peer does not support our required capabilities. message={}, peers supportedCapabilities={}", networkEnvelope, sharedModel.getSupportedCapabilities());
+            }
+            if (supportedEnvelopes.isEmpty())
+                return;
+
+            try {
+                supportedEnvelopes.forEach(this::logOutboundMessage);
+                writeOrQueue(supportedEnvelopes);
+            } catch (Throwable t) {
+                handleException(t);
+            }
+        } else {
+            log.debug("called sendMessages but was already stopped");
+        }
+    }
+
+    // Messages are written as long as the outbound rate limiter has permits. The others are queued and written by
+    // the outboundWriteExecutor as soon as we get permits again, so the calling thread does not get blocked.
+    // The order of the messages is kept.
+    private void writeOrQueue(List<NetworkEnvelope> networkEnvelopes) {
+        // We don't want to delay a CloseConnectionMessage as the socket gets closed soon after it
+        boolean isCloseConnectionMessage = networkEnvelopes.stream().anyMatch(e -> e instanceof CloseConnectionMessage);
+        // Position after our last message in the outboundQueue
+        long endPosition;
+        synchronized (outboundLock) {
+            if (!isCloseConnectionMessage && outboundQueue.size() + networkEnvelopes.size() > MAX_OUTBOUND_QUEUE_SIZE) {
+                log.warn("Outbound queue is full. The peer does not keep up with our messages. " +
+                        "We close the connection. outboundQueue size={}, connection={}", outboundQueue.size(), this);
+                clearOutboundQueue();
+                UserThread.execute(() -> shutDown(CloseConnectionReason.SEND_MSG_FAILURE));
+                return;
+            }
+            outboundQueue.addAll(networkEnvelopes);
+            numOutboundEnqueued += networkEnvelopes.size();
+            endPosition = numOutboundEnqueued;
+            if (isCloseConnectionMessage)
+                flushOutboundQueue = true;
+        }
+
+        writeQueuedMessages();
+
+        synchronized (outboundLock) {
+            // The queue is FIFO, so only our messages which are not dequeued yet count. Messages queued by other
+            // callers after ours are not counted.
+            int numQueued = (int) Math.min(networkEnvelopes.size(), Math.max(0, endPosition - numOutboundDequeued));
+            if (numQueued > 0) {
+                log.debug("Outbound rate limit reached or another thread is writing. We queue {} messages. " +
+                        "outboundQueue size={}", numQueued, outboundQueue.size());
+                statistic.addThrottledSentMessages(numQueued);
+            }
+        }
+    }
+
+    // Writes the queued messages we have permits for. If another thread is writing already we return, as that thread
+    // writes our messages as well. So callers never wait for a blocking write of another thread.
+    private void writeQueuedMessages() {
+        synchronized (outboundLock) {
+            if (writing)
+                return;
+            writing = true;
+        }
+
+        boolean done = false;
+        try {
+            while (!done) {
+                List<NetworkEnvelope> permittedEnvelopes = new ArrayList<>();
+                synchronized (outboundLock) {
+                    NetworkEnvelope networkEnvelope;
+                    while ((networkEnvelope = outboundQueue.peek()) != null &&
+                            (flushOutboundQueue || outboundRateLimiter.tryAcquire(networkEnvelope))) {
+                        permittedEnvelopes.add(outboundQueue.poll());
+                        numOutboundDequeued++;
+                    }
+                    statistic.setOutboundQueueSize(outboundQueue.size());
+
+                    if (permittedEnvelopes.isEmpty() || stopped) {
+                        done = true;
+                        writing = false;
+                        if (networkEnvelope != null && !stopped && !outboundWriteScheduled) {
+                            outboundWriteScheduled = true;
+                            outboundScheduler.schedule(() -> outboundWriteExecutor.execute(this::onOutboundWriteScheduled),
+                                    outboundRateLimiter.getNanosUntilPermit(networkEnvelope), TimeUnit.NANOSECONDS);
+                        }
+                    }
+                }
+
+                if (!done) {
+                    if (nioTransport != null)
+                        nioTransport.writeEnvelopes(permittedEnvelopes);
+                    else
+                        protoOutputStream.writeEnvelopes(permittedEnvelopes);
+                }
+            }
+        } finally {
+            if (!done) {
+                synchronized (outboundLock) {
+                    writing = false;
+                }
+            }
+        }
+    }
+
+    private void onOutboundWriteScheduled() {
+        synchronized (outboundLock) {
+            outboundWriteScheduled = false;
+            if (stopped) {
+                clearOutboundQueue();
+                return;
+            }
+        }
+        try {
+            writeQueuedMessages();
+        } catch (Throwable t) {
+            handleException(t);
+        }
+    }
+
+    // Must be called with the outboundLock held
+    private void clearOutboundQueue() {
+        outboundQueue.clear();
+        numOutboundDequeued = numOutboundEnqueued;
+    }
+
+    private void logOutboundMessage(NetworkEnvelope networkEnvelope) {
+        if (networkEnvelope instanceof PrefixedSealedAndSignedMessage && peersNodeAddressOptional.isPresent())
+            setPeerType(Connection.PeerType.DIRECT_MSG_PEER);
+        else if (networkEnvelope instanceof GetDataResponse && ((GetDataResponse) networkEnvelope).isGetUpdatedDataResponse())
+            setPeerType(Connection.PeerType.PEER);
+
+        // pings and offer refresh msg we dont want to log in production
+        boolean isFrequentMessage = networkEnvelope instanceof Ping || networkEnvelope instanceof RefreshOfferMessage;
+        // The size is only known after serialization at the transport
+        Log.logMessage(log, isFrequentMessage, "Sending", networkEnvelope, Log.lazy(this::getPeerInfo), -1,
+                () -> Utilities.toTruncatedString(networkEnvelope));
+    }
+
+    private String getPeerInfo() {
+        return (peersNodeAddressOptional.isPresent() ? peersNodeAddressOptional.get().toString() : "null") +
+                " (uid=" + uid + ")";
+    }
+
     public boolean isCapabilitySupported(NetworkEnvelope networkEnvelop) {
         if (networkEnvelop instanceof AddDataMessage) {
             final ProtectedStoragePayload protectedStoragePayload = (((AddDataMessage) networkEnvelop).getProtectedStorageEntry()).getProtectedStoragePayload();
@@ -282,45 +468,39 @@ public class Connection implements MessageListener {
         return sharedModel.reportInvalidRequest(ruleViolation);
     }
 
-    // TODO either use the argument or delete it
     private boolean violatesThrottleLimit(NetworkEnvelope networkEnvelop) {
         long now = System.currentTimeMillis();
         boolean violated = false;
-        //TODO remove message storage after network is tested stable
-        if (messageTimeStamps.size() >= MSG_THROTTLE_PER_SEC) {
-            // check if we got more than 200 (MSG_THROTTLE_PER_SEC) msg per sec.
-            long compareValue = messageTimeStamps.get(messageTimeStamps.size() - MSG_THROTTLE_PER_SEC).first;
-            // if duration < 1 sec we received too much network_messages
-            violated = now - compareValue < TimeUnit.SECONDS.toMillis(1);
-            if (violated) {
-                log.error("violatesThrottleLimit MSG_THROTTLE_PER_SEC ");
+        // check if we got more than 200 (MSG_THROTTLE_PER_SEC) msg per sec.
+        long compareValue = inboundRateWindow.getTimestamp(MSG_THROTTLE_PER_SEC);
+        // if duration < 1 sec we received too much network_messages
+        if (compareValue != -1 && now - compareValue < TimeUnit.SECONDS.toMillis(1)) {
+            violated = true;
+            log.error("violatesThrottleLimit MSG_THROTTLE_PER_SEC ");
+            log.error("elapsed " + (now - compareValue));
+            log.error("messageTimeStamps: " + inboundRateWindow);
+        }
+
+        if (!violated) {
+            // check if we got more than 1000 (MSG_THROTTLE_PER_10_SEC) msg per 10 sec.
+            compareValue = inboundRateWindow.getTimestamp(MSG_THROTTLE_PER_10_SEC);
+            // if duration < 10 sec we received too much network_messages
+            if (compareValue != -1 && now - compareValue < TimeUnit.SECONDS.toMillis(10)) {
+                violated = true;
+                log.error("violatesThrottleLimit MSG_THROTTLE_PER_10_SEC ");
                 log.error("elapsed " + (now - compareValue));
-                log.error("messageTimeStamps: \n\t" + messageTimeStamps.stream()
-                        .map(e -> "\n\tts=" + e.first.toString() + " message=" + e.second.getClass().getName())
-                        .collect(Collectors.toList()).toString());
+                log.error("messageTimeStamps: " + inboundRateWindow);
             }
         }
 
-        if (messageTimeStamps.size() >= MSG_THROTTLE_PER_10_SEC) {
-            if (!violated) {
-                // check if we got more than 50 msg per 10 sec.
-                long compareValue = messageTimeStamps.get(messageTimeStamps.size() - MSG_THROTTLE_PER_10_SEC).first;
-                // if duration < 10 sec we received too much network_messages
-                violated = now - compareValue < TimeUnit.SECONDS.toMillis(10);
-
-                if (violated) {
-                    log.error("violatesThrottleLimit MSG_THROTTLE_PER_10_SEC ");
-                    log.error("elapsed " + (now - compareValue));
-                    log.error("messageTimeStamps: \n\t" + messageTimeStamps.stream()
-                            .map(e -> "\n\tts=" + e.first.toString() + " message=" + e.second.getClass().getName())
-                            .collect(Collectors.toList()).toString());
-                }
-            }
-            // we limit to max 1000 (MSG_THROTTLE_PER_10SEC) entries
-            messageTimeStamps.remove(0);
+        if (!violated && !inboundRateLimiter.tryAcquire(networkEnvelop)) {
+            violated = true;
+            log.error("violatesThrottleLimit of message class " + networkEnvelop.getClass().getSimpleName());
         }
 
-        messageTimeStamps.add(new Tuple2<>(now, networkEnvelop));
+        inboundRateWindow.add(now, networkEnvelop.getClass().getName());
+        if (violated)
+            statistic.addThrottleViolation();
         return violated;
     }
 
@@ -472,7 +652,10 @@ public class Connection implements MessageListener {
             log.error("Exception at shutdown. " + e.getMessage());
             e.printStackTrace();
         } finally {
-            protoOutputStream.onConnectionShutdown();
+            if (nioTransport != null)
+                nioTransport.close();
+            if (protoOutputStream != null)
+                protoOutputStream.onConnectionShutdown();
             MoreExecutors.shutdownAndAwaitTermination(singleThreadExecutor, 500, TimeUnit.MILLISECONDS);
 
             log.debug("Connection shutdown complete " + this.toString());
@@ -660,26 +843,31 @@ public class Connection implements MessageListener {
     // Runs in same thread as Connection, receives a message, performs several checks on it
     // (including throttling limits, validity and statistics)
     // and delivers it to the message listener given in the constructor.
-    private static class InputHandler implements Runnable {
+    // In case of a channel backed socket it does not run in its own thread but gets the frames delivered from the
+    // NioTransport.
+    private static class InputHandler implements Runnable, NioTransport.FrameHandler {
         private static final Logger log = LoggerFactory.getLogger(InputHandler.class);
 
         private final SharedModel sharedModel;
+        @Nullable
         private final InputStream protoInputStream;
+        @Nullable
+        private final FrameReader frameReader;
         private final String portInfo;
         private final MessageListener messageListener;
         private final NetworkProtoResolver networkProtoResolver;
 
         private volatile boolean stopped;
-        private long lastReadTimeStamp;
         private boolean threadNameSet;
 
         public InputHandler(SharedModel sharedModel,
-                            InputStream protoInputStream,
+                            @Nullable InputStream protoInputStream,
                             String portInfo,
                             MessageListener messageListener,
                             NetworkProtoResolver networkProtoResolver) {
             this.sharedModel = sharedModel;
             this.protoInputStream = protoInputStream;
+            frameReader = protoInputStream != null ? new FrameReader(protoInputStream, MAX_PERMITTED_MESSAGE_SIZE) : null;
             this.portInfo = portInfo;
             this.messageListener = messageListener;
             this.networkProtoResolver = networkProtoResolver;
@@ -688,7 +876,8 @@ public class Connection implements MessageListener {
         public void stop() {
             if (!stopped) {
                 try {
-                    protoInputStream.close();
+                    if (protoInputStream != null)
+                        protoInputStream.close();
                 } catch (IOException e) {
                     log.error("IOException at InputHandler.stop\n" + e.getMessage());
                     e.printStackTrace();
@@ -717,175 +906,188 @@ public class Connection implements MessageListener {
                         }
 
                         Connection connection = checkNotNull(sharedModel.connection, "connection must not be null");
-                        log.trace("InputHandler waiting for incoming network_messages.\n\tConnection=" + connection);
-
-                        // Throttle inbound network_messages
-                        long now = System.currentTimeMillis();
-                        long elapsed = now - lastReadTimeStamp;
-                        if (elapsed < 10) {
-                            log.debug("We got 2 network_messages received in less than 10 ms. We set the thread to sleep " +
-                                            "for 20 ms to avoid getting flooded by our peer. lastReadTimeStamp={}, now={}, elapsed={}",
-                                    lastReadTimeStamp, now, elapsed);
-                            Thread.sleep(20);
-                        }
-
-                        // Reading the protobuffer message from the inputstream
-                        PB.NetworkEnvelope proto = PB.NetworkEnvelope.parseDelimitedFrom(protoInputStream);
-
-                        if (proto == null) {
-                            if (protoInputStream.read() == -1)
-                                log.info("proto is null because protoInputStream.read()=-1 (EOF). That is expected if client got stopped without proper shutdown.");
-                            else
-                                log.warn("proto is null. protoInputStream.read()=" + protoInputStream.read());
+                        log.trace("InputHandler waiting for incoming network_messages.\n\tConnection={}", connection);
+
+                        // Inbound network_messages are limited by violatesThrottleLimit. We only read the next message
+                        // after the current one is handled, so a fast peer gets blocked by TCP flow control.
+                        // Reading the next frame from the inputstream. Oversized frames are skipped without
+                        // buffering them.
+                        if (!frameReader.readFrame()) {
+                            log.info("protoInputStream.read()=-1 (EOF). That is expected if client got stopped without proper shutdown.");
                             stopAndShutDown(CloseConnectionReason.NO_PROTO_BUFFER_ENV);
                             return;
                         }
+                    } catch (Throwable t) {
+                        handleException(t);
+                        return;
+                    }
 
-                        NetworkEnvelope networkEnvelope = networkProtoResolver.fromProto(proto);
-                        lastReadTimeStamp = now;
-                        log.debug("<< Received networkEnvelope of type: " + networkEnvelope.getClass().getSimpleName());
-
-                        int size = proto.getSerializedSize();
-                        if (networkEnvelope instanceof Pong || networkEnvelope instanceof RefreshOfferMessage) {
-                            // We only log Pong and RefreshOfferMsg when in dev environment (trace)
-                            log.trace("\n\n<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<\n" +
-                                            "New data arrived at inputHandler of connection {}.\n" +
-                                            "Received object (truncated)={} / size={}"
-                                            + "\n<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<\n",
-                                    connection,
-                                    Utilities.toTruncatedString(proto.toString()),
-                                    size);
-                        } else {
-                            // We want to log all incoming network_messages (except Pong and RefreshOfferMsg)
-                            // so we log before the data type checks
-                            //log.info("size={}; object={}", size, Utilities.toTruncatedString(rawInputObject.toString(), 100));
-                            log.debug("\n\n<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<\n" +
-                                            "New data arrived at inputHandler of connection {}.\n" +
-                                            "Received object (truncated)={} / size={}"
-                                            + "\n<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<\n",
-                                    connection,
-                                    Utilities.toTruncatedString(proto.toString()),
-                                    size);
-                        }
+                    if (frameReader.isSkipped())
+                        onOversizedFrame(frameReader.getMessageCase(), frameReader.getFrameSize());
+                    else
+                        handleFrame(frameReader.getBuffer(), frameReader.getFrameSize());
+                }
+            } catch (Throwable t) {
+                handleException(t);
+            }
+        }
 
-                        // We want to track the size of each object even if it is invalid data
-                        connection.statistic.addReceivedBytes(size);
 
-                        // We want to track the network_messages also before the checks, so do it early...
-                        connection.statistic.addReceivedMessage(networkEnvelope);
+        ///////////////////////////////////////////////////////////////////////////////////////////
+        // NioTransport.FrameHandler implementation
+        ///////////////////////////////////////////////////////////////////////////////////////////
 
-                        // First we check the size
-                        boolean exceeds;
-                        if (networkEnvelope instanceof ExtendedDataSizePermission) {
-                            exceeds = size > MAX_PERMITTED_MESSAGE_SIZE;
-                            log.debug("size={}; object={}", size, Utilities.toTruncatedString(proto, 100));
-                        } else {
-                            exceeds = size > PERMITTED_MESSAGE_SIZE;
-                        }
+        @Override
+        public void onFrame(byte[] buffer, int size) {
+            handleFrame(buffer, size);
+        }
 
-                        if (networkEnvelope instanceof AddPersistableNetworkPayloadMessage &&
-                                !((AddPersistableNetworkPayloadMessage) networkEnvelope).getPersistableNetworkPayload().verifyHashSize()) {
-                            log.warn("PersistableNetworkPayload.verifyHashSize failed. hashSize={}; object={}",
-                                    ((AddPersistableNetworkPayloadMessage) networkEnvelope).getPersistableNetworkPayload().getHash().length,
-                                    Utilities.toTruncatedString(proto));
-                            if (reportInvalidRequest(RuleViolation.MAX_MSG_SIZE_EXCEEDED))
-                                return;
-                        }
+        @Override
+        public void onOversizedFrame(PB.NetworkEnvelope.MessageCase messageCase, int size) {
+            if (stopped)
+                return;
+
+            log.warn("size > MAX_MSG_SIZE. size={}; messageCase={}", size, messageCase);
+            // We want to track the size of each object even if it is invalid data
+            checkNotNull(sharedModel.connection, "connection must not be null").statistic.addReceivedBytes(size);
+            reportInvalidRequest(RuleViolation.MAX_MSG_SIZE_EXCEEDED);
+        }
 
-                        if (exceeds) {
-                            log.warn("size > MAX_MSG_SIZE. size={}; object={}", size, Utilities.toTruncatedString(proto));
+        @Override
+        public void onEndOfStream() {
+            log.info("Channel reached end of stream. That is expected if client got stopped without proper shutdown.");
+            stopAndShutDown(CloseConnectionReason.NO_PROTO_BUFFER_ENV);
+        }
 
-                            if (reportInvalidRequest(RuleViolation.MAX_MSG_SIZE_EXCEEDED))
-                                return;
-                        }
+        @Override
+        public void onTransportException(Throwable throwable) {
+            handleException(throwable);
+        }
 
-                        if (connection.violatesThrottleLimit(networkEnvelope)
-                                && reportInvalidRequest(RuleViolation.THROTTLE_LIMIT_EXCEEDED))
-                            return;
 
-                        // Check P2P network ID
-                        if (proto.getMessageVersion() != Version.getP2PMessageVersion()
-                                && reportInvalidRequest(RuleViolation.WRONG_NETWORK_ID)) {
-                            log.warn("RuleViolation.WRONG_NETWORK_ID. version of message={}, app version={}, " +
-                                            "proto.toTruncatedString={}", proto.getMessageVersion(),
-                                    Version.getP2PMessageVersion(),
-                                    Utilities.toTruncatedString(proto.toString()));
-                            return;
-                        }
+        ///////////////////////////////////////////////////////////////////////////////////////////
+        // Private
+        ///////////////////////////////////////////////////////////////////////////////////////////
 
-                        if (sharedModel.getSupportedCapabilities() == null && networkEnvelope instanceof SupportedCapabilitiesMessage)
-                            sharedModel.setSupportedCapabilities(((SupportedCapabilitiesMessage) networkEnvelope).getSupportedCapabilities());
-
-                        if (networkEnvelope instanceof CloseConnectionMessage) {
-                            // If we get a CloseConnectionMessage we shut down
-                            log.info("CloseConnectionMessage received. Reason={}\n\t" +
-                                    "connection={}", proto.getCloseConnectionMessage().getReason(), connection);
-                            if (CloseConnectionReason.PEER_BANNED.name().equals(proto.getCloseConnectionMessage().getReason())) {
-                                log.warn("We got shut down because we are banned by the other peer. (InputHandler.run CloseConnectionMessage)");
-                                stopAndShutDown(CloseConnectionReason.PEER_BANNED);
-                            } else {
-                                stopAndShutDown(CloseConnectionReason.CLOSE_REQUESTED_BY_PEER);
-                            }
-                            return;
-                        } else if (!stopped) {
-                            // We don't want to get the activity ts updated by ping/pong msg
-                            if (!(networkEnvelope instanceof KeepAliveMessage))
-                                connection.statistic.updateLastActivityTimestamp();
-
-                            if (networkEnvelope instanceof GetDataRequest)
-                                connection.setPeerType(PeerType.INITIAL_DATA_REQUEST);
-
-                            // First a seed node gets a message from a peer (PreliminaryDataRequest using
-                            // AnonymousMessage interface) which does not have its hidden service
-                            // published, so it does not know its address. As the IncomingConnection does not have the
-                            // peersNodeAddress set that connection cannot be used for outgoing network_messages until we
-                            // get the address set.
-                            // At the data update message (DataRequest using SendersNodeAddressMessage interface)
-                            // after the HS is published we get the peer's address set.
-
-                            // There are only those network_messages used for new connections to a peer:
-                            // 1. PreliminaryDataRequest
-                            // 2. DataRequest (implements SendersNodeAddressMessage)
-                            // 3. GetPeersRequest (implements SendersNodeAddressMessage)
-                            // 4. DirectMessage (implements SendersNodeAddressMessage)
-                            if (networkEnvelope instanceof SendersNodeAddressMessage) {
-                                NodeAddress senderNodeAddress = ((SendersNodeAddressMessage) networkEnvelope).getSenderNodeAddress();
-                                Optional<NodeAddress> peersNodeAddressOptional = connection.getPeersNodeAddressOptional();
-                                if (peersNodeAddressOptional.isPresent()) {
-                                    // If we have already the peers address we check again if it matches our stored one
-                                    checkArgument(peersNodeAddressOptional.get().equals(senderNodeAddress),
-                                            "senderNodeAddress not matching connections peer address.\n\t" +
-                                                    "message=" + networkEnvelope);
-                                } else {
-                                    // We must not shut down a banned peer at that moment as it would trigger a connection termination
-                                    // and we could not send the CloseConnectionMessage.
-                                    // We check for a banned peer inside setPeersNodeAddress() and shut down if banned.
-                                    connection.setPeersNodeAddress(senderNodeAddress);
-                                }
-                            }
-
-                            if (networkEnvelope instanceof PrefixedSealedAndSignedMessage)
-                                connection.setPeerType(Connection.PeerType.DIRECT_MSG_PEER);
-
-                            messageListener.onMessage(networkEnvelope, connection);
-                        }
-                    } catch (InvalidClassException e) {
-                        log.error(e.getMessage());
-                        e.printStackTrace();
-                        reportInvalidRequest(RuleViolation.INVALID_CLASS);
-                    } catch (NoClassDefFoundError e) {
-                        log.error(e.getMessage());
-                        e.printStackTrace();
-                        reportInvalidRequest(RuleViolation.INVALID_DATA_TYPE);
-                    } catch (Throwable t) {
-                        handleException(t);
-                    }
-                }
+        private void handleFrame(byte[] buffer, int size) {
+            if (stopped)
+                return;
+
+            try {
+                // Parsing copies the bytes, so the buffer can be reused after that
+                PB.NetworkEnvelope proto = PB.NetworkEnvelope.parser().parseFrom(buffer, 0, size);
+                handleProto(proto, size);
+            } catch (InvalidClassException e) {
+                log.error(e.getMessage());
+                e.printStackTrace();
+                reportInvalidRequest(RuleViolation.INVALID_CLASS);
+            } catch (NoClassDefFoundError e) {
+                log.error(e.getMessage());
+                e.printStackTrace();
+                reportInvalidRequest(RuleViolation.INVALID_DATA_TYPE);
             } catch (Throwable t) {
                 handleException(t);
             }
         }
 
+        private void handleProto(PB.NetworkEnvelope proto, int size) throws IOException {
+            Connection connection = checkNotNull(sharedModel.connection, "connection must not be null");
+
+            // Check P2P network ID before we build the domain object
+            if (proto.getMessageVersion() != Version.getP2PMessageVersion()
+                    && reportInvalidRequest(RuleViolation.WRONG_NETWORK_ID)) {
+                log.warn("RuleViolation.WRONG_NETWORK_ID. version of message={}, app version={}, " +
+                                "proto.toTruncatedString={}", proto.getMessageVersion(),
+                        Version.getP2PMessageVersion(),
+                        Utilities.toTruncatedString(proto.toString()));
+                return;
+            }
+
+            NetworkEnvelope networkEnvelope = networkProtoResolver.fromProto(proto);
+
+            // We only log Pong and RefreshOfferMsg when in dev environment (trace)
+            boolean isFrequentMessage = networkEnvelope instanceof Pong || networkEnvelope instanceof RefreshOfferMessage;
+            Log.logMessage(log, isFrequentMessage, "Received", networkEnvelope, connection, size,
+                    () -> Utilities.toTruncatedString(proto.toString()));
+
+            // We want to track the size of each object even if it is invalid data
+            connection.statistic.addReceivedBytes(size);
+
+            // We want to track the network_messages also before the checks, so do it early...
+            connection.statistic.addReceivedMessage(networkEnvelope);
+
+            // The size got checked already at the frame level
+            if (networkEnvelope instanceof AddPersistableNetworkPayloadMessage &&
+                    !((AddPersistableNetworkPayloadMessage) networkEnvelope).getPersistableNetworkPayload().verifyHashSize()) {
+                log.warn("PersistableNetworkPayload.verifyHashSize failed. hashSize={}; object={}",
+                        ((AddPersistableNetworkPayloadMessage) networkEnvelope).getPersistableNetworkPayload().getHash().length,
+                        Utilities.toTruncatedString(proto));
+                if (reportInvalidRequest(RuleViolation.MAX_MSG_SIZE_EXCEEDED))
+                    return;
+            }
+
+            if (connection.violatesThrottleLimit(networkEnvelope)
+                    && reportInvalidRequest(RuleViolation.THROTTLE_LIMIT_EXCEEDED))
+                return;
+
+            if (sharedModel.getSupportedCapabilities() == null && networkEnvelope instanceof SupportedCapabilitiesMessage)
+                sharedModel.setSupportedCapabilities(((SupportedCapabilitiesMessage) networkEnvelope).getSupportedCapabilities());
+
+            if (networkEnvelope instanceof CloseConnectionMessage) {
+                // If we get a CloseConnectionMessage we shut down
+                log.info("CloseConnectionMessage received. Reason={}\n\t" +
+                        "connection={}", proto.getCloseConnectionMessage().getReason(), connection);
+                if (CloseConnectionReason.PEER_BANNED.name().equals(proto.getCloseConnectionMessage().getReason())) {
+                    log.warn("We got shut down because we are banned by the other peer. (InputHandler.run CloseConnectionMessage)");
+                    stopAndShutDown(CloseConnectionReason.PEER_BANNED);
+                } else {
+                    stopAndShutDown(CloseConnectionReason.CLOSE_REQUESTED_BY_PEER);
+                }
+                return;
+            } else if (!stopped) {
+                // We don't want to get the activity ts updated by ping/pong msg
+                if (!(networkEnvelope instanceof KeepAliveMessage))
+                    connection.statistic.updateLastActivityTimestamp();
+
+                if (networkEnvelope instanceof GetDataRequest)
+                    connection.setPeerType(PeerType.INITIAL_DATA_REQUEST);
+
+                // First a seed node gets a message from a peer (PreliminaryDataRequest using
+                // AnonymousMessage interface) which does not have its hidden service
+                // published, so it does not know its address. As the IncomingConnection does not have the
+                // peersNodeAddress set that connection cannot be used for outgoing network_messages until we
+                // get the address set.
+                // At the data update message (DataRequest using SendersNodeAddressMessage interface)
+                // after the HS is published we get the peer's address set.
+
+                // There are only those network_messages used for new connections to a peer:
+                // 1. PreliminaryDataRequest
+                // 2. DataRequest (implements SendersNodeAddressMessage)
+                // 3. GetPeersRequest (implements SendersNodeAddressMessage)
+                // 4. DirectMessage (implements SendersNodeAddressMessage)
+                if (networkEnvelope instanceof SendersNodeAddressMessage) {
+                    NodeAddress senderNodeAddress = ((SendersNodeAddressMessage) networkEnvelope).getSenderNodeAddress();
+                    Optional<NodeAddress> peersNodeAddressOptional = connection.getPeersNodeAddressOptional();
+                    if (peersNodeAddressOptional.isPresent()) {
+                        // If we have already the peers address we check again if it matches our stored one
+                        checkArgument(peersNodeAddressOptional.get().equals(senderNodeAddress),
+                                "senderNodeAddress not matching connections peer address.\n\t" +
+                                        "message=" + networkEnvelope);
+                    } else {
+                        // We must not shut down a banned peer at that moment as it would trigger a connection termination
+                        // and we could not send the CloseConnectionMessage.
+                        // We check for a banned peer inside setPeersNodeAddress() and shut down if banned.
+                        connection.setPeersNodeAddress(senderNodeAddress);
+                    }
+                }
+
+                if (networkEnvelope instanceof PrefixedSealedAndSignedMessage)
+                    connection.setPeerType(Connection.PeerType.DIRECT_MSG_PEER);
+
+                messageListener.onMessage(networkEnvelope, connection);
+            }
+        }
+
         private void stopAndShutDown(CloseConnectionReason reason) {
             stop();
             sharedModel.shutDown(reason);
@@ -0,0 +1,129 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.network.p2p.network;
+
+import com.google.common.io.ByteStreams;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.WireFormat;
+import io.bisq.generated.protobuffer.PB;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StreamCorruptedException;
+
+/**
+ * Reads length delimited PB.NetworkEnvelope frames (same format as writeDelimitedTo) from a blocking input stream.
+ * We read the varint length prefix and the first bytes of the frame to find out the message type. Frames which
+ * exceed the permitted size for their type are skipped without buffering them and frames larger than maxFrameSize
+ * cause a StreamCorruptedException. Valid frames are read into a buffer which is reused for the next frames.
+ */
+@NotThreadSafe
+class FrameReader {
+    // Enough for the tag and varint of message_version and the tag of the message field
+    static final int HEADER_SIZE = 16;
+    static final int INITIAL_BUFFER_SIZE = 8 * 1024;
+    // After a larger frame we don't keep the buffer to not waste memory for each connection
+    static final int MAX_RETAINED_BUFFER_SIZE = Connection.PERMITTED_MESSAGE_SIZE;
+
+    /**
+     * @return The message case of the frame or MESSAGE_NOT_SET if we could not find it in the given bytes
+     */
+    static PB.NetworkEnvelope.MessageCase peekMessageCase(byte[] buffer, int offset, int length) {
+        CodedInputStream codedInputStream = CodedInputStream.newInstance(buffer, offset, length);
+        try {
+            int tag;
+            while ((tag = codedInputStream.readTag()) != 0) {
+                int fieldNumber = WireFormat.getTagFieldNumber(tag);
+                if (fieldNumber != PB.NetworkEnvelope.MESSAGE_VERSION_FIELD_NUMBER) {
+                    PB.NetworkEnvelope.MessageCase messageCase = PB.NetworkEnvelope.MessageCase.forNumber(fieldNumber);
+                    return messageCase != null ? messageCase : PB.NetworkEnvelope.MessageCase.MESSAGE_NOT_SET;
+                }
+                if (!codedInputStream.skipField(tag))
+                    break;
+            }
+        } catch (IOException ignore) {
+            // The bytes end before the message field
+        }
+        return PB.NetworkEnvelope.MessageCase.MESSAGE_NOT_SET;
+    }
+
+    private final InputStream inputStream;
+    private final int maxFrameSize;
+    private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+    private int frameSize;
+    private PB.NetworkEnvelope.MessageCase messageCase = PB.NetworkEnvelope.MessageCase.MESSAGE_NOT_SET;
+    private boolean skipped;
+
+    FrameReader(InputStream inputStream, int maxFrameSize) {
+        this.inputStream = inputStream;
+        this.maxFrameSize = maxFrameSize;
+    }
+
+    /**
+     * Blocks until the next frame is read or skipped.
+     *
+     * @return false if the stream is at its end
+     */
+    boolean readFrame() throws IOException {
+        if (buffer.length > MAX_RETAINED_BUFFER_SIZE)
+            buffer = new byte[INITIAL_BUFFER_SIZE];
+
+        int firstByte = inputStream.read();
+        if (firstByte == -1)
+            return false;
+
+        frameSize = CodedInputStream.readRawVarint32(firstByte, inputStream);
+        if (frameSize < 0 || frameSize > maxFrameSize)
+            throw new StreamCorruptedException("Frame size exceeds max. permitted size. frameSize=" + frameSize);
+
+        int headerSize = Math.min(frameSize, HEADER_SIZE);
+        ByteStreams.readFully(inputStream, buffer, 0, headerSize);
+        messageCase = peekMessageCase(buffer, 0, headerSize);
+        skipped = frameSize > Connection.getPermittedMessageSize(messageCase);
+        if (skipped) {
+            ByteStreams.skipFully(inputStream, frameSize - headerSize);
+        } else {
+            if (frameSize > buffer.length) {
+                byte[] newBuffer = new byte[Math.min(Math.max(frameSize, buffer.length * 2), maxFrameSize)];
+                System.arraycopy(buffer, 0, newBuffer, 0, headerSize);
+                buffer = newBuffer;
+            }
+            ByteStreams.readFully(inputStream, buffer, headerSize, frameSize - headerSize);
+        }
+        return true;
+    }
+
+    // Only valid until the next readFrame call
+    byte[] getBuffer() {
+        return buffer;
+    }
+
+    int getFrameSize() {
+        return frameSize;
+    }
+
+    PB.NetworkEnvelope.MessageCase getMessageCase() {
+        return messageCase;
+    }
+
+    // True if the frame exceeded the permitted size of its message type. The buffer does not contain the frame then.
+    boolean isSkipped() {
+        return skipped;
+    }
+}
@@ -9,8 +9,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.net.ServerSocket;
+import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
 import java.util.concurrent.TimeUnit;
 
 // Run in UserThread
@@ -62,7 +64,10 @@ public class LocalhostNetworkNode extends NetworkNode {
             UserThread.runAfter(() -> {
                 Log.traceCall("hiddenService created");
                 try {
-                    startServer(new ServerSocket(servicePort));
+                    // We use channel backed sockets so the connections are handled by the NIO event loops
+                    ServerSocketChannel serverSocketChannel = ServerSocketChannel.open();
+                    serverSocketChannel.bind(new InetSocketAddress(servicePort));
+                    startServer(serverSocketChannel.socket());
                 } catch (IOException e) {
                     e.printStackTrace();
                     log.error("Exception at startServer: " + e.getMessage());
@@ -79,6 +84,6 @@ public class LocalhostNetworkNode extends NetworkNode {
     // Called from NetworkNode thread
     @Override
     protected Socket createSocket(NodeAddress peerNodeAddress) throws IOException {
-        return new Socket(peerNodeAddress.getHostName(), peerNodeAddress.getPort());
+        return SocketChannel.open(new InetSocketAddress(peerNodeAddress.getHostName(), peerNodeAddress.getPort())).socket();
     }
 }
@@ -0,0 +1,146 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.network.p2p.network;
+
+import io.bisq.common.proto.network.NetworkEnvelope;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Token bucket rate limiter for the messages of one connection and direction. Each limiter has a bucket for all
+ * messages and we can configure additional rates for specific message classes.
+ */
+@Slf4j
+@ThreadSafe
+public class MessageRateLimiter {
+    private static class Rate {
+        private final double permitsPerSec;
+        private final int burst;
+
+        private Rate(double permitsPerSec, int burst) {
+            this.permitsPerSec = permitsPerSec;
+            this.burst = burst;
+        }
+    }
+
+    // Key is the simple class name of the message
+    private static final Map<String, Rate> rateByMessageClass = new ConcurrentHashMap<>();
+
+    /**
+     * Sets the rates from a comma separated list of messageClassName:permitsPerSec:burst entries,
+     * e.g. "AddDataMessage:20:40,RefreshOfferMessage:10:20". Invalid entries get logged and ignored.
+     */
+    public static void setRates(String rates) {
+        if (rates == null || rates.isEmpty())
+            return;
+
+        for (String entry : StringUtils.deleteWhitespace(rates).split(",")) {
+            String[] tokens = entry.split(":");
+            try {
+                if (tokens.length != 3)
+                    throw new IllegalArgumentException("Expected messageClassName:permitsPerSec:burst");
+                double permitsPerSec = Double.parseDouble(tokens[1]);
+                int burst = Integer.parseInt(tokens[2]);
+                if (permitsPerSec <= 0 || burst < 1)
+                    throw new IllegalArgumentException("permitsPerSec must be > 0 and burst >= 1");
+                setRate(tokens[0], permitsPerSec, burst);
+            } catch (IllegalArgumentException e) {
+                log.warn("We ignore the invalid message rate {}. {}", entry, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Sets the rate for the message class with the given simple name. Limiters which got a message of that class
+     * already keep the rate they started with.
+     */
+    public static void setRate(String messageClassName, double permitsPerSec, int burst) {
+        log.info("Set message rate for {} to {} msg/sec with a burst of {}", messageClassName, permitsPerSec, burst);
+        rateByMessageClass.put(messageClassName, new Rate(permitsPerSec, burst));
+    }
+
+    public static void removeRate(String messageClassName) {
+        rateByMessageClass.remove(messageClassName);
+    }
+
+    @Nullable
+    private final TokenBucket bucket;
+    private final Map<Class<? extends NetworkEnvelope>, TokenBucket> bucketByMessageClass = new HashMap<>();
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // Only the message class rates apply
+    MessageRateLimiter() {
+        bucket = null;
+    }
+
+    MessageRateLimiter(double permitsPerSec, int burst) {
+        bucket = new TokenBucket(permitsPerSec, burst);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    synchronized boolean tryAcquire(NetworkEnvelope networkEnvelope) {
+        TokenBucket messageClassBucket = getMessageClassBucket(networkEnvelope);
+        if ((bucket != null && !bucket.hasPermit()) || (messageClassBucket != null && !messageClassBucket.hasPermit()))
+            return false;
+
+        if (bucket != null)
+            bucket.acquire();
+        if (messageClassBucket != null)
+            messageClassBucket.acquire();
+        return true;
+    }
+
+    synchronized long getNanosUntilPermit(NetworkEnvelope networkEnvelope) {
+        TokenBucket messageClassBucket = getMessageClassBucket(networkEnvelope);
+        return Math.max(bucket != null ? bucket.getNanosUntilPermit() : 0,
+                messageClassBucket != null ? messageClassBucket.getNanosUntilPermit() : 0);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    @Nullable
+    private TokenBucket getMessageClassBucket(NetworkEnvelope networkEnvelope) {
+        Class<? extends NetworkEnvelope> messageClass = networkEnvelope.getClass();
+        TokenBucket messageClassBucket = bucketByMessageClass.get(messageClass);
+        if (messageClassBucket == null) {
+            Rate rate = rateByMessageClass.get(messageClass.getSimpleName());
+            if (rate != null) {
+                messageClassBucket = new TokenBucket(rate.permitsPerSec, rate.burst);
+                bucketByMessageClass.put(messageClass, messageClassBucket);
+            }
+        }
+        return messageClassBucket;
+    }
+}
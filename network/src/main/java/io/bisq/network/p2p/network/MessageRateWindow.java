@@ -0,0 +1,69 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.network.p2p.network;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Keeps the timestamps and class names of the last messages in a ring buffer, so checking how many messages we got
+ * within a time window does not need to shift a list.
+ */
+@NotThreadSafe
+class MessageRateWindow {
+    private final long[] timestamps;
+    private final String[] messageClassNames;
+    // Index of the next entry
+    private int head;
+    private int size;
+
+    MessageRateWindow(int capacity) {
+        timestamps = new long[capacity];
+        messageClassNames = new String[capacity];
+    }
+
+    void add(long timestamp, String messageClassName) {
+        timestamps[head] = timestamp;
+        messageClassNames[head] = messageClassName;
+        head = (head + 1) % timestamps.length;
+        size = Math.min(size + 1, timestamps.length);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param numMessagesBack 1 is the latest message
+     * @return the timestamp of the message or -1 if we don't have that many messages
+     */
+    long getTimestamp(int numMessagesBack) {
+        if (numMessagesBack < 1 || numMessagesBack > size)
+            return -1;
+        return timestamps[(head - numMessagesBack + timestamps.length) % timestamps.length];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = size; i >= 1; i--) {
+            int index = (head - i + timestamps.length) % timestamps.length;
+            sb.append("\n\tts=").append(timestamps[index]).append(" message=").append(messageClassNames[index]);
+        }
+        return sb.toString();
+    }
+}
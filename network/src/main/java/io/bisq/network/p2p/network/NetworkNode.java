@@ -21,6 +21,7 @@ import java.net.ConnectException;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArraySet;
@@ -69,7 +70,7 @@ public abstract class NetworkNode implements MessageListener {
     abstract public void start(@Nullable SetupListener setupListener);
 
     public SettableFuture<Connection> sendMessage(@NotNull NodeAddress peersNodeAddress, NetworkEnvelope networkEnvelop) {
-        Log.traceCall("peersNodeAddress=" + peersNodeAddress + "\n\tmessage=" + Utilities.toTruncatedString(networkEnvelop));
+        Log.traceCall(() -> "peersNodeAddress=" + peersNodeAddress + "\n\tmessage=" + Utilities.toTruncatedString(networkEnvelop));
         checkNotNull(peersNodeAddress, "peerAddress must not be null");
 
         Connection connection = getOutboundConnection(peersNodeAddress);
@@ -228,7 +229,7 @@ public abstract class NetworkNode implements MessageListener {
 
 
     public SettableFuture<Connection> sendMessage(Connection connection, NetworkEnvelope networkEnvelop) {
-        Log.traceCall("\n\tmessage=" + Utilities.toTruncatedString(networkEnvelop) + "\n\tconnection=" + connection);
+        Log.traceCall(() -> "\n\tmessage=" + Utilities.toTruncatedString(networkEnvelop) + "\n\tconnection=" + connection);
         // connection.sendMessage might take a bit (compression, write to stream), so we use a thread to not block
         ListenableFuture<Connection> future = executorService.submit(() -> {
             Thread.currentThread().setName("NetworkNode:SendMessage-to-" + connection.getUid());
@@ -248,6 +249,27 @@ public abstract class NetworkNode implements MessageListener {
         return resultFuture;
     }
 
+    // Sends the messages with one write to the connection. The future completes at the UserThread when all are sent.
+    public SettableFuture<Connection> sendMessages(Connection connection, List<? extends NetworkEnvelope> networkEnvelopes) {
+        Log.traceCall(() -> "\n\tnumMessages=" + networkEnvelopes.size() + "\n\tconnection=" + connection);
+        ListenableFuture<Connection> future = executorService.submit(() -> {
+            Thread.currentThread().setName("NetworkNode:SendMessages-to-" + connection.getUid());
+            connection.sendMessages(networkEnvelopes);
+            return connection;
+        });
+        final SettableFuture<Connection> resultFuture = SettableFuture.create();
+        Futures.addCallback(future, new FutureCallback<Connection>() {
+            public void onSuccess(Connection connection) {
+                UserThread.execute(() -> resultFuture.set(connection));
+            }
+
+            public void onFailure(@NotNull Throwable throwable) {
+                UserThread.execute(() -> resultFuture.setException(throwable));
+            }
+        });
+        return resultFuture;
+    }
+
     public ReadOnlyObjectProperty<NodeAddress> nodeAddressProperty() {
         return nodeAddressProperty;
     }
@@ -0,0 +1,163 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.network.p2p.network;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fixed size pool of selector threads shared by all NioTransports of the process.
+ * Each transport is bound to one event loop for its whole lifetime, so reads and writes of a connection are
+ * never processed concurrently. The number of threads does not depend on the number of connections.
+ */
+class NioEventLoopGroup {
+    private static final Logger log = LoggerFactory.getLogger(NioEventLoopGroup.class);
+
+    private static final int NUM_EVENT_LOOPS = Math.max(2, Runtime.getRuntime().availableProcessors());
+    private static final long SELECT_TIMEOUT_MS = 1000;
+
+    private static NioEventLoopGroup instance;
+
+    static synchronized NioEventLoopGroup getInstance() {
+        if (instance == null)
+            instance = new NioEventLoopGroup(NUM_EVENT_LOOPS);
+        return instance;
+    }
+
+    private final NioEventLoop[] eventLoops;
+    private final AtomicInteger index = new AtomicInteger();
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private NioEventLoopGroup(int numEventLoops) {
+        eventLoops = new NioEventLoop[numEventLoops];
+        for (int i = 0; i < numEventLoops; i++) {
+            try {
+                eventLoops[i] = new NioEventLoop("NioEventLoop-" + i);
+            } catch (IOException e) {
+                throw new BisqRuntimeException("Could not open selector", e);
+            }
+        }
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    NioEventLoop next() {
+        return eventLoops[Math.abs(index.getAndIncrement() % eventLoops.length)];
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // NioEventLoop
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    static class NioEventLoop implements Runnable {
+        private final Selector selector;
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private long lastIdleCheckTs;
+
+        private NioEventLoop(String name) throws IOException {
+            selector = Selector.open();
+            Thread thread = new Thread(this, name);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        // Can be called from any thread. The task will be executed at the event loop thread.
+        void execute(Runnable task) {
+            tasks.add(task);
+            selector.wakeup();
+        }
+
+        // Must be called at the event loop thread
+        Selector getSelector() {
+            return selector;
+        }
+
+        @Override
+        public void run() {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    selector.select(SELECT_TIMEOUT_MS);
+                    runTasks();
+                    processSelectedKeys();
+                    checkIdleTransports();
+                } catch (Throwable t) {
+                    log.error("Unexpected error at event loop: " + t.toString());
+                    t.printStackTrace();
+                }
+            }
+        }
+
+        private void runTasks() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                try {
+                    task.run();
+                } catch (Throwable t) {
+                    log.error("Executing task at event loop failed: " + t.toString());
+                    t.printStackTrace();
+                }
+            }
+        }
+
+        private void processSelectedKeys() {
+            Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+            while (iterator.hasNext()) {
+                SelectionKey key = iterator.next();
+                iterator.remove();
+                NioTransport transport = (NioTransport) key.attachment();
+                try {
+                    if (key.isValid() && key.isReadable())
+                        transport.onReadable();
+                    if (key.isValid() && key.isWritable())
+                        transport.onWritable();
+                } catch (CancelledKeyException ignore) {
+                    // Transport got closed in the meantime
+                }
+            }
+        }
+
+        private void checkIdleTransports() {
+            long now = System.currentTimeMillis();
+            if (now - lastIdleCheckTs >= SELECT_TIMEOUT_MS) {
+                lastIdleCheckTs = now;
+                new ArrayList<>(selector.keys()).stream()
+                        .filter(SelectionKey::isValid)
+                        .map(key -> (NioTransport) key.attachment())
+                        .forEach(transport -> transport.checkIdle(now));
+            }
+        }
+    }
+}
@@ -0,0 +1,358 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.network.p2p.network;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.protobuf.CodedOutputStream;
+import io.bisq.common.proto.network.NetworkEnvelope;
+import io.bisq.generated.protobuffer.PB;
+import io.bisq.network.p2p.peers.keepalive.messages.KeepAliveMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Non blocking transport for a connection with a channel backed socket (LocalhostNetworkNode and outbound Tor
+ * connections, see Socks5ChannelConnector).
+ * Frames PB.NetworkEnvelope messages length delimited (varint prefix, same as writeDelimitedTo/parseDelimitedFrom)
+ * so it is wire compatible with the blocking ProtoOutputStream/InputHandler peers.
+ * Reads and writes are processed at the NioEventLoop the transport got assigned to. Writes are queued and never
+ * block the caller.
+ */
+class NioTransport {
+    private static final Logger log = LoggerFactory.getLogger(NioTransport.class);
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    // If the peer does not read our data we close the connection instead of buffering unlimited data
+    @VisibleForTesting
+    static long MAX_QUEUED_BYTES = 4L * Connection.MAX_PERMITTED_MESSAGE_SIZE;
+
+    interface FrameHandler {
+        // Called at the event loop thread with the serialized PB.NetworkEnvelope in the first size bytes of buffer.
+        // The buffer is reused for the next frame, so it must not be retained after the call.
+        void onFrame(byte[] buffer, int size);
+
+        // Called at the event loop thread if the frame exceeds the permitted size of its message type. The frame
+        // data gets skipped without being buffered.
+        void onOversizedFrame(PB.NetworkEnvelope.MessageCase messageCase, int size);
+
+        void onEndOfStream();
+
+        void onTransportException(Throwable throwable);
+    }
+
+    private final SocketChannel channel;
+    private final FrameHandler frameHandler;
+    private final Statistic statistic;
+    private final long idleTimeout;
+    private final int maxFrameSize;
+    private final NioEventLoopGroup.NioEventLoop eventLoop;
+
+    private final Queue<ByteBuffer> writeQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicLong queuedBytes = new AtomicLong();
+    private volatile boolean closed;
+
+    // Only accessed from the event loop thread
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+    private SelectionKey selectionKey;
+    // Reused for all frames. Frames are only read into it after we checked the size against the permitted size of
+    // the message type peeked from the frame header.
+    private byte[] frameBuffer = new byte[FrameReader.INITIAL_BUFFER_SIZE];
+    // -1 if we wait for the size prefix of the next frame
+    private int frameSize = -1;
+    private int headerSize;
+    private boolean headerComplete;
+    private int frameOffset;
+    private int numBytesToSkip;
+    private long lastReadTs = System.currentTimeMillis();
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    NioTransport(SocketChannel channel, FrameHandler frameHandler, Statistic statistic, long idleTimeout, int maxFrameSize) {
+        this.channel = channel;
+        this.frameHandler = frameHandler;
+        this.statistic = statistic;
+        this.idleTimeout = idleTimeout;
+        this.maxFrameSize = maxFrameSize;
+        eventLoop = NioEventLoopGroup.getInstance().next();
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    void start() {
+        eventLoop.execute(() -> {
+            try {
+                channel.configureBlocking(false);
+                selectionKey = channel.register(eventLoop.getSelector(), SelectionKey.OP_READ, this);
+                if (!writeQueue.isEmpty())
+                    selectionKey.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            } catch (IOException e) {
+                handleException(e);
+            }
+        });
+    }
+
+    // Can be called from any thread
+    void writeEnvelope(NetworkEnvelope envelope) {
+        writeEnvelopes(Collections.singletonList(envelope));
+    }
+
+    // Can be called from any thread. The envelopes are written as one buffer, so they get sent with one write if the
+    // socket send buffer has enough space.
+    void writeEnvelopes(List<NetworkEnvelope> envelopes) {
+        if (closed)
+            return;
+
+        List<PB.NetworkEnvelope> protos = new ArrayList<>(envelopes.size());
+        int totalSize = 0;
+        for (NetworkEnvelope envelope : envelopes) {
+            PB.NetworkEnvelope proto = envelope.toProtoNetworkEnvelope();
+            int size = proto.getSerializedSize();
+            totalSize += CodedOutputStream.computeUInt32SizeNoTag(size) + size;
+            protos.add(proto);
+        }
+
+        byte[] bytes = new byte[totalSize];
+        try {
+            CodedOutputStream codedOutputStream = CodedOutputStream.newInstance(bytes);
+            for (PB.NetworkEnvelope proto : protos) {
+                codedOutputStream.writeUInt32NoTag(proto.getSerializedSize());
+                proto.writeTo(codedOutputStream);
+            }
+            codedOutputStream.checkNoSpaceLeft();
+        } catch (IOException e) {
+            throw new BisqRuntimeException("Failed to serialize envelope", e);
+        }
+
+        if (queuedBytes.addAndGet(bytes.length) > MAX_QUEUED_BYTES) {
+            queuedBytes.addAndGet(-bytes.length);
+            throw new BisqRuntimeException("Outbound queue exceeded " + MAX_QUEUED_BYTES + " bytes",
+                    new SocketTimeoutException("Peer does not read our data"));
+        }
+
+        writeQueue.add(ByteBuffer.wrap(bytes));
+        eventLoop.execute(this::enableWriteInterest);
+
+        boolean updateLastActivity = false;
+        for (int i = 0; i < envelopes.size(); i++) {
+            NetworkEnvelope envelope = envelopes.get(i);
+            statistic.addSentBytes(protos.get(i).getSerializedSize());
+            statistic.addSentMessage(envelope);
+            if (!(envelope instanceof KeepAliveMessage))
+                updateLastActivity = true;
+        }
+        if (updateLastActivity)
+            statistic.updateLastActivityTimestamp();
+    }
+
+    // Can be called from any thread
+    void close() {
+        if (!closed) {
+            closed = true;
+            eventLoop.execute(() -> {
+                if (selectionKey != null)
+                    selectionKey.cancel();
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    log.debug("Exception at closing channel. " + e.getMessage());
+                }
+                writeQueue.clear();
+            });
+        }
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Called from event loop
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    void onReadable() {
+        try {
+            int numBytes = channel.read(readBuffer);
+            if (numBytes == -1) {
+                closed = true;
+                selectionKey.cancel();
+                frameHandler.onEndOfStream();
+                return;
+            }
+            if (numBytes == 0)
+                return;
+
+            lastReadTs = System.currentTimeMillis();
+            readBuffer.flip();
+            try {
+                while (!closed) {
+                    if (numBytesToSkip > 0) {
+                        int length = Math.min(readBuffer.remaining(), numBytesToSkip);
+                        readBuffer.position(readBuffer.position() + length);
+                        numBytesToSkip -= length;
+                        if (numBytesToSkip > 0)
+                            break;
+                    }
+
+                    if (frameSize < 0) {
+                        frameSize = readFrameSize(readBuffer);
+                        if (frameSize < 0)
+                            break;
+
+                        if (frameSize > maxFrameSize)
+                            throw new StreamCorruptedException("Frame size exceeds max. permitted size. frameSize=" + frameSize);
+
+                        headerSize = Math.min(frameSize, FrameReader.HEADER_SIZE);
+                        headerComplete = false;
+                        frameOffset = 0;
+                    }
+
+                    if (!headerComplete) {
+                        // The frame buffer is always larger than the header
+                        if (!readIntoFrameBuffer(headerSize))
+                            break;
+
+                        headerComplete = true;
+                        PB.NetworkEnvelope.MessageCase messageCase = FrameReader.peekMessageCase(frameBuffer, 0, headerSize);
+                        if (frameSize > Connection.getPermittedMessageSize(messageCase)) {
+                            int size = frameSize;
+                            numBytesToSkip = frameSize - headerSize;
+                            frameSize = -1;
+                            frameHandler.onOversizedFrame(messageCase, size);
+                            continue;
+                        }
+
+                        if (frameSize > frameBuffer.length) {
+                            byte[] newBuffer = new byte[Math.min(Math.max(frameSize, frameBuffer.length * 2), maxFrameSize)];
+                            System.arraycopy(frameBuffer, 0, newBuffer, 0, headerSize);
+                            frameBuffer = newBuffer;
+                        }
+                    }
+
+                    if (!readIntoFrameBuffer(frameSize))
+                        break;
+
+                    int size = frameSize;
+                    frameSize = -1;
+                    frameHandler.onFrame(frameBuffer, size);
+
+                    // We don't keep a large buffer after a rare large message
+                    if (frameBuffer.length > FrameReader.MAX_RETAINED_BUFFER_SIZE)
+                        frameBuffer = new byte[FrameReader.INITIAL_BUFFER_SIZE];
+                }
+            } finally {
+                readBuffer.compact();
+            }
+        } catch (Throwable t) {
+            handleException(t);
+        }
+    }
+
+    void onWritable() {
+        try {
+            ByteBuffer buffer;
+            while ((buffer = writeQueue.peek()) != null) {
+                int numBytes = buffer.remaining();
+                channel.write(buffer);
+                if (buffer.hasRemaining()) {
+                    queuedBytes.addAndGet(buffer.remaining() - numBytes);
+                    // Socket send buffer is full, we continue when the channel gets writable again
+                    return;
+                }
+                writeQueue.poll();
+                queuedBytes.addAndGet(-numBytes);
+            }
+            selectionKey.interestOps(SelectionKey.OP_READ);
+        } catch (Throwable t) {
+            handleException(t);
+        }
+    }
+
+    void checkIdle(long now) {
+        if (!closed && now - lastReadTs > idleTimeout)
+            handleException(new SocketTimeoutException("No data received for " + (now - lastReadTs) + " ms"));
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private void enableWriteInterest() {
+        if (selectionKey != null && selectionKey.isValid() && !writeQueue.isEmpty())
+            selectionKey.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+    }
+
+    private void handleException(Throwable t) {
+        if (!closed) {
+            closed = true;
+            if (selectionKey != null)
+                selectionKey.cancel();
+
+            // We map IO errors of the channel to SocketExceptions so they get handled like at the blocking socket
+            if (t instanceof IOException && !(t instanceof SocketException) &&
+                    !(t instanceof SocketTimeoutException) && !(t instanceof StreamCorruptedException)) {
+                SocketException socketException = new SocketException(t.getMessage());
+                socketException.initCause(t);
+                t = socketException;
+            }
+            frameHandler.onTransportException(t);
+        }
+    }
+
+    // Returns true if the frame buffer got filled up to endOffset
+    private boolean readIntoFrameBuffer(int endOffset) {
+        int length = Math.min(readBuffer.remaining(), endOffset - frameOffset);
+        readBuffer.get(frameBuffer, frameOffset, length);
+        frameOffset += length;
+        return frameOffset == endOffset;
+    }
+
+    // Returns -1 if the varint is not complete yet. The position of the buffer is only changed if we could read it.
+    private static int readFrameSize(ByteBuffer buffer) throws StreamCorruptedException {
+        int position = buffer.position();
+        int result = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            if (!buffer.hasRemaining()) {
+                buffer.position(position);
+                return -1;
+            }
+            byte b = buffer.get();
+            result |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return result < 0 ? Integer.MAX_VALUE : result;
+        }
+        throw new StreamCorruptedException("Malformed varint at frame size");
+    }
+}
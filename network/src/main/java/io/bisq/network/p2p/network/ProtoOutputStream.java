@@ -26,6 +26,7 @@ import org.slf4j.LoggerFactory;
 import javax.annotation.concurrent.NotThreadSafe;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.List;
 
 @NotThreadSafe
 class ProtoOutputStream {
@@ -41,13 +42,25 @@ class ProtoOutputStream {
 
     void writeEnvelope(NetworkEnvelope envelope) {
         try {
-            writeEnvelopeOrThrow(envelope);
+            writeEnvelopeOrThrow(envelope, true);
         } catch (IOException e) {
             log.error("Failed to write envelope", e);
             throw new BisqRuntimeException("Failed to write envelope", e);
         }
     }
 
+    // The stream is flushed once after all envelopes are written
+    void writeEnvelopes(List<NetworkEnvelope> envelopes) {
+        try {
+            for (NetworkEnvelope envelope : envelopes)
+                writeEnvelopeOrThrow(envelope, false);
+            delegate.flush();
+        } catch (IOException e) {
+            log.error("Failed to write envelopes", e);
+            throw new BisqRuntimeException("Failed to write envelopes", e);
+        }
+    }
+
     void onConnectionShutdown() {
         try {
             delegate.close();
@@ -56,10 +69,11 @@ class ProtoOutputStream {
         }
     }
 
-    private void writeEnvelopeOrThrow(NetworkEnvelope envelope) throws IOException {
+    private void writeEnvelopeOrThrow(NetworkEnvelope envelope, boolean flush) throws IOException {
         PB.NetworkEnvelope proto = envelope.toProtoNetworkEnvelope();
         proto.writeDelimitedTo(delegate);
-        delegate.flush();
+        if (flush)
+            delegate.flush();
 
         statistic.addSentBytes(proto.getSerializedSize());
         statistic.addSentMessage(envelope);
@@ -0,0 +1,125 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.network.p2p.network;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Opens a SocketChannel through a Socks5 proxy (e.g. our Tor proxy) without authentication. The target host is passed
+ * as domain name, so onion addresses get resolved by Tor.
+ * The handshake is done in blocking mode. After it the channel is connected to the target and can be handed over to
+ * a NioTransport, so the connection does not need its own thread like a TorSocket.
+ */
+class Socks5ChannelConnector {
+    private static final int VERSION = 5;
+    private static final int METHOD_NO_AUTH = 0;
+    private static final int COMMAND_CONNECT = 1;
+    private static final int ADDRESS_TYPE_IPV4 = 1;
+    private static final int ADDRESS_TYPE_DOMAIN_NAME = 3;
+    private static final int ADDRESS_TYPE_IPV6 = 4;
+
+    static SocketChannel connect(InetSocketAddress proxyAddress, String host, int port, int timeout) throws IOException {
+        byte[] hostBytes = host.getBytes(StandardCharsets.US_ASCII);
+        checkArgument(hostBytes.length > 0 && hostBytes.length <= 255, "Invalid host name length");
+
+        SocketChannel channel = SocketChannel.open();
+        try {
+            Socket socket = channel.socket();
+            socket.connect(proxyAddress, timeout);
+            // The streams of a channel backed socket respect the timeout in blocking mode
+            socket.setSoTimeout(timeout);
+            OutputStream outputStream = socket.getOutputStream();
+            DataInputStream inputStream = new DataInputStream(socket.getInputStream());
+
+            outputStream.write(new byte[]{VERSION, 1, METHOD_NO_AUTH});
+            outputStream.flush();
+            if (inputStream.readUnsignedByte() != VERSION)
+                throw new SocketException("Invalid Socks5 proxy response");
+            if (inputStream.readUnsignedByte() != METHOD_NO_AUTH)
+                throw new SocketException("Socks5 proxy requires authentication");
+
+            byte[] request = new byte[7 + hostBytes.length];
+            request[0] = VERSION;
+            request[1] = COMMAND_CONNECT;
+            request[2] = 0;
+            request[3] = ADDRESS_TYPE_DOMAIN_NAME;
+            request[4] = (byte) hostBytes.length;
+            System.arraycopy(hostBytes, 0, request, 5, hostBytes.length);
+            request[5 + hostBytes.length] = (byte) (port >> 8);
+            request[6 + hostBytes.length] = (byte) port;
+            outputStream.write(request);
+            outputStream.flush();
+
+            if (inputStream.readUnsignedByte() != VERSION)
+                throw new SocketException("Invalid Socks5 proxy response");
+            int reply = inputStream.readUnsignedByte();
+            if (reply != 0)
+                throw new SocketException("Socks5 proxy could not connect to " + host + ":" + port + ". " + getReplyMessage(reply));
+            inputStream.readUnsignedByte();
+
+            // We don't need the bound address, but we must consume it
+            int addressType = inputStream.readUnsignedByte();
+            int addressLength;
+            if (addressType == ADDRESS_TYPE_IPV4)
+                addressLength = 4;
+            else if (addressType == ADDRESS_TYPE_IPV6)
+                addressLength = 16;
+            else if (addressType == ADDRESS_TYPE_DOMAIN_NAME)
+                addressLength = inputStream.readUnsignedByte();
+            else
+                throw new SocketException("Invalid address type at Socks5 proxy response. addressType=" + addressType);
+            inputStream.readFully(new byte[addressLength + 2]);
+            return channel;
+        } catch (Throwable t) {
+            channel.close();
+            throw t;
+        }
+    }
+
+    private static String getReplyMessage(int reply) {
+        switch (reply) {
+            case 1:
+                return "General failure";
+            case 2:
+                return "Connection not allowed";
+            case 3:
+                return "Network unreachable";
+            case 4:
+                return "Host unreachable";
+            case 5:
+                return "Connection refused";
+            case 6:
+                return "TTL expired";
+            case 7:
+                return "Command not supported";
+            case 8:
+                return "Address type not supported";
+            default:
+                return "Unknown reply " + reply;
+        }
+    }
+}
@@ -1,6 +1,5 @@
 package io.bisq.network.p2p.network;
 
-import io.bisq.common.UserThread;
 import io.bisq.common.proto.network.NetworkEnvelope;
 import javafx.beans.property.IntegerProperty;
 import javafx.beans.property.LongProperty;
@@ -10,6 +9,7 @@ import javafx.beans.property.SimpleLongProperty;
 import java.util.Date;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 public class Statistic {
 
@@ -17,11 +17,21 @@ public class Statistic {
     // Static
     ///////////////////////////////////////////////////////////////////////////////////////////
 
+    // Counters get updated from the network threads, the properties get refreshed from the counters at the
+    // UserThread by updateTotalProperties.
+    private final static LongAdder totalSentBytesCounter = new LongAdder();
+    private final static LongAdder totalReceivedBytesCounter = new LongAdder();
     private final static LongProperty totalSentBytes = new SimpleLongProperty(0);
     private final static LongProperty totalReceivedBytes = new SimpleLongProperty(0);
 
+    // Must be called on the UserThread
+    public static void updateTotalProperties() {
+        totalSentBytes.set(totalSentBytesCounter.sum());
+        totalReceivedBytes.set(totalReceivedBytesCounter.sum());
+    }
+
     public static long getTotalSentBytes() {
-        return totalSentBytes.get();
+        return totalSentBytesCounter.sum();
     }
 
     public static LongProperty totalSentBytesProperty() {
@@ -29,7 +39,7 @@ public class Statistic {
     }
 
     public static long getTotalReceivedBytes() {
-        return totalReceivedBytes.get();
+        return totalReceivedBytesCounter.sum();
     }
 
     public static LongProperty totalReceivedBytesProperty() {
@@ -42,12 +52,21 @@ public class Statistic {
     ///////////////////////////////////////////////////////////////////////////////////////////
 
     private final Date creationDate;
-    private long lastActivityTimestamp = System.currentTimeMillis();
+    private volatile long lastActivityTimestamp = System.currentTimeMillis();
+    // Any received data incl. keep alive messages. Used to detect idle connections before they hit the socket timeout,
+    // which is only reset by received data.
+    private volatile long lastReceivedTimestamp = System.currentTimeMillis();
+    private final LongAdder sentBytesCounter = new LongAdder();
+    private final LongAdder receivedBytesCounter = new LongAdder();
     private final LongProperty sentBytes = new SimpleLongProperty(0);
     private final LongProperty receivedBytes = new SimpleLongProperty(0);
     private final Map<String, Integer> receivedMessages = new ConcurrentHashMap<>();
     private final Map<String, Integer> sentMessages = new ConcurrentHashMap<>();
     private final IntegerProperty roundTripTime = new SimpleIntegerProperty(0);
+    // Messages which got queued because the outbound rate limit was reached
+    private final LongAdder throttledSentMessages = new LongAdder();
+    private final LongAdder throttleViolations = new LongAdder();
+    private volatile int outboundQueueSize;
 
 
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -62,41 +81,48 @@ public class Statistic {
     // Update, increment
     ///////////////////////////////////////////////////////////////////////////////////////////
 
+    // The update methods get called for each message from the network threads, so we don't post to the UserThread
+    // here. The properties get refreshed periodically by updateProperties.
     public void updateLastActivityTimestamp() {
-        UserThread.execute(() -> lastActivityTimestamp = System.currentTimeMillis());
+        lastActivityTimestamp = System.currentTimeMillis();
     }
 
     public void addSentBytes(int value) {
-        UserThread.execute(() -> {
-            sentBytes.set(sentBytes.get() + value);
-            totalSentBytes.set(totalSentBytes.get() + value);
-        });
+        sentBytesCounter.add(value);
+        totalSentBytesCounter.add(value);
     }
 
     public void addReceivedBytes(int value) {
-        UserThread.execute(() -> {
-            receivedBytes.set(receivedBytes.get() + value);
-            totalReceivedBytes.set(totalReceivedBytes.get() + value);
-        });
+        lastReceivedTimestamp = System.currentTimeMillis();
+        receivedBytesCounter.add(value);
+        totalReceivedBytesCounter.add(value);
     }
 
     // TODO would need msg inspection to get useful information...
     public void addReceivedMessage(NetworkEnvelope networkEnvelop) {
-        String messageClassName = networkEnvelop.getClass().getSimpleName();
-        int counter = 1;
-        if (receivedMessages.containsKey(messageClassName))
-            counter = receivedMessages.get(messageClassName) + 1;
-
-        receivedMessages.put(messageClassName, counter);
+        receivedMessages.merge(networkEnvelop.getClass().getSimpleName(), 1, Integer::sum);
     }
 
     public void addSentMessage(NetworkEnvelope networkEnvelop) {
-        String messageClassName = networkEnvelop.getClass().getSimpleName();
-        int counter = 1;
-        if (sentMessages.containsKey(messageClassName))
-            counter = sentMessages.get(messageClassName) + 1;
+        sentMessages.merge(networkEnvelop.getClass().getSimpleName(), 1, Integer::sum);
+    }
+
+    // Must be called on the UserThread
+    public void updateProperties() {
+        sentBytes.set(sentBytesCounter.sum());
+        receivedBytes.set(receivedBytesCounter.sum());
+    }
+
+    public void addThrottledSentMessages(int value) {
+        throttledSentMessages.add(value);
+    }
+
+    public void addThrottleViolation() {
+        throttleViolations.increment();
+    }
 
-        sentMessages.put(messageClassName, counter);
+    public void setOutboundQueueSize(int outboundQueueSize) {
+        this.outboundQueueSize = outboundQueueSize;
     }
 
     public void setRoundTripTime(int roundTripTime) {
@@ -115,8 +141,12 @@ public class Statistic {
         return System.currentTimeMillis() - lastActivityTimestamp;
     }
 
+    public long getLastReceivedAge() {
+        return System.currentTimeMillis() - lastReceivedTimestamp;
+    }
+
     public long getSentBytes() {
-        return sentBytes.get();
+        return sentBytesCounter.sum();
     }
 
     public LongProperty sentBytesProperty() {
@@ -124,7 +154,7 @@ public class Statistic {
     }
 
     public long getReceivedBytes() {
-        return receivedBytes.get();
+        return receivedBytesCounter.sum();
     }
 
     public LongProperty receivedBytesProperty() {
@@ -139,13 +169,29 @@ public class Statistic {
         return roundTripTime;
     }
 
+    public long getThrottledSentMessages() {
+        return throttledSentMessages.sum();
+    }
+
+    public long getThrottleViolations() {
+        return throttleViolations.sum();
+    }
+
+    public int getOutboundQueueSize() {
+        return outboundQueueSize;
+    }
+
     @Override
     public String toString() {
         return "Statistic{" +
                 "creationDate=" + creationDate +
                 ", lastActivityTimestamp=" + lastActivityTimestamp +
-                ", sentBytes=" + sentBytes +
-                ", receivedBytes=" + receivedBytes +
+                ", lastReceivedTimestamp=" + lastReceivedTimestamp +
+                ", sentBytes=" + sentBytesCounter +
+                ", receivedBytes=" + receivedBytesCounter +
+                ", throttledSentMessages=" + throttledSentMessages +
+                ", throttleViolations=" + throttleViolations +
+                ", outboundQueueSize=" + outboundQueueSize +
                 '}';
     }
 
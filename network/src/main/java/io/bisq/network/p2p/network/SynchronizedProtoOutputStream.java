@@ -23,43 +23,35 @@ import org.slf4j.LoggerFactory;
 
 import javax.annotation.concurrent.ThreadSafe;
 import java.io.OutputStream;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.List;
 
+// Writes happen at the calling thread. The lock guarantees that envelopes of concurrent callers don't get interleaved.
 @ThreadSafe
 class SynchronizedProtoOutputStream extends ProtoOutputStream {
     private static final Logger log = LoggerFactory.getLogger(SynchronizedProtoOutputStream.class);
 
-    private final ExecutorService executorService;
+    private final Object lock = new Object();
 
     SynchronizedProtoOutputStream(OutputStream delegate, Statistic statistic) {
         super(delegate, statistic);
-        this.executorService = Executors.newSingleThreadExecutor();
     }
 
     @Override
     void writeEnvelope(NetworkEnvelope envelope) {
-        Future<?> future = executorService.submit(() -> super.writeEnvelope(envelope));
-        try {
-            future.get();
-        } catch (InterruptedException e) {
-            Thread currentThread = Thread.currentThread();
-            currentThread.interrupt();
-            final String msg = "Thread " + currentThread + " was interrupted. InterruptedException=" + e;
-            log.error(msg);
-            throw new BisqRuntimeException(msg, e);
-        } catch (ExecutionException e) {
-            final String msg = "Failed to write envelope. ExecutionException " + e;
-            log.error(msg);
-            throw new BisqRuntimeException(msg, e);
+        synchronized (lock) {
+            super.writeEnvelope(envelope);
+        }
+    }
+
+    @Override
+    void writeEnvelopes(List<NetworkEnvelope> envelopes) {
+        synchronized (lock) {
+            super.writeEnvelopes(envelopes);
         }
     }
 
     void onConnectionShutdown() {
         try {
-            executorService.shutdownNow();
             super.onConnectionShutdown();
         } catch (Throwable t) {
             log.error("Failed to handle connection shutdown. Throwable={}", t);
@@ -0,0 +1,74 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.network.p2p.network;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Allows bursts of up to burst permits and refills permitsPerSec permits per second.
+ */
+@NotThreadSafe
+class TokenBucket {
+    private final double permitsPerNano;
+    private final double capacity;
+    private final LongSupplier nanoClock;
+    private double tokens;
+    private long lastRefillTs;
+
+    TokenBucket(double permitsPerSec, int burst) {
+        this(permitsPerSec, burst, System::nanoTime);
+    }
+
+    TokenBucket(double permitsPerSec, int burst, LongSupplier nanoClock) {
+        this.permitsPerNano = permitsPerSec / TimeUnit.SECONDS.toNanos(1);
+        this.capacity = burst;
+        this.nanoClock = nanoClock;
+        tokens = burst;
+        lastRefillTs = nanoClock.getAsLong();
+    }
+
+    boolean hasPermit() {
+        refill();
+        return tokens >= 1;
+    }
+
+    void acquire() {
+        tokens -= 1;
+    }
+
+    boolean tryAcquire() {
+        if (hasPermit()) {
+            acquire();
+            return true;
+        }
+        return false;
+    }
+
+    long getNanosUntilPermit() {
+        refill();
+        return tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / permitsPerNano);
+    }
+
+    private void refill() {
+        long now = nanoClock.getAsLong();
+        tokens = Math.min(capacity, tokens + (now - lastRefillTs) * permitsPerNano);
+        lastRefillTs = now;
+    }
+}
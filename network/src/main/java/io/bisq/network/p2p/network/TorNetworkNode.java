@@ -25,6 +25,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.nio.file.Paths;
 import java.util.Date;
@@ -40,6 +41,7 @@ public class TorNetworkNode extends NetworkNode {
 
     private static final int MAX_RESTART_ATTEMPTS = 5;
     private static final long SHUT_DOWN_TIMEOUT = 5;
+    private static final int CONNECT_TIMEOUT = (int) TimeUnit.SECONDS.toMillis(120);
 
     private HiddenServiceSocket hiddenServiceSocket;
     private final File torDir;
@@ -83,6 +85,16 @@ public class TorNetworkNode extends NetworkNode {
     @Override
     protected Socket createSocket(NodeAddress peerNodeAddress) throws IOException {
         checkArgument(peerNodeAddress.getHostName().endsWith(".onion"), "PeerAddress is not an onion address");
+        Socks5Proxy socksProxy = getSocksProxy();
+        if (socksProxy != null) {
+            // We connect with a channel backed socket through the Tor Socks5 proxy, so the connection is handled by the
+            // NIO event loops instead of a thread per connection. We don't use stream isolation (same as TorSocket
+            // with a null streamId), so no authentication is needed.
+            InetSocketAddress proxyAddress = new InetSocketAddress(socksProxy.getInetAddress(), socksProxy.getPort());
+            return Socks5ChannelConnector.connect(proxyAddress, peerNodeAddress.getHostName(),
+                    peerNodeAddress.getPort(), CONNECT_TIMEOUT).socket();
+        }
+
         // If streamId is null stream isolation gets deactivated.
         // Hidden services use stream isolation by default so we pass null.
         return new TorSocket(peerNodeAddress.getHostName(), peerNodeAddress.getPort(), null);
@@ -1,21 +1,116 @@
 package io.bisq.network.p2p.peers;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import io.bisq.common.Timer;
+import io.bisq.common.UserThread;
 import io.bisq.common.app.Log;
 import io.bisq.common.util.Utilities;
 import io.bisq.network.p2p.NodeAddress;
+import io.bisq.network.p2p.network.Connection;
 import io.bisq.network.p2p.network.NetworkNode;
 import io.bisq.network.p2p.storage.messages.BroadcastMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import javax.inject.Inject;
-import java.util.Set;
-import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends broadcast messages to our peers. Each peer gets the message after a random delay which grows with the
+ * position of the peer in a shuffled peer list, so the peers receive it at different times.
+ * Sends are kept in an outbound queue per connection and one timer flushes the queues. All messages which are due
+ * for the same peer are sent with one write. Per message we only keep a few counters for tracking the completion.
+ * <p>
+ * Must be used from the UserThread.
+ */
+@Slf4j
+public class Broadcaster implements PeerManager.Listener {
+    @VisibleForTesting
+    static long TIMEOUT_MS = TimeUnit.SECONDS.toMillis(60);
+    @VisibleForTesting
+    static long TIMEOUT_CHECK_INTERVAL_MS = TimeUnit.SECONDS.toMillis(5);
+    // For not data owner (relay nodes) we send to max. 7 nodes and use a longer delay
+    private static final int MAX_RELAY_PEERS = 7;
+    private static final int DATA_OWNER_DELAY_MS = 50;
+    private static final int RELAY_DELAY_MS = 100;
+    // Sends to the same peer which are due within that time get written together. Smaller than the delay step
+    // between peers, so the random delay ordering of the peers is kept.
+    private static final long BATCH_WINDOW_MS = 40;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Listener
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public interface Listener {
+        @SuppressWarnings({"EmptyMethod", "UnusedParameters"})
+        void onBroadcasted(BroadcastMessage message, int numOfCompletedBroadcasts);
+
+        void onBroadcastedToFirstPeer(BroadcastMessage message);
+
+        void onBroadcastCompleted(BroadcastMessage message, int numOfCompletedBroadcasts, int numOfFailedBroadcasts);
+
+        @SuppressWarnings({"EmptyMethod", "UnusedParameters"})
+        void onBroadcastFailed(String errorMessage);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Per message state
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private static final class Broadcast {
+        private final BroadcastMessage message;
+        @Nullable
+        private final Listener listener;
+        private final long timeoutTs;
+        private int numPeers;
+        private int numOfCompletedBroadcasts;
+        private int numOfFailedBroadcasts;
+        private boolean done;
+
+        private Broadcast(BroadcastMessage message, @Nullable Listener listener, int numPeers, long timeoutTs) {
+            this.message = message;
+            this.listener = listener;
+            this.numPeers = numPeers;
+            this.timeoutTs = timeoutTs;
+        }
+
+        private boolean isComplete() {
+            return numOfCompletedBroadcasts + numOfFailedBroadcasts >= numPeers;
+        }
+    }
+
+    private static final class PendingSend {
+        private final long dueTs;
+        private final Broadcast broadcast;
+
+        private PendingSend(long dueTs, Broadcast broadcast) {
+            this.dueTs = dueTs;
+            this.broadcast = broadcast;
+        }
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Instance fields
+    ///////////////////////////////////////////////////////////////////////////////////////////
 
-public class Broadcaster implements BroadcastHandler.ResultHandler {
     private final NetworkNode networkNode;
     private final PeerManager peerManager;
-
-    private final Set<BroadcastHandler> broadcastHandlers = new CopyOnWriteArraySet<>();
+    private final Random random = new Random();
+    private final Map<Connection, List<PendingSend>> outboundQueues = new HashMap<>();
+    // Done broadcasts are removed at the next timeout check
+    private final List<Broadcast> broadcastsInFlight = new ArrayList<>();
+    @Nullable
+    private Timer flushTimer;
+    private long flushTs = Long.MAX_VALUE;
+    @Nullable
+    private Timer timeoutTimer;
 
 
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -26,11 +121,12 @@ public class Broadcaster implements BroadcastHandler.ResultHandler {
     public Broadcaster(NetworkNode networkNode, PeerManager peerManager) {
         this.networkNode = networkNode;
         this.peerManager = peerManager;
+        peerManager.addListener(this);
     }
 
     public void shutDown() {
-        broadcastHandlers.stream().forEach(BroadcastHandler::cancel);
-        broadcastHandlers.clear();
+        peerManager.removeListener(this);
+        cancelAll("Broadcast canceled.");
     }
 
 
@@ -39,27 +135,236 @@ public class Broadcaster implements BroadcastHandler.ResultHandler {
     ///////////////////////////////////////////////////////////////////////////////////////////
 
     public void broadcast(BroadcastMessage message, @Nullable NodeAddress sender,
-                          @Nullable BroadcastHandler.Listener listener, boolean isDataOwner) {
-        Log.traceCall("Sender=" + sender + "\n\t" +
-            "Message=" + Utilities.toTruncatedString(message));
+                          @Nullable Listener listener, boolean isDataOwner) {
+        Log.traceCall(() -> "Sender=" + sender + "\n\t" +
+                "Message=" + Utilities.toTruncatedString(message));
+
+        List<Connection> connectedPeersList = new ArrayList<>();
+        for (Connection connection : networkNode.getConfirmedConnections()) {
+            if (!connection.getPeersNodeAddressOptional().get().equals(sender))
+                connectedPeersList.add(connection);
+        }
+        if (connectedPeersList.isEmpty()) {
+            onFault(new Broadcast(message, listener, 0, 0), "Message not broadcasted because we have no available peers yet.\n\t" +
+                    "message = " + Utilities.toTruncatedString(message), false);
+            return;
+        }
 
-        BroadcastHandler broadcastHandler = new BroadcastHandler(networkNode, peerManager);
-        broadcastHandler.broadcast(message, sender, this, listener, isDataOwner);
-        broadcastHandlers.add(broadcastHandler);
+        Collections.shuffle(connectedPeersList, random);
+        int numPeers = isDataOwner ? connectedPeersList.size() : Math.min(MAX_RELAY_PEERS, connectedPeersList.size());
+        int delay = isDataOwner ? DATA_OWNER_DELAY_MS : RELAY_DELAY_MS;
+        long now = System.currentTimeMillis();
+        // The last peer gets the message at the latest after (numPeers + 1) * delay ms
+        long timeoutTs = now + TIMEOUT_MS + (long) delay * (numPeers + 1);
+        Broadcast broadcast = new Broadcast(message, listener, numPeers, timeoutTs);
+        broadcastsInFlight.add(broadcast);
+        if (timeoutTimer == null)
+            timeoutTimer = UserThread.runPeriodically(this::checkTimeouts, TIMEOUT_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+
+        log.debug("Broadcast message to {} peers out of {} total connected peers.", numPeers, connectedPeersList.size());
+        for (int i = 0; i < numPeers; i++) {
+            // Random delay between (i + 1) * delay and (i + 2) * delay
+            long dueTs = now + (i + 1) * delay + random.nextInt(delay);
+            outboundQueues.computeIfAbsent(connectedPeersList.get(i), connection -> new ArrayList<>())
+                    .add(new PendingSend(dueTs, broadcast));
+            scheduleFlush(dueTs);
+        }
     }
 
 
     ///////////////////////////////////////////////////////////////////////////////////////////
-    // BroadcastHandler.ResultHandler implementation
+    // PeerManager.Listener implementation
     ///////////////////////////////////////////////////////////////////////////////////////////
 
     @Override
-    public void onCompleted(BroadcastHandler broadcastHandler) {
-        broadcastHandlers.remove(broadcastHandler);
+    public void onAllConnectionsLost() {
+        cancelAll("All connections lost");
+    }
+
+    @Override
+    public void onNewConnectionAfterAllConnectionsLost() {
     }
 
     @Override
-    public void onFault(BroadcastHandler broadcastHandler) {
-        broadcastHandlers.remove(broadcastHandler);
+    public void onAwakeFromStandby() {
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private void scheduleFlush(long dueTs) {
+        if (dueTs >= flushTs)
+            return;
+
+        if (flushTimer != null)
+            flushTimer.stop();
+        flushTs = dueTs;
+        flushTimer = UserThread.runAfter(this::flush, Math.max(0, dueTs - System.currentTimeMillis()),
+                TimeUnit.MILLISECONDS);
+    }
+
+    private void flush() {
+        flushTimer = null;
+        flushTs = Long.MAX_VALUE;
+        long limit = System.currentTimeMillis() + BATCH_WINDOW_MS;
+        long nextDueTs = Long.MAX_VALUE;
+        Map<Connection, List<Broadcast>> batches = new HashMap<>();
+        Iterator<Map.Entry<Connection, List<PendingSend>>> iterator = outboundQueues.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Connection, List<PendingSend>> entry = iterator.next();
+            List<PendingSend> remaining = new ArrayList<>();
+            for (PendingSend pendingSend : entry.getValue()) {
+                if (pendingSend.broadcast.done)
+                    continue;  // do not continue sending after a timeout or a cancellation
+
+                if (pendingSend.dueTs <= limit) {
+                    batches.computeIfAbsent(entry.getKey(), connection -> new ArrayList<>()).add(pendingSend.broadcast);
+                } else {
+                    remaining.add(pendingSend);
+                    nextDueTs = Math.min(nextDueTs, pendingSend.dueTs);
+                }
+            }
+            if (remaining.isEmpty())
+                iterator.remove();
+            else
+                entry.setValue(remaining);
+        }
+
+        batches.forEach(this::sendToPeer);
+
+        if (nextDueTs != Long.MAX_VALUE)
+            scheduleFlush(nextDueTs);
+    }
+
+    private void sendToPeer(Connection connection, List<Broadcast> broadcasts) {
+        if (connection.isStopped()) {
+            broadcasts.forEach(broadcast -> onFailure(broadcast, connection, "Connection stopped already"));
+            return;
+        }
+
+        List<Broadcast> broadcastsToSend = new ArrayList<>(broadcasts.size());
+        List<BroadcastMessage> messages = new ArrayList<>(broadcasts.size());
+        for (Broadcast broadcast : broadcasts) {
+            if (!connection.isCapabilityRequired(broadcast.message) || connection.isCapabilitySupported(broadcast.message)) {
+                broadcastsToSend.add(broadcast);
+                messages.add(broadcast.message);
+            } else {
+                log.debug("We did not send the message because the peer does not support our required capabilities. message={}, peers supportedCapabilities={}", Utilities.toTruncatedString(broadcast.message, 200), connection.getSupportedCapabilities());
+                // The peer does not count as receiver of that message
+                broadcast.numPeers--;
+                if (broadcast.isComplete())
+                    onCompleted(broadcast);
+            }
+        }
+        if (messages.isEmpty())
+            return;
+
+        NodeAddress nodeAddress = connection.getPeersNodeAddressOptional().get();
+        log.trace("Broadcast {} messages to {}.", messages.size(), nodeAddress);
+        Futures.addCallback(networkNode.sendMessages(connection, messages), new FutureCallback<Connection>() {
+            @Override
+            public void onSuccess(Connection connection) {
+                broadcastsToSend.forEach(broadcast -> Broadcaster.this.onSuccess(broadcast, nodeAddress));
+            }
+
+            @Override
+            public void onFailure(@NotNull Throwable throwable) {
+                broadcastsToSend.forEach(broadcast -> Broadcaster.this.onFailure(broadcast, connection, throwable.getMessage()));
+            }
+        });
+    }
+
+    private void onSuccess(Broadcast broadcast, NodeAddress nodeAddress) {
+        broadcast.numOfCompletedBroadcasts++;
+        if (broadcast.done)
+            return;
+
+        log.trace("Broadcast to {} succeeded.", nodeAddress);
+        if (broadcast.listener != null) {
+            broadcast.listener.onBroadcasted(broadcast.message, broadcast.numOfCompletedBroadcasts);
+            if (broadcast.numOfCompletedBroadcasts == 1)
+                broadcast.listener.onBroadcastedToFirstPeer(broadcast.message);
+        }
+
+        if (broadcast.isComplete())
+            onCompleted(broadcast);
+    }
+
+    private void onFailure(Broadcast broadcast, Connection connection, String errorMessage) {
+        broadcast.numOfFailedBroadcasts++;
+        if (broadcast.done)
+            return;
+
+        log.info("Broadcast to " + connection.getPeersNodeAddressOptional() + " failed.\n\t" +
+                "ErrorMessage=" + errorMessage);
+        if (broadcast.isComplete())
+            onFault(broadcast, "Broadcast failed at last peer: " + errorMessage, true);
+    }
+
+    private void onCompleted(Broadcast broadcast) {
+        broadcast.done = true;
+        if (broadcast.listener != null)
+            broadcast.listener.onBroadcastCompleted(broadcast.message, broadcast.numOfCompletedBroadcasts,
+                    broadcast.numOfFailedBroadcasts);
+    }
+
+    private void onFault(Broadcast broadcast, String errorMessage, boolean logWarning) {
+        broadcast.done = true;
+        if (logWarning)
+            log.warn(errorMessage);
+        else
+            log.debug(errorMessage);
+
+        if (broadcast.listener != null) {
+            broadcast.listener.onBroadcastFailed(errorMessage);
+            broadcast.listener.onBroadcastCompleted(broadcast.message, broadcast.numOfCompletedBroadcasts,
+                    broadcast.numOfFailedBroadcasts);
+        }
+    }
+
+    private void checkTimeouts() {
+        long now = System.currentTimeMillis();
+        // Copy as listeners might start new broadcasts
+        List<Broadcast> timedOut = new ArrayList<>();
+        Iterator<Broadcast> iterator = broadcastsInFlight.iterator();
+        while (iterator.hasNext()) {
+            Broadcast broadcast = iterator.next();
+            if (broadcast.done) {
+                iterator.remove();
+            } else if (now >= broadcast.timeoutTs) {
+                iterator.remove();
+                timedOut.add(broadcast);
+            }
+        }
+        timedOut.forEach(broadcast -> onFault(broadcast, "Timeout: Broadcast did not complete in time.\n\t" +
+                "numOfPeers=" + broadcast.numPeers + "\n\t" +
+                "numOfCompletedBroadcasts=" + broadcast.numOfCompletedBroadcasts + "\n\t" +
+                "numOfFailedBroadcasts=" + broadcast.numOfFailedBroadcasts, false));
+
+        if (broadcastsInFlight.isEmpty() && timeoutTimer != null) {
+            timeoutTimer.stop();
+            timeoutTimer = null;
+        }
+    }
+
+    private void cancelAll(String errorMessage) {
+        if (flushTimer != null) {
+            flushTimer.stop();
+            flushTimer = null;
+        }
+        flushTs = Long.MAX_VALUE;
+        if (timeoutTimer != null) {
+            timeoutTimer.stop();
+            timeoutTimer = null;
+        }
+        outboundQueues.clear();
+
+        List<Broadcast> broadcasts = new ArrayList<>(broadcastsInFlight);
+        broadcastsInFlight.clear();
+        broadcasts.stream()
+                .filter(broadcast -> !broadcast.done)
+                .forEach(broadcast -> onFault(broadcast, errorMessage, false));
     }
 }
@@ -266,7 +266,7 @@ public class PeerManager implements ConnectionListener, PersistedDataHost {
     }
 
     private boolean checkMaxConnections() {
-        Log.traceCall("maxConnections=" + maxConnections);
+        Log.traceCall(() -> "maxConnections=" + maxConnections);
         Set<Connection> allConnections = networkNode.getAllConnections();
         int size = allConnections.size();
         log.info("We have {} connections open. Our limit is {}", size, maxConnections);
@@ -576,7 +576,7 @@ public class PeerManager implements ConnectionListener, PersistedDataHost {
     }
 
     public void handleConnectionFault(NodeAddress nodeAddress, @Nullable Connection connection) {
-        Log.traceCall("nodeAddress=" + nodeAddress);
+        Log.traceCall(() -> "nodeAddress=" + nodeAddress);
         log.debug("handleConnectionFault called: nodeAddress=" + nodeAddress);
         boolean doRemovePersistedPeer = false;
         removeReportedPeer(nodeAddress);
@@ -1,10 +1,14 @@
 package io.bisq.network.p2p.peers.getdata;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.PeekingIterator;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.SettableFuture;
 import io.bisq.common.Timer;
 import io.bisq.common.UserThread;
+import io.bisq.common.app.Capabilities;
 import io.bisq.common.app.Log;
 import io.bisq.common.proto.persistable.PersistablePayload;
 import io.bisq.common.util.Utilities;
@@ -21,16 +25,18 @@ import io.bisq.network.p2p.storage.payload.ProtectedStorageEntry;
 import io.bisq.network.p2p.storage.payload.ProtectedStoragePayload;
 import lombok.extern.slf4j.Slf4j;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.util.HashSet;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
 import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 @Slf4j
 public class GetDataRequestHandler {
     private static final long TIMEOUT = 60;
+    // Max. serialized size of the items of a chunk at a chunked response. A single larger item gets its own chunk.
+    private static final int MAX_CHUNK_SIZE = 1024 * 1024;
 
 
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -71,21 +77,28 @@ public class GetDataRequestHandler {
     ///////////////////////////////////////////////////////////////////////////////////////////
 
     public void handle(GetDataRequest getDataRequest, final Connection connection) {
-        Log.traceCall(getDataRequest + "\n\tconnection=" + connection);
+        Log.traceCall(() -> getDataRequest + "\n\tconnection=" + connection);
 
-        GetDataResponse getDataResponse = new GetDataResponse(getFilteredProtectedStorageEntries(getDataRequest, connection),
-                getFilteredPersistableNetworkPayload(getDataRequest, connection),
-                getDataRequest.getNonce(),
-                getDataRequest instanceof GetUpdatedDataRequest);
-
-        if (timeoutTimer == null) {
-            timeoutTimer = UserThread.runAfter(() -> {  // setup before sending to avoid race conditions
-                        String errorMessage = "A timeout occurred for getDataResponse " +
-                                " on connection:" + connection;
-                        handleFault(errorMessage, CloseConnectionReason.SEND_MSG_TIMEOUT, connection);
-                    },
-                    TIMEOUT, TimeUnit.SECONDS);
+        final List<Integer> supportedCapabilities = connection.getSupportedCapabilities();
+        if (supportedCapabilities != null &&
+                supportedCapabilities.contains(Capabilities.Capability.CHUNKED_GET_DATA.ordinal())) {
+            ChunkedResponse chunkedResponse = createChunkedResponse(getDataRequest, connection, MAX_CHUNK_SIZE);
+            sendResponse(chunkedResponse.nextChunk(), chunkedResponse, connection);
+        } else {
+            sendResponse(createGetDataResponse(getDataRequest, connection), null, connection);
         }
+    }
+
+    // The chunks are built and sent one after the other, so we only keep one chunk in memory and don't flood the
+    // send queue of the connection
+    private void sendResponse(GetDataResponse getDataResponse, @Nullable ChunkedResponse chunkedResponse, Connection connection) {
+        stopTimeoutTimer();
+        timeoutTimer = UserThread.runAfter(() -> {  // setup before sending to avoid race conditions
+                    String errorMessage = "A timeout occurred for getDataResponse " +
+                            " on connection:" + connection;
+                    handleFault(errorMessage, CloseConnectionReason.SEND_MSG_TIMEOUT, connection);
+                },
+                TIMEOUT, TimeUnit.SECONDS);
 
         SettableFuture<Connection> future = networkNode.sendMessage(connection, getDataResponse);
         Futures.addCallback(future, new FutureCallback<Connection>() {
@@ -94,8 +107,12 @@ public class GetDataRequestHandler {
                 if (!stopped) {
                     log.trace("Send DataResponse to {} succeeded. getDataResponse={}",
                             connection.getPeersNodeAddressOptional(), getDataResponse);
-                    cleanup();
-                    listener.onComplete();
+                    if (chunkedResponse != null && getDataResponse.isHasMore()) {
+                        sendResponse(chunkedResponse.nextChunk(), chunkedResponse, connection);
+                    } else {
+                        cleanup();
+                        listener.onComplete();
+                    }
                 } else {
                     log.trace("We have stopped already. We ignore that networkNode.sendMessage.onSuccess call.");
                 }
@@ -115,70 +132,193 @@ public class GetDataRequestHandler {
         });
     }
 
-    private Set<PersistableNetworkPayload> getFilteredPersistableNetworkPayload(GetDataRequest getDataRequest, Connection connection) {
-        final Set<P2PDataStorage.ByteArray> tempLookupSet = new HashSet<>();
-        Set<P2PDataStorage.ByteArray> excludedKeysAsByteArray = P2PDataStorage.ByteArray.convertBytesSetToByteArraySet(getDataRequest.getExcludedKeys());
+    @VisibleForTesting
+    GetDataResponse createGetDataResponse(GetDataRequest getDataRequest, Connection connection) {
+        Set<P2PDataStorage.ByteArray> keysMissingAtPeer = getKeysMissingAtPeer(getDataRequest);
+        boolean summaryDecodingFailed = isSummaryDecodingFailed(getDataRequest, keysMissingAtPeer);
+        return new GetDataResponse(getFilteredProtectedStorageEntries(getDataRequest, connection).collect(Collectors.toSet()),
+                summaryDecodingFailed ? null :
+                        getFilteredPersistableNetworkPayload(getDataRequest, keysMissingAtPeer, connection).collect(Collectors.toSet()),
+                getDataRequest.getNonce(),
+                getDataRequest instanceof GetUpdatedDataRequest,
+                summaryDecodingFailed);
+    }
 
-        return dataStorage.getPersistableNetworkPayloadCollection().getMap().entrySet().stream()
-                .filter(e -> !excludedKeysAsByteArray.contains(e.getKey()))
-                .map(Map.Entry::getValue)
-                .filter(payload -> (!(payload instanceof CapabilityRequiringPayload) ||
-                        connection.isCapabilitySupported(getDataRequest)))
-                .filter(payload -> tempLookupSet.add(new P2PDataStorage.ByteArray(payload.getHash())))
-                .collect(Collectors.toSet());
+    // We only take a snapshot of the keys here. The items are looked up in the data maps when their chunk is built.
+    @VisibleForTesting
+    ChunkedResponse createChunkedResponse(GetDataRequest getDataRequest, Connection connection, int maxChunkSize) {
+        Set<P2PDataStorage.ByteArray> keysMissingAtPeer = getKeysMissingAtPeer(getDataRequest);
+        boolean summaryDecodingFailed = isSummaryDecodingFailed(getDataRequest, keysMissingAtPeer);
+        return new ChunkedResponse(getFilteredProtectedStorageEntries(getDataRequest, connection).iterator(),
+                summaryDecodingFailed ? null :
+                        getFilteredPersistableNetworkPayload(getDataRequest, keysMissingAtPeer, connection).iterator(),
+                getDataRequest.getNonce(),
+                getDataRequest instanceof GetUpdatedDataRequest,
+                summaryDecodingFailed,
+                maxChunkSize);
     }
 
-    private Set<ProtectedStorageEntry> getFilteredProtectedStorageEntries(GetDataRequest getDataRequest, Connection connection) {
-        final Set<ProtectedStorageEntry> filteredDataSet = new HashSet<>();
-        final Set<Integer> lookupSet = new HashSet<>();
+    // If the requester sent a summary we only need to send the items the summary is missing. Returns null if we have
+    // to use the excludedKeys.
+    @Nullable
+    private Set<P2PDataStorage.ByteArray> getKeysMissingAtPeer(GetDataRequest getDataRequest) {
+        InvertibleBloomLookupTable summary = getDataRequest.getPersistableNetworkPayloadSummary();
+        return summary != null ?
+                summary.getKeysMissingAtPeer(dataStorage.getPersistableNetworkPayloadCollection().getMap().keySet()) :
+                null;
+    }
 
-        Set<P2PDataStorage.ByteArray> excludedKeysAsByteArray = P2PDataStorage.ByteArray.convertBytesSetToByteArraySet(getDataRequest.getExcludedKeys());
-        Set<ProtectedStorageEntry> filteredSet = dataStorage.getMap().entrySet().stream()
-                .filter(e -> !excludedKeysAsByteArray.contains(e.getKey()))
-                .map(Map.Entry::getValue)
-                .collect(Collectors.toSet());
-
-        for (ProtectedStorageEntry protectedStorageEntry : filteredSet) {
-            final ProtectedStoragePayload protectedStoragePayload = protectedStorageEntry.getProtectedStoragePayload();
-            boolean doAdd = false;
-            if (protectedStoragePayload instanceof CapabilityRequiringPayload) {
-                final List<Integer> requiredCapabilities = ((CapabilityRequiringPayload) protectedStoragePayload).getRequiredCapabilities();
-                final List<Integer> supportedCapabilities = connection.getSupportedCapabilities();
-                if (supportedCapabilities != null) {
-                    for (int messageCapability : requiredCapabilities) {
-                        for (int connectionCapability : supportedCapabilities) {
-                            if (messageCapability == connectionCapability) {
-                                doAdd = true;
-                                break;
-                            }
-                        }
-                    }
-                    if (!doAdd)
-                        log.debug("We do not send the message to the peer because he does not support the required capability for that message type.\n" +
-                                "Required capabilities is: " + requiredCapabilities.toString() + "\n" +
-                                "Supported capabilities is: " + supportedCapabilities.toString() + "\n" +
-                                "storagePayload is: " + Utilities.toTruncatedString(protectedStoragePayload));
-                } else {
-                    log.debug("We do not send the message to the peer because he uses an old version which does not support capabilities.\n" +
-                            "Required capabilities is: " + requiredCapabilities.toString() + "\n" +
-                            "storagePayload is: " + Utilities.toTruncatedString(protectedStoragePayload));
-                }
-            } else {
-                doAdd = true;
+    // If the requester sent a summary which we cannot decode and no excludedKeys we must not send all our
+    // PersistableNetworkPayload items. We signal the requester to repeat the request with the excludedKeys instead.
+    private static boolean isSummaryDecodingFailed(GetDataRequest getDataRequest,
+                                                   @Nullable Set<P2PDataStorage.ByteArray> keysMissingAtPeer) {
+        return getDataRequest.getPersistableNetworkPayloadSummary() != null &&
+                keysMissingAtPeer == null &&
+                getDataRequest.getExcludedKeys().isEmpty();
+    }
+
+    /**
+     * Builds the chunks of a response one by one with items of max. maxChunkSize bytes. A single larger item gets its
+     * own chunk. The ProtectedStorageEntry items come first, so the requester gets the offers before the
+     * PersistableNetworkPayload items.
+     */
+    @VisibleForTesting
+    static class ChunkedResponse {
+        private final PeekingIterator<ProtectedStorageEntry> protectedStorageEntries;
+        // Null if the peer could not decode the summary, then we keep a null set at all chunks
+        @Nullable
+        private final PeekingIterator<PersistableNetworkPayload> persistableNetworkPayloads;
+        private final int requestNonce;
+        private final boolean isGetUpdatedDataResponse;
+        private final boolean summaryDecodingFailed;
+        private final int maxChunkSize;
+        private int chunkIndex;
+
+        ChunkedResponse(Iterator<ProtectedStorageEntry> protectedStorageEntries,
+                        @Nullable Iterator<PersistableNetworkPayload> persistableNetworkPayloads,
+                        int requestNonce,
+                        boolean isGetUpdatedDataResponse,
+                        boolean summaryDecodingFailed,
+                        int maxChunkSize) {
+            this.protectedStorageEntries = Iterators.peekingIterator(protectedStorageEntries);
+            this.persistableNetworkPayloads = persistableNetworkPayloads != null ?
+                    Iterators.peekingIterator(persistableNetworkPayloads) : null;
+            this.requestNonce = requestNonce;
+            this.isGetUpdatedDataResponse = isGetUpdatedDataResponse;
+            this.summaryDecodingFailed = summaryDecodingFailed;
+            this.maxChunkSize = maxChunkSize;
+        }
+
+        GetDataResponse nextChunk() {
+            Set<ProtectedStorageEntry> dataSet = new HashSet<>();
+            int chunkSize = addItems(protectedStorageEntries, dataSet,
+                    entry -> entry.toProtoMessage().getSerializedSize(), 0);
+
+            Set<PersistableNetworkPayload> payloadSet = null;
+            if (persistableNetworkPayloads != null) {
+                payloadSet = new HashSet<>();
+                if (!protectedStorageEntries.hasNext())
+                    addItems(persistableNetworkPayloads, payloadSet,
+                            payload -> payload.toProtoMessage().getSerializedSize(), chunkSize);
             }
-            if (doAdd) {
-                boolean notContained = lookupSet.add(protectedStoragePayload.hashCode());
-                // We want to ignore TradeStatistics but the class it not known in network module so we use PersistablePayload
-                // as it was the only protectedStoragePayload object implementing PersistablePayload.
-                // CompensationRequestPayload was the other class but once we impl. that we don't need
-                // to support the old TradeStatistics data anymore...
-                //TODO PersistablePayload check can be removed once old TradeStatistics are not supported anymore
-                if (notContained && !(protectedStoragePayload instanceof PersistablePayload))
-                    filteredDataSet.add(protectedStorageEntry);
+
+            boolean hasMore = protectedStorageEntries.hasNext() ||
+                    (persistableNetworkPayloads != null && persistableNetworkPayloads.hasNext());
+            return new GetDataResponse(dataSet,
+                    payloadSet,
+                    requestNonce,
+                    isGetUpdatedDataResponse,
+                    summaryDecodingFailed,
+                    chunkIndex++,
+                    hasMore);
+        }
+
+        private <T> int addItems(PeekingIterator<T> items, Set<T> chunk, ToIntFunction<T> sizeFunction, int chunkSize) {
+            while (items.hasNext()) {
+                int size = sizeFunction.applyAsInt(items.peek());
+                if (chunkSize > 0 && chunkSize + size > maxChunkSize)
+                    break;
+
+                chunk.add(items.next());
+                chunkSize += size;
             }
+            return chunkSize;
+        }
+    }
+
+    // The stream is lazy and works on a snapshot of the keys, so items which got removed in the meantime are skipped
+    private Stream<PersistableNetworkPayload> getFilteredPersistableNetworkPayload(GetDataRequest getDataRequest,
+                                                                                  @Nullable Set<P2PDataStorage.ByteArray> keysMissingAtPeer,
+                                                                                  Connection connection) {
+        final Set<P2PDataStorage.ByteArray> tempLookupSet = new HashSet<>();
+        final Map<P2PDataStorage.ByteArray, PersistableNetworkPayload> map = dataStorage.getPersistableNetworkPayloadCollection().getMap();
+        List<P2PDataStorage.ByteArray> keys;
+        if (keysMissingAtPeer != null) {
+            // We got the difference from the summary, so we only need to look up the missing items
+            keys = new ArrayList<>(keysMissingAtPeer);
+        } else {
+            Set<P2PDataStorage.ByteArray> excludedKeysAsByteArray = P2PDataStorage.ByteArray.convertBytesSetToByteArraySet(getDataRequest.getExcludedKeys());
+            keys = map.keySet().stream()
+                    .filter(key -> !excludedKeysAsByteArray.contains(key))
+                    .collect(Collectors.toList());
+        }
+
+        // The capability check only depends on the request, so we evaluate it once and not for each payload
+        final boolean capabilitySupported = connection.isCapabilitySupported(getDataRequest);
+        return keys.stream()
+                .map(map::get)
+                .filter(Objects::nonNull)
+                .filter(payload -> !(payload instanceof CapabilityRequiringPayload) || capabilitySupported)
+                .filter(payload -> tempLookupSet.add(new P2PDataStorage.ByteArray(payload.getHash())));
+    }
+
+    // The stream is lazy and works on a snapshot of the keys, so entries which got removed in the meantime are skipped
+    private Stream<ProtectedStorageEntry> getFilteredProtectedStorageEntries(GetDataRequest getDataRequest, Connection connection) {
+        final Set<Integer> lookupSet = new HashSet<>();
+        final Map<P2PDataStorage.ByteArray, ProtectedStorageEntry> map = dataStorage.getMap();
+        Set<P2PDataStorage.ByteArray> excludedKeysAsByteArray = P2PDataStorage.ByteArray.convertBytesSetToByteArraySet(getDataRequest.getExcludedKeys());
+        List<P2PDataStorage.ByteArray> keys = map.keySet().stream()
+                .filter(key -> !excludedKeysAsByteArray.contains(key))
+                .collect(Collectors.toList());
+
+        return keys.stream()
+                .map(map::get)
+                .filter(Objects::nonNull)
+                .filter(protectedStorageEntry -> {
+                    final ProtectedStoragePayload protectedStoragePayload = protectedStorageEntry.getProtectedStoragePayload();
+                    // We want to ignore TradeStatistics but the class it not known in network module so we use PersistablePayload
+                    // as it was the only protectedStoragePayload object implementing PersistablePayload.
+                    // CompensationRequestPayload was the other class but once we impl. that we don't need
+                    // to support the old TradeStatistics data anymore...
+                    //TODO PersistablePayload check can be removed once old TradeStatistics are not supported anymore
+                    return isCapabilitySupported(protectedStoragePayload, connection) &&
+                            lookupSet.add(protectedStoragePayload.hashCode()) &&
+                            !(protectedStoragePayload instanceof PersistablePayload);
+                });
+    }
+
+    private static boolean isCapabilitySupported(ProtectedStoragePayload protectedStoragePayload, Connection connection) {
+        if (!(protectedStoragePayload instanceof CapabilityRequiringPayload))
+            return true;
+
+        final List<Integer> requiredCapabilities = ((CapabilityRequiringPayload) protectedStoragePayload).getRequiredCapabilities();
+        final List<Integer> supportedCapabilities = connection.getSupportedCapabilities();
+        if (supportedCapabilities == null) {
+            log.debug("We do not send the message to the peer because he uses an old version which does not support capabilities.\n" +
+                    "Required capabilities is: " + requiredCapabilities.toString() + "\n" +
+                    "storagePayload is: " + Utilities.toTruncatedString(protectedStoragePayload));
+            return false;
         }
 
-        return filteredDataSet;
+        for (int messageCapability : requiredCapabilities) {
+            if (supportedCapabilities.contains(messageCapability))
+                return true;
+        }
+        log.debug("We do not send the message to the peer because he does not support the required capability for that message type.\n" +
+                "Required capabilities is: " + requiredCapabilities.toString() + "\n" +
+                "Supported capabilities is: " + supportedCapabilities.toString() + "\n" +
+                "storagePayload is: " + Utilities.toTruncatedString(protectedStoragePayload));
+        return false;
     }
 
     public void stop() {
@@ -202,6 +342,10 @@ public class GetDataRequestHandler {
 
     private void cleanup() {
         stopped = true;
+        stopTimeoutTimer();
+    }
+
+    private void stopTimeoutTimer() {
         if (timeoutTimer != null) {
             timeoutTimer.stop();
             timeoutTimer = null;
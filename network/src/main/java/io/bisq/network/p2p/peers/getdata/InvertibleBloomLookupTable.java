@@ -0,0 +1,294 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.network.p2p.peers.getdata;
+
+import com.google.protobuf.ByteString;
+import io.bisq.common.proto.network.NetworkPayload;
+import io.bisq.generated.protobuffer.PB;
+import io.bisq.network.p2p.storage.P2PDataStorage;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Invertible Bloom lookup table (IBLT) used as compact summary of the keys of the PersistableNetworkPayload items
+ * we have already. Instead of sending all keys as excludedKeys in a GetDataRequest we send that table. The size only
+ * depends on the number of expected differences, not on the number of items. The requester estimates the difference,
+ * see RequestDataHandler.estimateNumMissingItems.
+ * The responder builds the same table from its own keys, subtracts ours and decodes the difference, so it gets the
+ * keys of the items we are missing. If the difference is too large the decoding fails and the responder signals that,
+ * so we fall back to the excludedKeys based request.
+ * <p>
+ * See: Eppstein et al., "What's the Difference? Efficient Set Reconciliation without Prior Context"
+ */
+@EqualsAndHashCode
+@Getter
+@Slf4j
+public final class InvertibleBloomLookupTable implements NetworkPayload {
+    static final int NUM_HASH_FUNCTIONS = 3;
+    // Our keys are RIPEMD160 or SHA256 hashes
+    static final int MAX_KEY_LENGTH = 32;
+    // First byte of a key sum is the key length
+    private static final int KEY_SUM_LENGTH = MAX_KEY_LENGTH + 1;
+    static final int MIN_CELLS = 3 * 32;
+    static final int MAX_CELLS = 3 * 4096;
+    // A table with m cells can be decoded with high probability up to about m / 1.3 differences. The difference is
+    // only estimated, so we use some more cells.
+    private static final double CELLS_PER_DIFFERENCE = 2;
+    // Serialized size of a cell: key sum, fixed64 hash sum and a sint32 count which is mostly 1 or 2 bytes
+    public static final int BYTES_PER_CELL = KEY_SUM_LENGTH + 8 + 2;
+    private static final long CHECK_SUM_SALT = 0x9E3779B97F4A7C15L;
+
+    private final int seed;
+    private final int[] counts;
+    private final long[] hashSums;
+    private final byte[] keySums;
+
+    /**
+     * @param expectedDifference Estimated number of keys which are only in one of both sets.
+     * @return The number of cells for decoding that difference or -1 if that would require more than MAX_CELLS.
+     */
+    public static int getNumCellsForDifference(int expectedDifference) {
+        long numCells = Math.max(MIN_CELLS, (long) Math.ceil(expectedDifference * CELLS_PER_DIFFERENCE));
+        // Must be a multiple of NUM_HASH_FUNCTIONS as each hash function has its own partition
+        numCells += (NUM_HASH_FUNCTIONS - numCells % NUM_HASH_FUNCTIONS) % NUM_HASH_FUNCTIONS;
+        return numCells <= MAX_CELLS ? (int) numCells : -1;
+    }
+
+    public static boolean isSupportedKey(byte[] key) {
+        return key.length <= MAX_KEY_LENGTH;
+    }
+
+    // Keys exceeding MAX_KEY_LENGTH are ignored. The requester does not use a summary if it has such keys.
+    public static InvertibleBloomLookupTable fromKeys(Collection<P2PDataStorage.ByteArray> keys, int numCells, int seed) {
+        InvertibleBloomLookupTable table = new InvertibleBloomLookupTable(seed, numCells);
+        keys.stream()
+                .filter(key -> isSupportedKey(key.bytes))
+                .forEach(key -> table.insert(key.bytes));
+        return table;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    InvertibleBloomLookupTable(int seed, int numCells) {
+        this(seed, new int[numCells], new long[numCells], new byte[numCells * KEY_SUM_LENGTH]);
+    }
+
+    private InvertibleBloomLookupTable(int seed, int[] counts, long[] hashSums, byte[] keySums) {
+        checkArgument(counts.length >= MIN_CELLS && counts.length <= MAX_CELLS &&
+                        counts.length % NUM_HASH_FUNCTIONS == 0,
+                "Invalid number of cells. numCells=" + counts.length);
+        checkArgument(hashSums.length == counts.length && keySums.length == counts.length * KEY_SUM_LENGTH,
+                "Size of hashSums or keySums not matching number of cells");
+        this.seed = seed;
+        this.counts = counts;
+        this.hashSums = hashSums;
+        this.keySums = keySums;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // PROTO BUFFER
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    @Override
+    public PB.InvertibleBloomLookupTable toProtoMessage() {
+        return PB.InvertibleBloomLookupTable.newBuilder()
+                .setSeed(seed)
+                .addAllCounts(Arrays.stream(counts).boxed().collect(Collectors.toList()))
+                .addAllHashSums(Arrays.stream(hashSums).boxed().collect(Collectors.toList()))
+                .setKeySums(ByteString.copyFrom(keySums))
+                .build();
+    }
+
+    public static InvertibleBloomLookupTable fromProto(PB.InvertibleBloomLookupTable proto) {
+        return new InvertibleBloomLookupTable(proto.getSeed(),
+                proto.getCountsList().stream().mapToInt(Integer::intValue).toArray(),
+                proto.getHashSumsList().stream().mapToLong(Long::longValue).toArray(),
+                proto.getKeySums().toByteArray());
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public int getNumCells() {
+        return counts.length;
+    }
+
+    /**
+     * @param ownKeys   Keys of the items we have.
+     * @return The keys of ownKeys which are not contained in the set the peer used for creating that table or
+     * null if the difference was too large to get decoded.
+     */
+    @Nullable
+    public Set<P2PDataStorage.ByteArray> getKeysMissingAtPeer(Collection<P2PDataStorage.ByteArray> ownKeys) {
+        InvertibleBloomLookupTable difference = fromKeys(ownKeys, getNumCells(), seed);
+        difference.subtract(this);
+        Set<P2PDataStorage.ByteArray> missingAtPeer = new HashSet<>();
+        Set<P2PDataStorage.ByteArray> missingAtUs = new HashSet<>();
+        if (difference.decode(missingAtPeer, missingAtUs)) {
+            log.debug("Decoded difference. missingAtPeer={}, missingAtUs={}", missingAtPeer.size(), missingAtUs.size());
+            return missingAtPeer;
+        } else {
+            log.info("Decoding of difference failed. We have more differences as the table with {} cells supports.",
+                    getNumCells());
+            return null;
+        }
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Package scope
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    void insert(byte[] key) {
+        checkArgument(isSupportedKey(key), "Key too long. key.length=" + key.length);
+        byte[] keySum = toKeySum(key);
+        update(keySum, checkSum(keySum), 1);
+    }
+
+    void subtract(InvertibleBloomLookupTable other) {
+        checkArgument(other.getNumCells() == getNumCells() && other.seed == seed,
+                "Tables must have the same number of cells and seed");
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] -= other.counts[i];
+            hashSums[i] ^= other.hashSums[i];
+        }
+        for (int i = 0; i < keySums.length; i++)
+            keySums[i] ^= other.keySums[i];
+    }
+
+    // Peels off all pure cells. Returns false if not all cells could be emptied.
+    boolean decode(Set<P2PDataStorage.ByteArray> positive, Set<P2PDataStorage.ByteArray> negative) {
+        Deque<Integer> pureCells = new ArrayDeque<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (isPure(i))
+                pureCells.add(i);
+        }
+
+        while (!pureCells.isEmpty()) {
+            int index = pureCells.poll();
+            if (!isPure(index))
+                continue;
+
+            int count = counts[index];
+            long checkSum = hashSums[index];
+            byte[] keySum = Arrays.copyOfRange(keySums, index * KEY_SUM_LENGTH, (index + 1) * KEY_SUM_LENGTH);
+            byte[] key = Arrays.copyOfRange(keySum, 1, 1 + keySum[0]);
+            if (count > 0)
+                positive.add(new P2PDataStorage.ByteArray(key));
+            else
+                negative.add(new P2PDataStorage.ByteArray(key));
+
+            for (int cellIndex : getCellIndices(keySum)) {
+                applyToCell(cellIndex, keySum, checkSum, -count);
+                if (isPure(cellIndex))
+                    pureCells.add(cellIndex);
+            }
+        }
+
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 0 || hashSums[i] != 0)
+                return false;
+        }
+        for (byte b : keySums) {
+            if (b != 0)
+                return false;
+        }
+        return true;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private void update(byte[] keySum, long checkSum, int count) {
+        for (int cellIndex : getCellIndices(keySum))
+            applyToCell(cellIndex, keySum, checkSum, count);
+    }
+
+    private void applyToCell(int cellIndex, byte[] keySum, long checkSum, int count) {
+        counts[cellIndex] += count;
+        hashSums[cellIndex] ^= checkSum;
+        int offset = cellIndex * KEY_SUM_LENGTH;
+        for (int i = 0; i < KEY_SUM_LENGTH; i++)
+            keySums[offset + i] ^= keySum[i];
+    }
+
+    private boolean isPure(int index) {
+        if (counts[index] != 1 && counts[index] != -1)
+            return false;
+
+        int offset = index * KEY_SUM_LENGTH;
+        int keyLength = keySums[offset];
+        if (keyLength <= 0 || keyLength > MAX_KEY_LENGTH)
+            return false;
+
+        byte[] keySum = Arrays.copyOfRange(keySums, offset, offset + KEY_SUM_LENGTH);
+        return hashSums[index] == checkSum(keySum);
+    }
+
+    // Each hash function maps into its own partition so a key never hits the same cell twice
+    private int[] getCellIndices(byte[] keySum) {
+        int partitionSize = counts.length / NUM_HASH_FUNCTIONS;
+        int[] indices = new int[NUM_HASH_FUNCTIONS];
+        for (int i = 0; i < NUM_HASH_FUNCTIONS; i++) {
+            long hash = hash64(keySum, seed + i);
+            indices[i] = i * partitionSize + (int) Math.floorMod(hash, (long) partitionSize);
+        }
+        return indices;
+    }
+
+    private long checkSum(byte[] keySum) {
+        return hash64(keySum, seed ^ CHECK_SUM_SALT);
+    }
+
+    private static byte[] toKeySum(byte[] key) {
+        byte[] keySum = new byte[KEY_SUM_LENGTH];
+        keySum[0] = (byte) key.length;
+        System.arraycopy(key, 0, keySum, 1, key.length);
+        return keySum;
+    }
+
+    // FNV-1a with the MurmurHash3 finalizer. Keys are hashes already, we only need a cheap and well mixed function.
+    private static long hash64(byte[] data, long seed) {
+        long hash = 0xcbf29ce484222325L ^ seed;
+        for (byte b : data) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -1,10 +1,12 @@
 package io.bisq.network.p2p.peers.getdata;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.SettableFuture;
 import io.bisq.common.Timer;
 import io.bisq.common.UserThread;
+import io.bisq.common.app.Capabilities;
 import io.bisq.common.app.Log;
 import io.bisq.common.proto.network.NetworkEnvelope;
 import io.bisq.common.proto.network.NetworkPayload;
@@ -36,6 +38,14 @@ import static com.google.common.base.Preconditions.checkArgument;
 @Slf4j
 class RequestDataHandler implements MessageListener {
     private static final long TIMEOUT = 60;
+    // Time span before our newest item we use for the rate of new items
+    private static final long ITEM_RATE_WINDOW_MS = TimeUnit.DAYS.toMillis(30);
+    // We might miss items which got created shortly before our newest item but arrived later
+    private static final long MIN_OFFLINE_MS = TimeUnit.HOURS.toMillis(6);
+    private static final int MIN_MISSING_ITEMS = 16;
+    // Size of an excluded key in the request: 20 bytes hash and the protobuf field overhead
+    private static final int BYTES_PER_EXCLUDED_KEY = 22;
+
     private NodeAddress peersNodeAddress;
 
 
@@ -44,6 +54,9 @@ class RequestDataHandler implements MessageListener {
     ///////////////////////////////////////////////////////////////////////////////////////////
 
     public interface Listener {
+        // Called when a chunk of the response is applied. Not chunked responses are one chunk.
+        void onChunkApplied(int numItems);
+
         void onComplete();
 
         @SuppressWarnings("UnusedParameters")
@@ -58,10 +71,21 @@ class RequestDataHandler implements MessageListener {
     private final NetworkNode networkNode;
     private final P2PDataStorage dataStorage;
     private final PeerManager peerManager;
+    // Peers we got a GetDataResponse with the DELTA_SYNC capability from. Shared by all handlers.
+    private final Set<NodeAddress> deltaSyncPeers;
     private final Listener listener;
     private Timer timeoutTimer;
-    private final int nonce = new Random().nextInt();
+    // Renewed for the fallback request, so a late response to our first request is not taken as its response
+    private int nonce = new Random().nextInt();
     private boolean stopped;
+    private boolean isPreliminaryDataRequest;
+    // Set to false if the peer could not decode our summary
+    private boolean useSummary = true;
+    // State of the chunks of the response to our current request
+    private int numChunksReceived;
+    private int numChunksPending;
+    private boolean lastChunkReceived;
+    private boolean summaryDecodingFailed;
 
 
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -71,10 +95,12 @@ class RequestDataHandler implements MessageListener {
     public RequestDataHandler(NetworkNode networkNode,
                               P2PDataStorage dataStorage,
                               PeerManager peerManager,
+                              Set<NodeAddress> deltaSyncPeers,
                               Listener listener) {
         this.networkNode = networkNode;
         this.dataStorage = dataStorage;
         this.peerManager = peerManager;
+        this.deltaSyncPeers = deltaSyncPeers;
         this.listener = listener;
     }
 
@@ -88,8 +114,13 @@ class RequestDataHandler implements MessageListener {
     ///////////////////////////////////////////////////////////////////////////////////////////
 
     public void requestData(NodeAddress nodeAddress, boolean isPreliminaryDataRequest) {
-        Log.traceCall("nodeAddress=" + nodeAddress);
+        Log.traceCall(() -> "nodeAddress=" + nodeAddress);
         peersNodeAddress = nodeAddress;
+        this.isPreliminaryDataRequest = isPreliminaryDataRequest;
+        numChunksReceived = 0;
+        numChunksPending = 0;
+        lastChunkReceived = false;
+        summaryDecodingFailed = false;
         if (!stopped) {
             GetDataRequest getDataRequest;
 
@@ -97,14 +128,41 @@ class RequestDataHandler implements MessageListener {
             // PersistedStoragePayload items don't get removed, so we don't have an issue with the case that
             // an object gets removed in between PreliminaryGetDataRequest and the GetUpdatedDataRequest and we would
             // miss that event if we do not load the full set or use some delta handling.
-            Set<byte[]> excludedKeys = dataStorage.getPersistableNetworkPayloadCollection().getMap().entrySet().stream()
-                    .map(e -> e.getKey().bytes)
-                    .collect(Collectors.toSet());
+            Map<P2PDataStorage.ByteArray, PersistableNetworkPayload> map = dataStorage.getPersistableNetworkPayloadCollection().getMap();
+            Set<P2PDataStorage.ByteArray> keys = map.keySet();
+
+            // If we know that the peer supports DELTA_SYNC we send a compact summary of our keys instead of the
+            // excludedKeys. If we don't know its capabilities yet (e.g. the first request to a seed node) we only send
+            // the excludedKeys and learn the capabilities from the response.
+            // The summary is sized for the estimated number of items we miss. If that summary would not be smaller
+            // than the excludedKeys we send the excludedKeys, so we don't risk a failed decoding and a second request.
+            InvertibleBloomLookupTable summary = null;
+            if (useSummary &&
+                    isDeltaSyncSupported(nodeAddress) &&
+                    keys.stream().allMatch(key -> InvertibleBloomLookupTable.isSupportedKey(key.bytes))) {
+                int estimatedNumMissingItems = estimateNumMissingItems(map.values(), System.currentTimeMillis());
+                int numCells = InvertibleBloomLookupTable.getNumCellsForDifference(estimatedNumMissingItems);
+                if (numCells > 0 &&
+                        (long) numCells * InvertibleBloomLookupTable.BYTES_PER_CELL < (long) keys.size() * BYTES_PER_EXCLUDED_KEY) {
+                    summary = InvertibleBloomLookupTable.fromKeys(keys, numCells, nonce);
+                } else {
+                    log.info("We expect to miss about {} items. We send the excludedKeys instead of a summary.",
+                            estimatedNumMissingItems);
+                }
+            }
+
+            Set<byte[]> excludedKeys;
+            if (summary != null)
+                excludedKeys = new HashSet<>();
+            else
+                excludedKeys = keys.stream()
+                        .map(e -> e.bytes)
+                        .collect(Collectors.toSet());
 
             if (isPreliminaryDataRequest)
-                getDataRequest = new PreliminaryGetDataRequest(nonce, excludedKeys);
+                getDataRequest = new PreliminaryGetDataRequest(nonce, excludedKeys, summary);
             else
-                getDataRequest = new GetUpdatedDataRequest(networkNode.getNodeAddress(), nonce, excludedKeys);
+                getDataRequest = new GetUpdatedDataRequest(networkNode.getNodeAddress(), nonce, excludedKeys, summary);
 
             if (timeoutTimer == null) {
                 timeoutTimer = UserThread.runAfter(() -> {  // setup before sending to avoid race conditions
@@ -163,7 +221,7 @@ class RequestDataHandler implements MessageListener {
     public void onMessage(NetworkEnvelope networkEnvelop, Connection connection) {
         if (networkEnvelop instanceof GetDataResponse) {
             if (connection.getPeersNodeAddressOptional().isPresent() && connection.getPeersNodeAddressOptional().get().equals(peersNodeAddress)) {
-                Log.traceCall(networkEnvelop.toString() + "\n\tconnection=" + connection);
+                Log.traceCall(() -> networkEnvelop.toString() + "\n\tconnection=" + connection);
                 if (!stopped) {
                     GetDataResponse getDataResponse = (GetDataResponse) networkEnvelop;
                     Map<String, Set<NetworkPayload>> payloadByClassName = new HashMap<>();
@@ -202,7 +260,10 @@ class RequestDataHandler implements MessageListener {
                     sb.append("Connected to node: " + peersNodeAddress.getFullAddress() + "\n");
                     final int items = dataSet.size() +
                             (persistableNetworkPayloadSet != null ? persistableNetworkPayloadSet.size() : 0);
-                    sb.append("Received ").append(items).append(" instances\n");
+                    sb.append("Received ").append(items).append(" instances");
+                    if (getDataResponse.getChunkIndex() > 0 || getDataResponse.isHasMore())
+                        sb.append(" in chunk ").append(getDataResponse.getChunkIndex());
+                    sb.append("\n");
                     payloadByClassName.entrySet().stream().forEach(e -> sb.append(e.getKey())
                             .append(": ")
                             .append(e.getValue().size())
@@ -216,16 +277,37 @@ class RequestDataHandler implements MessageListener {
                                 "RequestDataHandler.onMessage: connection.getPeersNodeAddressOptional() must be present " +
                                         "at that moment");
 
+                        if (getDataResponse.getChunkIndex() != numChunksReceived) {
+                            handleFault("Received chunk " + getDataResponse.getChunkIndex() + " but expected chunk " +
+                                            numChunksReceived + " from " + peersNodeAddress,
+                                    peersNodeAddress, CloseConnectionReason.RULE_VIOLATION);
+                            return;
+                        }
+                        List<Integer> supportedCapabilities = getDataResponse.getSupportedCapabilities();
+                        if (supportedCapabilities != null &&
+                                supportedCapabilities.contains(Capabilities.Capability.DELTA_SYNC.ordinal()))
+                            deltaSyncPeers.add(peersNodeAddress);
+
+                        numChunksReceived++;
+                        numChunksPending++;
+                        lastChunkReceived = !getDataResponse.isHasMore();
+                        summaryDecodingFailed |= getDataResponse.isSummaryDecodingFailed();
+                        if (lastChunkReceived) {
+                            // We stop listening for further responses while the entries are verified.
+                            networkNode.removeMessageListener(this);
+                        } else {
+                            startChunkTimeoutTimer();
+                        }
+
                         final NodeAddress sender = connection.getPeersNodeAddressOptional().get();
 
                         List<NetworkPayload> processDelayedItems = new ArrayList<>();
+                        List<ProtectedStorageEntry> protectedStorageEntries = new ArrayList<>();
                         dataSet.stream().forEach(e -> {
-                            if (e.getProtectedStoragePayload() instanceof LazyProcessedPayload) {
+                            if (e.getProtectedStoragePayload() instanceof LazyProcessedPayload)
                                 processDelayedItems.add(e);
-                            } else {
-                                // We dont broadcast here (last param) as we are only connected to the seed node and would be pointless
-                                dataStorage.addProtectedStorageEntry(e, sender, null, false, false);
-                            }
+                            else
+                                protectedStorageEntries.add(e);
                         });
 
                         if (persistableNetworkPayloadSet != null) {
@@ -268,8 +350,32 @@ class RequestDataHandler implements MessageListener {
                             }), delay, TimeUnit.MILLISECONDS);
                         }
 
-                        cleanup();
-                        listener.onComplete();
+                        // The signatures get verified in parallel. We dont broadcast here (allowBroadcast=false) as
+                        // we are only connected to the seed node and would be pointless.
+                        // At a chunked response we apply each chunk when it arrives, so the first offers are visible
+                        // before we have received all data and we never hold the whole response in memory.
+                        dataStorage.addProtectedStorageEntries(protectedStorageEntries, sender, false, () -> {
+                            if (stopped) {
+                                log.debug("We have stopped already while verifying the data.");
+                                return;
+                            }
+
+                            numChunksPending--;
+                            listener.onChunkApplied(items);
+                            if (!lastChunkReceived || numChunksPending > 0)
+                                return;
+
+                            if (summaryDecodingFailed && useSummary) {
+                                log.info("Peer {} could not decode our summary. We repeat our request with the excludedKeys.",
+                                        peersNodeAddress);
+                                useSummary = false;
+                                renewNonce();
+                                requestData(peersNodeAddress, isPreliminaryDataRequest);
+                            } else {
+                                cleanup();
+                                listener.onComplete();
+                            }
+                        });
                     } else {
                         log.debug("Nonce not matching. That can happen rarely if we get a response after a canceled " +
                                         "handshake (timeout causes connection close but peer might have sent a msg before " +
@@ -304,6 +410,54 @@ class RequestDataHandler implements MessageListener {
         listener.onFault(errorMessage, null);
     }
 
+    private void startChunkTimeoutTimer() {
+        timeoutTimer = UserThread.runAfter(() -> {
+                    if (!stopped) {
+                        String errorMessage = "A timeout occurred while waiting for chunk " + numChunksReceived +
+                                " of the getDataResponse from nodeAddress:" + peersNodeAddress;
+                        handleFault(errorMessage, peersNodeAddress, CloseConnectionReason.SEND_MSG_TIMEOUT);
+                    }
+                },
+                TIMEOUT);
+    }
+
+    private void renewNonce() {
+        int previousNonce = nonce;
+        do {
+            nonce = new Random().nextInt();
+        } while (nonce == previousNonce);
+    }
+
+    private boolean isDeltaSyncSupported(NodeAddress nodeAddress) {
+        return deltaSyncPeers.contains(nodeAddress) || networkNode.getConfirmedConnections().stream()
+                .filter(connection -> connection.getPeersNodeAddressOptional().get().equals(nodeAddress))
+                .map(Connection::getSupportedCapabilities)
+                .filter(Objects::nonNull)
+                .anyMatch(supportedCapabilities -> supportedCapabilities.contains(Capabilities.Capability.DELTA_SYNC.ordinal()));
+    }
+
+    // We estimate the number of items we miss from the rate of new items in the time before our newest item and the
+    // time since then. So a node which was offline for a long time sends a larger summary or the excludedKeys.
+    // Items without a date are not taken into account.
+    @VisibleForTesting
+    static int estimateNumMissingItems(Collection<PersistableNetworkPayload> items, long now) {
+        long newestDate = Math.min(now, items.stream()
+                .mapToLong(PersistableNetworkPayload::getDate)
+                .max()
+                .orElse(0));
+        if (newestDate <= 0)
+            return MIN_MISSING_ITEMS;
+
+        long windowStart = newestDate - ITEM_RATE_WINDOW_MS;
+        long numItemsInWindow = items.stream()
+                .mapToLong(PersistableNetworkPayload::getDate)
+                .filter(date -> date > windowStart)
+                .count();
+        double itemsPerMs = (double) numItemsInWindow / ITEM_RATE_WINDOW_MS;
+        long offlineMs = now - newestDate + MIN_OFFLINE_MS;
+        return (int) Math.min(Integer.MAX_VALUE, MIN_MISSING_ITEMS + Math.ceil(itemsPerMs * offlineMs));
+    }
+
     private void cleanup() {
         Log.traceCall();
         stopped = true;
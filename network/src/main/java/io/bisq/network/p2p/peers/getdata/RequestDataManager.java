@@ -38,6 +38,9 @@ public class RequestDataManager implements MessageListener, ConnectionListener,
     ///////////////////////////////////////////////////////////////////////////////////////////
 
     public interface Listener {
+        // Progress of a data request, called for each applied chunk of a response
+        void onDataChunkApplied(int numItems);
+
         void onPreliminaryDataReceived();
 
         void onUpdatedDataReceived();
@@ -61,6 +64,7 @@ public class RequestDataManager implements MessageListener, ConnectionListener,
     private Listener listener;
 
     private final Map<NodeAddress, RequestDataHandler> handlerMap = new HashMap<>();
+    private final Set<NodeAddress> deltaSyncPeers = new HashSet<>();
     private final Map<String, GetDataRequestHandler> getDataRequestHandlers = new HashMap<>();
     private Optional<NodeAddress> nodeAddressOfPreliminaryDataRequest = Optional.empty();
     private Timer retryTimer;
@@ -236,7 +240,7 @@ public class RequestDataManager implements MessageListener, ConnectionListener,
     @Override
     public void onMessage(NetworkEnvelope networkEnvelop, Connection connection) {
         if (networkEnvelop instanceof GetDataRequest) {
-            Log.traceCall(networkEnvelop.toString() + "\n\tconnection=" + connection);
+            Log.traceCall(() -> networkEnvelop.toString() + "\n\tconnection=" + connection);
             if (!stopped) {
                 if (peerManager.isSeedNode(connection))
                     connection.setPeerType(Connection.PeerType.SEED_NODE);
@@ -288,11 +292,17 @@ public class RequestDataManager implements MessageListener, ConnectionListener,
     ///////////////////////////////////////////////////////////////////////////////////////////
 
     private void requestData(NodeAddress nodeAddress, List<NodeAddress> remainingNodeAddresses) {
-        Log.traceCall("nodeAddress=" + nodeAddress + " /  remainingNodeAddresses=" + remainingNodeAddresses);
+        Log.traceCall(() -> "nodeAddress=" + nodeAddress + " /  remainingNodeAddresses=" + remainingNodeAddresses);
         if (!stopped) {
             if (!handlerMap.containsKey(nodeAddress)) {
                 RequestDataHandler requestDataHandler = new RequestDataHandler(networkNode, dataStorage, peerManager,
+                        deltaSyncPeers,
                         new RequestDataHandler.Listener() {
+                            @Override
+                            public void onChunkApplied(int numItems) {
+                                listener.onDataChunkApplied(numItems);
+                            }
+
                             @Override
                             public void onComplete() {
                                 log.trace("RequestDataHandshake of outbound connection complete. nodeAddress={}",
@@ -2,10 +2,12 @@ package io.bisq.network.p2p.peers.getdata.messages;
 
 import io.bisq.common.proto.network.NetworkEnvelope;
 import io.bisq.network.p2p.ExtendedDataSizePermission;
+import io.bisq.network.p2p.peers.getdata.InvertibleBloomLookupTable;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.ToString;
 
+import javax.annotation.Nullable;
 import java.util.Set;
 
 @EqualsAndHashCode(callSuper = true)
@@ -15,12 +17,18 @@ public abstract class GetDataRequest extends NetworkEnvelope implements Extended
     protected final int nonce;
     // Keys for ProtectedStorageEntry items to be excluded from the request because the peer has them already
     protected final Set<byte[]> excludedKeys;
+    // Summary of the keys of the PersistableNetworkPayload items we have. Only sent to peers supporting
+    // Capability.DELTA_SYNC. Old peers ignore it and use the excludedKeys.
+    @Nullable
+    protected final InvertibleBloomLookupTable persistableNetworkPayloadSummary;
 
     public GetDataRequest(int messageVersion,
                           int nonce,
-                          Set<byte[]> excludedKeys) {
+                          Set<byte[]> excludedKeys,
+                          @Nullable InvertibleBloomLookupTable persistableNetworkPayloadSummary) {
         super(messageVersion);
         this.nonce = nonce;
         this.excludedKeys = excludedKeys;
+        this.persistableNetworkPayloadSummary = persistableNetworkPayloadSummary;
     }
 }
@@ -37,15 +37,43 @@ public final class GetDataResponse extends NetworkEnvelope implements SupportedC
     private final boolean isGetUpdatedDataResponse;
     @Nullable
     private final List<Integer> supportedCapabilities;
+    // If the peer could not decode the difference from our persistableNetworkPayloadSummary it does not send any
+    // PersistableNetworkPayload items and we repeat the request with the excludedKeys.
+    private final boolean summaryDecodingFailed;
+    // If the requester supports Capability.CHUNKED_GET_DATA the response is split into chunks which are sent one
+    // after the other. hasMore is false at the last chunk and at a not chunked response.
+    private final int chunkIndex;
+    private final boolean hasMore;
 
     public GetDataResponse(Set<ProtectedStorageEntry> dataSet,
                            @Nullable Set<PersistableNetworkPayload> persistableNetworkPayloadSet,
                            int requestNonce,
                            boolean isGetUpdatedDataResponse) {
+        this(dataSet, persistableNetworkPayloadSet, requestNonce, isGetUpdatedDataResponse, false);
+    }
+
+    public GetDataResponse(Set<ProtectedStorageEntry> dataSet,
+                           @Nullable Set<PersistableNetworkPayload> persistableNetworkPayloadSet,
+                           int requestNonce,
+                           boolean isGetUpdatedDataResponse,
+                           boolean summaryDecodingFailed) {
+        this(dataSet, persistableNetworkPayloadSet, requestNonce, isGetUpdatedDataResponse, summaryDecodingFailed, 0, false);
+    }
+
+    public GetDataResponse(Set<ProtectedStorageEntry> dataSet,
+                           @Nullable Set<PersistableNetworkPayload> persistableNetworkPayloadSet,
+                           int requestNonce,
+                           boolean isGetUpdatedDataResponse,
+                           boolean summaryDecodingFailed,
+                           int chunkIndex,
+                           boolean hasMore) {
         this(dataSet,
                 persistableNetworkPayloadSet,
                 requestNonce,
                 isGetUpdatedDataResponse,
+                summaryDecodingFailed,
+                chunkIndex,
+                hasMore,
                 Capabilities.getSupportedCapabilities(),
                 Version.getP2PMessageVersion());
     }
@@ -58,6 +86,9 @@ public final class GetDataResponse extends NetworkEnvelope implements SupportedC
                             @Nullable Set<PersistableNetworkPayload> persistableNetworkPayloadSet,
                             int requestNonce,
                             boolean isGetUpdatedDataResponse,
+                            boolean summaryDecodingFailed,
+                            int chunkIndex,
+                            boolean hasMore,
                             @Nullable List<Integer> supportedCapabilities,
                             int messageVersion) {
         super(messageVersion);
@@ -66,6 +97,9 @@ public final class GetDataResponse extends NetworkEnvelope implements SupportedC
         this.persistableNetworkPayloadSet = persistableNetworkPayloadSet;
         this.requestNonce = requestNonce;
         this.isGetUpdatedDataResponse = isGetUpdatedDataResponse;
+        this.summaryDecodingFailed = summaryDecodingFailed;
+        this.chunkIndex = chunkIndex;
+        this.hasMore = hasMore;
         this.supportedCapabilities = supportedCapabilities;
     }
 
@@ -83,7 +117,10 @@ public final class GetDataResponse extends NetworkEnvelope implements SupportedC
                                         .build())
                         .collect(Collectors.toList()))
                 .setRequestNonce(requestNonce)
-                .setIsGetUpdatedDataResponse(isGetUpdatedDataResponse);
+                .setIsGetUpdatedDataResponse(isGetUpdatedDataResponse)
+                .setSummaryDecodingFailed(summaryDecodingFailed)
+                .setChunkIndex(chunkIndex)
+                .setHasMore(hasMore);
 
         Optional.ofNullable(supportedCapabilities).ifPresent(e -> builder.addAllSupportedCapabilities(supportedCapabilities));
         Optional.ofNullable(persistableNetworkPayloadSet).ifPresent(set -> builder.addAllPersistableNetworkPayloadItems(set.stream()
@@ -113,6 +150,9 @@ public final class GetDataResponse extends NetworkEnvelope implements SupportedC
                 persistableNetworkPayloadSet,
                 proto.getRequestNonce(),
                 proto.getIsGetUpdatedDataResponse(),
+                proto.getSummaryDecodingFailed(),
+                proto.getChunkIndex(),
+                proto.getHasMore(),
                 proto.getSupportedCapabilitiesList().isEmpty() ? null : proto.getSupportedCapabilitiesList(),
                 messageVersion);
     }
@@ -6,9 +6,12 @@ import io.bisq.common.proto.ProtoUtil;
 import io.bisq.generated.protobuffer.PB;
 import io.bisq.network.p2p.NodeAddress;
 import io.bisq.network.p2p.SendersNodeAddressMessage;
+import io.bisq.network.p2p.peers.getdata.InvertibleBloomLookupTable;
 import lombok.EqualsAndHashCode;
 import lombok.Value;
 
+import javax.annotation.Nullable;
+import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -21,10 +24,12 @@ public final class GetUpdatedDataRequest extends GetDataRequest implements Sende
 
     public GetUpdatedDataRequest(NodeAddress senderNodeAddress,
                                  int nonce,
-                                 Set<byte[]> excludedKeys) {
+                                 Set<byte[]> excludedKeys,
+                                 @Nullable InvertibleBloomLookupTable persistableNetworkPayloadSummary) {
         this(senderNodeAddress,
                 nonce,
                 excludedKeys,
+                persistableNetworkPayloadSummary,
                 Version.getP2PMessageVersion());
     }
 
@@ -36,10 +41,12 @@ public final class GetUpdatedDataRequest extends GetDataRequest implements Sende
     private GetUpdatedDataRequest(NodeAddress senderNodeAddress,
                                   int nonce,
                                   Set<byte[]> excludedKeys,
+                                  @Nullable InvertibleBloomLookupTable persistableNetworkPayloadSummary,
                                   int messageVersion) {
         super(messageVersion,
                 nonce,
-                excludedKeys);
+                excludedKeys,
+                persistableNetworkPayloadSummary);
         checkNotNull(senderNodeAddress, "senderNodeAddress must not be null at GetUpdatedDataRequest");
         this.senderNodeAddress = senderNodeAddress;
     }
@@ -53,6 +60,8 @@ public final class GetUpdatedDataRequest extends GetDataRequest implements Sende
                         .map(ByteString::copyFrom)
                         .collect(Collectors.toList()));
 
+        Optional.ofNullable(persistableNetworkPayloadSummary).ifPresent(e -> builder.setPersistableNetworkPayloadSummary(e.toProtoMessage()));
+
         return getNetworkEnvelopeBuilder()
                 .setGetUpdatedDataRequest(builder)
                 .build();
@@ -62,6 +71,8 @@ public final class GetUpdatedDataRequest extends GetDataRequest implements Sende
         return new GetUpdatedDataRequest(NodeAddress.fromProto(proto.getSenderNodeAddress()),
                 proto.getNonce(),
                 ProtoUtil.byteSetFromProtoByteStringList(proto.getExcludedKeysList()),
+                proto.hasPersistableNetworkPayloadSummary() ?
+                        InvertibleBloomLookupTable.fromProto(proto.getPersistableNetworkPayloadSummary()) : null,
                 messageVersion);
     }
 }
@@ -20,15 +20,31 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Random;
 
+// Checks all connections in one periodic sweep. Only outbound connections which did not receive any data for
+// PING_INTERVAL_MS get a Ping. We only look at inbound traffic as our own sends don't prevent the socket timeout
+// (120 sec.) at our side. The sweep also publishes the lock-free traffic counters of the connection
+// statistics to their properties, so the network threads don't need to post to the UserThread for each message.
 public class KeepAliveManager implements MessageListener, ConnectionListener, PeerManager.Listener {
     private static final Logger log = LoggerFactory.getLogger(KeepAliveManager.class);
 
-    private static final int INTERVAL_SEC = new Random().nextInt(5) + 30;
-    private static final long LAST_ACTIVITY_AGE_MS = INTERVAL_SEC / 2;
+    private static final int SWEEP_INTERVAL_SEC = 1;
+    private static final long PING_INTERVAL_MS = (new Random().nextInt(5) + 30) * 1000;
+
+    private static class PingState {
+        private final int nonce;
+        private final long sendTs;
+        private boolean pongReceived;
+
+        private PingState(int nonce, long sendTs) {
+            this.nonce = nonce;
+            this.sendTs = sendTs;
+        }
+    }
 
     private final NetworkNode networkNode;
     private final PeerManager peerManager;
-    private final Map<String, KeepAliveHandler> handlerMap = new HashMap<>();
+    private final Map<String, PingState> pingStateMap = new HashMap<>();
+    private final Random random = new Random();
 
     private boolean stopped;
     private Timer keepAliveTimer;
@@ -55,7 +71,7 @@ public class KeepAliveManager implements MessageListener, ConnectionListener, Pe
         networkNode.removeMessageListener(this);
         networkNode.removeConnectionListener(this);
         peerManager.removeListener(this);
-        closeAllHandlers();
+        pingStateMap.clear();
         stopKeepAliveTimer();
     }
 
@@ -76,7 +92,7 @@ public class KeepAliveManager implements MessageListener, ConnectionListener, Pe
     @Override
     public void onMessage(NetworkEnvelope networkEnvelop, Connection connection) {
         if (networkEnvelop instanceof Ping) {
-            Log.traceCall(networkEnvelop.toString() + "\n\tconnection=" + connection);
+            Log.traceCall(() -> networkEnvelop.toString() + "\n\tconnection=" + connection);
             if (!stopped) {
                 Ping ping = (Ping) networkEnvelop;
 
@@ -107,6 +123,12 @@ public class KeepAliveManager implements MessageListener, ConnectionListener, Pe
             } else {
                 log.warn("We have stopped already. We ignore that onMessage call.");
             }
+        } else if (networkEnvelop instanceof Pong) {
+            Log.traceCall(() -> networkEnvelop.toString() + "\n\tconnection=" + connection);
+            if (!stopped)
+                onPong((Pong) networkEnvelop, connection);
+            else
+                log.trace("We have stopped already. We ignore that onMessage call.");
         }
     }
 
@@ -123,7 +145,7 @@ public class KeepAliveManager implements MessageListener, ConnectionListener, Pe
     @Override
     public void onDisconnect(CloseConnectionReason closeConnectionReason, Connection connection) {
         Log.traceCall();
-        closeHandler(connection);
+        pingStateMap.remove(connection.getUid());
     }
 
     @Override
@@ -138,7 +160,7 @@ public class KeepAliveManager implements MessageListener, ConnectionListener, Pe
     @Override
     public void onAllConnectionsLost() {
         Log.traceCall();
-        closeAllHandlers();
+        pingStateMap.clear();
         stopKeepAliveTimer();
         stopped = true;
         restart();
@@ -147,7 +169,7 @@ public class KeepAliveManager implements MessageListener, ConnectionListener, Pe
     @Override
     public void onNewConnectionAfterAllConnectionsLost() {
         Log.traceCall();
-        closeAllHandlers();
+        pingStateMap.clear();
         stopped = false;
         restart();
     }
@@ -155,7 +177,7 @@ public class KeepAliveManager implements MessageListener, ConnectionListener, Pe
     @Override
     public void onAwakeFromStandby() {
         Log.traceCall();
-        closeAllHandlers();
+        pingStateMap.clear();
         stopped = false;
         if (!networkNode.getAllConnections().isEmpty())
             restart();
@@ -170,46 +192,75 @@ public class KeepAliveManager implements MessageListener, ConnectionListener, Pe
         if (keepAliveTimer == null)
             keepAliveTimer = UserThread.runPeriodically(() -> {
                 stopped = false;
-                keepAlive();
-            }, INTERVAL_SEC);
+                sweep();
+            }, SWEEP_INTERVAL_SEC);
     }
 
-    private void keepAlive() {
+    private void sweep() {
+        networkNode.getAllConnections().forEach(connection -> connection.getStatistic().updateProperties());
+        Statistic.updateTotalProperties();
+
         if (!stopped) {
-            Log.traceCall();
+            long now = System.currentTimeMillis();
             networkNode.getConfirmedConnections().stream()
-                .filter(connection -> connection instanceof OutboundConnection &&
-                    connection.getStatistic().getLastActivityAge() > LAST_ACTIVITY_AGE_MS)
-                .forEach(connection -> {
-                    final String uid = connection.getUid();
-                    if (!handlerMap.containsKey(uid)) {
-                        KeepAliveHandler keepAliveHandler = new KeepAliveHandler(networkNode, peerManager, new KeepAliveHandler.Listener() {
-                            @Override
-                            public void onComplete() {
-                                handlerMap.remove(uid);
-                            }
-
-                            @Override
-                            public void onFault(String errorMessage) {
-                                handlerMap.remove(uid);
-                            }
-                        });
-                        handlerMap.put(uid, keepAliveHandler);
-                        keepAliveHandler.sendPingAfterRandomDelay(connection);
-                    } else {
-                        // TODO check if this situation causes any issues
-                        log.debug("Connection with id {} has not completed and is still in our map. " +
-                            "We will try to ping that peer at the next schedule.", uid);
-                    }
-                });
+                    .filter(connection -> connection instanceof OutboundConnection &&
+                            connection.getStatistic().getLastReceivedAge() > PING_INTERVAL_MS)
+                    .forEach(connection -> {
+                        PingState pingState = pingStateMap.get(connection.getUid());
+                        if (pingState == null || now - pingState.sendTs > PING_INTERVAL_MS) {
+                            if (pingState != null && !pingState.pongReceived)
+                                log.debug("We did not receive a Pong for our last Ping. We send a new Ping. " +
+                                        "connection={}", connection);
+                            sendPing(connection);
+                        }
+                    });
 
-            int size = handlerMap.size();
-            log.debug("handlerMap size=" + size);
+            int size = pingStateMap.size();
             if (size > peerManager.getMaxConnections())
                 log.warn("Seems we didn't clean up out map correctly.\n" +
-                    "handlerMap size={}, peerManager.getMaxConnections()={}", size, peerManager.getMaxConnections());
+                        "pingStateMap size={}, peerManager.getMaxConnections()={}", size, peerManager.getMaxConnections());
+        }
+    }
+
+    private void sendPing(Connection connection) {
+        Ping ping = new Ping(random.nextInt(), connection.getStatistic().roundTripTimeProperty().get());
+        String uid = connection.getUid();
+        pingStateMap.put(uid, new PingState(ping.getNonce(), System.currentTimeMillis()));
+        SettableFuture<Connection> future = networkNode.sendMessage(connection, ping);
+        Futures.addCallback(future, new FutureCallback<Connection>() {
+            @Override
+            public void onSuccess(Connection connection) {
+                log.trace("Send " + ping + " to " + connection + " succeeded.");
+            }
+
+            @Override
+            public void onFailure(@NotNull Throwable throwable) {
+                if (!stopped) {
+                    pingStateMap.remove(uid);
+                    log.info("Sending ping to " + connection +
+                            " failed. That is expected if the peer is offline.\n\tping=" + ping +
+                            ".\n\tException=" + throwable.getMessage());
+                    peerManager.handleConnectionFault(connection);
+                } else {
+                    log.trace("We have stopped already. We ignore that networkNode.sendMessage.onFailure call.");
+                }
+            }
+        });
+    }
+
+    private void onPong(Pong pong, Connection connection) {
+        PingState pingState = pingStateMap.get(connection.getUid());
+        if (pingState == null || pingState.pongReceived) {
+            log.debug("We got a Pong we did not wait for. We ignore it. connection={}", connection);
+        } else if (pong.getRequestNonce() != pingState.nonce) {
+            log.warn("Nonce not matching. That should never happen.\n\t" +
+                            "We drop that message. nonce={} / requestNonce={}",
+                    pingState.nonce, pong.getRequestNonce());
         } else {
-            log.warn("We have stopped already. We ignore that keepAlive call.");
+            int roundTripTime = (int) (System.currentTimeMillis() - pingState.sendTs);
+            log.trace("roundTripTime=" + roundTripTime + "\n\tconnection=" + connection);
+            connection.getStatistic().setRoundTripTime(roundTripTime);
+            pingState.pongReceived = true;
         }
     }
 
@@ -220,18 +271,4 @@ public class KeepAliveManager implements MessageListener, ConnectionListener, Pe
             keepAliveTimer = null;
         }
     }
-
-    private void closeHandler(Connection connection) {
-        String uid = connection.getUid();
-        if (handlerMap.containsKey(uid)) {
-            handlerMap.get(uid).cancel();
-            handlerMap.remove(uid);
-        }
-    }
-
-    private void closeAllHandlers() {
-        handlerMap.values().stream().forEach(KeepAliveHandler::cancel);
-        handlerMap.clear();
-    }
-
 }
@@ -80,7 +80,7 @@ class PeerExchangeHandler implements MessageListener {
     }
 
     private void sendGetPeersRequest(NodeAddress nodeAddress) {
-        Log.traceCall("nodeAddress=" + nodeAddress + " / this=" + this);
+        Log.traceCall(() -> "nodeAddress=" + nodeAddress + " / this=" + this);
         log.debug("sendGetPeersRequest to nodeAddress={}", nodeAddress);
         if (!stopped) {
             if (networkNode.getNodeAddress() != null) {
@@ -143,7 +143,7 @@ class PeerExchangeHandler implements MessageListener {
     public void onMessage(NetworkEnvelope networkEnvelop, Connection connection) {
         if (networkEnvelop instanceof GetPeersResponse) {
             if (!stopped) {
-                Log.traceCall(networkEnvelop.toString() + "\n\tconnection=" + connection);
+                Log.traceCall(() -> networkEnvelop.toString() + "\n\tconnection=" + connection);
                 GetPeersResponse getPeersResponse = (GetPeersResponse) networkEnvelop;
                 if (peerManager.isSeedNode(connection))
                     connection.setPeerType(Connection.PeerType.SEED_NODE);
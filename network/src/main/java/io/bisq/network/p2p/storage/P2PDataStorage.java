@@ -16,13 +16,13 @@ import io.bisq.common.proto.persistable.PersistedDataHost;
 import io.bisq.common.proto.persistable.PersistenceProtoResolver;
 import io.bisq.common.storage.FileUtil;
 import io.bisq.common.storage.ResourceNotFoundException;
+import io.bisq.common.storage.SegmentedLogStore;
 import io.bisq.common.storage.Storage;
 import io.bisq.common.util.Tuple2;
 import io.bisq.common.util.Utilities;
 import io.bisq.generated.protobuffer.PB;
 import io.bisq.network.p2p.NodeAddress;
 import io.bisq.network.p2p.network.*;
-import io.bisq.network.p2p.peers.BroadcastHandler;
 import io.bisq.network.p2p.peers.Broadcaster;
 import io.bisq.network.p2p.storage.messages.*;
 import io.bisq.network.p2p.storage.payload.*;
@@ -60,11 +60,15 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
 
     private final Broadcaster broadcaster;
     private final File storageDir;
+    private final PersistenceProtoResolver persistenceProtoResolver;
 
     @Getter
     private final Map<ByteArray, ProtectedStorageEntry> map = new ConcurrentHashMap<>();
     private final CopyOnWriteArraySet<HashMapChangedListener> hashMapChangedListeners = new CopyOnWriteArraySet<>();
+    // Mailbox entries of map by the addressPrefixHash of the receiver, so receivers don't need to scan the whole map
+    private final Map<ByteArray, Map<ByteArray, ProtectedMailboxStorageEntry>> mailboxEntriesByAddressPrefixHash = new ConcurrentHashMap<>();
     private Timer removeExpiredEntriesTimer;
+    private final SignatureVerifier signatureVerifier = new SignatureVerifier();
 
     private final Storage<SequenceNumberMap> sequenceNumberMapStorage;
     private final SequenceNumberMap sequenceNumberMap = new SequenceNumberMap();
@@ -72,6 +76,7 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
     @Getter
     private PersistableNetworkPayloadCollection persistableNetworkPayloadCollection;
     private final Storage<PersistableNetworkPayloadCollection> persistableNetworkPayloadMapStorage;
+    private SegmentedLogStore persistableNetworkPayloadLogStore;
     private final CopyOnWriteArraySet<PersistableNetworkPayloadMapListener> persistableNetworkPayloadMapListeners = new CopyOnWriteArraySet<>();
 
 
@@ -86,6 +91,7 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
                           PersistenceProtoResolver persistenceProtoResolver) {
         this.broadcaster = broadcaster;
         this.storageDir = storageDir;
+        this.persistenceProtoResolver = persistenceProtoResolver;
 
         networkNode.addMessageListener(this);
         networkNode.addConnectionListener(this);
@@ -115,6 +121,26 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
         if (!dbDir.exists() && !dbDir.mkdir())
             log.warn("make dir failed.\ndbDir=" + dbDir.getAbsolutePath());
 
+        // New items are appended to the log store. The PersistableNetworkPayloadMap file (or the resource file) is
+        // only read once for migrating the data to the log store.
+        persistableNetworkPayloadLogStore = new SegmentedLogStore(new File(dbDir, storageFileName + "Log"));
+        if (persistableNetworkPayloadLogStore.hasSegments()) {
+            persistableNetworkPayloadCollection = new PersistableNetworkPayloadCollection();
+            persistableNetworkPayloadLogStore.read(buffer -> {
+                try {
+                    PersistableNetworkPayload payload = PersistableNetworkPayload.fromProto(
+                            PB.PersistableNetworkPayload.parseFrom(buffer), persistenceProtoResolver);
+                    persistableNetworkPayloadCollection.getMap().put(new ByteArray(payload.getHash()), payload);
+                } catch (Throwable t) {
+                    // Can be caused by a payload type added in a newer version
+                    log.warn("Could not parse record of persistableNetworkPayloadLogStore. " + t.toString());
+                }
+            });
+            log.info("persistableNetworkPayloadMap size=" + persistableNetworkPayloadCollection.getMap().size());
+            onPersistableNetworkPayloadCollectionRead();
+            return;
+        }
+
         final File destinationFile = new File(Paths.get(storageDir.getAbsolutePath(), storageFileName).toString());
         if (!destinationFile.exists()) {
             try {
@@ -133,16 +159,28 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
         persistableNetworkPayloadCollection = persistableNetworkPayloadMapStorage.initAndGetPersistedWithFileName(storageFileName, 100);
         if (persistableNetworkPayloadCollection != null) {
             log.info("persistableNetworkPayloadMap size=" + persistableNetworkPayloadCollection.getMap().size());
-
-            // In case another object is already listening...
-            if (!persistableNetworkPayloadMapListeners.isEmpty())
-                persistableNetworkPayloadCollection.getMap().values().stream()
-                        .forEach(payload -> persistableNetworkPayloadMapListeners.stream().forEach(e -> e.onAdded(payload)));
+            try {
+                persistableNetworkPayloadLogStore.appendAllNow(persistableNetworkPayloadCollection.getMap().values().stream()
+                        .map(payload -> payload.toProtoMessage().toByteArray())
+                        .collect(Collectors.toList()));
+                persistableNetworkPayloadMapStorage.remove(storageFileName);
+            } catch (Throwable t) {
+                // We keep the file so we will try again at next startup
+                log.error("Migration of " + storageFileName + " to persistableNetworkPayloadLogStore failed. " + t.toString());
+            }
+            onPersistableNetworkPayloadCollectionRead();
         } else {
             persistableNetworkPayloadCollection = new PersistableNetworkPayloadCollection();
         }
     }
 
+    private void onPersistableNetworkPayloadCollectionRead() {
+        // In case another object is already listening...
+        if (!persistableNetworkPayloadMapListeners.isEmpty())
+            persistableNetworkPayloadCollection.getMap().values().stream()
+                    .forEach(payload -> persistableNetworkPayloadMapListeners.stream().forEach(e -> e.onAdded(payload)));
+    }
+
 
     ///////////////////////////////////////////////////////////////////////////////////////////
     // API
@@ -151,37 +189,15 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
     public void shutDown() {
         if (removeExpiredEntriesTimer != null)
             removeExpiredEntriesTimer.stop();
-    }
 
-    public void onBootstrapComplete() {
-        removeExpiredEntriesTimer = UserThread.runPeriodically(() -> {
-            log.trace("removeExpiredEntries");
-            // The moment when an object becomes expired will not be synchronous in the network and we could
-            // get add network_messages after the object has expired. To avoid repeated additions of already expired
-            // object when we get it sent from new peers, we don’t remove the sequence number from the map.
-            // That way an ADD message for an already expired data will fail because the sequence number
-            // is equal and not larger as expected.
-            Map<ByteArray, ProtectedStorageEntry> temp = new HashMap<>(map);
-            Set<ProtectedStorageEntry> toRemoveSet = new HashSet<>();
-            temp.entrySet().stream()
-                    .filter(entry -> entry.getValue().isExpired())
-                    .forEach(entry -> {
-                        ByteArray hashOfPayload = entry.getKey();
-                        ProtectedStorageEntry protectedStorageEntry = map.get(hashOfPayload);
-                        if (!(protectedStorageEntry.getProtectedStoragePayload() instanceof PersistableNetworkPayload)) {
-                            toRemoveSet.add(protectedStorageEntry);
-                            log.debug("We found an expired data entry. We remove the protectedData:\n\t" + Utilities.toTruncatedString(protectedStorageEntry));
-                            map.remove(hashOfPayload);
-                        }
-                    });
+        if (persistableNetworkPayloadLogStore != null)
+            persistableNetworkPayloadLogStore.shutDown();
 
-            toRemoveSet.stream().forEach(
-                    protectedDataToRemove -> hashMapChangedListeners.stream().forEach(
-                            listener -> listener.onRemoved(protectedDataToRemove)));
+        signatureVerifier.shutDown();
+    }
 
-            if (sequenceNumberMap.size() > 1000)
-                sequenceNumberMap.setMap(getPurgedSequenceNumberMap(sequenceNumberMap.getMap()));
-        }, CHECK_TTL_INTERVAL_SEC);
+    public void onBootstrapComplete() {
+        removeExpiredEntriesTimer = UserThread.runPeriodically(this::removeExpiredEntries, CHECK_TTL_INTERVAL_SEC);
     }
 
 
@@ -192,16 +208,21 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
     @Override
     public void onMessage(NetworkEnvelope networkEnvelop, Connection connection) {
         if (networkEnvelop instanceof BroadcastMessage) {
-            Log.traceCall(Utilities.toTruncatedString(networkEnvelop) + "\n\tconnection=" + connection);
+            Log.traceCall(() -> Utilities.toTruncatedString(networkEnvelop) + "\n\tconnection=" + connection);
             connection.getPeersNodeAddressOptional().ifPresent(peersNodeAddress -> {
+                // Signatures of add and refresh messages are verified at the worker threads of the signatureVerifier.
+                // Remove messages are passed through it as well so they do not overtake a pending add.
                 if (networkEnvelop instanceof AddDataMessage) {
-                    addProtectedStorageEntry(((AddDataMessage) networkEnvelop).getProtectedStorageEntry(), peersNodeAddress, null, false);
+                    addProtectedStorageEntries(Collections.singletonList(((AddDataMessage) networkEnvelop).getProtectedStorageEntry()),
+                            peersNodeAddress, true, null);
                 } else if (networkEnvelop instanceof RemoveDataMessage) {
-                    remove(((RemoveDataMessage) networkEnvelop).getProtectedStorageEntry(), peersNodeAddress, false);
+                    signatureVerifier.runInOrder(() ->
+                            remove(((RemoveDataMessage) networkEnvelop).getProtectedStorageEntry(), peersNodeAddress, false));
                 } else if (networkEnvelop instanceof RemoveMailboxDataMessage) {
-                    removeMailboxData(((RemoveMailboxDataMessage) networkEnvelop).getProtectedMailboxStorageEntry(), peersNodeAddress, false);
+                    signatureVerifier.runInOrder(() ->
+                            removeMailboxData(((RemoveMailboxDataMessage) networkEnvelop).getProtectedMailboxStorageEntry(), peersNodeAddress, false));
                 } else if (networkEnvelop instanceof RefreshOfferMessage) {
-                    refreshTTL((RefreshOfferMessage) networkEnvelop, peersNodeAddress, false);
+                    refreshTTLAsync((RefreshOfferMessage) networkEnvelop, peersNodeAddress);
                 } else if (networkEnvelop instanceof AddPersistableNetworkPayloadMessage) {
                     addPersistableNetworkPayload(((AddPersistableNetworkPayloadMessage) networkEnvelop).getPersistableNetworkPayload(),
                             peersNodeAddress, false, true, false, true);
@@ -294,7 +315,7 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
                 if (!(payload instanceof DateTolerantPayload) || !checkDate || ((DateTolerantPayload) payload).isDateInTolerance()) {
                     if (!containsKey) {
                         persistableNetworkPayloadCollection.getMap().put(hashAsByteArray, payload);
-                        persistableNetworkPayloadMapStorage.queueUpForSave(persistableNetworkPayloadCollection, 2000);
+                        persistableNetworkPayloadLogStore.append(payload.toProtoMessage().toByteArray());
                         persistableNetworkPayloadMapListeners.stream().forEach(e -> e.onAdded(payload));
                     }
                     if (allowBroadcast)
@@ -317,19 +338,45 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
     }
 
     public boolean addProtectedStorageEntry(ProtectedStorageEntry protectedStorageEntry, @Nullable NodeAddress sender,
-                                            @Nullable BroadcastHandler.Listener listener, boolean isDataOwner) {
+                                            @Nullable Broadcaster.Listener listener, boolean isDataOwner) {
         Log.traceCall("with allowBroadcast=true");
         return addProtectedStorageEntry(protectedStorageEntry, sender, listener, isDataOwner, true);
     }
 
     public boolean addProtectedStorageEntry(ProtectedStorageEntry protectedStorageEntry, @Nullable NodeAddress sender,
-                                            @Nullable BroadcastHandler.Listener listener, boolean isDataOwner, boolean allowBroadcast) {
-        Log.traceCall("with allowBroadcast=" + allowBroadcast);
+                                            @Nullable Broadcaster.Listener listener, boolean isDataOwner, boolean allowBroadcast) {
+        return addProtectedStorageEntry(protectedStorageEntry, sender, listener, isDataOwner, allowBroadcast, false);
+    }
+
+    /**
+     * Verifies the signatures of the entries in parallel at the signatureVerifier and adds the valid entries at the
+     * UserThread. Used for entries received from the network, where the verification would otherwise block the
+     * UserThread (e.g. GetDataResponse at startup).
+     *
+     * @param resultHandler Called at the UserThread after all valid entries have been added
+     */
+    public void addProtectedStorageEntries(Collection<ProtectedStorageEntry> protectedStorageEntries,
+                                           @Nullable NodeAddress sender,
+                                           boolean allowBroadcast,
+                                           @Nullable Runnable resultHandler) {
+        signatureVerifier.verify(new ArrayList<>(protectedStorageEntries),
+                this::checkSignature,
+                verifiedEntries -> {
+                    verifiedEntries.forEach(entry -> addProtectedStorageEntry(entry, sender, null, false, allowBroadcast, true));
+                    if (resultHandler != null)
+                        resultHandler.run();
+                });
+    }
+
+    private boolean addProtectedStorageEntry(ProtectedStorageEntry protectedStorageEntry, @Nullable NodeAddress sender,
+                                             @Nullable Broadcaster.Listener listener, boolean isDataOwner,
+                                             boolean allowBroadcast, boolean isSignatureVerified) {
+        Log.traceCall(() -> "with allowBroadcast=" + allowBroadcast);
         final ProtectedStoragePayload protectedStoragePayload = protectedStorageEntry.getProtectedStoragePayload();
         ByteArray hashOfPayload = getHashAsByteArray(protectedStoragePayload);
         boolean sequenceNrValid = isSequenceNrValid(protectedStorageEntry.getSequenceNumber(), hashOfPayload);
         boolean result = checkPublicKeys(protectedStorageEntry, true)
-                && checkSignature(protectedStorageEntry)
+                && (isSignatureVerified || checkSignature(protectedStorageEntry))
                 && sequenceNrValid;
 
         boolean containsKey = map.containsKey(hashOfPayload);
@@ -343,6 +390,7 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
             if (!containsKey || hasSequenceNrIncreased) {
                 // At startup we don't have the item so we store it. At updates of the seq nr we store as well.
                 map.put(hashOfPayload, protectedStorageEntry);
+                addToMailboxIndex(protectedStorageEntry, hashOfPayload);
                 hashMapChangedListeners.forEach(e -> e.onAdded(protectedStorageEntry));
                 // printData("after add");
             } else {
@@ -366,6 +414,30 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
     }
 
     public boolean refreshTTL(RefreshOfferMessage refreshTTLMessage, @Nullable NodeAddress sender, boolean isDataOwner) {
+        return refreshTTL(refreshTTLMessage, sender, isDataOwner, false);
+    }
+
+    private void refreshTTLAsync(RefreshOfferMessage refreshTTLMessage, NodeAddress sender) {
+        ByteArray hashOfPayload = new ByteArray(refreshTTLMessage.getHashOfPayload());
+        ProtectedStorageEntry storedData = map.get(hashOfPayload);
+        // We get the same refresh message from several peers, so we don't verify if we know that seq nr already
+        boolean isKnownSequenceNr = sequenceNumberMap.containsKey(hashOfPayload) &&
+                sequenceNumberMap.get(hashOfPayload).sequenceNr == refreshTTLMessage.getSequenceNumber();
+        if (storedData != null && !isKnownSequenceNr) {
+            // The owner cannot change as the hash of the payload contains the ownerPubKey. refreshTTL checks that
+            // again once we are back at the UserThread.
+            PublicKey ownerPubKey = storedData.getProtectedStoragePayload().getOwnerPubKey();
+            signatureVerifier.verify(Collections.singletonList(refreshTTLMessage),
+                    message -> checkSignature(ownerPubKey, message.getHashOfDataAndSeqNr(), message.getSignature()),
+                    verifiedMessages -> verifiedMessages.forEach(message -> refreshTTL(message, sender, false, true)));
+        } else {
+            // We let refreshTTL handle that case after pending adds have been applied
+            signatureVerifier.runInOrder(() -> refreshTTL(refreshTTLMessage, sender, false));
+        }
+    }
+
+    private boolean refreshTTL(RefreshOfferMessage refreshTTLMessage, @Nullable NodeAddress sender, boolean isDataOwner,
+                               boolean isSignatureVerified) {
         Log.traceCall();
 
         byte[] hashOfDataAndSeqNr = refreshTTLMessage.getHashOfDataAndSeqNr();
@@ -381,7 +453,7 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
                 return true;
             } else {
                 PublicKey ownerPubKey = storedData.getProtectedStoragePayload().getOwnerPubKey();
-                final boolean checkSignature = checkSignature(ownerPubKey, hashOfDataAndSeqNr, signature);
+                final boolean checkSignature = isSignatureVerified || checkSignature(ownerPubKey, hashOfDataAndSeqNr, signature);
                 final boolean hasSequenceNrIncreased = hasSequenceNrIncreased(sequenceNumber, hashOfPayload);
                 final boolean checkIfStoredDataPubKeyMatchesNewDataPubKey = checkIfStoredDataPubKeyMatchesNewDataPubKey(ownerPubKey,
                         hashOfPayload);
@@ -523,17 +595,82 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
         persistableNetworkPayloadMapListeners.remove(listener);
     }
 
+    /**
+     * @param addressPrefixHash The addressPrefixHash of the receiver
+     * @return The mailbox entries addressed to the given addressPrefixHash by the hash of their payload
+     */
+    public Map<ByteArray, ProtectedMailboxStorageEntry> getMailboxEntries(byte[] addressPrefixHash) {
+        Map<ByteArray, ProtectedMailboxStorageEntry> entries = mailboxEntriesByAddressPrefixHash.get(new ByteArray(addressPrefixHash));
+        return entries != null ? new HashMap<>(entries) : new HashMap<>();
+    }
+
 
     ///////////////////////////////////////////////////////////////////////////////////////////
     // Private
     ///////////////////////////////////////////////////////////////////////////////////////////
 
+    @VisibleForTesting
+    void removeExpiredEntries() {
+        log.trace("removeExpiredEntries");
+        // The moment when an object becomes expired will not be synchronous in the network and we could
+        // get add network_messages after the object has expired. To avoid repeated additions of already expired
+        // object when we get it sent from new peers, we don’t remove the sequence number from the map.
+        // That way an ADD message for an already expired data will fail because the sequence number
+        // is equal and not larger as expected.
+        Map<ByteArray, ProtectedStorageEntry> temp = new HashMap<>(map);
+        Set<ProtectedStorageEntry> toRemoveSet = new HashSet<>();
+        temp.entrySet().stream()
+                .filter(entry -> entry.getValue().isExpired())
+                .forEach(entry -> {
+                    ByteArray hashOfPayload = entry.getKey();
+                    ProtectedStorageEntry protectedStorageEntry = map.get(hashOfPayload);
+                    if (!(protectedStorageEntry.getProtectedStoragePayload() instanceof PersistableNetworkPayload)) {
+                        toRemoveSet.add(protectedStorageEntry);
+                        log.debug("We found an expired data entry. We remove the protectedData:\n\t" + Utilities.toTruncatedString(protectedStorageEntry));
+                        map.remove(hashOfPayload);
+                        removeFromMailboxIndex(protectedStorageEntry, hashOfPayload);
+                    }
+                });
+
+        toRemoveSet.stream().forEach(
+                protectedDataToRemove -> hashMapChangedListeners.stream().forEach(
+                        listener -> listener.onRemoved(protectedDataToRemove)));
+
+        if (sequenceNumberMap.size() > 1000)
+            sequenceNumberMap.setMap(getPurgedSequenceNumberMap(sequenceNumberMap.getMap()));
+    }
+
     private void doRemoveProtectedExpirableData(ProtectedStorageEntry protectedStorageEntry, ByteArray hashOfPayload) {
         map.remove(hashOfPayload);
+        removeFromMailboxIndex(protectedStorageEntry, hashOfPayload);
         log.trace("Data removed from our map. We broadcast the message to our peers.");
         hashMapChangedListeners.stream().forEach(e -> e.onRemoved(protectedStorageEntry));
     }
 
+    private void addToMailboxIndex(ProtectedStorageEntry protectedStorageEntry, ByteArray hashOfPayload) {
+        if (protectedStorageEntry instanceof ProtectedMailboxStorageEntry) {
+            ProtectedMailboxStorageEntry mailboxEntry = (ProtectedMailboxStorageEntry) protectedStorageEntry;
+            mailboxEntriesByAddressPrefixHash.computeIfAbsent(getAddressPrefixHash(mailboxEntry), k -> new ConcurrentHashMap<>())
+                    .put(hashOfPayload, mailboxEntry);
+        }
+    }
+
+    private void removeFromMailboxIndex(ProtectedStorageEntry protectedStorageEntry, ByteArray hashOfPayload) {
+        if (protectedStorageEntry instanceof ProtectedMailboxStorageEntry) {
+            ByteArray addressPrefixHash = getAddressPrefixHash((ProtectedMailboxStorageEntry) protectedStorageEntry);
+            Map<ByteArray, ProtectedMailboxStorageEntry> entries = mailboxEntriesByAddressPrefixHash.get(addressPrefixHash);
+            if (entries != null) {
+                entries.remove(hashOfPayload);
+                if (entries.isEmpty())
+                    mailboxEntriesByAddressPrefixHash.remove(addressPrefixHash);
+            }
+        }
+    }
+
+    private static ByteArray getAddressPrefixHash(ProtectedMailboxStorageEntry mailboxEntry) {
+        return new ByteArray(mailboxEntry.getMailboxStoragePayload().getPrefixedSealedAndSignedMessage().getAddressPrefixHash());
+    }
+
     private boolean isSequenceNrValid(int newSequenceNumber, ByteArray hashOfData) {
         if (sequenceNumberMap.containsKey(hashOfData)) {
             int storedSequenceNumber = sequenceNumberMap.get(hashOfData).sequenceNr;
@@ -548,7 +685,7 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
                 return false;
             }
         } else {
-            log.trace("Sequence number is valid (!sequenceNumberMap.containsKey(hashOfData)). sequenceNumber = " + newSequenceNumber);
+            log.trace("Sequence number is valid (!sequenceNumberMap.containsKey(hashOfData)). sequenceNumber = {}", newSequenceNumber);
             return true;
         }
     }
@@ -578,7 +715,7 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
                 return false;
             }
         } else {
-            log.trace("Sequence number has increased (!sequenceNumberMap.containsKey(hashOfData)). sequenceNumber = " + newSequenceNumber + " / hashOfData=" + hashOfData.toString());
+            log.trace("Sequence number has increased (!sequenceNumberMap.containsKey(hashOfData)). sequenceNumber = {} / hashOfData={}", newSequenceNumber, hashOfData);
             return true;
         }
     }
@@ -664,7 +801,7 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
     }
 
     private void broadcast(BroadcastMessage message, @Nullable NodeAddress sender,
-                           @Nullable BroadcastHandler.Listener listener, boolean isDataOwner) {
+                           @Nullable Broadcaster.Listener listener, boolean isDataOwner) {
         broadcaster.broadcast(message, sender, listener, isDataOwner);
     }
 
@@ -684,7 +821,8 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
     }
 
     private void printData(String info) {
-        if (LoggerFactory.getLogger(Log.class).isInfoEnabled() || LoggerFactory.getLogger(Log.class).isDebugEnabled()) {
+        // Builds a dump of the whole data set, so we only do that if it gets logged
+        if (log.isDebugEnabled()) {
             StringBuilder sb = new StringBuilder("\n\n------------------------------------------------------------\n");
             sb.append("Data set ").append(info).append(" operation");
             // We print the items sorted by hash with the payload class name and id
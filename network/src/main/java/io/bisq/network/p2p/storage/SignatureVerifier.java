@@ -0,0 +1,178 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.network.p2p.storage;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.*;
+import io.bisq.common.UserThread;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Runs the signature checks of incoming storage entries on a fixed size worker pool instead of the UserThread.
+ * Only the results are handed back to the UserThread, where the caller applies the verified items to its data
+ * structures. Results are delivered in the same order as the verify calls, so an add followed by a remove of the
+ * same entry is applied in the original order.
+ * <p>
+ * Sig and Hash keep a Signature/MessageDigest instance per thread, so the worker threads reuse their instances.
+ */
+@Slf4j
+class SignatureVerifier {
+    private static final int NUM_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    // Large sets (e.g. from a GetDataResponse) are split into batches which get verified in parallel
+    private static final int MAX_BATCH_SIZE = 64;
+    // Batches larger than that are logged at info level
+    private static final int LOG_THRESHOLD = 100;
+
+    private final ListeningExecutorService executor;
+    // Guarded by this. Usually only accessed from the UserThread, but headless setups might use a direct executor.
+    private final Queue<ListenableFuture<Runnable>> pendingResults = new ArrayDeque<>();
+
+    private final LongAdder numVerified = new LongAdder();
+    private final LongAdder numFailed = new LongAdder();
+    private final LongAdder verifyTimeNanos = new LongAdder();
+    private final LongAdder latencyNanos = new LongAdder();
+    private final LongAdder numBatches = new LongAdder();
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    SignatureVerifier() {
+        executor = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(NUM_THREADS,
+                new ThreadFactoryBuilder()
+                        .setNameFormat("SignatureVerifier-%d")
+                        .setDaemon(true)
+                        .build()));
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Must be called from the UserThread.
+     *
+     * @param items          Items to verify
+     * @param signatureCheck Verifies the signature of an item. Is called at the worker threads so it must not access
+     *                       state which is modified at the UserThread.
+     * @param resultHandler  Called at the UserThread with the items which passed the check
+     */
+    <T> void verify(List<T> items, Predicate<T> signatureCheck, Consumer<List<T>> resultHandler) {
+        long startTs = System.nanoTime();
+        int batchSize = Math.max(1, Math.min(MAX_BATCH_SIZE, (items.size() + NUM_THREADS - 1) / NUM_THREADS));
+        List<ListenableFuture<List<T>>> batchFutures = new ArrayList<>();
+        for (List<T> batch : Lists.partition(new ArrayList<>(items), batchSize))
+            batchFutures.add(executor.submit(() -> verifyBatch(batch, signatureCheck)));
+
+        ListenableFuture<Runnable> future = Futures.transform(Futures.allAsList(batchFutures), results -> {
+            List<T> verifiedItems = new ArrayList<>();
+            results.forEach(verifiedItems::addAll);
+            return () -> {
+                long latency = System.nanoTime() - startTs;
+                latencyNanos.add(latency);
+                numBatches.increment();
+                if (items.size() >= LOG_THRESHOLD)
+                    log.info("Verified {} signatures ({} failed) in {} ms. {}", items.size(),
+                            items.size() - verifiedItems.size(), TimeUnit.NANOSECONDS.toMillis(latency), getStatistics());
+
+                resultHandler.accept(verifiedItems);
+            };
+        }, MoreExecutors.directExecutor());
+        enqueue(future);
+    }
+
+    // Runs the handler at the UserThread once all previously submitted results have been delivered
+    void runInOrder(Runnable handler) {
+        enqueue(Futures.immediateFuture(handler));
+    }
+
+    String getStatistics() {
+        long verified = numVerified.sum();
+        long failed = numFailed.sum();
+        long total = verified + failed;
+        long batches = numBatches.sum();
+        return "Signature verification statistics: verified=" + verified +
+                ", failed=" + failed +
+                ", avgVerifyTime=" + (total > 0 ? verifyTimeNanos.sum() / total / 1000 : 0) + " us" +
+                ", avgLatency=" + (batches > 0 ? TimeUnit.NANOSECONDS.toMillis(latencyNanos.sum() / batches) : 0) + " ms" +
+                ", pending=" + pendingResults.size();
+    }
+
+    void shutDown() {
+        executor.shutdownNow();
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private <T> List<T> verifyBatch(List<T> batch, Predicate<T> signatureCheck) {
+        List<T> verifiedItems = new ArrayList<>();
+        for (T item : batch) {
+            long ts = System.nanoTime();
+            boolean valid;
+            try {
+                valid = signatureCheck.test(item);
+            } catch (Throwable t) {
+                log.warn("Exception at signature check. " + t.toString());
+                valid = false;
+            }
+            verifyTimeNanos.add(System.nanoTime() - ts);
+            if (valid) {
+                verifiedItems.add(item);
+                numVerified.increment();
+            } else {
+                numFailed.increment();
+            }
+        }
+        return verifiedItems;
+    }
+
+    private synchronized void enqueue(ListenableFuture<Runnable> future) {
+        pendingResults.add(future);
+        if (future.isDone())
+            deliverCompletedResults();
+        else
+            future.addListener(() -> UserThread.execute(this::deliverCompletedResults), MoreExecutors.directExecutor());
+    }
+
+    private synchronized void deliverCompletedResults() {
+        while (!pendingResults.isEmpty() && pendingResults.peek().isDone()) {
+            ListenableFuture<Runnable> future = pendingResults.poll();
+            try {
+                Futures.getDone(future).run();
+            } catch (Throwable t) {
+                log.error("Processing verified items failed. " + t.toString());
+                t.printStackTrace();
+            }
+        }
+    }
+}
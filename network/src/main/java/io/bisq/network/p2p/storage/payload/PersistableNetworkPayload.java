@@ -25,4 +25,9 @@ public interface PersistableNetworkPayload extends NetworkPayload, PersistablePa
     byte [] getHash();
 
     boolean verifyHashSize();
+
+    // Date when the item got created. Used to estimate how many items we miss after being offline. 0 if not known.
+    default long getDate() {
+        return 0;
+    }
 }
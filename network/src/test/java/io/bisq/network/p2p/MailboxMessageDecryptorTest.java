@@ -0,0 +1,184 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.network.p2p;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import io.bisq.common.UserThread;
+import io.bisq.common.crypto.CryptoException;
+import io.bisq.common.crypto.SealedAndSigned;
+import io.bisq.common.crypto.Sig;
+import io.bisq.common.proto.network.NetworkEnvelope;
+import io.bisq.common.storage.FileUtil;
+import io.bisq.network.crypto.EncryptionService;
+import io.bisq.network.p2p.storage.P2PDataStorage;
+import io.bisq.network.p2p.storage.P2PDataStorage.ByteArray;
+import io.bisq.network.p2p.storage.payload.MailboxStoragePayload;
+import io.bisq.network.p2p.storage.payload.ProtectedMailboxStorageEntry;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.security.KeyPair;
+import java.security.Security;
+import java.util.*;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class MailboxMessageDecryptorTest {
+    private File dir;
+    private Executor previousExecutor;
+    private KeyPair keyPair;
+    private EncryptionService encryptionService;
+    private MailboxMessageDecryptor decryptor;
+    private final List<DecryptedMessageWithPubKey> results = new ArrayList<>();
+
+    @Before
+    public void setup() throws IOException {
+        Security.addProvider(new BouncyCastleProvider());
+        dir = File.createTempFile("temp_tests", "");
+        //noinspection ResultOfMethodCallIgnored
+        dir.delete();
+        //noinspection ResultOfMethodCallIgnored
+        dir.mkdir();
+
+        previousExecutor = UserThread.getExecutor();
+        UserThread.setExecutor(MoreExecutors.directExecutor());
+        keyPair = Sig.generateKeyPair();
+        encryptionService = mock(EncryptionService.class);
+        decryptor = getDecryptor();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        decryptor.shutDown();
+        UserThread.setExecutor(previousExecutor);
+        FileUtil.deleteDirectory(dir);
+    }
+
+    @Test
+    public void testDecryptedEntryIsDelivered() throws CryptoException {
+        ProtectedMailboxStorageEntry entry = getEntry();
+        DecryptedMessageWithPubKey decrypted = new DecryptedMessageWithPubKey(mock(NetworkEnvelope.class),
+                keyPair.getPublic());
+        when(encryptionService.decryptAndVerify(getSealedAndSigned(entry))).thenReturn(decrypted);
+
+        decrypt(entry);
+
+        assertEquals(Collections.singletonList(decrypted), results);
+        assertFalse(decryptor.isFailedEntry(getHash(entry)));
+    }
+
+    @Test
+    public void testFailedEntryIsSkipped() throws CryptoException {
+        ProtectedMailboxStorageEntry entry = getEntry();
+        when(encryptionService.decryptAndVerify(getSealedAndSigned(entry))).thenThrow(new CryptoException("not for us"));
+
+        decrypt(entry);
+        assertTrue(decryptor.isFailedEntry(getHash(entry)));
+
+        decrypt(entry);
+        assertTrue(results.isEmpty());
+        verify(encryptionService, times(1)).decryptAndVerify(getSealedAndSigned(entry));
+    }
+
+    @Test
+    public void testUnexpectedExceptionIsNotCached() throws CryptoException {
+        ProtectedMailboxStorageEntry entry = getEntry();
+        when(encryptionService.decryptAndVerify(getSealedAndSigned(entry))).thenThrow(new IllegalStateException());
+
+        decrypt(entry);
+        decrypt(entry);
+
+        assertFalse(decryptor.isFailedEntry(getHash(entry)));
+        verify(encryptionService, times(2)).decryptAndVerify(getSealedAndSigned(entry));
+    }
+
+    @Test
+    public void testFailedEntriesArePersisted() throws CryptoException {
+        ProtectedMailboxStorageEntry entry = getEntry();
+        when(encryptionService.decryptAndVerify(getSealedAndSigned(entry))).thenThrow(new CryptoException("not for us"));
+        decrypt(entry);
+
+        decryptor.shutDown();
+        decryptor = getDecryptor();
+
+        assertTrue(decryptor.isFailedEntry(getHash(entry)));
+        decrypt(entry);
+        verify(encryptionService, times(1)).decryptAndVerify(getSealedAndSigned(entry));
+    }
+
+    @Test
+    public void testEntriesWhichAreNotStoredAnymoreArePruned() throws CryptoException {
+        ProtectedMailboxStorageEntry removedEntry = getEntry();
+        ProtectedMailboxStorageEntry expiredEntry = getEntry();
+        ProtectedMailboxStorageEntry storedEntry = getEntry();
+        when(encryptionService.decryptAndVerify(any())).thenThrow(new CryptoException("not for us"));
+        decrypt(removedEntry, expiredEntry, storedEntry);
+
+        decryptor.onEntryRemoved(getHash(removedEntry));
+        decryptor.retainFailedEntries(Collections.singleton(getHash(storedEntry)));
+
+        assertFalse(decryptor.isFailedEntry(getHash(removedEntry)));
+        assertFalse(decryptor.isFailedEntry(getHash(expiredEntry)));
+        assertTrue(decryptor.isFailedEntry(getHash(storedEntry)));
+
+        // The store got rewritten as most of its records are pruned
+        decryptor.shutDown();
+        decryptor = getDecryptor();
+
+        assertFalse(decryptor.isFailedEntry(getHash(removedEntry)));
+        assertFalse(decryptor.isFailedEntry(getHash(expiredEntry)));
+        assertTrue(decryptor.isFailedEntry(getHash(storedEntry)));
+    }
+
+    private MailboxMessageDecryptor getDecryptor() {
+        MailboxMessageDecryptor decryptor = new MailboxMessageDecryptor(encryptionService, dir,
+                MoreExecutors.newDirectExecutorService());
+        decryptor.readPersisted();
+        return decryptor;
+    }
+
+    private void decrypt(ProtectedMailboxStorageEntry... entries) {
+        Map<ByteArray, ProtectedMailboxStorageEntry> map = new LinkedHashMap<>();
+        for (ProtectedMailboxStorageEntry entry : entries)
+            map.put(getHash(entry), entry);
+        decryptor.decrypt(map, (entry, decrypted) -> results.add(decrypted));
+    }
+
+    private ProtectedMailboxStorageEntry getEntry() {
+        SealedAndSigned sealedAndSigned = new SealedAndSigned(new byte[]{1}, new byte[]{2}, new byte[]{3},
+                keyPair.getPublic());
+        PrefixedSealedAndSignedMessage message = new PrefixedSealedAndSignedMessage(new NodeAddress("localhost:8001"),
+                sealedAndSigned, new byte[]{1, 2}, UUID.randomUUID().toString());
+        MailboxStoragePayload payload = new MailboxStoragePayload(message, keyPair.getPublic(), keyPair.getPublic());
+        return new ProtectedMailboxStorageEntry(payload, keyPair.getPublic(), 1, new byte[]{4}, keyPair.getPublic());
+    }
+
+    private static SealedAndSigned getSealedAndSigned(ProtectedMailboxStorageEntry entry) {
+        return entry.getMailboxStoragePayload().getPrefixedSealedAndSignedMessage().getSealedAndSigned();
+    }
+
+    private static ByteArray getHash(ProtectedMailboxStorageEntry entry) {
+        return new ByteArray(P2PDataStorage.getHash(entry.getMailboxStoragePayload()));
+    }
+}
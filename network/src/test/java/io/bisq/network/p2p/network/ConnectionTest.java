@@ -0,0 +1,53 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.network.p2p.network;
+
+import io.bisq.common.proto.network.NetworkEnvelope;
+import io.bisq.common.proto.network.NetworkProtoResolver;
+import io.bisq.generated.protobuffer.PB;
+import io.bisq.network.p2p.peers.getdata.messages.GetDataResponse;
+import io.bisq.network.p2p.peers.keepalive.messages.Ping;
+import org.junit.Test;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ConnectionTest {
+    @Test
+    public void testPermittedMessageSizeIsDerivedFromEnvelopeClass() {
+        Map<PB.NetworkEnvelope.MessageCase, Class<? extends NetworkEnvelope>> map =
+                new EnumMap<>(PB.NetworkEnvelope.MessageCase.class);
+        map.put(PB.NetworkEnvelope.MessageCase.GET_DATA_RESPONSE, GetDataResponse.class);
+        map.put(PB.NetworkEnvelope.MessageCase.PING, Ping.class);
+        NetworkProtoResolver networkProtoResolver = mock(NetworkProtoResolver.class);
+        when(networkProtoResolver.getEnvelopeClassByMessageCase()).thenReturn(map);
+
+        Connection.registerEnvelopeClasses(networkProtoResolver);
+
+        assertEquals(Connection.MAX_PERMITTED_MESSAGE_SIZE,
+                Connection.getPermittedMessageSize(PB.NetworkEnvelope.MessageCase.GET_DATA_RESPONSE));
+        assertEquals(Connection.PERMITTED_MESSAGE_SIZE,
+                Connection.getPermittedMessageSize(PB.NetworkEnvelope.MessageCase.PING));
+        assertEquals(Connection.PERMITTED_MESSAGE_SIZE,
+                Connection.getPermittedMessageSize(PB.NetworkEnvelope.MessageCase.PREFIXED_SEALED_AND_SIGNED_MESSAGE));
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.network.p2p.network;
+
+import com.google.protobuf.ByteString;
+import io.bisq.generated.protobuffer.PB;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+
+import static org.junit.Assert.*;
+
+public class FrameReaderTest {
+    @Test
+    public void testReadFrames() throws IOException {
+        PB.NetworkEnvelope ping = PB.NetworkEnvelope.newBuilder()
+                .setMessageVersion(1)
+                .setPing(PB.Ping.newBuilder().setNonce(42))
+                .build();
+        PB.NetworkEnvelope getDataResponse = PB.NetworkEnvelope.newBuilder()
+                .setMessageVersion(1)
+                .setGetDataResponse(PB.GetDataResponse.newBuilder().setRequestNonce(1)
+                        .addPersistableNetworkPayloadItems(PB.PersistableNetworkPayload.getDefaultInstance()))
+                .build();
+        FrameReader frameReader = getFrameReader(Connection.MAX_PERMITTED_MESSAGE_SIZE, ping, getDataResponse, ping);
+
+        assertTrue(frameReader.readFrame());
+        assertFalse(frameReader.isSkipped());
+        assertEquals(PB.NetworkEnvelope.MessageCase.PING, frameReader.getMessageCase());
+        assertEquals(ping, PB.NetworkEnvelope.parser().parseFrom(frameReader.getBuffer(), 0, frameReader.getFrameSize()));
+
+        assertTrue(frameReader.readFrame());
+        assertEquals(PB.NetworkEnvelope.MessageCase.GET_DATA_RESPONSE, frameReader.getMessageCase());
+        assertEquals(getDataResponse, PB.NetworkEnvelope.parser().parseFrom(frameReader.getBuffer(), 0, frameReader.getFrameSize()));
+
+        assertTrue(frameReader.readFrame());
+        assertEquals(ping, PB.NetworkEnvelope.parser().parseFrom(frameReader.getBuffer(), 0, frameReader.getFrameSize()));
+
+        assertFalse(frameReader.readFrame());
+    }
+
+    @Test
+    public void testOversizedFrameIsSkipped() throws IOException {
+        PB.NetworkEnvelope oversized = PB.NetworkEnvelope.newBuilder()
+                .setMessageVersion(1)
+                .setPrefixedSealedAndSignedMessage(PB.PrefixedSealedAndSignedMessage.newBuilder()
+                        .setAddressPrefixHash(ByteString.copyFrom(new byte[Connection.PERMITTED_MESSAGE_SIZE])))
+                .build();
+        PB.NetworkEnvelope ping = PB.NetworkEnvelope.newBuilder()
+                .setMessageVersion(1)
+                .setPing(PB.Ping.newBuilder().setNonce(42))
+                .build();
+        FrameReader frameReader = getFrameReader(Connection.MAX_PERMITTED_MESSAGE_SIZE, oversized, ping);
+
+        assertTrue(frameReader.readFrame());
+        assertTrue(frameReader.isSkipped());
+        assertEquals(PB.NetworkEnvelope.MessageCase.PREFIXED_SEALED_AND_SIGNED_MESSAGE, frameReader.getMessageCase());
+        assertEquals(oversized.getSerializedSize(), frameReader.getFrameSize());
+
+        // The stream is still in sync
+        assertTrue(frameReader.readFrame());
+        assertFalse(frameReader.isSkipped());
+        assertEquals(ping, PB.NetworkEnvelope.parser().parseFrom(frameReader.getBuffer(), 0, frameReader.getFrameSize()));
+    }
+
+    @Test(expected = StreamCorruptedException.class)
+    public void testFrameAboveMaxSize() throws IOException {
+        PB.NetworkEnvelope ping = PB.NetworkEnvelope.newBuilder()
+                .setMessageVersion(1)
+                .setPing(PB.Ping.newBuilder().setNonce(42))
+                .build();
+        getFrameReader(2, ping).readFrame();
+    }
+
+    private static FrameReader getFrameReader(int maxFrameSize, PB.NetworkEnvelope... envelopes) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        for (PB.NetworkEnvelope envelope : envelopes)
+            envelope.writeDelimitedTo(outputStream);
+        return new FrameReader(new ByteArrayInputStream(outputStream.toByteArray()), maxFrameSize);
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.network.p2p.network;
+
+import com.google.common.base.Strings;
+import com.google.protobuf.ByteString;
+import io.bisq.common.proto.network.NetworkEnvelope;
+import io.bisq.generated.protobuffer.PB;
+import io.bisq.network.p2p.CloseConnectionMessage;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class NioTransportTest {
+    private static final int SMALL_SOCKET_BUFFER_SIZE = 4 * 1024;
+
+    private final BlockingQueue<Object> events = new LinkedBlockingQueue<>();
+    private ServerSocketChannel serverSocketChannel;
+    private SocketChannel channel;
+    // Blocking peer socket, used to write and read the raw bytes
+    private SocketChannel peerChannel;
+    private NioTransport transport;
+    private long maxQueuedBytes;
+
+    @Before
+    public void setUp() throws IOException {
+        maxQueuedBytes = NioTransport.MAX_QUEUED_BYTES;
+        serverSocketChannel = ServerSocketChannel.open();
+        // Small buffers so the transport cannot write all data to the socket if the peer does not read
+        serverSocketChannel.socket().setReceiveBufferSize(SMALL_SOCKET_BUFFER_SIZE);
+        serverSocketChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        channel = SocketChannel.open();
+        channel.socket().setSendBufferSize(SMALL_SOCKET_BUFFER_SIZE);
+        channel.connect(serverSocketChannel.getLocalAddress());
+        peerChannel = serverSocketChannel.accept();
+
+        transport = new NioTransport(channel, new NioTransport.FrameHandler() {
+            @Override
+            public void onFrame(byte[] buffer, int size) {
+                try {
+                    events.add(PB.NetworkEnvelope.parser().parseFrom(buffer, 0, size));
+                } catch (IOException e) {
+                    events.add(e);
+                }
+            }
+
+            @Override
+            public void onOversizedFrame(PB.NetworkEnvelope.MessageCase messageCase, int size) {
+                events.add(messageCase);
+            }
+
+            @Override
+            public void onEndOfStream() {
+                events.add("endOfStream");
+            }
+
+            @Override
+            public void onTransportException(Throwable throwable) {
+                events.add(throwable);
+            }
+        }, new Statistic(), TimeUnit.SECONDS.toMillis(30), Connection.MAX_PERMITTED_MESSAGE_SIZE);
+        transport.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        NioTransport.MAX_QUEUED_BYTES = maxQueuedBytes;
+        transport.close();
+        peerChannel.close();
+        serverSocketChannel.close();
+    }
+
+    @Test
+    public void testFrameReassemblyFromPartialReads() throws Exception {
+        PB.NetworkEnvelope ping = getPing(42);
+        PB.NetworkEnvelope getDataResponse = PB.NetworkEnvelope.newBuilder()
+                .setMessageVersion(1)
+                .setGetDataResponse(PB.GetDataResponse.newBuilder().setRequestNonce(1)
+                        .addPersistableNetworkPayloadItems(PB.PersistableNetworkPayload.getDefaultInstance()))
+                .build();
+        byte[] bytes = toDelimitedBytes(ping, getDataResponse, getPing(43));
+
+        // Each byte arrives with a separate read, so the size prefix, the header and the frame are all split
+        OutputStream outputStream = peerChannel.socket().getOutputStream();
+        for (byte b : bytes) {
+            outputStream.write(b);
+            outputStream.flush();
+            Thread.sleep(1);
+        }
+
+        assertEquals(ping, events.poll(5, TimeUnit.SECONDS));
+        assertEquals(getDataResponse, events.poll(5, TimeUnit.SECONDS));
+        assertEquals(getPing(43), events.poll(5, TimeUnit.SECONDS));
+        assertNull(events.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testSeveralFramesInOneRead() throws Exception {
+        peerChannel.socket().getOutputStream().write(toDelimitedBytes(getPing(1), getPing(2), getPing(3)));
+
+        assertEquals(getPing(1), events.poll(5, TimeUnit.SECONDS));
+        assertEquals(getPing(2), events.poll(5, TimeUnit.SECONDS));
+        assertEquals(getPing(3), events.poll(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testOversizedFrameIsSkipped() throws Exception {
+        PB.NetworkEnvelope oversized = PB.NetworkEnvelope.newBuilder()
+                .setMessageVersion(1)
+                .setPrefixedSealedAndSignedMessage(PB.PrefixedSealedAndSignedMessage.newBuilder()
+                        .setAddressPrefixHash(ByteString.copyFrom(new byte[Connection.PERMITTED_MESSAGE_SIZE])))
+                .build();
+        peerChannel.socket().getOutputStream().write(toDelimitedBytes(oversized, getPing(42)));
+
+        assertEquals(PB.NetworkEnvelope.MessageCase.PREFIXED_SEALED_AND_SIGNED_MESSAGE, events.poll(5, TimeUnit.SECONDS));
+        // The stream is still in sync
+        assertEquals(getPing(42), events.poll(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testEndOfStream() throws Exception {
+        peerChannel.close();
+
+        assertEquals("endOfStream", events.poll(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testPartialWritesAndBackpressure() throws Exception {
+        NioTransport.MAX_QUEUED_BYTES = 1024 * 1024;
+        String reason = Strings.repeat("x", 100 * 1024);
+
+        // The peer does not read, so the data stays in our queue once the socket buffers are full
+        int numQueued = 0;
+        try {
+            for (int i = 0; i < 20; i++) {
+                transport.writeEnvelope(new CloseConnectionMessage(reason));
+                numQueued++;
+            }
+            fail("Expected BisqRuntimeException");
+        } catch (BisqRuntimeException ignore) {
+        }
+        assertTrue(numQueued > 0);
+
+        // Once the peer reads, all queued data arrive completely and in order
+        InputStream inputStream = peerChannel.socket().getInputStream();
+        for (int i = 0; i < numQueued; i++) {
+            PB.NetworkEnvelope envelope = PB.NetworkEnvelope.parseDelimitedFrom(inputStream);
+            assertEquals(reason, envelope.getCloseConnectionMessage().getReason());
+        }
+
+        // The queue is drained, so we can write again
+        NetworkEnvelope closeConnectionMessage = new CloseConnectionMessage("done");
+        transport.writeEnvelope(closeConnectionMessage);
+        assertEquals("done", PB.NetworkEnvelope.parseDelimitedFrom(inputStream).getCloseConnectionMessage().getReason());
+        assertTrue(events.isEmpty());
+    }
+
+    private static PB.NetworkEnvelope getPing(int nonce) {
+        return PB.NetworkEnvelope.newBuilder()
+                .setMessageVersion(1)
+                .setPing(PB.Ping.newBuilder().setNonce(nonce))
+                .build();
+    }
+
+    private static byte[] toDelimitedBytes(PB.NetworkEnvelope... envelopes) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        for (PB.NetworkEnvelope envelope : envelopes)
+            envelope.writeDelimitedTo(outputStream);
+        return outputStream.toByteArray();
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.network.p2p.network;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class Socks5ChannelConnectorTest {
+    private ServerSocket proxyServerSocket;
+    private InetSocketAddress proxyAddress;
+
+    @Before
+    public void setUp() throws IOException {
+        proxyServerSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        proxyAddress = new InetSocketAddress(InetAddress.getLoopbackAddress(), proxyServerSocket.getLocalPort());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        proxyServerSocket.close();
+    }
+
+    @Test
+    public void testConnect() throws Exception {
+        CompletableFuture<String> requestedTarget = runProxy(0);
+
+        try (SocketChannel channel = Socks5ChannelConnector.connect(proxyAddress, "abcdefghijklmnop.onion", 9999, 5000)) {
+            assertEquals("abcdefghijklmnop.onion:9999", requestedTarget.get(5, TimeUnit.SECONDS));
+
+            // After the handshake the channel is connected to the target, the proxy relays the data
+            ByteBuffer buffer = ByteBuffer.allocate(5);
+            while (buffer.hasRemaining())
+                channel.read(buffer);
+            assertArrayEquals("hello".getBytes(StandardCharsets.US_ASCII), buffer.array());
+
+            // Can be used by the NIO transport
+            channel.configureBlocking(false);
+        }
+    }
+
+    @Test(expected = SocketException.class)
+    public void testHostUnreachable() throws Exception {
+        runProxy(4);
+        Socks5ChannelConnector.connect(proxyAddress, "abcdefghijklmnop.onion", 9999, 5000);
+    }
+
+    // Minimal Socks5 proxy which accepts one connection and replies with the given reply code
+    private CompletableFuture<String> runProxy(int reply) {
+        CompletableFuture<String> requestedTarget = new CompletableFuture<>();
+        Thread thread = new Thread(() -> {
+            try (Socket socket = proxyServerSocket.accept()) {
+                DataInputStream inputStream = new DataInputStream(socket.getInputStream());
+                OutputStream outputStream = socket.getOutputStream();
+                byte[] greeting = new byte[3];
+                inputStream.readFully(greeting);
+                assertArrayEquals(new byte[]{5, 1, 0}, greeting);
+                outputStream.write(new byte[]{5, 0});
+
+                byte[] requestHeader = new byte[5];
+                inputStream.readFully(requestHeader);
+                byte[] host = new byte[requestHeader[4]];
+                inputStream.readFully(host);
+                int port = inputStream.readUnsignedShort();
+                requestedTarget.complete(new String(host, StandardCharsets.US_ASCII) + ":" + port);
+
+                // Bound address is IPv4 0.0.0.0:0
+                outputStream.write(new byte[]{5, (byte) reply, 0, 1, 0, 0, 0, 0, 0, 0});
+                if (reply == 0)
+                    outputStream.write("hello".getBytes(StandardCharsets.US_ASCII));
+                outputStream.flush();
+                // Keep the connection open until the client has read the data
+                //noinspection ResultOfMethodCallIgnored
+                inputStream.read();
+            } catch (Throwable t) {
+                requestedTarget.completeExceptionally(t);
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        return requestedTarget;
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.network.p2p.network;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StatisticTest {
+
+    @Test
+    public void testConcurrentByteCounters() throws InterruptedException {
+        Statistic statistic = new Statistic();
+        long totalSentBytes = Statistic.getTotalSentBytes();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Thread thread = new Thread(() -> {
+                for (int j = 0; j < 10_000; j++) {
+                    statistic.addSentBytes(2);
+                    statistic.addReceivedBytes(1);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+
+        assertEquals(80_000, statistic.getSentBytes());
+        assertEquals(40_000, statistic.getReceivedBytes());
+        assertEquals(totalSentBytes + 80_000, Statistic.getTotalSentBytes());
+    }
+
+    @Test
+    public void testUpdateProperties() {
+        Statistic statistic = new Statistic();
+        statistic.addSentBytes(100);
+        statistic.addReceivedBytes(50);
+        assertEquals(0, statistic.sentBytesProperty().get());
+
+        statistic.updateProperties();
+        assertEquals(100, statistic.sentBytesProperty().get());
+        assertEquals(50, statistic.receivedBytesProperty().get());
+
+        Statistic.updateTotalProperties();
+        assertEquals(Statistic.getTotalSentBytes(), Statistic.totalSentBytesProperty().get());
+    }
+
+    @Test
+    public void testOnlyReceivedDataResetsLastReceivedAge() throws InterruptedException {
+        Statistic statistic = new Statistic();
+        Thread.sleep(50);
+        statistic.addSentBytes(100);
+        statistic.updateLastActivityTimestamp();
+        assertTrue(statistic.getLastActivityAge() < 50);
+        assertTrue(statistic.getLastReceivedAge() >= 50);
+
+        statistic.addReceivedBytes(10);
+        assertTrue(statistic.getLastReceivedAge() < 50);
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.network.p2p.network;
+
+import io.bisq.network.p2p.peers.keepalive.messages.Ping;
+import io.bisq.network.p2p.peers.keepalive.messages.Pong;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TokenBucketTest {
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    public void testBurstAndRefill() {
+        TokenBucket tokenBucket = new TokenBucket(10, 5, now::get);
+        for (int i = 0; i < 5; i++)
+            assertTrue(tokenBucket.tryAcquire());
+        assertFalse(tokenBucket.tryAcquire());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), tokenBucket.getNanosUntilPermit());
+
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        assertTrue(tokenBucket.tryAcquire());
+        assertFalse(tokenBucket.tryAcquire());
+
+        // Does not refill above the burst size
+        now.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        for (int i = 0; i < 5; i++)
+            assertTrue(tokenBucket.tryAcquire());
+        assertFalse(tokenBucket.tryAcquire());
+    }
+
+    @Test
+    public void testMessageRateWindow() {
+        MessageRateWindow window = new MessageRateWindow(3);
+        assertEquals(-1, window.getTimestamp(1));
+
+        for (long ts = 1; ts <= 5; ts++)
+            window.add(ts, "Message");
+
+        assertEquals(3, window.size());
+        assertEquals(5, window.getTimestamp(1));
+        assertEquals(3, window.getTimestamp(3));
+        assertEquals(-1, window.getTimestamp(4));
+    }
+
+    @Test
+    public void testMessageClassRatesFromConfig() {
+        // Invalid entries get ignored
+        MessageRateLimiter.setRates("Ping:1:2, Pong:x:1, Pong:1");
+        try {
+            MessageRateLimiter limiter = new MessageRateLimiter();
+            Ping ping = new Ping(1, 0);
+            assertTrue(limiter.tryAcquire(ping));
+            assertTrue(limiter.tryAcquire(ping));
+            assertFalse(limiter.tryAcquire(ping));
+            assertTrue(limiter.getNanosUntilPermit(ping) > 0);
+
+            // No rate for Pong and no rate for all messages
+            Pong pong = new Pong(1);
+            for (int i = 0; i < 100; i++)
+                assertTrue(limiter.tryAcquire(pong));
+        } finally {
+            MessageRateLimiter.removeRate("Ping");
+        }
+    }
+}
@@ -0,0 +1,262 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.network.p2p.peers;
+
+import com.google.common.util.concurrent.SettableFuture;
+import io.bisq.common.UserThread;
+import io.bisq.network.p2p.NodeAddress;
+import io.bisq.network.p2p.network.Connection;
+import io.bisq.network.p2p.network.NetworkNode;
+import io.bisq.network.p2p.storage.messages.BroadcastMessage;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class BroadcasterTest {
+    private static final class SendCall {
+        private final Connection connection;
+        private final List<?> messages;
+        private final SettableFuture<Connection> future;
+
+        private SendCall(Connection connection, List<?> messages, SettableFuture<Connection> future) {
+            this.connection = connection;
+            this.messages = messages;
+            this.future = future;
+        }
+    }
+
+    private final BlockingQueue<SendCall> sendCalls = new LinkedBlockingQueue<>();
+    private final Set<Connection> connections = new HashSet<>();
+    private Executor userThreadExecutor;
+    private ExecutorService executor;
+    private long timeout;
+    private long timeoutCheckInterval;
+    private NetworkNode networkNode;
+    private Broadcaster broadcaster;
+
+    @Before
+    public void setUp() {
+        // Broadcaster must be used from the UserThread, so timers and the test share one thread
+        userThreadExecutor = UserThread.getExecutor();
+        executor = Executors.newSingleThreadExecutor();
+        UserThread.setExecutor(executor);
+        timeout = Broadcaster.TIMEOUT_MS;
+        timeoutCheckInterval = Broadcaster.TIMEOUT_CHECK_INTERVAL_MS;
+
+        networkNode = mock(NetworkNode.class);
+        when(networkNode.getConfirmedConnections()).thenReturn(connections);
+        when(networkNode.sendMessages(any(Connection.class), anyList())).thenAnswer(invocation -> {
+            SettableFuture<Connection> future = SettableFuture.create();
+            List<?> messages = invocation.getArgument(1);
+            sendCalls.add(new SendCall(invocation.getArgument(0), new ArrayList<>(messages), future));
+            return future;
+        });
+        broadcaster = new Broadcaster(networkNode, mock(PeerManager.class));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        runOnUserThread(() -> broadcaster.shutDown());
+        executor.shutdown();
+        UserThread.setExecutor(userThreadExecutor);
+        Broadcaster.TIMEOUT_MS = timeout;
+        Broadcaster.TIMEOUT_CHECK_INTERVAL_MS = timeoutCheckInterval;
+    }
+
+    @Test
+    public void testMessagesDueForSamePeerAreBatched() throws Exception {
+        Connection peer1 = addConnection(1, true);
+        Connection peer2 = addConnection(2, true);
+        BroadcastMessage message1 = mock(BroadcastMessage.class);
+        BroadcastMessage message2 = mock(BroadcastMessage.class);
+
+        runOnUserThread(() -> {
+            broadcaster.broadcast(message1, null, null, true);
+            broadcaster.broadcast(message2, null, null, true);
+            // Both messages are due for both peers once the flush timer gets the UserThread
+            sleep(300);
+        });
+
+        Map<Connection, List<?>> messagesByConnection = new HashMap<>();
+        for (int i = 0; i < 2; i++) {
+            SendCall sendCall = sendCalls.poll(5, TimeUnit.SECONDS);
+            assertNotNull(sendCall);
+            messagesByConnection.put(sendCall.connection, sendCall.messages);
+        }
+        assertEquals(Arrays.asList(message1, message2), messagesByConnection.get(peer1));
+        assertEquals(Arrays.asList(message1, message2), messagesByConnection.get(peer2));
+        assertNull(sendCalls.poll(300, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testSenderIsExcluded() throws Exception {
+        addConnection(1, true);
+        Connection peer2 = addConnection(2, true);
+        BroadcastMessage message = mock(BroadcastMessage.class);
+
+        runOnUserThread(() -> broadcaster.broadcast(message, new NodeAddress("peer1", 9999), null, true));
+
+        SendCall sendCall = sendCalls.poll(5, TimeUnit.SECONDS);
+        assertNotNull(sendCall);
+        assertEquals(peer2, sendCall.connection);
+        assertNull(sendCalls.poll(300, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testCompletedAndFailedCounts() throws Exception {
+        for (int i = 0; i < 3; i++)
+            addConnection(i, true);
+        BroadcastMessage message = mock(BroadcastMessage.class);
+        Broadcaster.Listener listener = mock(Broadcaster.Listener.class);
+
+        runOnUserThread(() -> broadcaster.broadcast(message, null, listener, true));
+        List<SendCall> calls = pollSendCalls(3);
+
+        runOnUserThread(() -> calls.get(0).future.setException(new Exception("test")));
+        runOnUserThread(() -> calls.get(1).future.set(calls.get(1).connection));
+        verify(listener).onBroadcasted(message, 1);
+        verify(listener).onBroadcastedToFirstPeer(message);
+        verify(listener, never()).onBroadcastCompleted(any(), anyInt(), anyInt());
+
+        runOnUserThread(() -> calls.get(2).future.set(calls.get(2).connection));
+        verify(listener).onBroadcasted(message, 2);
+        verify(listener, times(1)).onBroadcastedToFirstPeer(message);
+        verify(listener).onBroadcastCompleted(message, 2, 1);
+        verify(listener, never()).onBroadcastFailed(anyString());
+    }
+
+    @Test
+    public void testAllSendsFailed() throws Exception {
+        for (int i = 0; i < 2; i++)
+            addConnection(i, true);
+        BroadcastMessage message = mock(BroadcastMessage.class);
+        Broadcaster.Listener listener = mock(Broadcaster.Listener.class);
+
+        runOnUserThread(() -> broadcaster.broadcast(message, null, listener, true));
+        List<SendCall> calls = pollSendCalls(2);
+        runOnUserThread(() -> calls.forEach(call -> call.future.setException(new Exception("test"))));
+
+        verify(listener, never()).onBroadcasted(any(), anyInt());
+        verify(listener).onBroadcastFailed(anyString());
+        verify(listener).onBroadcastCompleted(message, 0, 2);
+    }
+
+    @Test
+    public void testPeerWithoutCapabilityIsSkipped() throws Exception {
+        addConnection(1, true);
+        Connection peerWithoutCapability = addConnection(2, false);
+        BroadcastMessage message = mock(BroadcastMessage.class);
+        Broadcaster.Listener listener = mock(Broadcaster.Listener.class);
+
+        runOnUserThread(() -> broadcaster.broadcast(message, null, listener, true));
+        SendCall sendCall = sendCalls.poll(5, TimeUnit.SECONDS);
+        assertNotNull(sendCall);
+        assertNotEquals(peerWithoutCapability, sendCall.connection);
+        // Wait until the send to the other peer is due
+        Thread.sleep(300);
+        assertTrue(sendCalls.isEmpty());
+
+        // The skipped peer does not count, so the broadcast completes without waiting for the timeout
+        runOnUserThread(() -> sendCall.future.set(sendCall.connection));
+        verify(listener).onBroadcastCompleted(message, 1, 0);
+        verify(listener, never()).onBroadcastFailed(anyString());
+    }
+
+    @Test
+    public void testAllPeersWithoutCapability() throws Exception {
+        addConnection(1, false);
+        addConnection(2, false);
+        BroadcastMessage message = mock(BroadcastMessage.class);
+        Broadcaster.Listener listener = mock(Broadcaster.Listener.class);
+
+        runOnUserThread(() -> broadcaster.broadcast(message, null, listener, true));
+
+        verify(listener, timeout(5000)).onBroadcastCompleted(message, 0, 0);
+        assertTrue(sendCalls.isEmpty());
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        Broadcaster.TIMEOUT_MS = 200;
+        Broadcaster.TIMEOUT_CHECK_INTERVAL_MS = 50;
+        addConnection(1, true);
+        BroadcastMessage message = mock(BroadcastMessage.class);
+        Broadcaster.Listener listener = mock(Broadcaster.Listener.class);
+
+        runOnUserThread(() -> broadcaster.broadcast(message, null, listener, true));
+        SendCall sendCall = sendCalls.poll(5, TimeUnit.SECONDS);
+        assertNotNull(sendCall);
+
+        verify(listener, timeout(5000)).onBroadcastFailed(startsWith("Timeout"));
+        verify(listener).onBroadcastCompleted(message, 0, 0);
+
+        // A late result is ignored
+        runOnUserThread(() -> sendCall.future.set(sendCall.connection));
+        verify(listener, never()).onBroadcasted(any(), anyInt());
+        verify(listener, times(1)).onBroadcastCompleted(any(), anyInt(), anyInt());
+    }
+
+    @Test
+    public void testNoPeers() throws Exception {
+        BroadcastMessage message = mock(BroadcastMessage.class);
+        Broadcaster.Listener listener = mock(Broadcaster.Listener.class);
+
+        runOnUserThread(() -> broadcaster.broadcast(message, null, listener, true));
+
+        verify(listener).onBroadcastFailed(anyString());
+        verify(networkNode, never()).sendMessages(any(Connection.class), anyList());
+    }
+
+    private Connection addConnection(int index, boolean supportsCapability) {
+        Connection connection = mock(Connection.class);
+        when(connection.getPeersNodeAddressOptional()).thenReturn(Optional.of(new NodeAddress("peer" + index, 9999)));
+        when(connection.isCapabilityRequired(any())).thenReturn(!supportsCapability);
+        when(connection.isCapabilitySupported(any(BroadcastMessage.class))).thenReturn(supportsCapability);
+        connections.add(connection);
+        return connection;
+    }
+
+    private List<SendCall> pollSendCalls(int numCalls) throws InterruptedException {
+        List<SendCall> calls = new ArrayList<>();
+        for (int i = 0; i < numCalls; i++) {
+            SendCall sendCall = sendCalls.poll(5, TimeUnit.SECONDS);
+            assertNotNull(sendCall);
+            calls.add(sendCall);
+        }
+        return calls;
+    }
+
+    private void runOnUserThread(Runnable runnable) throws Exception {
+        executor.submit(runnable).get(5, TimeUnit.SECONDS);
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.network.p2p.peers.getdata;
+
+import com.google.protobuf.ByteString;
+import io.bisq.generated.protobuffer.PB;
+import io.bisq.network.p2p.peers.getdata.messages.GetDataResponse;
+import io.bisq.network.p2p.storage.payload.PersistableNetworkPayload;
+import io.bisq.network.p2p.storage.payload.ProtectedStorageEntry;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class GetDataRequestHandlerTest {
+
+    @Test
+    public void testChunkedResponse() {
+        List<ProtectedStorageEntry> dataList = new ArrayList<>();
+        for (int i = 0; i < 5; i++)
+            dataList.add(createEntry(400));
+        List<PersistableNetworkPayload> payloadList = new ArrayList<>();
+        for (int i = 0; i < 3; i++)
+            payloadList.add(createPayload(400));
+
+        List<GetDataResponse> chunks = getAllChunks(new GetDataRequestHandler.ChunkedResponse(
+                dataList.iterator(), payloadList.iterator(), 1, true, false, 1000));
+
+        // 2 items fit into a chunk. The entries come first, the payloads fill up the chunk with the last entry.
+        assertEquals(4, chunks.size());
+        assertEquals(2, chunks.get(0).getDataSet().size());
+        assertTrue(chunks.get(0).getPersistableNetworkPayloadSet().isEmpty());
+        assertEquals(2, chunks.get(1).getDataSet().size());
+        assertTrue(chunks.get(1).getPersistableNetworkPayloadSet().isEmpty());
+        assertEquals(1, chunks.get(2).getDataSet().size());
+        assertEquals(1, chunks.get(2).getPersistableNetworkPayloadSet().size());
+        assertTrue(chunks.get(3).getDataSet().isEmpty());
+        assertEquals(2, chunks.get(3).getPersistableNetworkPayloadSet().size());
+
+        for (int i = 0; i < chunks.size(); i++) {
+            GetDataResponse chunk = chunks.get(i);
+            assertEquals(i, chunk.getChunkIndex());
+            assertEquals(i < chunks.size() - 1, chunk.isHasMore());
+            assertEquals(1, chunk.getRequestNonce());
+            assertTrue(chunk.isGetUpdatedDataResponse());
+        }
+    }
+
+    @Test
+    public void testChunksAreBuiltLazily() {
+        List<ProtectedStorageEntry> dataList = new ArrayList<>();
+        for (int i = 0; i < 10; i++)
+            dataList.add(createEntry(400));
+        AtomicInteger numPulled = new AtomicInteger();
+        Iterator<ProtectedStorageEntry> iterator = dataList.stream()
+                .peek(entry -> numPulled.incrementAndGet())
+                .iterator();
+
+        GetDataRequestHandler.ChunkedResponse chunkedResponse = new GetDataRequestHandler.ChunkedResponse(
+                iterator, Collections.emptyIterator(), 1, false, false, 1000);
+        assertEquals(0, numPulled.get());
+
+        // The first item of the next chunk is peeked to know that it does not fit anymore
+        chunkedResponse.nextChunk();
+        assertEquals(3, numPulled.get());
+    }
+
+    @Test
+    public void testEmptyResponse() {
+        GetDataResponse chunk = new GetDataRequestHandler.ChunkedResponse(
+                Collections.emptyIterator(), null, 1, false, true, 1000).nextChunk();
+
+        assertEquals(0, chunk.getChunkIndex());
+        assertFalse(chunk.isHasMore());
+        assertTrue(chunk.getDataSet().isEmpty());
+        assertNull(chunk.getPersistableNetworkPayloadSet());
+        assertTrue(chunk.isSummaryDecodingFailed());
+    }
+
+    @Test
+    public void testLargeItemGetsOwnChunk() {
+        List<ProtectedStorageEntry> dataList = new ArrayList<>();
+        dataList.add(createEntry(5000));
+        dataList.add(createEntry(400));
+
+        List<GetDataResponse> chunks = getAllChunks(new GetDataRequestHandler.ChunkedResponse(
+                dataList.iterator(), Collections.emptyIterator(), 1, false, false, 1000));
+
+        assertEquals(2, chunks.size());
+        assertEquals(1, chunks.get(0).getDataSet().size());
+        assertEquals(1, chunks.get(1).getDataSet().size());
+    }
+
+    private static List<GetDataResponse> getAllChunks(GetDataRequestHandler.ChunkedResponse chunkedResponse) {
+        List<GetDataResponse> chunks = new ArrayList<>();
+        GetDataResponse chunk;
+        do {
+            chunk = chunkedResponse.nextChunk();
+            chunks.add(chunk);
+        } while (chunk.isHasMore());
+        return chunks;
+    }
+
+    private static ProtectedStorageEntry createEntry(int size) {
+        ProtectedStorageEntry entry = mock(ProtectedStorageEntry.class);
+        when(entry.toProtoMessage()).thenReturn(PB.ProtectedStorageEntry.newBuilder()
+                .setSignature(ByteString.copyFrom(new byte[size - 4]))
+                .build());
+        return entry;
+    }
+
+    private static PersistableNetworkPayload createPayload(int size) {
+        PersistableNetworkPayload payload = mock(PersistableNetworkPayload.class);
+        when(payload.toProtoMessage()).thenReturn(PB.PersistableNetworkPayload.newBuilder()
+                .setAccountAgeWitness(PB.AccountAgeWitness.newBuilder()
+                        .setHash(ByteString.copyFrom(new byte[size - 7])))
+                .build());
+        return payload;
+    }
+}
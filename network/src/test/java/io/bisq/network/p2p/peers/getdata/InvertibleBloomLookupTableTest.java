@@ -0,0 +1,90 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.network.p2p.peers.getdata;
+
+import io.bisq.network.p2p.storage.P2PDataStorage;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class InvertibleBloomLookupTableTest {
+    private final Random random = new Random(1);
+
+    @Test
+    public void testKeysMissingAtPeer() {
+        List<P2PDataStorage.ByteArray> ownKeys = createKeys(10_000, 20);
+        List<P2PDataStorage.ByteArray> peersKeys = new ArrayList<>(ownKeys.subList(100, ownKeys.size()));
+        // Peer has some items we don't have. Those must not be reported.
+        peersKeys.addAll(createKeys(10, 32));
+
+        InvertibleBloomLookupTable summary = InvertibleBloomLookupTable.fromKeys(peersKeys,
+                InvertibleBloomLookupTable.getNumCellsForDifference(200), 42);
+
+        assertEquals(new HashSet<>(ownKeys.subList(0, 100)), summary.getKeysMissingAtPeer(ownKeys));
+    }
+
+    @Test
+    public void testNoDifference() {
+        List<P2PDataStorage.ByteArray> keys = createKeys(1000, 20);
+        InvertibleBloomLookupTable summary = InvertibleBloomLookupTable.fromKeys(keys,
+                InvertibleBloomLookupTable.getNumCellsForDifference(0), 42);
+
+        assertEquals(new HashSet<>(), summary.getKeysMissingAtPeer(keys));
+    }
+
+    @Test
+    public void testDecodingFailsIfDifferenceTooLarge() {
+        List<P2PDataStorage.ByteArray> ownKeys = createKeys(1000, 20);
+        InvertibleBloomLookupTable summary = InvertibleBloomLookupTable.fromKeys(new ArrayList<>(),
+                InvertibleBloomLookupTable.MIN_CELLS, 42);
+
+        assertNull(summary.getKeysMissingAtPeer(ownKeys));
+    }
+
+    @Test
+    public void testNumCellsForDifference() {
+        assertEquals(InvertibleBloomLookupTable.MIN_CELLS, InvertibleBloomLookupTable.getNumCellsForDifference(0));
+        int numCells = InvertibleBloomLookupTable.getNumCellsForDifference(1000);
+        assertTrue(numCells >= 1300);
+        assertEquals(0, numCells % InvertibleBloomLookupTable.NUM_HASH_FUNCTIONS);
+        assertEquals(-1, InvertibleBloomLookupTable.getNumCellsForDifference(InvertibleBloomLookupTable.MAX_CELLS));
+    }
+
+    @Test
+    public void testProtoRoundTrip() {
+        List<P2PDataStorage.ByteArray> keys = createKeys(100, 20);
+        InvertibleBloomLookupTable summary = InvertibleBloomLookupTable.fromKeys(keys,
+                InvertibleBloomLookupTable.getNumCellsForDifference(0), 42);
+
+        assertEquals(summary, InvertibleBloomLookupTable.fromProto(summary.toProtoMessage()));
+    }
+
+    private List<P2PDataStorage.ByteArray> createKeys(int numKeys, int keyLength) {
+        List<P2PDataStorage.ByteArray> keys = new ArrayList<>();
+        for (int i = 0; i < numKeys; i++) {
+            byte[] bytes = new byte[keyLength];
+            random.nextBytes(bytes);
+            keys.add(new P2PDataStorage.ByteArray(bytes));
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.network.p2p.peers.getdata;
+
+import com.google.common.util.concurrent.SettableFuture;
+import io.bisq.common.proto.network.NetworkEnvelope;
+import io.bisq.network.p2p.NodeAddress;
+import io.bisq.network.p2p.network.Connection;
+import io.bisq.network.p2p.network.NetworkNode;
+import io.bisq.network.p2p.peers.PeerManager;
+import io.bisq.network.p2p.peers.getdata.messages.GetDataRequest;
+import io.bisq.network.p2p.peers.getdata.messages.GetDataResponse;
+import io.bisq.network.p2p.storage.P2PDataStorage;
+import io.bisq.network.p2p.storage.PersistableNetworkPayloadCollection;
+import io.bisq.network.p2p.storage.payload.PersistableNetworkPayload;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.*;
+
+public class RequestDataHandlerTest {
+    private static final long NOW = TimeUnit.DAYS.toMillis(1000);
+
+    @Test
+    public void testEstimateNumMissingItems() {
+        // 10 items per day in the 30 days before our newest item
+        List<PersistableNetworkPayload> items = new ArrayList<>();
+        long newestDate = NOW - TimeUnit.DAYS.toMillis(10);
+        for (int i = 0; i < 300; i++)
+            items.add(createItem(newestDate - i * TimeUnit.DAYS.toMillis(1) / 10));
+
+        // We were offline 10 days, so we expect to miss about 100 items
+        int estimate = RequestDataHandler.estimateNumMissingItems(items, NOW);
+        assertTrue("estimate=" + estimate, estimate >= 100 && estimate < 150);
+
+        // If we are up to date we only expect a few items
+        estimate = RequestDataHandler.estimateNumMissingItems(items, newestDate);
+        assertTrue("estimate=" + estimate, estimate < 50);
+    }
+
+    @Test
+    public void testEstimateWithoutDates() {
+        List<PersistableNetworkPayload> items = new ArrayList<>();
+        assertEquals(16, RequestDataHandler.estimateNumMissingItems(items, NOW));
+
+        items.add(createItem(0));
+        assertEquals(16, RequestDataHandler.estimateNumMissingItems(items, NOW));
+    }
+
+    @Test
+    public void testFallbackRequestUsesNewNonce() {
+        NodeAddress peer = new NodeAddress("peer:8000");
+        NetworkNode networkNode = mock(NetworkNode.class);
+        when(networkNode.getNodeAddress()).thenReturn(new NodeAddress("me:8000"));
+        when(networkNode.sendMessage(any(NodeAddress.class), any(NetworkEnvelope.class)))
+                .thenAnswer(invocation -> SettableFuture.create());
+
+        // Enough keys so a summary is smaller than the excludedKeys
+        PersistableNetworkPayloadCollection collection = new PersistableNetworkPayloadCollection();
+        for (int i = 0; i < 500; i++)
+            collection.getMap().put(new P2PDataStorage.ByteArray(ByteBuffer.allocate(20).putInt(i).array()),
+                    createItem(0));
+        P2PDataStorage dataStorage = mock(P2PDataStorage.class);
+        when(dataStorage.getPersistableNetworkPayloadCollection()).thenReturn(collection);
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(3).run();
+            return null;
+        }).when(dataStorage).addProtectedStorageEntries(any(), any(), anyBoolean(), any());
+
+        Connection connection = mock(Connection.class);
+        when(connection.getPeersNodeAddressOptional()).thenReturn(Optional.of(peer));
+        RequestDataHandler.Listener listener = mock(RequestDataHandler.Listener.class);
+        RequestDataHandler handler = new RequestDataHandler(networkNode, dataStorage, mock(PeerManager.class),
+                new HashSet<>(Collections.singleton(peer)), listener);
+
+        handler.requestData(peer, true);
+        ArgumentCaptor<NetworkEnvelope> requests = ArgumentCaptor.forClass(NetworkEnvelope.class);
+        verify(networkNode).sendMessage(eq(peer), requests.capture());
+        GetDataRequest summaryRequest = (GetDataRequest) requests.getValue();
+        assertNotNull(summaryRequest.getPersistableNetworkPayloadSummary());
+
+        // The peer could not decode our summary, so we repeat the request with the excludedKeys
+        handler.onMessage(new GetDataResponse(new HashSet<>(), null, summaryRequest.getNonce(), false, true), connection);
+        verify(networkNode, times(2)).sendMessage(eq(peer), requests.capture());
+        GetDataRequest fallbackRequest = (GetDataRequest) requests.getValue();
+        assertNull(fallbackRequest.getPersistableNetworkPayloadSummary());
+        assertNotEquals(summaryRequest.getNonce(), fallbackRequest.getNonce());
+
+        // A late response to the first request is ignored
+        handler.onMessage(new GetDataResponse(new HashSet<>(), null, summaryRequest.getNonce(), false), connection);
+        verify(listener, never()).onComplete();
+
+        handler.onMessage(new GetDataResponse(new HashSet<>(), null, fallbackRequest.getNonce(), false), connection);
+        verify(listener).onComplete();
+        handler.cancel();
+    }
+
+    private static PersistableNetworkPayload createItem(long date) {
+        PersistableNetworkPayload item = mock(PersistableNetworkPayload.class);
+        when(item.getDate()).thenReturn(date);
+        return item;
+    }
+}
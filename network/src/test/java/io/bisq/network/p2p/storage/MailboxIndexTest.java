@@ -0,0 +1,151 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.network.p2p.storage;
+
+import io.bisq.common.crypto.CryptoException;
+import io.bisq.common.crypto.SealedAndSigned;
+import io.bisq.common.crypto.Sig;
+import io.bisq.common.proto.persistable.PersistenceProtoResolver;
+import io.bisq.common.storage.FileUtil;
+import io.bisq.network.p2p.NodeAddress;
+import io.bisq.network.p2p.PrefixedSealedAndSignedMessage;
+import io.bisq.network.p2p.network.NetworkNode;
+import io.bisq.network.p2p.peers.Broadcaster;
+import io.bisq.network.p2p.storage.P2PDataStorage.ByteArray;
+import io.bisq.network.p2p.storage.payload.MailboxStoragePayload;
+import io.bisq.network.p2p.storage.payload.ProtectedMailboxStorageEntry;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.security.KeyPair;
+import java.security.Security;
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+public class MailboxIndexTest {
+    private static final byte[] ADDRESS_PREFIX_HASH = new byte[]{1, 2};
+    private static final byte[] OTHER_ADDRESS_PREFIX_HASH = new byte[]{3, 4};
+
+    private File dir;
+    private P2PDataStorage dataStorage;
+    private HashMapChangedListener listener;
+    private KeyPair senderKeyPair;
+    private KeyPair receiverKeyPair;
+
+    @Before
+    public void setup() throws IOException {
+        Security.addProvider(new BouncyCastleProvider());
+        dir = File.createTempFile("temp_tests", "");
+        //noinspection ResultOfMethodCallIgnored
+        dir.delete();
+        //noinspection ResultOfMethodCallIgnored
+        dir.mkdir();
+
+        dataStorage = new P2PDataStorage(mock(NetworkNode.class), mock(Broadcaster.class), dir,
+                mock(PersistenceProtoResolver.class));
+        dataStorage.readPersisted();
+        listener = mock(HashMapChangedListener.class);
+        dataStorage.addHashMapChangedListener(listener);
+
+        senderKeyPair = Sig.generateKeyPair();
+        receiverKeyPair = Sig.generateKeyPair();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        dataStorage.shutDown();
+        FileUtil.deleteDirectory(dir);
+    }
+
+    @Test
+    public void testAddedEntryIsIndexedByAddressPrefixHash() throws CryptoException {
+        MailboxStoragePayload payload = getPayload(ADDRESS_PREFIX_HASH);
+        ProtectedMailboxStorageEntry entry = getAddEntry(payload);
+        assertTrue(dataStorage.addProtectedStorageEntry(entry, null, null, false));
+
+        Map<ByteArray, ProtectedMailboxStorageEntry> entries = dataStorage.getMailboxEntries(ADDRESS_PREFIX_HASH);
+        assertEquals(Collections.singletonMap(getHash(payload), entry), entries);
+        assertTrue(dataStorage.getMailboxEntries(OTHER_ADDRESS_PREFIX_HASH).isEmpty());
+        verify(listener).onAdded(entry);
+    }
+
+    @Test
+    public void testRemovedEntryIsRemovedFromIndex() throws CryptoException {
+        MailboxStoragePayload payload = getPayload(ADDRESS_PREFIX_HASH);
+        MailboxStoragePayload otherPayload = getPayload(ADDRESS_PREFIX_HASH);
+        assertTrue(dataStorage.addProtectedStorageEntry(getAddEntry(payload), null, null, false));
+        ProtectedMailboxStorageEntry otherEntry = getAddEntry(otherPayload);
+        assertTrue(dataStorage.addProtectedStorageEntry(otherEntry, null, null, false));
+
+        // Only the receiver can remove the entry
+        byte[] signature = Sig.sign(receiverKeyPair.getPrivate(),
+                P2PDataStorage.getHash(new P2PDataStorage.DataAndSeqNrPair(payload, 2)));
+        ProtectedMailboxStorageEntry removeEntry = new ProtectedMailboxStorageEntry(payload,
+                receiverKeyPair.getPublic(), 2, signature, receiverKeyPair.getPublic());
+        assertTrue(dataStorage.removeMailboxData(removeEntry, null, false));
+
+        assertEquals(Collections.singletonMap(getHash(otherPayload), otherEntry),
+                dataStorage.getMailboxEntries(ADDRESS_PREFIX_HASH));
+        verify(listener).onRemoved(removeEntry);
+    }
+
+    @Test
+    public void testExpiredEntryIsRemovedFromIndex() throws CryptoException {
+        MailboxStoragePayload payload = getPayload(ADDRESS_PREFIX_HASH);
+        ProtectedMailboxStorageEntry entry = getAddEntry(payload);
+        assertTrue(dataStorage.addProtectedStorageEntry(entry, null, null, false));
+
+        dataStorage.removeExpiredEntries();
+        assertEquals(1, dataStorage.getMailboxEntries(ADDRESS_PREFIX_HASH).size());
+
+        // Each backDate moves the creation date back by half of the TTL
+        entry.backDate();
+        entry.backDate();
+        entry.backDate();
+        dataStorage.removeExpiredEntries();
+
+        assertTrue(dataStorage.getMailboxEntries(ADDRESS_PREFIX_HASH).isEmpty());
+        assertFalse(dataStorage.getMap().containsKey(getHash(payload)));
+        verify(listener).onRemoved(entry);
+    }
+
+    private MailboxStoragePayload getPayload(byte[] addressPrefixHash) {
+        SealedAndSigned sealedAndSigned = new SealedAndSigned(new byte[]{1}, new byte[]{2}, new byte[]{3},
+                senderKeyPair.getPublic());
+        PrefixedSealedAndSignedMessage message = new PrefixedSealedAndSignedMessage(new NodeAddress("localhost:8001"),
+                sealedAndSigned, addressPrefixHash, UUID.randomUUID().toString());
+        return new MailboxStoragePayload(message, senderKeyPair.getPublic(), receiverKeyPair.getPublic());
+    }
+
+    private ProtectedMailboxStorageEntry getAddEntry(MailboxStoragePayload payload) throws CryptoException {
+        return dataStorage.getMailboxDataWithSignedSeqNr(payload, senderKeyPair, receiverKeyPair.getPublic());
+    }
+
+    private static ByteArray getHash(MailboxStoragePayload payload) {
+        return new ByteArray(P2PDataStorage.getHash(payload));
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bisq.network.p2p.storage;
+
+import io.bisq.common.UserThread;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SignatureVerifierTest {
+    private SignatureVerifier signatureVerifier;
+    private Executor previousExecutor;
+
+    @Before
+    public void setup() {
+        previousExecutor = UserThread.getExecutor();
+        UserThread.setExecutor(Executors.newSingleThreadExecutor());
+        signatureVerifier = new SignatureVerifier();
+    }
+
+    @After
+    public void tearDown() {
+        signatureVerifier.shutDown();
+        UserThread.setExecutor(previousExecutor);
+    }
+
+    @Test
+    public void testOnlyVerifiedItemsAreDelivered() throws Exception {
+        List<Integer> items = IntStream.range(0, 1000).boxed().collect(Collectors.toList());
+        CompletableFuture<List<Integer>> result = new CompletableFuture<>();
+        UserThread.execute(() -> signatureVerifier.verify(items, item -> item % 2 == 0, result::complete));
+
+        List<Integer> expected = items.stream().filter(item -> item % 2 == 0).collect(Collectors.toList());
+        assertEquals(expected, result.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testResultsAreDeliveredInOrder() throws Exception {
+        List<String> results = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(1);
+        UserThread.execute(() -> {
+            // The first check is slow, so the second one completes first
+            signatureVerifier.verify(Arrays.asList("slow"), item -> {
+                sleep(300);
+                return true;
+            }, results::addAll);
+            signatureVerifier.verify(Arrays.asList("fast"), item -> true, results::addAll);
+            signatureVerifier.runInOrder(() -> {
+                results.add("remove");
+                latch.countDown();
+            });
+        });
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("slow", "fast", "remove"), new ArrayList<>(results));
+    }
+
+    @Test
+    public void testExceptionAtCheckIsTreatedAsInvalid() throws Exception {
+        CompletableFuture<List<Integer>> result = new CompletableFuture<>();
+        UserThread.execute(() -> signatureVerifier.verify(Arrays.asList(1, 2), item -> {
+            if (item == 1)
+                throw new IllegalStateException();
+            return true;
+        }, result::complete));
+
+        assertEquals(Arrays.asList(2), result.get(10, TimeUnit.SECONDS));
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -52,6 +52,8 @@ public class SeedNode {
         String logPath = Paths.get(bisqEnvironment.getProperty(AppOptionKeys.APP_DATA_DIR_KEY), "bisq").toString();
         Log.setup(logPath);
         Log.setLevel(Level.toLevel(bisqEnvironment.getRequiredProperty(CommonOptionKeys.LOG_LEVEL_KEY)));
+        Log.setMessageSampleRates(bisqEnvironment.getProperty(CommonOptionKeys.LOG_MESSAGE_SAMPLE_RATES_KEY, ""));
+        Log.setPayloadLoggingEnabled(bisqEnvironment.getProperty(CommonOptionKeys.LOG_MESSAGE_PAYLOADS_KEY, Boolean.class, false));
 
         log.info("Log files under: " + logPath);
         log.info("SeedNode.VERSION: " + SeedNode.VERSION);
@@ -108,7 +110,10 @@ public class SeedNode {
                     Capabilities.Capability.ACCOUNT_AGE_WITNESS.ordinal(),
                     Capabilities.Capability.SEED_NODE.ordinal(),
                     Capabilities.Capability.DAO_FULL_NODE.ordinal(),
-                    Capabilities.Capability.COMP_REQUEST.ordinal()
+                    Capabilities.Capability.COMP_REQUEST.ordinal(),
+                    Capabilities.Capability.DELTA_SYNC.ordinal(),
+                    Capabilities.Capability.DAO_SNAPSHOT.ordinal(),
+                    Capabilities.Capability.CHUNKED_GET_DATA.ordinal()
             )));
         else
             Capabilities.setSupportedCapabilities(new ArrayList<>(Arrays.asList(
@@ -116,7 +121,9 @@ public class SeedNode {
                     Capabilities.Capability.TRADE_STATISTICS_2.ordinal(),
                     Capabilities.Capability.ACCOUNT_AGE_WITNESS.ordinal(),
                     Capabilities.Capability.SEED_NODE.ordinal(),
-                    Capabilities.Capability.COMP_REQUEST.ordinal()
+                    Capabilities.Capability.COMP_REQUEST.ordinal(),
+                    Capabilities.Capability.DELTA_SYNC.ordinal(),
+                    Capabilities.Capability.CHUNKED_GET_DATA.ordinal()
             )));
         appSetup.start();
     }
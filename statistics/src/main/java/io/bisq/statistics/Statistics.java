@@ -60,6 +60,8 @@ public class Statistics {
         String logPath = Paths.get(bisqEnvironment.getProperty(AppOptionKeys.APP_DATA_DIR_KEY), "bisq").toString();
         Log.setup(logPath);
         Log.setLevel(Level.toLevel(bisqEnvironment.getRequiredProperty(CommonOptionKeys.LOG_LEVEL_KEY)));
+        Log.setMessageSampleRates(bisqEnvironment.getProperty(CommonOptionKeys.LOG_MESSAGE_SAMPLE_RATES_KEY, ""));
+        Log.setPayloadLoggingEnabled(bisqEnvironment.getProperty(CommonOptionKeys.LOG_MESSAGE_PAYLOADS_KEY, Boolean.class, false));
         log.info("Log files under: " + logPath);
         log.info("Statistics.VERSION: " + VERSION);
         log.info("Bisq exchange Version{" +
@@ -130,7 +132,9 @@ public class Statistics {
                 Capabilities.Capability.TRADE_STATISTICS.ordinal(),
                 Capabilities.Capability.TRADE_STATISTICS_2.ordinal(),
                 Capabilities.Capability.ACCOUNT_AGE_WITNESS.ordinal(),
-                Capabilities.Capability.COMP_REQUEST.ordinal()
+                Capabilities.Capability.COMP_REQUEST.ordinal(),
+                Capabilities.Capability.DELTA_SYNC.ordinal(),
+                Capabilities.Capability.CHUNKED_GET_DATA.ordinal()
         )));
         appSetup.start();
     }